@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.bonus;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HitscanBulletTest {
+    @Test
+    public void testGoesThroughBonusSpots() {
+        World world = new World(new Vector2(0, 0), true);
+        GameWorld gameWorld = mock(GameWorld.class);
+        when(gameWorld.getBox2DWorld()).thenReturn(world);
+
+        // GIVEN a bonus spot, a sensor which keeps the default collision category, at x = 5
+        Fixture sensor = createBox(world, 5).getFixtureList().first();
+        sensor.setSensor(true);
+        // AND a wall behind it, at x = 10
+        Body wall = createBox(world, 10);
+        Box2DUtils.setCollisionInfo(wall, CollisionCategories.WALL, CollisionCategories.RACER);
+
+        // WHEN shooting toward them. The shooter must not be null: neither body has user data, so
+        // they would be taken for the shooter
+        Racer shooter = mock(Racer.class);
+        HitscanBullet bullet = HitscanBullet.shoot(null, gameWorld, null, shooter, 0, 0, 0);
+
+        // THEN the shot goes through the bonus spot and hits the wall
+        assertThat(bullet.mHit, is(true));
+        assertEquals(9f, bullet.mEnd.x, 0.001f);
+
+        bullet.dispose();
+        world.dispose();
+    }
+
+    /** Creates a 2x2 static box centered on (x, 0) */
+    private static Body createBox(World world, float x) {
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.position.set(x, 0);
+        Body body = world.createBody(bodyDef);
+        PolygonShape shape = new PolygonShape();
+        shape.setAsBox(1, 1);
+        body.createFixture(shape, 0);
+        shape.dispose();
+        return body;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.gameobjet;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.pixelwheels.ZLevel;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GameObjectStoreTest {
+    private static class TestObject extends GameObjectAdapter implements Disposable {
+        int actCount = 0;
+        boolean disposed = false;
+        // Object added to the store the first time this one acts
+        GameObject spawned;
+        GameObjectStore store;
+        // If set, the object adds itself to it when it acts
+        Array<GameObject> actLog;
+
+        @Override
+        public void act(float delta) {
+            ++actCount;
+            if (actLog != null) {
+                actLog.add(this);
+            }
+            if (spawned != null) {
+                store.add(spawned);
+                spawned = null;
+            }
+        }
+
+        void finish() {
+            setFinished(true);
+        }
+
+        @Override
+        public void draw(Batch batch, ZLevel zLevel) {}
+
+        @Override
+        public float getX() {
+            return 0;
+        }
+
+        @Override
+        public float getY() {
+            return 0;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+    private static class LateObject extends TestObject {
+        @Override
+        public UpdatePhase getUpdatePhase() {
+            return UpdatePhase.LATE;
+        }
+    }
+
+    // Its class name comes before TestObject
+    private static class OtherObject extends TestObject {}
+
+    @Test
+    public void testRemoveFinishedObjects() {
+        // GIVEN a store with 3 objects
+        GameObjectStore store = new GameObjectStore();
+        TestObject object1 = new TestObject();
+        TestObject object2 = new TestObject();
+        TestObject object3 = new TestObject();
+        store.add(object1);
+        store.add(object2);
+        store.add(object3);
+
+        // WHEN the first one is finished
+        object1.finish();
+        store.act(GameObject.UpdatePhase.POST_PHYSICS, 1);
+
+        // THEN all objects acted once
+        assertThat(object1.actCount, is(1));
+        assertThat(object2.actCount, is(1));
+        assertThat(object3.actCount, is(1));
+
+        // AND the finished object has been removed and disposed, the last object took its place
+        assertThat(object1.disposed, is(true));
+        Array<GameObject> all = store.getAll();
+        assertThat(all.size, is(2));
+        assertThat(all.get(0), is(object3));
+        assertThat(all.get(1), is(object2));
+        assertThat(store.getObjects(TestObject.class).size, is(2));
+    }
+
+    @Test
+    public void testPhases() {
+        // GIVEN a store with a LATE object and a POST_PHYSICS one
+        GameObjectStore store = new GameObjectStore();
+        TestObject object = new TestObject();
+        LateObject lateObject = new LateObject();
+        store.add(object);
+        store.add(lateObject);
+
+        // WHEN the POST_PHYSICS objects act
+        store.act(GameObject.UpdatePhase.POST_PHYSICS, 1);
+
+        // THEN only the POST_PHYSICS object acted
+        assertThat(object.actCount, is(1));
+        assertThat(lateObject.actCount, is(0));
+
+        // AND each class has its own bucket
+        assertThat(store.getObjects(TestObject.class).size, is(1));
+        assertThat(store.getObjects(LateObject.class).size, is(1));
+    }
+
+    @Test
+    public void testAddDuringAct() {
+        // GIVEN an object which adds another one when it acts
+        GameObjectStore store = new GameObjectStore();
+        TestObject object = new TestObject();
+        TestObject spawned = new TestObject();
+        object.store = store;
+        object.spawned = spawned;
+        store.add(object);
+
+        // WHEN it acts
+        store.act(GameObject.UpdatePhase.POST_PHYSICS, 1);
+
+        // THEN the new object is not stored until flushAddedObjects() is called
+        assertThat(store.getAll().size, is(1));
+        store.flushAddedObjects();
+        assertThat(store.getAll().size, is(2));
+        assertThat(spawned.actCount, is(0));
+    }
+
+    @Test
+    public void testClassesActInNameOrder() {
+        // GIVEN a store where a TestObject has been added before an OtherObject
+        GameObjectStore store = new GameObjectStore();
+        Array<GameObject> actLog = new Array<>();
+        TestObject object = new TestObject();
+        OtherObject otherObject = new OtherObject();
+        object.actLog = actLog;
+        otherObject.actLog = actLog;
+        store.add(object);
+        store.add(otherObject);
+
+        // WHEN they act
+        store.act(GameObject.UpdatePhase.POST_PHYSICS, 1);
+
+        // THEN the OtherObject acts first, since its class name comes first
+        assertThat(actLog.size, is(2));
+        assertThat(actLog.get(0), is(otherObject));
+        assertThat(actLog.get(1), is(object));
+    }
+
+    @Test
+    public void testRemoveAll() {
+        // GIVEN a store with objects of two classes
+        GameObjectStore store = new GameObjectStore();
+        TestObject object = new TestObject();
+        LateObject lateObject = new LateObject();
+        store.add(object);
+        store.add(lateObject);
+
+        // WHEN removing the TestObject instances
+        store.removeAll(TestObject.class);
+
+        // THEN only the LateObject remains
+        assertThat(object.disposed, is(true));
+        assertThat(store.getAll().size, is(1));
+        assertThat(store.getAll().first(), is(lateObject));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.pixelwheels.Constants;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.XmlReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class NavFieldTest {
+    private static final float CELL_SIZE = 1.6f;
+    // Tests run from core-tests/. The .nav files are generated by `make assets`
+    private static final String MAPS_DIR = "../android/assets/maps/";
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetCellIndex() {
+        // GIVEN a 3x2 field with data in one cell
+        NavField field = new NavField(3, 2, CELL_SIZE);
+        field.setCell(2, 1, 90, 3);
+
+        // THEN only positions inside this cell have data
+        assertThat(field.getCellIndex(2.5f * CELL_SIZE, 1.5f * CELL_SIZE), is(5));
+        assertThat(field.getCellIndex(0.5f * CELL_SIZE, 0.5f * CELL_SIZE), is(NavField.NO_CELL));
+        assertThat(field.getCellIndex(3.5f * CELL_SIZE, 1.5f * CELL_SIZE), is(NavField.NO_CELL));
+        assertThat(field.getCellIndex(-0.5f * CELL_SIZE, 1.5f * CELL_SIZE), is(NavField.NO_CELL));
+    }
+
+    @Test
+    public void testIO() {
+        // GIVEN a field
+        NavField field = new NavField(3, 2, CELL_SIZE);
+        field.setCell(0, 0, 45, 1.2f);
+        field.setCell(2, 1, -90, 100);
+
+        // WHEN it is saved and loaded back
+        FileHandle file = new FileHandle(mTemporaryFolder.getRoot() + "/test.nav");
+        field.save(file);
+        NavField loaded = NavField.load(file);
+
+        // THEN the loaded field is the same, within quantization steps
+        assertThat(loaded.getWidth(), is(3));
+        assertThat(loaded.getHeight(), is(2));
+        assertThat(loaded.getCellSize(), is(CELL_SIZE));
+
+        int cell = loaded.getCellIndex(0, 0);
+        assertThat(cell, is(0));
+        assertThat(Math.abs(loaded.getHeading(cell) - 45) < 0.01f, is(true));
+        assertThat(Math.abs(loaded.getBorderDistance(cell) - 1.2f) < 0.05f, is(true));
+
+        // Negative headings are stored as positive ones, border distances are clamped
+        cell = loaded.getCellIndex(2.5f * CELL_SIZE, 1.5f * CELL_SIZE);
+        assertThat(Math.abs(loaded.getHeading(cell) - 270) < 0.01f, is(true));
+        float distance = loaded.getBorderDistance(cell);
+        assertThat(Math.abs(distance - NavField.MAX_BORDER_DISTANCE) < 0.05f, is(true));
+
+        assertThat(loaded.getCellIndex(1.5f * CELL_SIZE, 0.5f * CELL_SIZE), is(NavField.NO_CELL));
+    }
+
+    @Test
+    public void testGeneratedField() {
+        // GIVEN the field generated for a real track
+        NavField field = NavField.load(new FileHandle(MAPS_DIR + "race.nav"));
+        assertThat(field != null, is(true));
+
+        // THEN its grid covers the map, with two cells per tile
+        XmlReader.Element map = new XmlReader().parse(new FileHandle(MAPS_DIR + "race.tmx"));
+        assertThat(field.getWidth(), is(map.getIntAttribute("width") * 2));
+        assertThat(field.getHeight(), is(map.getIntAttribute("height") * 2));
+        float cellSize = Constants.UNIT_FOR_PIXEL * map.getIntAttribute("tilewidth") / 2;
+        assertThat(Math.abs(field.getCellSize() - cellSize) < 0.001f, is(true));
+
+        // AND the cells with data have valid headings and border distances
+        int cellCount = 0;
+        for (int cy = 0; cy < field.getHeight(); ++cy) {
+            for (int cx = 0; cx < field.getWidth(); ++cx) {
+                int cell = field.getCellIndex((cx + 0.5f) * cellSize, (cy + 0.5f) * cellSize);
+                if (cell == NavField.NO_CELL) {
+                    continue;
+                }
+                ++cellCount;
+                float heading = field.getHeading(cell);
+                assertThat(heading >= 0 && heading < 360, is(true));
+                float distance = field.getBorderDistance(cell);
+                assertThat(distance >= 0 && distance <= NavField.MAX_BORDER_DISTANCE, is(true));
+            }
+        }
+        assertThat(cellCount > 0, is(true));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import com.badlogic.gdx.math.RandomXS128;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WaypointStoreTest {
+    private static final float[] LAP_DISTANCES = {2.7f, 0.5f, 2f, 1.2f};
+
+    @Test
+    public void testSortsWaypoints() {
+        WaypointStore store = createStore();
+
+        assertThat(store.getLapDistance(0), is(0.5f));
+        assertThat(store.getWaypointX(0), is(1f));
+        assertThat(store.getWaypointY(0), is(-1f));
+        assertThat(store.getLapDistance(3), is(2.7f));
+        assertThat(store.getWaypointX(3), is(0f));
+    }
+
+    @Test
+    public void testGetWaypointIndex() {
+        WaypointStore store = createStore();
+
+        assertThat(store.getWaypointIndex(0.1f), is(0));
+        assertThat(store.getWaypointIndex(0.5f), is(1));
+        assertThat(store.getWaypointIndex(1.5f), is(2));
+        assertThat(store.getWaypointIndex(2.69f), is(3));
+        // Wraps after the last waypoint
+        assertThat(store.getWaypointIndex(2.7f), is(0));
+        assertThat(store.getWaypointIndex(3.5f), is(0));
+    }
+
+    @Test
+    public void testCursor() {
+        // GIVEN a cursor
+        WaypointStore store = createStore();
+        WaypointStore.Cursor cursor = new WaypointStore.Cursor(store);
+
+        // WHEN the lap distance goes around the track, then jumps around
+        // THEN the cursor always returns the same indexes as getWaypointIndex()
+        for (float distance = 0; distance < 4; distance += 0.05f) {
+            float lapDistance = distance % 3;
+            int expected = store.getWaypointIndex(lapDistance);
+            assertThat(cursor.getWaypointIndex(lapDistance), is(expected));
+        }
+        RandomXS128 random = new RandomXS128(12);
+        for (int idx = 0; idx < 100; ++idx) {
+            float lapDistance = random.nextFloat() * 3;
+            int expected = store.getWaypointIndex(lapDistance);
+            assertThat(cursor.getWaypointIndex(lapDistance), is(expected));
+        }
+    }
+
+    private static WaypointStore createStore() {
+        float[] x = new float[LAP_DISTANCES.length];
+        float[] y = new float[LAP_DISTANCES.length];
+        for (int idx = 0; idx < LAP_DISTANCES.length; ++idx) {
+            x[idx] = idx;
+            y[idx] = -idx;
+        }
+        WaypointStore store = new WaypointStore();
+        store.setWaypoints(x, y, LAP_DISTANCES);
+        return store;
+    }
+}
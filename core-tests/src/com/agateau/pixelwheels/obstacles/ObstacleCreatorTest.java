@@ -21,6 +21,8 @@ package com.agateau.pixelwheels.obstacles;
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,11 +31,18 @@ import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.TextureRegionProvider;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.map.MapUtils;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.ChainShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import org.junit.Rule;
@@ -66,6 +75,7 @@ public class ObstacleCreatorTest {
         when(mTextureRegion.getRegionWidth()).thenReturn(obstacleSize);
         when(mTextureRegion.getRegionHeight()).thenReturn(obstacleSize);
         ObstacleDef def = ObstacleDef.createCircle(mTextureRegionProvider, "tyre", 1);
+        def.dynamic = true;
 
         // AND an obstacle creator
         ObstacleCreator creator = new ObstacleCreator();
@@ -99,6 +109,112 @@ public class ObstacleCreatorTest {
         assertThat(fixtures.size, is(1));
     }
 
+    @Test
+    public void testCreateStatic() {
+        final int obstacleSize = 12;
+        // GIVEN a world
+        World box2DWorld = createBox2DWorld();
+        StaticObstacles staticObstacles = new StaticObstacles();
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+        when(mGameWorld.getStaticObstacles()).thenReturn(staticObstacles);
+
+        // AND a static obstacle definition
+        when(mTextureRegionProvider.findRegion("obstacle-block")).thenReturn(mTextureRegion);
+        when(mTextureRegion.getRegionWidth()).thenReturn(obstacleSize);
+        when(mTextureRegion.getRegionHeight()).thenReturn(obstacleSize);
+        ObstacleDef def = ObstacleDef.createRectangle(mTextureRegionProvider, "block", 1);
+
+        // AND an obstacle creator
+        ObstacleCreator creator = new ObstacleCreator();
+        creator.addObstacleDef(def);
+
+        // WHEN I call create() with two rectangles the size of the obstacle
+        for (int idx = 0; idx < 2; ++idx) {
+            RectangleMapObject mapObject =
+                    new RectangleMapObject(idx * 100, 0, obstacleSize, obstacleSize);
+            MapUtils.setObstacleId(mapObject, def.id);
+            creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+        }
+
+        // THEN no game object is created
+        verify(mGameWorld, never()).addGameObject(any());
+
+        // AND the obstacles are fixtures of a single body
+        Array<Body> bodies = new Array<>();
+        box2DWorld.getBodies(bodies);
+        assertThat(bodies.size, is(1));
+        assertThat(bodies.get(0).getFixtureList().size, is(2));
+        assertThat(staticObstacles.getItems().size, is(2));
+    }
+
+    @Test
+    public void testCreateBorders() {
+        // GIVEN a world
+        World box2DWorld = createBox2DWorld();
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+
+        // AND an obstacle creator
+        ObstacleCreator creator = new ObstacleCreator();
+
+        // WHEN I call create() with two map objects without an obstacle id
+        creator.create(mGameWorld, mTextureRegionProvider, new RectangleMapObject(0, 0, 10, 20));
+        creator.create(mGameWorld, mTextureRegionProvider, new RectangleMapObject(40, 0, 10, 20));
+
+        // AND I call createBorders()
+        creator.createBorders(box2DWorld);
+
+        // THEN a single body is created
+        Array<Body> bodies = new Array<>();
+        box2DWorld.getBodies(bodies);
+        assertThat(bodies.size, is(1));
+
+        // AND it has one solid wall fixture per map object
+        Array<Fixture> fixtures = bodies.get(0).getFixtureList();
+        assertThat(fixtures.size, is(2));
+        for (Fixture fixture : fixtures) {
+            assertThat(fixture.getType(), is(Shape.Type.Polygon));
+            assertThat((int) fixture.getFilterData().categoryBits, is(CollisionCategories.WALL));
+        }
+    }
+
+    @Test
+    public void testCreateBordersWithDegenerateVertices() {
+        // GIVEN borders with vertices closer than Box2D accepts
+        final float d = BorderCompiler.MIN_VERTEX_DISTANCE / Constants.UNIT_FOR_PIXEL / 2;
+        PolylineMapObject polyline =
+                new PolylineMapObject(new float[] {0, 0, 10, 0, 10 + d, 0, 10, 10});
+        PolygonMapObject repeatedVertex =
+                new PolygonMapObject(new float[] {0, 0, 10, 0, 10, d, 10, 10, 0, 10});
+        PolygonMapObject closedPolygon =
+                new PolygonMapObject(new float[] {0, 0, 10, 0, 10, 10, d, 0});
+        PolygonMapObject pointPolygon = new PolygonMapObject(new float[] {0, 0, d, 0, 0, d});
+
+        // WHEN they are compiled
+        // THEN the near-duplicate vertices are dropped
+        Shape shape = compileBorder(polyline).first().getShape();
+        assertThat(shape.getType(), is(Shape.Type.Chain));
+        assertThat(((ChainShape) shape).getVertexCount(), is(3));
+
+        shape = compileBorder(repeatedVertex).first().getShape();
+        assertThat(shape.getType(), is(Shape.Type.Polygon));
+        assertThat(((PolygonShape) shape).getVertexCount(), is(4));
+
+        shape = compileBorder(closedPolygon).first().getShape();
+        assertThat(((PolygonShape) shape).getVertexCount(), is(3));
+
+        // AND the degenerate polygon is skipped
+        assertThat(compileBorder(pointPolygon).size, is(0));
+    }
+
+    /** Compiles mapObject as a border of a new world, returns the fixtures of the border body */
+    private Array<Fixture> compileBorder(MapObject mapObject) {
+        World box2DWorld = createBox2DWorld();
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+        ObstacleCreator creator = new ObstacleCreator();
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+        return creator.createBorders(box2DWorld).getFixtureList();
+    }
+
     private static World createBox2DWorld() {
         return new World(new Vector2(0, 0), true);
     }
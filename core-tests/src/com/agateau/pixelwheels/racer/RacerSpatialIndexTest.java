@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RacerSpatialIndexTest {
+    private static final float VEHICLE_SIZE = 2;
+
+    @Test
+    public void testFindNearestInCone() {
+        // GIVEN racers in front, behind and on the side of (10, 10)
+        Racer shooter = createRacer(10, 10);
+        Racer front = createRacer(30, 10);
+        Racer frontFar = createRacer(40, 10);
+        Racer behind = createRacer(5, 10);
+        Racer side = createRacer(10, 20);
+        RacerSpatialIndex index = createIndex(shooter, front, frontFar, behind, side);
+
+        // THEN the cone finds the closest racer in front, ignoring the shooter
+        assertThat(index.findNearestInCone(10, 10, 0, 60, 50, shooter, null), is(front));
+        // AND racers at the edge of a cone without arc are found, like with a ray
+        assertThat(index.findNearestInCone(10, 10.5f, 0, 0, 50, shooter, null), is(front));
+        // AND racers beyond depth are not found
+        assertThat(index.findNearestInCone(10, 10, 0, 60, 15, shooter, null) == null, is(true));
+        // AND the angle is in degrees
+        assertThat(index.findNearestInCone(10, 10, 90, 60, 50, shooter, null), is(side));
+        assertThat(index.findNearestInCone(10, 10, -180, 60, 50, shooter, null), is(behind));
+    }
+
+    @Test
+    public void testFindNearestInConeWithWalls() {
+        // GIVEN two racers in front of (10, 10), with a wall between the two racers and the closest
+        // one
+        Racer front = createRacer(30, 10);
+        Racer frontFar = createRacer(40, 12);
+        RacerSpatialIndex index = createIndex(front, frontFar);
+        StaticGeometry walls = new StaticGeometry.Builder().addSegment(20, 5, 20, 10.5f).build();
+
+        // THEN the hidden racer is ignored
+        assertThat(index.findNearestInCone(10, 10, 0, 60, 50, null, walls), is(frontFar));
+    }
+
+    @Test
+    public void testFindInRadius() {
+        // GIVEN racers spread over several cells
+        Racer racer1 = createRacer(10, 10);
+        Racer racer2 = createRacer(17, 10);
+        Racer racer3 = createRacer(10, 30);
+        RacerSpatialIndex index = createIndex(racer1, racer2, racer3);
+
+        // WHEN looking for racers close to racer1
+        Array<Racer> found = new Array<>();
+        int count = index.findInRadius(10, 10, 10, null, found);
+
+        // THEN racer1 and racer2 are found
+        assertThat(count, is(2));
+        assertThat(found.contains(racer1, true), is(true));
+        assertThat(found.contains(racer2, true), is(true));
+    }
+
+    @Test
+    public void testFindNearest() {
+        // GIVEN 4 racers
+        Racer racer1 = createRacer(10, 10);
+        Racer racer2 = createRacer(14, 10);
+        Racer racer3 = createRacer(10, 12);
+        Racer racer4 = createRacer(50, 50);
+        RacerSpatialIndex index = createIndex(racer1, racer2, racer3, racer4);
+
+        // WHEN looking for the 2 racers closest to racer1
+        Array<Racer> found = new Array<>();
+        int count = index.findNearest(10, 10, 2, 100, racer1, found);
+
+        // THEN they are returned closest first
+        assertThat(count, is(2));
+        assertThat(found.get(0), is(racer3));
+        assertThat(found.get(1), is(racer2));
+
+        // AND the query has been counted
+        assertThat(index.getQueryCount(), is(1));
+    }
+
+    @Test
+    public void testUpdate() {
+        // GIVEN a racer which moves after the index has been created
+        Racer racer = createRacer(10, 10);
+        RacerSpatialIndex index = createIndex(racer);
+        when(racer.getX()).thenReturn(60f);
+
+        // WHEN the index is updated
+        index.update();
+
+        // THEN the racer is found at its new position
+        Array<Racer> found = new Array<>();
+        assertThat(index.findInRadius(10, 10, 5, null, found), is(0));
+        assertThat(index.findInRadius(60, 10, 5, null, found), is(1));
+    }
+
+    private static RacerSpatialIndex createIndex(Racer... racers) {
+        RacerSpatialIndex index = new RacerSpatialIndex(64, 64);
+        index.setRacers(new Array<>(racers));
+        return index;
+    }
+
+    private static Racer createRacer(float x, float y) {
+        Vehicle vehicle = mock(Vehicle.class);
+        when(vehicle.getWidth()).thenReturn(VEHICLE_SIZE);
+        when(vehicle.getHeight()).thenReturn(VEHICLE_SIZE);
+        Racer racer = mock(Racer.class);
+        when(racer.getVehicle()).thenReturn(vehicle);
+        when(racer.getX()).thenReturn(x);
+        when(racer.getY()).thenReturn(y);
+        return racer;
+    }
+}
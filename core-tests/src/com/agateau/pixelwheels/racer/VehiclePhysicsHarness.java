@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.TextureRegionProvider;
+import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
+import com.agateau.pixelwheels.utils.BodyStateCache;
+import com.agateau.pixelwheels.utils.ContactResetter;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.agateau.pixelwheels.vehicledef.VehicleCreator;
+import com.agateau.pixelwheels.vehicledef.VehicleDef;
+import com.agateau.pixelwheels.vehicledef.VehicleIO;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.XmlReader;
+
+/**
+ * Drives vehicles with scripted commands on an empty world made only of road
+ *
+ * <p>Used to compare the handling of the vehicle physics models. Vehicles do not collide with each
+ * other, so that each of them can follow its script.
+ */
+class VehiclePhysicsHarness implements Disposable {
+    // Copy of android/assets/vehicles/red.xml
+    private static final String VEHICLE_XML =
+            "<vehicle speed=\"1\" name=\"Red\" width=\"30\" height=\"56\">"
+                    + "<main image=\"red\"/>"
+                    + "<shapes><octogon corner=\"3\" width=\"30\" height=\"56\"/></shapes>"
+                    + "<axle y=\"44\" width=\"26\" steer=\"1\"/>"
+                    + "<axle y=\"12\" width=\"28\"/>"
+                    + "</vehicle>";
+    // Sizes of the sprites, in pixels
+    private static final int VEHICLE_REGION_WIDTH = 56;
+    private static final int VEHICLE_REGION_HEIGHT = 30;
+    private static final int WHEEL_REGION_WIDTH = 13;
+    private static final int WHEEL_REGION_HEIGHT = 10;
+
+    private final World mWorld = new World(new Vector2(0, 0), true);
+    private final BodyStateCache mBodyStateCache = new BodyStateCache();
+    private final ContactResetter mContactResetter = new ContactResetter(mWorld);
+    private final VehicleDef mVehicleDef;
+    private final VehicleCreator mVehicleCreator;
+    private final Array<Vehicle> mVehicles = new Array<>();
+
+    VehiclePhysicsHarness() {
+        Track track = mock(Track.class);
+        when(track.getMaterialAt(any(Vector2.class))).thenReturn(Material.ROAD);
+        when(track.getMaterialAt(anyFloat(), anyFloat())).thenReturn(Material.ROAD);
+
+        GameWorld gameWorld = mock(GameWorld.class);
+        when(gameWorld.getBox2DWorld()).thenReturn(mWorld);
+        when(gameWorld.getBodyStateCache()).thenReturn(mBodyStateCache);
+        when(gameWorld.getTrack()).thenReturn(track);
+        when(gameWorld.getState()).thenReturn(GameWorld.State.RUNNING);
+        when(gameWorld.getEventBus()).thenReturn(new GameEventBus());
+
+        TextureRegionProvider provider = mock(TextureRegionProvider.class);
+        Array<TextureAtlas.AtlasRegion> vehicleRegions = new Array<>();
+        vehicleRegions.add(createRegion(VEHICLE_REGION_WIDTH, VEHICLE_REGION_HEIGHT));
+        when(provider.findRegions(anyString())).thenReturn(vehicleRegions);
+
+        TextureRegion wheelRegion = createRegion(WHEEL_REGION_WIDTH, WHEEL_REGION_HEIGHT);
+
+        mVehicleDef = VehicleIO.get(new XmlReader().parse(VEHICLE_XML), "red");
+        mVehicleCreator = new VehicleCreator(provider, wheelRegion, gameWorld);
+    }
+
+    /** Adds a vehicle at (x, y), facing right */
+    Vehicle addVehicle(Vehicle.PhysicsModel physicsModel, float x, float y) {
+        Vehicle vehicle = mVehicleCreator.create(mVehicleDef, new Vector2(x, y), 0, physicsModel);
+        vehicle.setCollisionInfo(CollisionCategories.RACER, 0);
+        mVehicles.add(vehicle);
+        return vehicle;
+    }
+
+    /** Runs count steps of GameWorld.BOX2D_TIME_STEP */
+    void run(int count) {
+        final float dt = GameWorld.BOX2D_TIME_STEP;
+        for (int step = 0; step < count; ++step) {
+            for (Vehicle vehicle : mVehicles) {
+                vehicle.act(dt);
+            }
+            mWorld.step(dt, GameWorld.VELOCITY_ITERATIONS, GameWorld.POSITION_ITERATIONS);
+            mBodyStateCache.update();
+        }
+    }
+
+    /** Runs for duration seconds */
+    void runFor(float duration) {
+        run((int) (duration / GameWorld.BOX2D_TIME_STEP));
+    }
+
+    /** Like GameWorldImpl.saveSnapshot(), restores the saved state right away */
+    void saveState(Snapshot snapshot) {
+        snapshot.clear();
+        for (Vehicle vehicle : mVehicles) {
+            vehicle.saveState(snapshot);
+        }
+        restoreState(snapshot);
+    }
+
+    void restoreState(Snapshot snapshot) {
+        snapshot.rewind();
+        for (Vehicle vehicle : mVehicles) {
+            vehicle.restoreState(snapshot);
+        }
+        mContactResetter.reset();
+        mBodyStateCache.update();
+    }
+
+    int getBodyCount() {
+        return mWorld.getBodyCount();
+    }
+
+    int getJointCount() {
+        return mWorld.getJointCount();
+    }
+
+    @Override
+    public void dispose() {
+        for (Vehicle vehicle : mVehicles) {
+            vehicle.dispose();
+        }
+        mContactResetter.dispose();
+        mWorld.dispose();
+    }
+
+    private static TextureAtlas.AtlasRegion createRegion(int width, int height) {
+        TextureAtlas.AtlasRegion region = mock(TextureAtlas.AtlasRegion.class);
+        when(region.getRegionWidth()).thenReturn(width);
+        when(region.getRegionHeight()).thenReturn(height);
+        return region;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Checks the SINGLE_BODY physics model handles like the JOINTED_WHEELS one. The bounds are a small
+ * margin around the observed values, given in comments. The cost of the models is measured by the
+ * VehiclePhysicsBenchmark tool.
+ */
+@RunWith(JUnit4.class)
+public class VehiclePhysicsModelTest {
+    // Vehicles are far enough from each other to never meet
+    private static final float LANE_SPACING = 50;
+
+    private VehiclePhysicsHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new VehiclePhysicsHarness();
+    }
+
+    @After
+    public void tearDown() {
+        mHarness.dispose();
+    }
+
+    @Test
+    public void testBodyCount() {
+        // GIVEN one vehicle of each model
+        // THEN the jointed one has a body and a joint per wheel, the single body one has none
+        // (the harness world starts with the body of its ContactResetter)
+        int bodyCount = mHarness.getBodyCount();
+        mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        assertThat(mHarness.getBodyCount(), is(bodyCount + 5));
+        assertThat(mHarness.getJointCount(), is(4));
+
+        mHarness.addVehicle(Vehicle.PhysicsModel.SINGLE_BODY, 0, LANE_SPACING);
+        assertThat(mHarness.getBodyCount(), is(bodyCount + 6));
+        assertThat(mHarness.getJointCount(), is(4));
+    }
+
+    @Test
+    public void testAccelerationParity() {
+        // GIVEN one vehicle of each model
+        Vehicle jointed = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        Vehicle single = mHarness.addVehicle(Vehicle.PhysicsModel.SINGLE_BODY, 0, LANE_SPACING);
+
+        // WHEN they accelerate in a straight line
+        jointed.setAccelerating(true);
+        single.setAccelerating(true);
+        mHarness.runFor(3);
+
+        // THEN they reach the same speed
+        // Observed: 34.85 and 1.0
+        assertBetween("jointed speed", jointed.getSpeed(), 34f, 35.5f);
+        assertBetween("speed ratio", single.getSpeed() / jointed.getSpeed(), 0.99f, 1.01f);
+
+        // AND they are still going straight
+        // Observed: 0, give or take 1e-7
+        assertBetween("jointed angle", jointed.getBody().getAngle(), -0.001f, 0.001f);
+        assertBetween("single angle", single.getBody().getAngle(), -0.001f, 0.001f);
+    }
+
+    @Test
+    public void testSteeringParity() {
+        // GIVEN one vehicle of each model, driving at full speed
+        Vehicle jointed = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        Vehicle single = mHarness.addVehicle(Vehicle.PhysicsModel.SINGLE_BODY, 0, LANE_SPACING);
+        jointed.setAccelerating(true);
+        single.setAccelerating(true);
+        mHarness.runFor(2);
+
+        // WHEN they turn left
+        jointed.setDirection(1);
+        single.setDirection(1);
+        mHarness.runFor(1);
+
+        // THEN they both turn left, by a similar angle
+        float jointedAngle = jointed.getBody().getAngle();
+        float singleAngle = single.getBody().getAngle();
+        // Observed: 2.70 and 1.08
+        assertBetween("jointed angle", jointedAngle, 2.6f, 2.8f);
+        assertBetween("angle ratio", singleAngle / jointedAngle, 1.03f, 1.13f);
+
+        // AND they keep a similar speed
+        // Observed: 1.0008
+        assertBetween("speed ratio", single.getSpeed() / jointed.getSpeed(), 0.99f, 1.01f);
+    }
+
+    @Test
+    public void testBrakingParity() {
+        // GIVEN one vehicle of each model, driving at full speed
+        Vehicle jointed = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        Vehicle single = mHarness.addVehicle(Vehicle.PhysicsModel.SINGLE_BODY, 0, LANE_SPACING);
+        jointed.setAccelerating(true);
+        single.setAccelerating(true);
+        mHarness.runFor(2);
+
+        // WHEN they brake
+        for (Vehicle vehicle : new Vehicle[] {jointed, single}) {
+            vehicle.setAccelerating(false);
+            vehicle.setBraking(true);
+        }
+        mHarness.runFor(1);
+
+        // THEN they slow down to a similar speed
+        // Observed: 1.00001
+        assertBetween("speed ratio", single.getSpeed() / jointed.getSpeed(), 0.99f, 1.01f);
+    }
+
+    private static void assertBetween(String name, float value, float min, float max) {
+        assertTrue(
+                name + " is " + value + ", expected between " + min + " and " + max,
+                value >= min && value <= max);
+    }
+}
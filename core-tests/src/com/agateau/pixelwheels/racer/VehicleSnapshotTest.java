@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.physics.box2d.Body;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VehicleSnapshotTest {
+    private VehiclePhysicsHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new VehiclePhysicsHarness();
+    }
+
+    @After
+    public void tearDown() {
+        mHarness.dispose();
+    }
+
+    @Test
+    public void testRestoreReplaysIdentically() {
+        // GIVEN a single-body vehicle turning at speed, whose state has been saved
+        Vehicle vehicle = mHarness.addVehicle(Vehicle.PhysicsModel.SINGLE_BODY, 0, 0);
+        checkRestoreReplaysIdentically(vehicle, vehicle);
+    }
+
+    @Test
+    public void testRestoreReplaysJointedWheelsIdentically() {
+        // GIVEN a vehicle with jointed wheels turning at speed, whose state has been saved. Its
+        // joints are created again when it is restored
+        Vehicle vehicle = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        checkRestoreReplaysIdentically(vehicle, vehicle);
+    }
+
+    @Test
+    public void testRestoreReplaysCollisionsIdentically() {
+        // GIVEN a vehicle ramming into another one, whose states have been saved. Their contacts
+        // are created again when they are restored
+        Vehicle vehicle = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 0, 0);
+        Vehicle other = mHarness.addVehicle(Vehicle.PhysicsModel.JOINTED_WHEELS, 6, 0.5f);
+        vehicle.setCollisionInfo(CollisionCategories.RACER, CollisionCategories.RACER);
+        other.setCollisionInfo(CollisionCategories.RACER, CollisionCategories.RACER);
+        checkRestoreReplaysIdentically(vehicle, other);
+    }
+
+    private void checkRestoreReplaysIdentically(Vehicle vehicle, Vehicle other) {
+        vehicle.setAccelerating(true);
+        mHarness.runFor(1);
+        vehicle.setDirection(1);
+        mHarness.runFor(0.5f);
+        Snapshot snapshot = new Snapshot();
+        mHarness.saveState(snapshot);
+
+        // AND it has run for a while
+        mHarness.runFor(1);
+        Body body = vehicle.getBody();
+        float x = body.getPosition().x;
+        float y = body.getPosition().y;
+        float angle = body.getAngle();
+        Body otherBody = other.getBody();
+        float otherX = otherBody.getPosition().x;
+        float otherY = otherBody.getPosition().y;
+        float otherAngle = otherBody.getAngle();
+
+        // WHEN the state is restored and the simulation runs again for the same duration
+        vehicle.setDirection(-1);
+        vehicle.setAccelerating(false);
+        mHarness.restoreState(snapshot);
+        mHarness.runFor(1);
+
+        // THEN the vehicles end up at the exact same place
+        assertThat(body.getPosition().x, is(x));
+        assertThat(body.getPosition().y, is(y));
+        assertThat(body.getAngle(), is(angle));
+        assertThat(otherBody.getPosition().x, is(otherX));
+        assertThat(otherBody.getPosition().y, is(otherY));
+        assertThat(otherBody.getAngle(), is(otherAngle));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.agateau.pixelwheels.racer.Racer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GameEventBusTest {
+    @Test
+    public void testDispatch() {
+        // GIVEN a bus with a listener for all rank changes and one for the rank changes of racer1
+        GameEventBus bus = new GameEventBus();
+        Racer racer1 = mock(Racer.class);
+        Racer racer2 = mock(Racer.class);
+        Array<Racer> allRacers = new Array<>();
+        IntArray racer1Ranks = new IntArray();
+        bus.subscribe(GameEventBus.Type.RANK_CHANGED, event -> allRacers.add(event.racer));
+        bus.subscribe(
+                GameEventBus.Type.RANK_CHANGED, racer1, event -> racer1Ranks.add(event.intValue));
+
+        // WHEN rank changes are posted
+        bus.post(GameEventBus.Type.RANK_CHANGED, racer1, 2);
+        bus.post(GameEventBus.Type.RANK_CHANGED, racer2, 1);
+
+        // THEN nothing is delivered until dispatch() is called
+        assertThat(allRacers.size, is(0));
+        bus.dispatch();
+        assertThat(allRacers.size, is(2));
+        assertThat(allRacers.get(0), is(racer1));
+        assertThat(allRacers.get(1), is(racer2));
+        assertThat(racer1Ranks.size, is(1));
+        assertThat(racer1Ranks.get(0), is(2));
+
+        // AND events are not delivered twice
+        bus.dispatch();
+        assertThat(allRacers.size, is(2));
+    }
+
+    @Test
+    public void testPostWhileDispatching() {
+        // GIVEN a listener which posts an event
+        GameEventBus bus = new GameEventBus();
+        Racer racer = mock(Racer.class);
+        IntArray laps = new IntArray();
+        bus.subscribe(
+                GameEventBus.Type.BONUS_USED,
+                racer,
+                event -> bus.post(GameEventBus.Type.LAP_COUNT_CHANGED, event.racer, 3));
+        bus.subscribe(GameEventBus.Type.LAP_COUNT_CHANGED, event -> laps.add(event.intValue));
+
+        // WHEN an event nobody listens to and the event which triggers the listener are posted
+        bus.post(GameEventBus.Type.TURBO_TRIGGERED, racer);
+        bus.post(GameEventBus.Type.BONUS_USED, racer);
+        bus.dispatch();
+
+        // THEN the event posted by the listener is delivered by the same dispatch() call
+        assertThat(laps.size, is(1));
+        assertThat(laps.get(0), is(3));
+        // AND the event nobody listens to has not been queued
+        assertThat(bus.getDispatchedCount(), is(2));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.agateau.pixelwheels.racer.VehicleRenderer;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GhostRecordingTests {
+    private static final int WHEEL_COUNT = 4;
+    private static final int SAMPLE_COUNT = 200;
+    private static final float[] WHEEL_OFFSETS = {1, 0.5f, 1, -0.5f, -1, 0.5f, -1, -0.5f};
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() {
+        // GIVEN a lap made of samples of a vehicle driving along a circle
+        GhostRecording.Encoder encoder = new GhostRecording.Encoder(WHEEL_COUNT);
+        float[] transforms = new float[(1 + WHEEL_COUNT) * VehicleRenderer.TRANSFORM_SIZE];
+        for (int idx = 0; idx < SAMPLE_COUNT; ++idx) {
+            createTransforms(idx, transforms);
+            encoder.addSample(transforms, idx > 100);
+        }
+        float lapTime = SAMPLE_COUNT * GhostRecording.SAMPLE_INTERVAL;
+        GhostRecording recording =
+                new GhostRecording(
+                        "red", lapTime, WHEEL_OFFSETS, encoder.getSampleCount(), encoder.toArray());
+
+        // WHEN it is saved and loaded back
+        FileHandle file = new FileHandle(mTemporaryFolder.getRoot() + "/test.ghost");
+        recording.save(file);
+        GhostRecording loaded = GhostRecording.load(file);
+
+        // THEN the loaded recording is the same
+        assertThat(loaded.getVehicleId(), is("red"));
+        assertThat(loaded.getLapTime(), is(lapTime));
+        assertThat(loaded.getWheelCount(), is(WHEEL_COUNT));
+        assertThat(loaded.getSampleCount(), is(SAMPLE_COUNT));
+
+        // AND the transforms at the sample times match the original ones, within the quantization
+        // steps
+        float[] expected = new float[transforms.length];
+        for (int idx = 0; idx < SAMPLE_COUNT; ++idx) {
+            createTransforms(idx, expected);
+            loaded.getTransforms(idx * GhostRecording.SAMPLE_INTERVAL, transforms);
+            for (int value = 0; value < transforms.length; ++value) {
+                assertEquals(expected[value], transforms[value], 0.03f);
+            }
+            assertThat(loaded.isTurboOn(idx * GhostRecording.SAMPLE_INTERVAL), is(idx > 100));
+        }
+
+        // AND samples are small
+        assertTrue(loaded.getDataSize() < SAMPLE_COUNT * 12);
+    }
+
+    @Test
+    public void testLoadMissingFile() {
+        FileHandle file = new FileHandle(mTemporaryFolder.getRoot() + "/missing.ghost");
+        assertNull(GhostRecording.load(file));
+    }
+
+    /** Vehicle driving counter-clockwise along a circle, with front wheels slightly turned */
+    private static void createTransforms(int sample, float[] transforms) {
+        float circleAngle = sample * 0.02f;
+        float bodyAngle = circleAngle + MathUtils.PI / 2;
+        float bodyX = 30 + 20 * MathUtils.cos(circleAngle);
+        float bodyY = 30 + 20 * MathUtils.sin(circleAngle);
+        transforms[0] = bodyX;
+        transforms[1] = bodyY;
+        transforms[2] = bodyAngle;
+        float cos = MathUtils.cos(bodyAngle);
+        float sin = MathUtils.sin(bodyAngle);
+        for (int wheel = 0; wheel < WHEEL_COUNT; ++wheel) {
+            float offsetX = WHEEL_OFFSETS[wheel * 2];
+            float offsetY = WHEEL_OFFSETS[wheel * 2 + 1];
+            int offset = (wheel + 1) * VehicleRenderer.TRANSFORM_SIZE;
+            transforms[offset] = bodyX + offsetX * cos - offsetY * sin;
+            transforms[offset + 1] = bodyY + offsetX * sin + offsetY * cos;
+            float steer = offsetX > 0 ? 10 * MathUtils.degreesToRadians : 0;
+            transforms[offset + 2] = bodyAngle + steer;
+        }
+    }
+}
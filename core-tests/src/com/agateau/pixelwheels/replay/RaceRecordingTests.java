@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.pixelwheels.gameinput.GameInput;
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RaceRecordingTests {
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testIO() {
+        // GIVEN a recording
+        RaceRecording recording = new RaceRecording();
+        recording.mTrackId = "race";
+        recording.mRandomSeed = -0x123456789abL;
+        recording.mEntrants.add(new RaceRecording.EntrantInfo("red", -1));
+        recording.mEntrants.add(new RaceRecording.EntrantInfo("police", 0));
+        recording.mBonusPoolCounts.add(new float[] {0.2f, 1f});
+        recording.mFrameDeltas.add(0.016f);
+        recording.mFrameDeltas.add(0.017f);
+        GameInput input = new GameInput();
+        input.accelerating = true;
+        input.triggeringBonus = true;
+        input.direction = -0.5f;
+        recording.addEvent(1, 0, input);
+        recording.mResultEntrants.add(1);
+        recording.mResultEntrants.add(0);
+        recording.mResultTimes.add(62.5f);
+        recording.mResultTimes.add(64.25f);
+
+        // WHEN it is saved and loaded back
+        FileHandle file = new FileHandle(mTemporaryFolder.getRoot() + "/test.race");
+        recording.save(file);
+        RaceRecording loaded = RaceRecording.load(file);
+
+        // THEN the loaded recording is the same
+        assertThat(loaded.getTrackId(), is("race"));
+        assertThat(loaded.getRandomSeed(), is(-0x123456789abL));
+        assertThat(loaded.getEntrants().size, is(2));
+        assertThat(loaded.getEntrants().get(0).vehicleId, is("red"));
+        assertThat(loaded.getEntrants().get(0).playerIndex, is(-1));
+        assertThat(loaded.getEntrants().get(1).vehicleId, is("police"));
+        assertThat(loaded.getEntrants().get(1).playerIndex, is(0));
+        assertThat(loaded.mBonusPoolCounts.get(0), is(new float[] {0.2f, 1f}));
+        assertThat(loaded.getFrameCount(), is(2));
+        assertThat(loaded.getFrameDelta(1), is(0.017f));
+
+        assertThat(loaded.mEventFrames.size, is(1));
+        assertThat(loaded.mEventFrames.get(0), is(1));
+        assertThat(loaded.mEventPlayers.get(0), is(0));
+        GameInput loadedInput = new GameInput();
+        loaded.getEventInput(0, loadedInput);
+        assertThat(loadedInput.accelerating, is(true));
+        assertThat(loadedInput.braking, is(false));
+        assertThat(loadedInput.triggeringBonus, is(true));
+        assertThat(loadedInput.direction, is(-0.5f));
+
+        assertThat(loaded.mResultEntrants.get(0), is(1));
+        assertThat(loaded.mResultTimes.get(1), is(64.25f));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils.tests;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+import com.agateau.pixelwheels.utils.BodyRecycler;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BodyRecyclerTests {
+    private static final float EPSILON = 0.0001f;
+
+    @Test
+    public void testReuse() {
+        World world = new World(new Vector2(0, 0), true);
+        CircleShape shape = new CircleShape();
+        shape.setRadius(1);
+        BodyRecycler recycler = new BodyRecycler(world);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
+        bodyDef.position.set(1, 2);
+
+        // GIVEN a freed body
+        Body body = recycler.obtain(String.class, bodyDef, shape, 1);
+        body.setUserData("user data");
+        body.setLinearVelocity(5, 0);
+        recycler.free(String.class, body);
+        assertFalse(body.isAwake());
+        assertEquals(0, body.getFixtureList().first().getFilterData().maskBits);
+        assertEquals(null, body.getUserData());
+        assertEquals(1, world.getBodyCount());
+
+        // WHEN a body of the same kind is obtained
+        bodyDef.position.set(10, 20);
+        bodyDef.angle = 0.5f;
+        Body reused = recycler.obtain(String.class, bodyDef, shape, 2);
+
+        // THEN the freed body is set up from the body definition and reused
+        assertSame(body, reused);
+        assertTrue(reused.isAwake());
+        assertEquals(10, reused.getPosition().x, EPSILON);
+        assertEquals(20, reused.getPosition().y, EPSILON);
+        assertEquals(0.5f, reused.getAngle(), EPSILON);
+        assertEquals(0, reused.getLinearVelocity().x, EPSILON);
+        assertEquals(2, reused.getFixtureList().first().getDensity(), EPSILON);
+        assertEquals(1, recycler.getCreatedCount());
+        assertEquals(1, recycler.getReusedCount());
+
+        shape.dispose();
+        world.dispose();
+    }
+
+    @Test
+    public void testTake() {
+        World world = new World(new Vector2(0, 0), true);
+        CircleShape shape = new CircleShape();
+        shape.setRadius(1);
+        BodyRecycler recycler = new BodyRecycler(world);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
+
+        // GIVEN three freed bodies
+        Body body0 = recycler.obtain(String.class, bodyDef, shape, 1);
+        Body body1 = recycler.obtain(String.class, bodyDef, shape, 1);
+        Body body2 = recycler.obtain(String.class, bodyDef, shape, 1);
+        int id1 = recycler.getId(body1);
+        recycler.free(String.class, body2);
+        recycler.free(String.class, body0);
+        recycler.free(String.class, body1);
+
+        // WHEN one of them is taken by id
+        Body taken = recycler.take(id1);
+
+        // THEN it is no longer free
+        assertSame(body1, taken);
+        assertEquals(2, recycler.getFreeCount(String.class));
+
+        // WHEN the free bodies are sorted
+        recycler.sortFreeBodies();
+
+        // THEN obtain() returns them in the order they have been created
+        assertSame(body0, recycler.obtain(String.class, bodyDef, shape, 1));
+        assertSame(body2, recycler.obtain(String.class, bodyDef, shape, 1));
+        assertNotSame(body1, recycler.obtain(String.class, bodyDef, shape, 1));
+        assertEquals(4, world.getBodyCount());
+
+        shape.dispose();
+        world.dispose();
+    }
+
+    @Test
+    public void testDestroysJoints() {
+        World world = new World(new Vector2(0, 0), true);
+        CircleShape shape = new CircleShape();
+        shape.setRadius(1);
+        BodyRecycler recycler = new BodyRecycler(world);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
+
+        // GIVEN a body welded to another one
+        Body anchor = world.createBody(bodyDef);
+        Body body = recycler.obtain(String.class, bodyDef, shape, 1);
+        WeldJointDef jointDef = new WeldJointDef();
+        jointDef.bodyA = anchor;
+        jointDef.bodyB = body;
+        world.createJoint(jointDef);
+
+        // WHEN it is freed
+        recycler.free(String.class, body);
+
+        // THEN its joint is destroyed, but the body is kept
+        assertEquals(2, world.getBodyCount());
+        assertEquals(0, world.getJointCount());
+        assertEquals(1, recycler.getFreeCount(String.class));
+
+        shape.dispose();
+        world.dispose();
+    }
+}
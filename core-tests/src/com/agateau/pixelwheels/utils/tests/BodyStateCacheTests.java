@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils.tests;
+
+import static junit.framework.TestCase.assertEquals;
+
+import com.agateau.pixelwheels.utils.BodyStateCache;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BodyStateCacheTests {
+    private static final float EPSILON = 0.0001f;
+
+    private World mWorld;
+    private Body mBody;
+
+    @Before
+    public void setUp() {
+        mWorld = new World(new Vector2(0, 0), true);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
+        bodyDef.position.set(1, 2);
+        bodyDef.angle = 0.3f;
+        mBody = mWorld.createBody(bodyDef);
+        // Off-center fixture, so that the center of mass is not the body origin
+        PolygonShape shape = new PolygonShape();
+        shape.setAsBox(2, 1, new Vector2(1, 0.5f), 0);
+        mBody.createFixture(shape, 1.5f);
+        shape.dispose();
+        mBody.setLinearVelocity(3, -1);
+        mBody.setAngularVelocity(0.5f);
+    }
+
+    @After
+    public void tearDown() {
+        mWorld.dispose();
+    }
+
+    @Test
+    public void testImpulses() {
+        // GIVEN a cache tracking a body
+        BodyStateCache cache = new BodyStateCache();
+        int slot = cache.register(mBody);
+
+        // WHEN impulses are applied through the cache
+        cache.applyLinearImpulse(slot, new Vector2(4, 2), new Vector2(0, 3));
+        cache.applyAngularImpulse(slot, -7);
+
+        // THEN the cached velocities are the ones of the body
+        Vector2 velocity = cache.getLinearVelocity(slot, new Vector2());
+        assertEquals(mBody.getLinearVelocity().x, velocity.x, EPSILON);
+        assertEquals(mBody.getLinearVelocity().y, velocity.y, EPSILON);
+        assertEquals(mBody.getAngularVelocity(), cache.getAngularVelocity(slot), EPSILON);
+    }
+
+    @Test
+    public void testRefresh() {
+        // GIVEN a cache tracking a body
+        BodyStateCache cache = new BodyStateCache();
+        int slot = cache.register(mBody);
+
+        // WHEN the body is moved and stopped outside of a step, then the slot is refreshed
+        mBody.setTransform(10, 20, 1.2f);
+        mBody.setLinearVelocity(0, 0);
+        cache.refresh(slot);
+
+        // THEN the cache returns the new state
+        assertEquals(10, cache.getX(slot), EPSILON);
+        assertEquals(20, cache.getY(slot), EPSILON);
+        assertEquals(1.2f, cache.getAngle(slot), EPSILON);
+        assertEquals(0, cache.getSpeed(slot), EPSILON);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils.tests;
+
+import static junit.framework.TestCase.assertEquals;
+
+import com.agateau.pixelwheels.utils.GamePool;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GamePoolTests {
+    private int mCreatedCount = 0;
+
+    private GamePool<Object> createPool() {
+        return new GamePool<>(
+                "test",
+                () -> {
+                    ++mCreatedCount;
+                    return new Object();
+                });
+    }
+
+    @Test
+    public void testWarmUp() {
+        // GIVEN a pool warmed up for 3 objects
+        GamePool<Object> pool = createPool();
+        pool.warmUp(3);
+        assertEquals(3, mCreatedCount);
+        assertEquals(3, pool.getFree());
+
+        // WHEN 3 objects are obtained
+        Object object1 = pool.obtain();
+        pool.obtain();
+        pool.obtain();
+
+        // THEN no object is created
+        assertEquals(3, mCreatedCount);
+        assertEquals(0, pool.getMissCount());
+        assertEquals(3, pool.getLiveCount());
+
+        // WHEN one more object is obtained
+        pool.obtain();
+
+        // THEN it is a miss
+        assertEquals(4, mCreatedCount);
+        assertEquals(1, pool.getMissCount());
+
+        // WHEN an object is freed
+        pool.free(object1);
+
+        // THEN the peak is still there
+        assertEquals(3, pool.getLiveCount());
+        assertEquals(4, pool.getPeakLiveCount());
+    }
+
+    @Test
+    public void testWarmUpCountsLiveObjects() {
+        // GIVEN a pool with 2 live objects
+        GamePool<Object> pool = createPool();
+        pool.obtain();
+        pool.obtain();
+
+        // WHEN it is warmed up for 3 objects
+        pool.warmUp(3);
+
+        // THEN it only creates 1 object and resets its statistics
+        assertEquals(3, mCreatedCount);
+        assertEquals(1, pool.getFree());
+        assertEquals(2, pool.getPeakLiveCount());
+        assertEquals(0, pool.getMissCount());
+    }
+}
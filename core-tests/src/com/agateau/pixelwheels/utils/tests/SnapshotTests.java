@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils.tests;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SnapshotTests {
+    private enum Color {
+        RED,
+        GREEN
+    }
+
+    @Test
+    public void testValues() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.putFloat(1.5f);
+        snapshot.putInt(-12);
+        snapshot.putBoolean(true);
+        snapshot.putLong(-0x123456789abL);
+        snapshot.putEnum(Color.GREEN);
+        snapshot.putEnum(null);
+
+        snapshot.rewind();
+        assertEquals(1.5f, snapshot.getFloat());
+        assertEquals(-12, snapshot.getInt());
+        assertTrue(snapshot.getBoolean());
+        assertEquals(-0x123456789abL, snapshot.getLong());
+        assertEquals(Color.GREEN, snapshot.getEnum(Color.values()));
+        assertNull(snapshot.getEnum(Color.values()));
+    }
+
+    @Test
+    public void testGrow() {
+        // GIVEN a snapshot filled with more values than its initial capacity
+        Snapshot snapshot = new Snapshot();
+        final int count = 1000;
+        for (int idx = 0; idx < count; ++idx) {
+            snapshot.putFloat(idx);
+            snapshot.putInt(idx);
+        }
+        assertEquals(count * 2 * 4, snapshot.getByteSize());
+
+        // THEN all values can be read back
+        snapshot.rewind();
+        for (int idx = 0; idx < count; ++idx) {
+            assertEquals((float) idx, snapshot.getFloat());
+            assertEquals(idx, snapshot.getInt());
+        }
+
+        // AND clear() empties it
+        snapshot.clear();
+        assertEquals(0, snapshot.getByteSize());
+    }
+
+    @Test
+    public void testReferences() {
+        // GIVEN a snapshot with references to objects of an array, and to null
+        Array<Object> references = new Array<>();
+        references.add("first");
+        references.add("second");
+        Snapshot snapshot = new Snapshot();
+        snapshot.setReferences(references);
+        snapshot.putReference(references.get(1));
+        snapshot.putReference(null);
+
+        // WHEN another array of objects is used to read them back
+        Array<Object> newReferences = new Array<>();
+        newReferences.add(1);
+        newReferences.add(2);
+        snapshot.setReferences(newReferences);
+        snapshot.rewind();
+
+        // THEN the references point to the objects at the same indices
+        Integer reference = snapshot.getReference();
+        assertEquals(Integer.valueOf(2), reference);
+        assertNull(snapshot.getReference());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownReference() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setReferences(new Array<>());
+        snapshot.putReference("unknown");
+    }
+
+    @Test
+    public void testBody() {
+        World world = new World(new Vector2(0, 0), true);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
+        Body body = world.createBody(bodyDef);
+
+        // GIVEN a body whose state has been saved
+        body.setTransform(1, 2, 0.5f);
+        body.setLinearVelocity(3, 4);
+        body.setAngularVelocity(5);
+        Snapshot snapshot = new Snapshot();
+        snapshot.putBody(body);
+
+        // WHEN the body changes
+        body.setTransform(0, 0, 0);
+        body.setLinearVelocity(0, 0);
+        body.setAngularVelocity(0);
+        body.setActive(false);
+
+        // AND the state is restored
+        snapshot.rewind();
+        snapshot.getBody(body);
+
+        // THEN the body is back to its saved state
+        assertEquals(1f, body.getPosition().x);
+        assertEquals(2f, body.getPosition().y);
+        assertEquals(0.5f, body.getAngle());
+        assertEquals(3f, body.getLinearVelocity().x);
+        assertEquals(4f, body.getLinearVelocity().y);
+        assertEquals(5f, body.getAngularVelocity());
+        assertTrue(body.isActive());
+
+        world.dispose();
+    }
+}
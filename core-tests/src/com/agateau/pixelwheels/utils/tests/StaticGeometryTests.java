@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Tiny Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils.tests;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StaticGeometryTests {
+    private static final float EPSILON = 0.0001f;
+
+    @Test
+    public void testEmpty() {
+        StaticGeometry geometry = new StaticGeometry.Builder().build();
+        assertEquals(StaticGeometry.NO_HIT, geometry.rayCast(0, 0, 10, 10));
+    }
+
+    @Test
+    public void testSegment() {
+        StaticGeometry geometry = new StaticGeometry.Builder().addSegment(5, -1, 5, 1).build();
+
+        // Hits from both sides
+        assertEquals(0.5f, geometry.rayCast(0, 0, 10, 0), EPSILON);
+        assertEquals(0.5f, geometry.rayCast(10, 0, 0, 0), EPSILON);
+        // Too short
+        assertEquals(StaticGeometry.NO_HIT, geometry.rayCast(0, 0, 4, 0));
+        // Passes next to it
+        assertEquals(StaticGeometry.NO_HIT, geometry.rayCast(0, 2, 10, 2));
+        // Vertical ray, parallel to the segment
+        assertEquals(StaticGeometry.NO_HIT, geometry.rayCast(4, -5, 4, 5));
+    }
+
+    @Test
+    public void testCircle() {
+        StaticGeometry geometry = new StaticGeometry.Builder().addCircle(5, 0, 1).build();
+
+        assertEquals(0.4f, geometry.rayCast(0, 0, 10, 0), EPSILON);
+        assertEquals(0.4f, geometry.rayCast(10, 0, 0, 0), EPSILON);
+        // Starting inside the circle
+        assertEquals(StaticGeometry.NO_HIT, geometry.rayCast(5, 0, 10, 0));
+    }
+
+    @Test
+    public void testClosestHit() {
+        StaticGeometry.Builder builder = new StaticGeometry.Builder();
+        for (int idx = 20; idx > 0; --idx) {
+            builder.addSegment(idx, -1, idx, 1);
+        }
+        StaticGeometry geometry = builder.build();
+
+        assertEquals(0.1f, geometry.rayCast(0, 0, 10, 0), EPSILON);
+        assertEquals(0.1f, geometry.rayCast(21, 0, 11, 0), EPSILON);
+    }
+
+    @Test
+    public void testSameAsBox2D() {
+        // GIVEN a world with static bodies of all supported shapes
+        World world = new World(new Vector2(0, 0), true);
+        RandomXS128 random = new RandomXS128(12);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        Body body = world.createBody(bodyDef);
+
+        ChainShape chain = new ChainShape();
+        chain.createLoop(new float[] {0, 0, 100, 0, 100, 100, 0, 100});
+        body.createFixture(chain, 1);
+        chain.dispose();
+        for (int idx = 0; idx < 50; ++idx) {
+            PolygonShape box = new PolygonShape();
+            box.setAsBox(
+                    1 + random.nextFloat(),
+                    1 + random.nextFloat(),
+                    new Vector2(10 + random.nextFloat() * 80, 10 + random.nextFloat() * 80),
+                    random.nextFloat() * 3);
+            body.createFixture(box, 1);
+            box.dispose();
+
+            CircleShape circle = new CircleShape();
+            circle.setRadius(0.5f + random.nextFloat());
+            circle.setPosition(
+                    new Vector2(10 + random.nextFloat() * 80, 10 + random.nextFloat() * 80));
+            body.createFixture(circle, 1);
+            circle.dispose();
+        }
+
+        // AND the matching static geometry
+        StaticGeometry geometry = new StaticGeometry.Builder().addBody(body).build();
+
+        // WHEN casting random rays starting outside the obstacles
+        ClosestCallback callback = new ClosestCallback();
+        int hitCount = 0;
+        for (int idx = 0; idx < 500; ++idx) {
+            Vector2 p1 = new Vector2(1 + random.nextFloat() * 98, 1 + random.nextFloat() * 98);
+            Vector2 p2 = new Vector2(1 + random.nextFloat() * 98, 1 + random.nextFloat() * 98);
+            if (isInsideFixture(body, p1)) {
+                continue;
+            }
+            callback.mFraction = StaticGeometry.NO_HIT;
+            world.rayCast(callback, p1, p2);
+            float fraction = geometry.rayCast(p1, p2);
+
+            // THEN the static geometry finds the same hits as Box2D
+            if (callback.mFraction == StaticGeometry.NO_HIT) {
+                assertEquals(StaticGeometry.NO_HIT, fraction);
+            } else {
+                assertEquals(callback.mFraction, fraction, 0.001f);
+                ++hitCount;
+            }
+        }
+        assertTrue(hitCount > 0);
+        world.dispose();
+    }
+
+    private static boolean isInsideFixture(Body body, Vector2 point) {
+        for (Fixture fixture : body.getFixtureList()) {
+            if (fixture.testPoint(point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class ClosestCallback implements RayCastCallback {
+        float mFraction;
+
+        @Override
+        public float reportRayFixture(
+                Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+            mFraction = fraction;
+            return fraction;
+        }
+    }
+}
@@ -78,6 +78,7 @@ public class Assets implements TextureRegionProvider {
     public final TextureRegion wheel;
     public final TextureRegion dot;
     public final TextureAtlas atlas;
+    public final Animation<TextureRegion> explosion;
     public final Animation<TextureRegion> impact;
     public final Animation<TextureRegion> mine;
     public final Animation<TextureRegion> turbo;
@@ -95,9 +96,7 @@ public class Assets implements TextureRegionProvider {
     public final TextureRegion lockedVehicle;
     public final SoundAtlas soundAtlas = new SoundAtlas(Gdx.files.internal("sounds"));
 
-    private final Animation<TextureRegion> explosion;
-
-    Assets() {
+    public Assets() {
         this.atlas = new StrictTextureAtlas(Gdx.files.internal("sprites/sprites.atlas"));
         this.wheel = findRegion("wheel");
         this.explosion =
@@ -40,6 +40,8 @@ public class GameConfig {
     public boolean fullscreen = false;
     public boolean playSoundFx = true;
     public boolean playMusic = true;
+    public boolean splitScreen = false;
+    public boolean showGhost = true;
 
     public GameMode gameMode = GameMode.QUICK_RACE;
     public final String[] vehicles = new String[Constants.MAX_PLAYERS];
@@ -53,7 +55,7 @@ public class GameConfig {
     private final Preferences mPreferences;
     private final ArrayList<WeakReference<ChangeListener>> mListeners = new ArrayList<>();
 
-    GameConfig() {
+    public GameConfig() {
         mPreferences = Gdx.app.getPreferences("pixelwheels.conf");
 
         load();
@@ -63,6 +65,8 @@ public class GameConfig {
         fullscreen = mPreferences.getBoolean(PrefConstants.FULLSCREEN, false);
         playSoundFx = mPreferences.getBoolean(PrefConstants.SOUND_FX, true);
         playMusic = mPreferences.getBoolean(PrefConstants.MUSIC, true);
+        splitScreen = mPreferences.getBoolean(PrefConstants.SPLIT_SCREEN, false);
+        showGhost = mPreferences.getBoolean(PrefConstants.SHOW_GHOST, true);
 
         try {
             this.gameMode = GameMode.valueOf(mPreferences.getString(PrefConstants.GAME_MODE));
@@ -91,6 +95,8 @@ public class GameConfig {
         mPreferences.putBoolean(PrefConstants.FULLSCREEN, fullscreen);
         mPreferences.putBoolean(PrefConstants.SOUND_FX, playSoundFx);
         mPreferences.putBoolean(PrefConstants.MUSIC, playMusic);
+        mPreferences.putBoolean(PrefConstants.SPLIT_SCREEN, splitScreen);
+        mPreferences.putBoolean(PrefConstants.SHOW_GHOST, showGhost);
 
         mPreferences.putString(PrefConstants.GAME_MODE, this.gameMode.toString());
         for (int idx = 0; idx < this.vehicles.length; ++idx) {
@@ -24,6 +24,7 @@ package com.agateau.pixelwheels;
  * <p>Any change made to the values of this class at runtime will cause the stats to not be saved.
  */
 public class GamePlay {
+    // When there are more racers than start tiles, extra rows are added behind the start line
     public int racerCount = 6;
     public int maxDrivingForce = 50;
     public int lowSpeed = 20;
@@ -41,9 +42,20 @@ public class GamePlay {
     public int borderRestitution = 1;
     public float simplifiedCollisionMaxDeltaV = 0.4f;
     public float simplifiedCollisionKFactor = 4;
+    // Use the cheaper Vehicle.PhysicsModel.SINGLE_BODY model for AI vehicles
+    public boolean singleBodyAIVehicles = false;
+    // Lower the physics quality when Box2D takes more than physicsTimeBudget milliseconds per
+    // frame. Never go below minPhysicsQuality (0 is the lowest quality, 3 the highest)
+    public boolean adaptivePhysicsQuality = true;
+    public float physicsTimeBudget = 4;
+    public int minPhysicsQuality = 0;
 
     public int viewportWidth = 60;
 
+    // Resolve gun shots immediately with a ray cast (HitscanBullet) instead of creating a Box2D
+    // body per bullet
+    public boolean hitscanGun = false;
+
     public int turboStrength = 200;
     public float turboDuration = 0.5f;
 
@@ -21,9 +21,16 @@ package com.agateau.pixelwheels;
 import com.agateau.pixelwheels.bonus.BonusPool;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.obstacles.StaticObstacles;
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.RacerSpatialIndex;
 import com.agateau.pixelwheels.racescreen.CountDown;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.BodyRecycler;
+import com.agateau.pixelwheels.utils.BodyStateCache;
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 
@@ -43,6 +50,39 @@ public interface GameWorld {
 
     World getBox2DWorld();
 
+    /** Java-side copy of the state of the racer bodies, updated after each physics step */
+    BodyStateCache getBodyStateCache();
+
+    /** Reuses the Box2D bodies of bullets, mines and missiles */
+    BodyRecycler getBodyRecycler();
+
+    /** Obstacles which never move. They are not part of the game objects */
+    StaticObstacles getStaticObstacles();
+
+    /**
+     * Geometry of the borders and static obstacles, for ray queries which do not need to go through
+     * Box2D. Can be used from any thread
+     */
+    StaticGeometry getStaticGeometry();
+
+    /** Positions of the racers, updated after each physics step, for proximity queries */
+    RacerSpatialIndex getRacerIndex();
+
+    /** Gameplay events, delivered at the end of each frame */
+    GameEventBus getEventBus();
+
+    /**
+     * How often AI pilots should update their direction, in frames. 1 means every frame. Goes up
+     * when the physics quality is lowered to save time
+     */
+    int getAIUpdateInterval();
+
+    /**
+     * Random generator for everything which affects the race, such as bonus selection. Sounds and
+     * visual effects must keep using MathUtils.random, so that a race can be replayed without them
+     */
+    RandomXS128 getRandom();
+
     Racer getPlayerRacer(int playerId);
 
     Array<Racer> getPlayerRacers();
@@ -52,6 +92,7 @@ public interface GameWorld {
     @SuppressWarnings("rawtypes")
     Array<BonusPool> getBonusPools();
 
+    /** The objects are not kept in the order they were added */
     Array<GameObject> getActiveGameObjects();
 
     void addGameObject(GameObject object);
@@ -28,5 +28,7 @@ public class PrefConstants {
     public static final String SOUND_FX = "soundFx";
     public static final String MUSIC = "music";
     public static final String FULLSCREEN = "fullscreen";
+    public static final String SPLIT_SCREEN = "splitScreen";
+    public static final String SHOW_GHOST = "showGhost";
     public static final String GAME_MODE = "gameMode";
 }
@@ -22,12 +22,18 @@ import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.sound.AudioManager;
-import com.badlogic.gdx.utils.ReflectionPool;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.utils.Pool;
 
-/** A bonus. When the bonus is done, it must call Racer.resetBonus(). */
-public interface Bonus {
+/**
+ * A bonus. When the bonus is done, it must call Racer.resetBonus().
+ *
+ * <p>Bonuses are saved in snapshots by their racer. The game objects they refer to are saved as
+ * references, see Snapshot.putReference().
+ */
+public interface Bonus extends Snapshot.Savable {
     void init(
-            ReflectionPool<? extends Bonus> pool,
+            Pool<? extends Bonus> pool,
             Assets assets,
             GameWorld gameWorld,
             AudioManager audioManager);
@@ -38,6 +44,13 @@ public interface Bonus {
      */
     void onPicked(Racer racer);
 
+    /**
+     * Called instead of onPicked() when a bonus is restored from a snapshot, before its
+     * restoreState() method. Must set up the bonus like onPicked() does, without creating game
+     * objects, using the random generator or posting events.
+     */
+    void onRestored(Racer racer);
+
     /** Called when a Racer is hit while carrying a bonus. */
     void onOwnerHit();
 
@@ -48,4 +61,11 @@ public interface Bonus {
 
     /** Implements behavior of the AI when it owns this bonus */
     void aiAct(float delta);
+
+    /**
+     * Called when the world is restored from a snapshot, which restores its own bonus if it has
+     * one. Must give the bonus back to its pool and call Racer.resetBonus(), without any other
+     * effect on the game. The game objects created by the bonus are removed by the world.
+     */
+    void discard();
 }
@@ -22,20 +22,21 @@ import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.sound.AudioManager;
-import com.badlogic.gdx.utils.ReflectionPool;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.utils.Pool;
 
 /** An adapter for the Bonus class */
 public abstract class BonusAdapter implements Bonus {
     protected Racer mRacer;
 
-    private ReflectionPool mPool;
+    private Pool mPool;
     protected Assets mAssets;
     protected GameWorld mGameWorld;
     protected AudioManager mAudioManager;
 
     @Override
     public void init(
-            ReflectionPool<? extends Bonus> pool,
+            Pool<? extends Bonus> pool,
             Assets assets,
             GameWorld gameWorld,
             AudioManager audioManager) {
@@ -55,6 +56,11 @@ public abstract class BonusAdapter implements Bonus {
         mRacer = racer;
     }
 
+    @Override
+    public void onRestored(Racer racer) {
+        mRacer = racer;
+    }
+
     @Override
     public void onOwnerHit() {}
 
@@ -66,4 +72,16 @@ public abstract class BonusAdapter implements Bonus {
 
     @Override
     public void aiAct(float delta) {}
+
+    @Override
+    public void saveState(Snapshot snapshot) {}
+
+    @Override
+    public void restoreState(Snapshot snapshot) {}
+
+    @Override
+    public void discard() {
+        free();
+        mRacer.resetBonus();
+    }
 }
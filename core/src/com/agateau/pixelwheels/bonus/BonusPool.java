@@ -21,18 +21,23 @@ package com.agateau.pixelwheels.bonus;
 import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.pixelwheels.utils.GamePool;
 import com.agateau.utils.AgcMathUtils;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** Pool of bonus instances */
-public class BonusPool<T extends Bonus> extends ReflectionPool<T> {
+public class BonusPool<T extends Bonus> extends GamePool<T> {
     private final Assets mAssets;
     private final GameWorld mGameWorld;
     private final AudioManager mAudioManager;
     private float[] mCounts;
 
-    public BonusPool(Class<T> type, Assets assets, GameWorld gameWorld, AudioManager audioManager) {
-        super(type);
+    public BonusPool(
+            String name,
+            Factory<T> factory,
+            Assets assets,
+            GameWorld gameWorld,
+            AudioManager audioManager) {
+        super(name, factory);
         mAssets = assets;
         mGameWorld = gameWorld;
         mAudioManager = audioManager;
@@ -48,6 +53,10 @@ public class BonusPool<T extends Bonus> extends ReflectionPool<T> {
         mCounts = counts;
     }
 
+    public float[] getCounts() {
+        return mCounts;
+    }
+
     /**
      * How many times the bonus may be picked up.
      *
@@ -26,17 +26,26 @@ import com.agateau.pixelwheels.gameobjet.AudioClipper;
 import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 
-/** The bonus waiting to be hit by a the player */
-public class BonusSpot extends GameObjectAdapter {
+/**
+ * The bonus waiting to be hit by a the player
+ *
+ * <p>A picked spot is disabled by clearing the mask bits of its fixture, rather than by
+ * deactivating its body: deactivating a body removes it from the Box2D broadphase, and activating
+ * it again gives it new broadphase ids, which changes the order in which Box2D creates contacts.
+ * Snapshots rely on this order staying the same.
+ */
+public class BonusSpot extends GameObjectAdapter implements Snapshot.Savable {
     private static final float DISABLED_TIMEOUT = 5;
     private final TextureRegion mRegion;
     private final Sound mSound;
@@ -44,6 +53,9 @@ public class BonusSpot extends GameObjectAdapter {
     private final float mX;
     private final float mY;
     private final Body mBody;
+    private final Fixture mFixture;
+    private final short mMaskBits;
+    private boolean mDisabled = false;
     private float mDisabledTimeout = 0;
     private final BodyRegionDrawer mDrawer = new BodyRegionDrawer();
     private boolean mJustPicked = false;
@@ -66,8 +78,9 @@ public class BonusSpot extends GameObjectAdapter {
         bodyDef.position.set(mX, mY);
 
         mBody = gameWorld.getBox2DWorld().createBody(bodyDef);
-        Fixture fixture = mBody.createFixture(shape, 1f);
-        fixture.setSensor(true);
+        mFixture = mBody.createFixture(shape, 1f);
+        mFixture.setSensor(true);
+        mMaskBits = mFixture.getFilterData().maskBits;
         mBody.setUserData(this);
 
         mBody.setAngularVelocity(240 * MathUtils.degreesToRadians);
@@ -78,19 +91,23 @@ public class BonusSpot extends GameObjectAdapter {
     @Override
     public void act(float delta) {
         if (mDisabledTimeout > 0) {
-            // mBody is still active on the first call of act() after pickBonus()
-            mBody.setActive(false);
+            // mBody can still collide on the first call of act() after pickBonus()
+            if (!mDisabled) {
+                mDisabled = true;
+                updateFilter();
+            }
             mDisabledTimeout -= delta;
             if (mDisabledTimeout <= 0) {
                 mDisabledTimeout = 0;
-                mBody.setActive(true);
+                mDisabled = false;
+                updateFilter();
             }
         }
     }
 
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
-        if (!mBody.isActive()) {
+        if (mDisabled) {
             return;
         }
         if (zLevel == ZLevel.GROUND) {
@@ -121,8 +138,31 @@ public class BonusSpot extends GameObjectAdapter {
         return mY;
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBody(mBody);
+        snapshot.putFloat(mDisabledTimeout);
+        snapshot.putBoolean(mDisabled);
+        snapshot.putBoolean(mJustPicked);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        snapshot.getBody(mBody);
+        mDisabledTimeout = snapshot.getFloat();
+        mDisabled = snapshot.getBoolean();
+        mJustPicked = snapshot.getBoolean();
+        updateFilter();
+    }
+
     public void pickBonus() {
         mDisabledTimeout = DISABLED_TIMEOUT;
         mJustPicked = true;
     }
+
+    private void updateFilter() {
+        Filter filter = mFixture.getFilterData();
+        filter.maskBits = mDisabled ? 0 : mMaskBits;
+        mFixture.setFilterData(filter);
+    }
 }
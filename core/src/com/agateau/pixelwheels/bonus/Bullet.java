@@ -32,6 +32,8 @@ import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
@@ -44,20 +46,23 @@ import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A player bullet */
-public class Bullet extends GameObjectAdapter implements Collidable, Pool.Poolable, Disposable {
-    private static final ReflectionPool<Bullet> sPool = new ReflectionPool<>(Bullet.class);
+public class Bullet extends GameObjectAdapter
+        implements Collidable, Pool.Poolable, Disposable, Snapshot.Savable {
+    private static final GamePool<Bullet> sPool = new GamePool<>("bullets", Bullet::new);
 
     private static final float IMPULSE = 160;
+    // What bullets can hit
+    static final int HIT_MASK =
+            CollisionCategories.WALL | CollisionCategories.RACER | CollisionCategories.EXPLOSABLE;
 
     private Racer mShooter;
     private GameWorld mGameWorld;
     private AudioManager mAudioManager;
     private Assets mAssets;
-    private BodyDef mBodyDef;
-    private PolygonShape mShape;
+    private final BodyDef mBodyDef = new BodyDef();
+    private final PolygonShape mShape = new PolygonShape();
 
     private Body mBody;
     private boolean mJustShot = false;
@@ -72,52 +77,70 @@ public class Bullet extends GameObjectAdapter implements Collidable, Pool.Poolab
             float originX,
             float originY,
             float angle) {
-        Bullet object = sPool.obtain();
-        if (object.mBodyDef == null) {
-            object.firstInit(assets);
-        }
+        Bullet object = obtain(assets, gameWorld, audioManager);
         object.mShooter = shooter;
-        object.mGameWorld = gameWorld;
-        object.mAudioManager = audioManager;
-        object.setFinished(false);
         object.mJustShot = true;
         object.mBodyDef.position.set(originX, originY);
         object.mBodyDef.angle = angle * MathUtils.degreesToRadians;
 
-        object.mBody = gameWorld.getBox2DWorld().createBody(object.mBodyDef);
-        object.mBody.createFixture(object.mShape, 0f);
-        object.mBody.setUserData(object);
+        object.mBody =
+                gameWorld
+                        .getBodyRecycler()
+                        .obtain(Bullet.class, object.mBodyDef, object.mShape, 0f);
         object.mBody.applyLinearImpulse(
                 IMPULSE * MathUtils.cosDeg(angle),
                 IMPULSE * MathUtils.sinDeg(angle),
                 originX,
                 originY,
                 true);
+        object.initBody();
+        return object;
+    }
 
-        Box2DUtils.setCollisionInfo(
-                object.mBody,
-                CollisionCategories.RACER_BULLET,
-                CollisionCategories.WALL
-                        | CollisionCategories.RACER
-                        | CollisionCategories.EXPLOSABLE);
+    /**
+     * Returns a bullet whose state must be restored with restoreState(). Used by GameWorldImpl to
+     * restore snapshots, the bullet is not added to the world
+     */
+    public static Bullet createForSnapshot(
+            Assets assets, GameWorld gameWorld, AudioManager audioManager) {
+        return obtain(assets, gameWorld, audioManager);
+    }
+
+    private static Bullet obtain(Assets assets, GameWorld gameWorld, AudioManager audioManager) {
+        Bullet object = sPool.obtain();
+        if (object.mAssets == null) {
+            object.firstInit(assets);
+        }
+        object.mGameWorld = gameWorld;
+        object.mAudioManager = audioManager;
+        object.setFinished(false);
         return object;
     }
 
-    private void firstInit(Assets assets) {
-        mAssets = assets;
-        mBodyDef = new BodyDef();
+    public static GamePool<Bullet> getPool() {
+        return sPool;
+    }
+
+    private Bullet() {
         mBodyDef.type = BodyDef.BodyType.DynamicBody;
         mBodyDef.bullet = true;
+    }
 
-        mShape = new PolygonShape();
+    private void firstInit(Assets assets) {
+        mAssets = assets;
         mShape.setAsBox(
                 assets.bullet.getRegionWidth() * Constants.UNIT_FOR_PIXEL / 2,
                 assets.bullet.getRegionHeight() * Constants.UNIT_FOR_PIXEL / 2);
     }
 
+    private void initBody() {
+        mBody.setUserData(this);
+        Box2DUtils.setCollisionInfo(mBody, CollisionCategories.RACER_BULLET, HIT_MASK);
+    }
+
     @Override
     public void reset() {
-        mGameWorld.getBox2DWorld().destroyBody(mBody);
+        mGameWorld.getBodyRecycler().free(Bullet.class, mBody);
         mBody = null;
     }
 
@@ -129,6 +152,27 @@ public class Bullet extends GameObjectAdapter implements Collidable, Pool.Poolab
     @Override
     public void act(float delta) {}
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mShooter);
+        snapshot.putBoolean(mJustShot);
+        snapshot.putInt(mGameWorld.getBodyRecycler().getId(mBody));
+        snapshot.putBody(mBody);
+    }
+
+    /**
+     * Must be called on a bullet returned by createForSnapshot(), once the objects it refers to are
+     * in the world
+     */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mShooter = snapshot.getReference();
+        mJustShot = snapshot.getBoolean();
+        mBody = mGameWorld.getBodyRecycler().take(snapshot.getInt());
+        initBody();
+        snapshot.getBody(mBody);
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         if (zLevel == ZLevel.GROUND) {
@@ -181,6 +225,11 @@ public class Bullet extends GameObjectAdapter implements Collidable, Pool.Poolab
         }
 
         explode();
+        applyHit(other);
+    }
+
+    /** Applies the effect of a bullet on other, the user data of the body which has been hit */
+    static void applyHit(Object other) {
         if (other instanceof Racer) {
             ((Racer) other).spin();
         } else if (other instanceof Explosable) {
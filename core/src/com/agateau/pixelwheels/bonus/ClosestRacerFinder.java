@@ -18,64 +18,55 @@
  */
 package com.agateau.pixelwheels.bonus;
 
-import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.IGNORE;
-import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.STOP_FAILED;
-import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.STOP_SUCCESS;
-
-import com.agateau.pixelwheels.BodyIdentifier;
+import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.racer.Racer;
-import com.agateau.pixelwheels.utils.ArcClosestBodyFinder;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.World;
 
+/**
+ * Finds the closest racer in an arc, using the racer index of the world. Racers hidden by walls are
+ * ignored
+ */
 public class ClosestRacerFinder {
-    private final ArcClosestBodyFinder mBodyFinder;
-    private final RacerBodyFilter mFilter = new RacerBodyFilter();
+    private final float mDepth;
+    private final float mArc;
+    private Racer mIgnoredRacer;
 
-    private static class RacerBodyFilter implements ArcClosestBodyFinder.BodyFilter {
-        Racer mIgnoredRacer;
-
-        @Override
-        public ArcClosestBodyFinder.FilterResult filter(Body body) {
-            if (BodyIdentifier.isStaticObstacle(body)) {
-                return STOP_FAILED;
-            }
-            Object userData = body.getUserData();
-            if (!(userData instanceof Racer) || userData == mIgnoredRacer) {
-                return IGNORE;
-            }
-            return STOP_SUCCESS;
-        }
-    }
+    // Work vars
+    private final Vector2 mTmp = new Vector2();
 
     public ClosestRacerFinder(float depth) {
         this(depth, 0);
     }
 
     public ClosestRacerFinder(float depth, float arc) {
-        mBodyFinder = new ArcClosestBodyFinder(depth, arc);
-        mBodyFinder.setBodyFilter(mFilter);
+        mDepth = depth;
+        mArc = arc;
     }
 
     public void setIgnoredRacer(Racer ignoredRacer) {
-        mFilter.mIgnoredRacer = ignoredRacer;
+        mIgnoredRacer = ignoredRacer;
     }
 
-    public Racer find(World world, Vector2 origin, float angle) {
-        Body body = mBodyFinder.find(world, origin, angle);
-        if (body == null) {
-            return null;
-        } else {
-            return (Racer) body.getUserData();
-        }
+    public Racer find(GameWorld gameWorld, Vector2 origin, float angle) {
+        return gameWorld
+                .getRacerIndex()
+                .findNearestInCone(
+                        origin.x,
+                        origin.y,
+                        angle,
+                        mArc,
+                        mDepth,
+                        mIgnoredRacer,
+                        gameWorld.getStaticGeometry());
     }
 
     public Vector2 getLeftVertex(Vector2 origin, float angle) {
-        return mBodyFinder.getLeftVertex(origin, angle);
+        mTmp.set(mDepth, 0).rotate(angle + mArc / 2).add(origin);
+        return mTmp;
     }
 
     public Vector2 getRightVertex(Vector2 origin, float angle) {
-        return mBodyFinder.getRightVertex(origin, angle);
+        mTmp.set(mDepth, 0).rotate(angle - mArc / 2).add(origin);
+        return mTmp;
     }
 }
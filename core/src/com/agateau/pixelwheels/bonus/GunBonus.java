@@ -19,24 +19,25 @@
 package com.agateau.pixelwheels.bonus;
 
 import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.Renderer;
 import com.agateau.pixelwheels.ZLevel;
 import com.agateau.pixelwheels.debug.DebugShapeMap;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Pool;
 
 /** A gun bonus */
 public class GunBonus extends BonusAdapter implements Pool.Poolable {
     private static final float SHOOT_INTERVAL = 0.1f;
-    private static final int SHOOT_COUNT = 20;
+    public static final int SHOOT_COUNT = 20;
     private static final float SPREAD_ANGLE = 5;
     private static final float AI_RAYCAST_LENGTH = 20;
 
@@ -109,6 +110,11 @@ public class GunBonus extends BonusAdapter implements Pool.Poolable {
         DebugShapeMap.put(this, mDebugShape);
     }
 
+    @Override
+    public void onRestored(Racer racer) {
+        onPicked(racer);
+    }
+
     @Override
     public void onOwnerHit() {
         resetBonus();
@@ -135,17 +141,32 @@ public class GunBonus extends BonusAdapter implements Pool.Poolable {
 
         // Shoot
         Vehicle vehicle = mRacer.getVehicle();
-        float angle = vehicle.getAngle() + MathUtils.random(-SPREAD_ANGLE, SPREAD_ANGLE);
-        Bullet bullet =
-                Bullet.create(
-                        mAssets,
-                        mGameWorld,
-                        mAudioManager,
-                        mRacer,
-                        vehicle.getX(),
-                        vehicle.getY(),
-                        angle);
-        mGameWorld.addGameObject(bullet);
+        float spread =
+                MathUtils.lerp(-SPREAD_ANGLE, SPREAD_ANGLE, mGameWorld.getRandom().nextFloat());
+        float angle = vehicle.getAngle() + spread;
+        if (GamePlay.instance.hitscanGun) {
+            HitscanBullet bullet =
+                    HitscanBullet.shoot(
+                            mAssets,
+                            mGameWorld,
+                            mAudioManager,
+                            mRacer,
+                            vehicle.getX(),
+                            vehicle.getY(),
+                            angle);
+            mGameWorld.addGameObject(bullet);
+        } else {
+            Bullet bullet =
+                    Bullet.create(
+                            mAssets,
+                            mGameWorld,
+                            mAudioManager,
+                            mRacer,
+                            vehicle.getX(),
+                            vehicle.getY(),
+                            angle);
+            mGameWorld.addGameObject(bullet);
+        }
 
         mRemainingShots--;
         if (mRemainingShots == 0) {
@@ -158,14 +179,38 @@ public class GunBonus extends BonusAdapter implements Pool.Poolable {
     @Override
     public void aiAct(float delta) {
         mRayCastOrigin.set(mRacer.getX(), mRacer.getY());
-        World world = mGameWorld.getBox2DWorld();
         Racer racer =
-                mClosestRacerFinder.find(world, mRayCastOrigin, mRacer.getVehicle().getAngle());
+                mClosestRacerFinder.find(
+                        mGameWorld, mRayCastOrigin, mRacer.getVehicle().getAngle());
         if (racer != null) {
             mRacer.triggerBonus();
         }
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBoolean(mTriggered);
+        snapshot.putFloat(mAnimationTime);
+        snapshot.putFloat(mDelayForNextShot);
+        snapshot.putInt(mRemainingShots);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mTriggered = snapshot.getBoolean();
+        mAnimationTime = snapshot.getFloat();
+        mDelayForNextShot = snapshot.getFloat();
+        mRemainingShots = snapshot.getInt();
+        if (mTriggered) {
+            DebugShapeMap.remove(this);
+        }
+    }
+
+    @Override
+    public void discard() {
+        resetBonus();
+    }
+
     private void resetBonus() {
         mRacer.getVehicleRenderer().removeRenderer(mBonusRenderer);
         free();
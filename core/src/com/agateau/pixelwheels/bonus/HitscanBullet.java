@@ -0,0 +1,249 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.bonus;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.AnimationObject;
+import com.agateau.pixelwheels.gameobjet.AudioClipper;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.pixelwheels.utils.BodyRegionDrawer;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A player bullet which hits its target as soon as it is shot, used instead of Bullet when
+ * GamePlay.hitscanGun is set
+ *
+ * <p>The target is found with a ray cast and gets the same effect as if a Bullet had hit it. The
+ * game object itself has no body: it only animates a tracer from the gun to the hit point.
+ */
+public class HitscanBullet extends GameObjectAdapter
+        implements Pool.Poolable, Disposable, Snapshot.Savable {
+    private static final GamePool<HitscanBullet> sPool =
+            new GamePool<>("hitscan bullets", HitscanBullet::new);
+
+    private static final float RANGE = 40;
+    // Speed of a Bullet
+    private static final float TRACER_SPEED = 160;
+
+    private static final HitFinder sHitFinder = new HitFinder();
+
+    private GameWorld mGameWorld;
+    private AudioManager mAudioManager;
+    private Assets mAssets;
+    private final Vector2 mOrigin = new Vector2();
+    // Package-private for tests
+    final Vector2 mEnd = new Vector2();
+    private final Vector2 mPosition = new Vector2();
+    private float mAngle;
+    private float mDistance;
+    private float mTime;
+    boolean mHit;
+    private boolean mJustShot;
+
+    private final BodyRegionDrawer mDrawer = new BodyRegionDrawer();
+
+    /** Finds the closest fixture a Bullet would hit along the ray */
+    private static class HitFinder implements RayCastCallback {
+        Racer shooter;
+        boolean hit;
+        Object target;
+        final Vector2 point = new Vector2();
+
+        void reset(Racer shooter) {
+            this.shooter = shooter;
+            hit = false;
+            target = null;
+        }
+
+        @Override
+        public float reportRayFixture(
+                Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+            if (fixture.isSensor()) {
+                // Bonus spots: Bullet only acts in preSolve(), which sensors never trigger
+                return -1;
+            }
+            if ((Box2DUtils.getCategoryBits(fixture) & Bullet.HIT_MASK) == 0) {
+                return -1;
+            }
+            Object other = fixture.getBody().getUserData();
+            if (other == shooter) {
+                return -1;
+            }
+            if (other instanceof GameObject && ((GameObject) other).isFinished()) {
+                // Already exploded, its body is still there until the end of the frame
+                return -1;
+            }
+            hit = true;
+            target = other;
+            this.point.set(point);
+            // Clip the ray, so that the next reported fixtures are closer
+            return fraction;
+        }
+    }
+
+    /**
+     * Shoots from (originX, originY) toward angle (in degrees) and applies the effect of the shot.
+     * The caller must add the returned object to the world to show the tracer
+     */
+    public static HitscanBullet shoot(
+            Assets assets,
+            GameWorld gameWorld,
+            AudioManager audioManager,
+            Racer shooter,
+            float originX,
+            float originY,
+            float angle) {
+        HitscanBullet object = createForSnapshot(assets, gameWorld, audioManager);
+        object.mJustShot = true;
+        object.mTime = 0;
+        object.mAngle = angle * MathUtils.degreesToRadians;
+        object.mOrigin.set(originX, originY);
+        object.mEnd.set(
+                originX + RANGE * MathUtils.cosDeg(angle),
+                originY + RANGE * MathUtils.sinDeg(angle));
+
+        sHitFinder.reset(shooter);
+        gameWorld.getBox2DWorld().rayCast(sHitFinder, object.mOrigin, object.mEnd);
+        object.mHit = sHitFinder.hit;
+        if (object.mHit) {
+            object.mEnd.set(sHitFinder.point);
+            Bullet.applyHit(sHitFinder.target);
+        }
+        sHitFinder.reset(null);
+
+        object.mDistance = object.mOrigin.dst(object.mEnd);
+        object.mPosition.set(object.mOrigin);
+        return object;
+    }
+
+    /**
+     * Returns a bullet whose state must be restored with restoreState(). Used by GameWorldImpl to
+     * restore snapshots, the bullet is not added to the world
+     */
+    public static HitscanBullet createForSnapshot(
+            Assets assets, GameWorld gameWorld, AudioManager audioManager) {
+        HitscanBullet object = sPool.obtain();
+        object.mAssets = assets;
+        object.mGameWorld = gameWorld;
+        object.mAudioManager = audioManager;
+        object.setFinished(false);
+        return object;
+    }
+
+    public static GamePool<HitscanBullet> getPool() {
+        return sPool;
+    }
+
+    private HitscanBullet() {}
+
+    @Override
+    public void reset() {}
+
+    @Override
+    public void dispose() {
+        sPool.free(this);
+    }
+
+    @Override
+    public void act(float delta) {
+        mTime += delta;
+        float traveled = mTime * TRACER_SPEED;
+        if (traveled < mDistance) {
+            mPosition.set(mOrigin).lerp(mEnd, traveled / mDistance);
+            return;
+        }
+        mPosition.set(mEnd);
+        if (mHit) {
+            AnimationObject obj = AnimationObject.create(mAssets.impact, mEnd.x, mEnd.y);
+            obj.initAudio(mAudioManager, mAssets.soundAtlas.get("impact"));
+            mGameWorld.addGameObject(obj);
+        }
+        setFinished(true);
+    }
+
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putFloat(mOrigin.x);
+        snapshot.putFloat(mOrigin.y);
+        snapshot.putFloat(mEnd.x);
+        snapshot.putFloat(mEnd.y);
+        snapshot.putFloat(mPosition.x);
+        snapshot.putFloat(mPosition.y);
+        snapshot.putFloat(mAngle);
+        snapshot.putFloat(mDistance);
+        snapshot.putFloat(mTime);
+        snapshot.putBoolean(mHit);
+        snapshot.putBoolean(mJustShot);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mOrigin.x = snapshot.getFloat();
+        mOrigin.y = snapshot.getFloat();
+        mEnd.x = snapshot.getFloat();
+        mEnd.y = snapshot.getFloat();
+        mPosition.x = snapshot.getFloat();
+        mPosition.y = snapshot.getFloat();
+        mAngle = snapshot.getFloat();
+        mDistance = snapshot.getFloat();
+        mTime = snapshot.getFloat();
+        mHit = snapshot.getBoolean();
+        mJustShot = snapshot.getBoolean();
+    }
+
+    @Override
+    public void draw(Batch batch, ZLevel zLevel) {
+        if (zLevel == ZLevel.GROUND) {
+            mDrawer.setBatch(batch);
+            mDrawer.draw(mPosition.x, mPosition.y, mAngle, mAssets.bullet);
+        }
+    }
+
+    @Override
+    public void audioRender(AudioClipper clipper) {
+        if (mJustShot) {
+            mAudioManager.play(mAssets.soundAtlas.get("shoot"), clipper.clip(this));
+            mJustShot = false;
+        }
+    }
+
+    @Override
+    public float getX() {
+        return mPosition.x;
+    }
+
+    @Override
+    public float getY() {
+        return mPosition.y;
+    }
+}
@@ -30,6 +30,8 @@ import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
@@ -44,22 +46,21 @@ import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A mine on the road */
 public class Mine extends GameObjectAdapter
-        implements Collidable, Pool.Poolable, Disposable, Explosable {
-    private static final ReflectionPool<Mine> sPool = new ReflectionPool<>(Mine.class);
+        implements Collidable, Pool.Poolable, Disposable, Explosable, Snapshot.Savable {
+    private static final GamePool<Mine> sPool = new GamePool<>("mines", Mine::new);
 
-    private static final float MINE_RADIUS = 0.8f;
+    public static final float MINE_RADIUS = 0.8f;
 
     private GameWorld mGameWorld;
     private AudioManager mAudioManager;
     private Assets mAssets;
     private Racer mOwner;
-    private BodyDef mBodyDef;
+    private final BodyDef mBodyDef = new BodyDef();
     private final WeldJointDef mJointDef = new WeldJointDef();
-    private CircleShape mShape;
+    private final CircleShape mShape = new CircleShape();
 
     private Body mBody;
     private float mTime;
@@ -86,47 +87,62 @@ public class Mine extends GameObjectAdapter
         return mine;
     }
 
-    private static Mine createInternal(
-            GameWorld gameWorld, Assets assets, AudioManager audioManager, Vector2 position) {
-        Mine mine = sPool.obtain();
-        if (mine.mBodyDef == null) {
-            mine.firstInit(assets);
-        }
+    /**
+     * Returns a mine whose state must be restored with restoreState(). Used by GameWorldImpl to
+     * restore snapshots, the mine is not added to the world
+     */
+    public static Mine createForSnapshot(
+            GameWorld gameWorld, Assets assets, AudioManager audioManager) {
+        return obtain(gameWorld, assets, audioManager);
+    }
 
+    private static Mine obtain(GameWorld gameWorld, Assets assets, AudioManager audioManager) {
+        Mine mine = sPool.obtain();
+        mine.mAssets = assets;
         mine.mGameWorld = gameWorld;
         mine.mAudioManager = audioManager;
         mine.mOwner = null;
         mine.mTime = 0;
         mine.mJoint = null;
         mine.setFinished(false);
+        return mine;
+    }
 
+    private static Mine createInternal(
+            GameWorld gameWorld, Assets assets, AudioManager audioManager, Vector2 position) {
+        Mine mine = obtain(gameWorld, assets, audioManager);
         mine.mBodyDef.position.set(position);
 
-        mine.mBody = gameWorld.getBox2DWorld().createBody(mine.mBodyDef);
-        mine.mBody.createFixture(mine.mShape, 0.00001f);
-        mine.mBody.setUserData(mine);
+        mine.mBody =
+                gameWorld
+                        .getBodyRecycler()
+                        .obtain(Mine.class, mine.mBodyDef, mine.mShape, 0.00001f);
         mine.mBody.setType(BodyDef.BodyType.DynamicBody);
-
-        Box2DUtils.setCollisionInfo(
-                mine.mBody,
-                CollisionCategories.EXPLOSABLE,
-                CollisionCategories.WALL
-                        | CollisionCategories.RACER
-                        | CollisionCategories.RACER_BULLET);
+        mine.initBody();
 
         gameWorld.addGameObject(mine);
         return mine;
     }
 
-    private void firstInit(Assets assets) {
-        mAssets = assets;
-        mBodyDef = new BodyDef();
-        mBodyDef.type = BodyDef.BodyType.DynamicBody;
+    public static GamePool<Mine> getPool() {
+        return sPool;
+    }
 
-        mShape = new CircleShape();
+    private Mine() {
+        mBodyDef.type = BodyDef.BodyType.DynamicBody;
         mShape.setRadius(MINE_RADIUS);
     }
 
+    private void initBody() {
+        mBody.setUserData(this);
+        Box2DUtils.setCollisionInfo(
+                mBody,
+                CollisionCategories.EXPLOSABLE,
+                CollisionCategories.WALL
+                        | CollisionCategories.RACER
+                        | CollisionCategories.RACER_BULLET);
+    }
+
     private void initJoint() {
         Body vehicleBody = mOwner.getVehicle().getBody();
         mJointDef.bodyA = mOwner.getVehicle().getBody();
@@ -139,7 +155,8 @@ public class Mine extends GameObjectAdapter
 
     @Override
     public void reset() {
-        mGameWorld.getBox2DWorld().destroyBody(mBody);
+        // The recycler destroys the joint of an attached mine
+        mGameWorld.getBodyRecycler().free(Mine.class, mBody);
         mBody = null;
     }
 
@@ -153,6 +170,33 @@ public class Mine extends GameObjectAdapter
         mTime += delta;
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mOwner);
+        snapshot.putFloat(mTime);
+        snapshot.putBoolean(mJoint != null);
+        snapshot.putInt(mGameWorld.getBodyRecycler().getId(mBody));
+        snapshot.putBody(mBody);
+    }
+
+    /**
+     * Must be called on a mine returned by createForSnapshot(), once the objects it refers to are
+     * in the world. The joint of an attached mine is created again
+     */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mOwner = snapshot.getReference();
+        mTime = snapshot.getFloat();
+        boolean attached = snapshot.getBoolean();
+        mBody = mGameWorld.getBodyRecycler().take(snapshot.getInt());
+        mBody.setType(attached ? BodyDef.BodyType.DynamicBody : BodyDef.BodyType.StaticBody);
+        initBody();
+        snapshot.getBody(mBody);
+        if (attached) {
+            initJoint();
+        }
+    }
+
     private final BodyRegionDrawer mBodyRegionDrawer = new BodyRegionDrawer();
 
     @Override
@@ -214,6 +258,11 @@ public class Mine extends GameObjectAdapter
     @Override
     public void postSolve(Contact contact, Fixture otherFixture, ContactImpulse impulse) {}
 
+    /** True once the mine is no longer attached to its owner */
+    public boolean isDropped() {
+        return mJoint == null;
+    }
+
     public void drop() {
         mGameWorld.getBox2DWorld().destroyJoint(mJoint);
         mJoint = null;
@@ -19,6 +19,7 @@
 package com.agateau.pixelwheels.bonus;
 
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Pool;
 
@@ -41,7 +42,11 @@ public class MineBonus extends BonusAdapter implements Pool.Poolable {
     public void onPicked(Racer racer) {
         super.onPicked(racer);
         mMine = Mine.createAttachedMine(mGameWorld, mAssets, mAudioManager, mRacer);
-        mAiKeepTime = MathUtils.random(AI_KEEP_BONUS_MIN_TIME, AI_KEEP_BONUS_MAX_TIME);
+        mAiKeepTime =
+                MathUtils.lerp(
+                        AI_KEEP_BONUS_MIN_TIME,
+                        AI_KEEP_BONUS_MAX_TIME,
+                        mGameWorld.getRandom().nextFloat());
     }
 
     @Override
@@ -63,6 +68,20 @@ public class MineBonus extends BonusAdapter implements Pool.Poolable {
         }
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mMine);
+        snapshot.putBoolean(mTriggered);
+        snapshot.putFloat(mAiKeepTime);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mMine = snapshot.getReference();
+        mTriggered = snapshot.getBoolean();
+        mAiKeepTime = snapshot.getFloat();
+    }
+
     @Override
     public void aiAct(float delta) {
         mAiKeepTime -= delta;
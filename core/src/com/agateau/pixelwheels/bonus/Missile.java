@@ -36,6 +36,8 @@ import com.agateau.pixelwheels.sound.SoundPlayer;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -50,16 +52,14 @@ import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.Joint;
 import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A player bullet */
 public class Missile extends GameObjectAdapter
-        implements Collidable, Pool.Poolable, Disposable, Explosable {
-    private static final ReflectionPool<Missile> sPool = new ReflectionPool<>(Missile.class);
+        implements Collidable, Pool.Poolable, Disposable, Explosable, Snapshot.Savable {
+    private static final GamePool<Missile> sPool = new GamePool<>("missiles", Missile::new);
 
     private static final float WIDTH = 44;
     private static final float HEIGHT = 13;
@@ -116,7 +116,11 @@ public class Missile extends GameObjectAdapter
     private boolean mNeedShootSound;
     private Racer mTarget;
 
-    public Missile() {
+    public static GamePool<Missile> getPool() {
+        return sPool;
+    }
+
+    private Missile() {
         mBodyDef.type = BodyDef.BodyType.DynamicBody;
         mBodyDef.bullet = true;
         mShape.setAsBox(
@@ -125,38 +129,47 @@ public class Missile extends GameObjectAdapter
 
     public static Missile create(
             Assets assets, GameWorld gameWorld, AudioManager audioManager, Racer shooter) {
-        Missile object = sPool.obtain();
-        object.mAssets = assets;
-        object.mGameWorld = gameWorld;
-        object.mAudioManager = audioManager;
-        object.setFinished(false);
+        Missile object = obtain(assets, gameWorld, audioManager);
         object.mRacerFinder.setIgnoredRacer(shooter);
         Vehicle vehicle = shooter.getVehicle();
         object.mShooter = shooter;
         object.mBodyDef.position.set(vehicle.getX(), vehicle.getY());
         object.mBodyDef.angle = vehicle.getAngle() * MathUtils.degRad;
 
-        object.mBody = gameWorld.getBox2DWorld().createBody(object.mBodyDef);
-        object.mBody.createFixture(object.mShape, WAITING_DENSITY);
-        object.mBody.setUserData(object);
-        Box2DUtils.setCollisionInfo(
-                object.mBody,
-                CollisionCategories.RACER_BULLET,
-                CollisionCategories.WALL
-                        | CollisionCategories.RACER
-                        | CollisionCategories.EXPLOSABLE);
+        object.mBody =
+                gameWorld
+                        .getBodyRecycler()
+                        .obtain(Missile.class, object.mBodyDef, object.mShape, WAITING_DENSITY);
+        object.initBody();
 
         object.mStatus = Status.WAITING;
         object.mNeedShootSound = false;
         object.mTarget = null;
         object.initJoint();
 
-        object.mGuidingSystem.init(object.mBody);
-
         gameWorld.addGameObject(object);
 
-        DebugShapeMap.put(object, object.mDebugShape);
+        return object;
+    }
+
+    /**
+     * Returns a missile whose state must be restored with restoreState(). Used by GameWorldImpl to
+     * restore snapshots, the missile is not added to the world
+     */
+    public static Missile createForSnapshot(
+            Assets assets, GameWorld gameWorld, AudioManager audioManager) {
+        return obtain(assets, gameWorld, audioManager);
+    }
 
+    private static Missile obtain(Assets assets, GameWorld gameWorld, AudioManager audioManager) {
+        Missile object = sPool.obtain();
+        object.mAssets = assets;
+        object.mGameWorld = gameWorld;
+        object.mAudioManager = audioManager;
+        object.mSoundPlayer = null;
+        object.mJoint = null;
+        object.setFinished(false);
+        DebugShapeMap.put(object, object.mDebugShape);
         return object;
     }
 
@@ -164,6 +177,17 @@ public class Missile extends GameObjectAdapter
         return mTarget != null;
     }
 
+    private void initBody() {
+        mBody.setUserData(this);
+        Box2DUtils.setCollisionInfo(
+                mBody,
+                CollisionCategories.RACER_BULLET,
+                CollisionCategories.WALL
+                        | CollisionCategories.RACER
+                        | CollisionCategories.EXPLOSABLE);
+        mGuidingSystem.init(mBody);
+    }
+
     private void initJoint() {
         Vehicle vehicle = mShooter.getVehicle();
         Body vehicleBody = vehicle.getBody();
@@ -186,11 +210,15 @@ public class Missile extends GameObjectAdapter
 
     @Override
     public void reset() {
-        // Do not reset the joint here: it crashes for some reason.
-        // The joint is deleted when the body is destroyed anyway.
-        mGameWorld.getBox2DWorld().destroyBody(mBody);
+        // Do not destroy mJoint here: it has already been destroyed if the vehicle of the shooter
+        // has been destroyed. The recycler destroys the joints the body still has.
+        mGameWorld.getBodyRecycler().free(Missile.class, mBody);
         mBody = null;
         DebugShapeMap.remove(this);
+        // The missile can be removed while flying when a snapshot is restored
+        if (mSoundPlayer != null) {
+            mSoundPlayer.stop();
+        }
     }
 
     private void resetJoint() {
@@ -205,6 +233,48 @@ public class Missile extends GameObjectAdapter
         sPool.free(this);
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mShooter);
+        snapshot.putReference(mTarget);
+        snapshot.putEnum(mStatus);
+        snapshot.putFloat(mTime);
+        snapshot.putBoolean(mNeedShootSound);
+        snapshot.putInt(mGameWorld.getBodyRecycler().getId(mBody));
+        snapshot.putBody(mBody);
+    }
+
+    /**
+     * Must be called on a missile returned by createForSnapshot(), once the objects it refers to
+     * are in the world. The joint of a waiting missile is created again
+     */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mShooter = snapshot.getReference();
+        mTarget = snapshot.getReference();
+        mStatus = snapshot.getEnum(Status.values());
+        mTime = snapshot.getFloat();
+        mNeedShootSound = snapshot.getBoolean();
+        mRacerFinder.setIgnoredRacer(mShooter);
+
+        mBody = mGameWorld.getBodyRecycler().take(snapshot.getInt());
+        initBody();
+        mBody.getFixtureList()
+                .first()
+                .setDensity(mStatus == Status.WAITING ? WAITING_DENSITY : SHOT_DENSITY);
+        mBody.resetMassData();
+        snapshot.getBody(mBody);
+        if (mStatus == Status.WAITING) {
+            initJoint();
+        }
+    }
+
+    @Override
+    public UpdatePhase getUpdatePhase() {
+        // The guiding system pushes the missile
+        return UpdatePhase.PRE_PHYSICS;
+    }
+
     @Override
     public void act(float delta) {
         switch (mStatus) {
@@ -246,10 +316,9 @@ public class Missile extends GameObjectAdapter
     }
 
     private void findTarget() {
-        World world = mGameWorld.getBox2DWorld();
         mTarget =
                 mRacerFinder.find(
-                        world, mBody.getWorldCenter(), mBody.getAngle() * MathUtils.radDeg);
+                        mGameWorld, mBody.getWorldCenter(), mBody.getAngle() * MathUtils.radDeg);
     }
 
     @Override
@@ -339,7 +408,10 @@ public class Missile extends GameObjectAdapter
         Vector2 pos = mBody.getPosition();
         AnimationObject obj = mAssets.createExplosion(mAudioManager, pos.x, pos.y);
         mGameWorld.addGameObject(obj);
-        mSoundPlayer.stop();
+        // A missile restored from a snapshot has no sound player if it has been shot before
+        if (mSoundPlayer != null) {
+            mSoundPlayer.stop();
+        }
         setFinished(true);
     }
 
@@ -19,6 +19,7 @@
 package com.agateau.pixelwheels.bonus;
 
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.utils.Pool;
 
 /** A missile bonus */
@@ -66,6 +67,20 @@ public class MissileBonus extends BonusAdapter implements Pool.Poolable {
         }
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mMissile);
+        snapshot.putBoolean(mTriggered);
+        snapshot.putBoolean(mOwnerHit);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mMissile = snapshot.getReference();
+        mTriggered = snapshot.getBoolean();
+        mOwnerHit = snapshot.getBoolean();
+    }
+
     @Override
     public void aiAct(float delta) {
         if (mMissile.hasTarget()) {
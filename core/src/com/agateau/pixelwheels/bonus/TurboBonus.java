@@ -23,6 +23,7 @@ import com.agateau.pixelwheels.Renderer;
 import com.agateau.pixelwheels.ZLevel;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
@@ -79,6 +80,12 @@ public class TurboBonus extends BonusAdapter implements Pool.Poolable {
         mRacer.getVehicleRenderer().addRenderer(mBonusRenderer);
     }
 
+    @Override
+    public void onRestored(Racer racer) {
+        super.onRestored(racer);
+        mRacer.getVehicleRenderer().addRenderer(mBonusRenderer);
+    }
+
     @Override
     public void onOwnerHit() {
         resetBonus();
@@ -108,6 +115,23 @@ public class TurboBonus extends BonusAdapter implements Pool.Poolable {
         mRacer.triggerBonus();
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBoolean(mTriggered);
+        snapshot.putFloat(mAnimationTime);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mTriggered = snapshot.getBoolean();
+        mAnimationTime = snapshot.getFloat();
+    }
+
+    @Override
+    public void discard() {
+        resetBonus();
+    }
+
     private void resetBonus() {
         mRacer.getVehicleRenderer().removeRenderer(mBonusRenderer);
         free();
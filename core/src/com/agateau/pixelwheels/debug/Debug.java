@@ -28,6 +28,8 @@ public class Debug {
 
     public boolean alwaysShowTouchInput = false;
     public boolean createSpeedReport = false;
+    public boolean recordRaces = false;
+    public boolean logFrameTimes = false;
 
     public int maxSkidmarks = 60;
 
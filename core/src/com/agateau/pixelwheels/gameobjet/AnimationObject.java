@@ -21,18 +21,20 @@ package com.agateau.pixelwheels.gameobjet;
 import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.ZLevel;
 import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A generic short-animation game object */
-public class AnimationObject extends GameObjectAdapter implements Pool.Poolable, Disposable {
-    private static final ReflectionPool<AnimationObject> sPool =
-            new ReflectionPool<>(AnimationObject.class);
+public class AnimationObject extends GameObjectAdapter
+        implements Pool.Poolable, Disposable, Snapshot.Savable {
+    private static final GamePool<AnimationObject> sPool =
+            new GamePool<>("animations", AnimationObject::new);
     private float mTime;
     private Animation<TextureRegion> mAnimation;
     private float mPosX;
@@ -41,6 +43,10 @@ public class AnimationObject extends GameObjectAdapter implements Pool.Poolable,
     private Sound mSound;
     private AudioManager mAudioManager;
 
+    public static GamePool<AnimationObject> getPool() {
+        return sPool;
+    }
+
     @Override
     public void reset() {}
 
@@ -49,6 +55,11 @@ public class AnimationObject extends GameObjectAdapter implements Pool.Poolable,
         sPool.free(this);
     }
 
+    @Override
+    public UpdatePhase getUpdatePhase() {
+        return UpdatePhase.LATE;
+    }
+
     @Override
     public void act(float delta) {
         mTime += delta;
@@ -92,6 +103,28 @@ public class AnimationObject extends GameObjectAdapter implements Pool.Poolable,
         return mPosY;
     }
 
+    /**
+     * Saves the animation and the sound as references: the snapshot references must contain the
+     * animations and sounds the world uses
+     */
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mAnimation);
+        snapshot.putReference(mSound);
+        snapshot.putFloat(mTime);
+        snapshot.putFloat(mPosX);
+        snapshot.putFloat(mPosY);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mAnimation = snapshot.getReference();
+        mSound = snapshot.getReference();
+        mTime = snapshot.getFloat();
+        mPosX = snapshot.getFloat();
+        mPosY = snapshot.getFloat();
+    }
+
     public void initAudio(AudioManager audioManager, Sound sound) {
         mAudioManager = audioManager;
         mSound = sound;
@@ -113,4 +146,15 @@ public class AnimationObject extends GameObjectAdapter implements Pool.Poolable,
         obj.setFinished(false);
         return obj;
     }
+
+    /**
+     * Returns an object whose state must be restored with restoreState(). Used by GameWorldImpl to
+     * restore snapshots, the object is not added to the world
+     */
+    public static AnimationObject createForSnapshot(AudioManager audioManager) {
+        AnimationObject obj = sPool.obtain();
+        obj.mAudioManager = audioManager;
+        obj.setFinished(false);
+        return obj;
+    }
 }
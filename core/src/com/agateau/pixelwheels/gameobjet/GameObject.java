@@ -24,8 +24,21 @@ import com.badlogic.gdx.math.Vector2;
 
 /** A generic game object */
 public interface GameObject {
+    /** When act() is called during a frame */
+    enum UpdatePhase {
+        /** Before the physics step, for objects which apply forces to their bodies */
+        PRE_PHYSICS,
+        /** After the physics step, this is where most objects act */
+        POST_PHYSICS,
+        /** After all the other objects, for visual effects */
+        LATE
+    }
+
     void act(float delta);
 
+    /** Must return the same value for all the objects of a class */
+    UpdatePhase getUpdatePhase();
+
     /**
      * Returns true if the object is done and should be removed from the game. If the object
      * implements Disposable, GameWorld will take care of calling dispose() on it.
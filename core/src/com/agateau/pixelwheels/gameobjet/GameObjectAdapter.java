@@ -25,6 +25,11 @@ public abstract class GameObjectAdapter implements GameObject {
     private boolean mIsFinished = false;
     private final Vector2 mPosition = new Vector2();
 
+    @Override
+    public UpdatePhase getUpdatePhase() {
+        return UpdatePhase.POST_PHYSICS;
+    }
+
     @Override
     public boolean isFinished() {
         return mIsFinished;
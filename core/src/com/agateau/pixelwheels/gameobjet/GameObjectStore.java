@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.gameobjet;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Stores the game objects of the world, in one bucket per class
+ *
+ * <p>act() goes through the buckets of one update phase, in the order of their class names. When an
+ * object is finished it is removed right after it acts, and disposed if it implements Disposable:
+ * this is how pooled objects go back to their pool. Removing an object moves the last object of its
+ * bucket, and the last of getAll(), into its place, so that nothing has to be shifted. This means
+ * objects do not stay in the order they were added.
+ *
+ * <p>Objects added while act() runs are only stored by flushAddedObjects(), so they do not act in
+ * the frame they have been created.
+ */
+public class GameObjectStore implements Disposable {
+    private static final GameObject.UpdatePhase[] PHASES = GameObject.UpdatePhase.values();
+
+    private static class Bucket {
+        final Array<GameObject> objects = new Array<>(false, 16);
+        final boolean disposable;
+        final String className;
+
+        Bucket(GameObject firstObject) {
+            disposable = firstObject instanceof Disposable;
+            className = firstObject.getClass().getName();
+        }
+    }
+
+    // Unordered arrays: removeIndex() moves the last item into the removed slot
+    private final Array<GameObject> mObjects = new Array<>(false, 64);
+    private final ObjectIntMap<GameObject> mObjectIndices = new ObjectIntMap<>();
+
+    private final ObjectMap<Class<?>, Bucket> mBucketForClass = new ObjectMap<>();
+    private final Array<Bucket> mBuckets = new Array<>();
+    // Buckets of each phase, indexed by UpdatePhase.ordinal()
+    private final Array<Array<Bucket>> mPhaseBuckets = new Array<>();
+
+    private final Array<GameObject> mAddedObjects = new Array<>();
+    private boolean mActing = false;
+
+    private static final Array<GameObject> sEmptyArray = new Array<>();
+
+    public GameObjectStore() {
+        for (int idx = 0; idx < PHASES.length; ++idx) {
+            mPhaseBuckets.add(new Array<>());
+        }
+    }
+
+    public void add(GameObject object) {
+        if (mActing) {
+            mAddedObjects.add(object);
+        } else {
+            store(object);
+        }
+    }
+
+    /** Stores the objects added during the last act() calls. Must be called once per frame */
+    public void flushAddedObjects() {
+        for (int idx = 0; idx < mAddedObjects.size; ++idx) {
+            store(mAddedObjects.get(idx));
+        }
+        mAddedObjects.clear();
+    }
+
+    /** All the stored objects. The array must not be modified */
+    public Array<GameObject> getAll() {
+        return mObjects;
+    }
+
+    /**
+     * The stored objects whose class is type. Objects of subclasses of type are not included. The
+     * array must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameObject> Array<T> getObjects(Class<T> type) {
+        Bucket bucket = mBucketForClass.get(type);
+        return (Array<T>) (bucket == null ? sEmptyArray : bucket.objects);
+    }
+
+    /** Calls act() on the objects of phase, then removes the ones which are finished */
+    public void act(GameObject.UpdatePhase phase, float delta) {
+        mActing = true;
+        Array<Bucket> buckets = mPhaseBuckets.get(phase.ordinal());
+        for (int bucketIdx = 0; bucketIdx < buckets.size; ++bucketIdx) {
+            Bucket bucket = buckets.get(bucketIdx);
+            // Go backward, so that the object moved in place of a removed one has already acted
+            for (int idx = bucket.objects.size - 1; idx >= 0; --idx) {
+                GameObject object = bucket.objects.get(idx);
+                object.act(delta);
+                if (object.isFinished()) {
+                    remove(bucket, idx);
+                }
+            }
+        }
+        mActing = false;
+    }
+
+    /** Removes, and disposes if needed, all the objects whose class is type */
+    public void removeAll(Class<?> type) {
+        Bucket bucket = mBucketForClass.get(type);
+        if (bucket == null) {
+            return;
+        }
+        for (int idx = bucket.objects.size - 1; idx >= 0; --idx) {
+            remove(bucket, idx);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        flushAddedObjects();
+        for (int idx = 0; idx < mObjects.size; ++idx) {
+            GameObject object = mObjects.get(idx);
+            if (object instanceof Disposable) {
+                ((Disposable) object).dispose();
+            }
+        }
+        mObjects.clear();
+        mObjectIndices.clear();
+        for (int idx = 0; idx < mBuckets.size; ++idx) {
+            mBuckets.get(idx).objects.clear();
+        }
+    }
+
+    private void store(GameObject object) {
+        Bucket bucket = mBucketForClass.get(object.getClass());
+        if (bucket == null) {
+            bucket = new Bucket(object);
+            mBucketForClass.put(object.getClass(), bucket);
+            mBuckets.add(bucket);
+            addPhaseBucket(object, bucket);
+        }
+        bucket.objects.add(object);
+        mObjectIndices.put(object, mObjects.size);
+        mObjects.add(object);
+    }
+
+    /**
+     * Keeps the buckets of a phase sorted by class name, so that the order in which objects act
+     * does not depend on which class of object appeared first. A world restored from a snapshot
+     * must run the same way, whatever happened before the restore
+     */
+    private void addPhaseBucket(GameObject object, Bucket bucket) {
+        Array<Bucket> buckets = mPhaseBuckets.get(object.getUpdatePhase().ordinal());
+        String name = object.getClass().getName();
+        int idx = 0;
+        while (idx < buckets.size && buckets.get(idx).className.compareTo(name) < 0) {
+            ++idx;
+        }
+        buckets.insert(idx, bucket);
+    }
+
+    private void remove(Bucket bucket, int idx) {
+        GameObject object = bucket.objects.removeIndex(idx);
+        int objectIdx = mObjectIndices.remove(object, -1);
+        mObjects.removeIndex(objectIdx);
+        if (objectIdx < mObjects.size) {
+            mObjectIndices.put(mObjects.get(objectIdx), objectIdx);
+        }
+        if (bucket.disposable) {
+            ((Disposable) object).dispose();
+        }
+    }
+}
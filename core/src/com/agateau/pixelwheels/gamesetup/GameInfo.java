@@ -65,9 +65,7 @@ public abstract class GameInfo {
 
             gameInfo.mEntrants.clear();
             for (int idx = 0; idx < aiCount; ++idx) {
-                Entrant entrant = new Entrant();
-                entrant.mVehicleId = vehicleIds.get(idx % vehicleIds.size);
-                gameInfo.mEntrants.add(entrant);
+                gameInfo.mEntrants.add(new Entrant(vehicleIds.get(idx % vehicleIds.size)));
             }
             gameInfo.mEntrants.addAll(mPlayers);
         }
@@ -88,6 +86,10 @@ public abstract class GameInfo {
         private int mLastRacePoints = 0;
         private float mRaceTime = 0;
 
+        public Entrant(String vehicleId) {
+            mVehicleId = vehicleId;
+        }
+
         public String getVehicleId() {
             return mVehicleId;
         }
@@ -122,8 +124,8 @@ public abstract class GameInfo {
         private final int mIndex;
 
         public Player(int idx, String vehicleId) {
+            super(vehicleId);
             mIndex = idx;
-            mVehicleId = vehicleId;
         }
 
         public int getIndex() {
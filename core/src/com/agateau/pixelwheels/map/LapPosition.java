@@ -60,6 +60,16 @@ public class LapPosition {
         return mSectionId;
     }
 
+    /** x coordinate this position was computed for, in pixels */
+    public float getX() {
+        return mX;
+    }
+
+    /** y coordinate this position was computed for, in pixels */
+    public float getY() {
+        return mY;
+    }
+
     public float getSectionDistance() {
         return mSectionDistance;
     }
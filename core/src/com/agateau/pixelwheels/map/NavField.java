@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A coarse grid covering a track, baked offline by the NavFieldGenerator tool
+ *
+ * <p>Each drivable cell stores the heading AI pilots should follow from the center of the cell, and
+ * the distance from this center to the closest border or static obstacle. Cells the pilots should
+ * not rely on (outside of the track, or with no visible waypoint) have no data.
+ *
+ * <p>Once loaded, a NavField never changes, so lookups can run from several threads.
+ */
+public class NavField {
+    /** Returned by getCellIndex() for positions outside of the grid or cells without data */
+    public static final int NO_CELL = -1;
+
+    /** Border distances are clamped to this value */
+    public static final float MAX_BORDER_DISTANCE = 25;
+
+    private static final int MAGIC = 0x50574e46; // "PWNF"
+    private static final int VERSION = 1;
+
+    private static final float HEADING_STEP = 360f / 65536;
+    private static final float BORDER_DISTANCE_STEP = 0.1f;
+    // Stored as border distance for cells without data
+    private static final int NO_DATA = 0xff;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final float mCellSize;
+    // In degrees
+    private final float[] mHeadings;
+    // Negative for cells without data
+    private final float[] mBorderDistances;
+
+    /** Creates a field where no cell has data yet */
+    public NavField(int width, int height, float cellSize) {
+        mWidth = width;
+        mHeight = height;
+        mCellSize = cellSize;
+        mHeadings = new float[width * height];
+        mBorderDistances = new float[width * height];
+        for (int idx = 0; idx < mBorderDistances.length; ++idx) {
+            mBorderDistances[idx] = -1;
+        }
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public float getCellSize() {
+        return mCellSize;
+    }
+
+    /** heading is in degrees */
+    public void setCell(int cx, int cy, float heading, float borderDistance) {
+        int idx = cy * mWidth + cx;
+        mHeadings[idx] = heading;
+        mBorderDistances[idx] = MathUtils.clamp(borderDistance, 0, MAX_BORDER_DISTANCE);
+    }
+
+    /** Returns the index of the cell containing (x, y), or NO_CELL */
+    public int getCellIndex(float x, float y) {
+        int cx = MathUtils.floor(x / mCellSize);
+        int cy = MathUtils.floor(y / mCellSize);
+        if (cx < 0 || cy < 0 || cx >= mWidth || cy >= mHeight) {
+            return NO_CELL;
+        }
+        int idx = cy * mWidth + cx;
+        return mBorderDistances[idx] < 0 ? NO_CELL : idx;
+    }
+
+    /** Heading of a cell returned by getCellIndex(), in degrees */
+    public float getHeading(int cellIndex) {
+        return mHeadings[cellIndex];
+    }
+
+    public float getBorderDistance(int cellIndex) {
+        return mBorderDistances[cellIndex];
+    }
+
+    public void save(FileHandle handle) {
+        try (DataOutputStream out =
+                new DataOutputStream(new GZIPOutputStream(handle.write(/* append= */ false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mWidth);
+            out.writeInt(mHeight);
+            out.writeFloat(mCellSize);
+            for (int idx = 0; idx < mHeadings.length; ++idx) {
+                float distance = mBorderDistances[idx];
+                if (distance < 0) {
+                    out.writeByte(NO_DATA);
+                    continue;
+                }
+                out.writeByte(Math.min(Math.round(distance / BORDER_DISTANCE_STEP), NO_DATA - 1));
+                float heading = (mHeadings[idx] % 360 + 360) % 360;
+                out.writeShort(Math.round(heading / HEADING_STEP));
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to save nav field to " + handle.path(), e);
+        }
+    }
+
+    /** Returns null if handle does not exist or cannot be read */
+    public static NavField load(FileHandle handle) {
+        if (!handle.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(handle.read()))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                NLog.e("%s is not a nav field, or uses an unsupported version", handle.path());
+                return null;
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            float cellSize = in.readFloat();
+            NavField field = new NavField(width, height, cellSize);
+            for (int idx = 0; idx < field.mHeadings.length; ++idx) {
+                int distance = in.readUnsignedByte();
+                if (distance == NO_DATA) {
+                    continue;
+                }
+                field.mBorderDistances[idx] = distance * BORDER_DISTANCE_STEP;
+                field.mHeadings[idx] = in.readUnsignedShort() * HEADING_STEP;
+            }
+            return field;
+        } catch (IOException e) {
+            NLog.e("Failed to load nav field from %s: %s", handle.path(), e);
+            return null;
+        }
+    }
+}
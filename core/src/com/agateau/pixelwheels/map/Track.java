@@ -25,6 +25,7 @@ import com.agateau.pixelwheels.stats.TrackStats;
 import com.agateau.pixelwheels.utils.OrientedPoint;
 import com.agateau.utils.Assert;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.maps.MapLayer;
@@ -65,6 +66,7 @@ public class Track implements Disposable {
     private float mTileWidth;
     private float mTileHeight;
     private LapPositionTable mLapPositionTable;
+    private NavField mNavField;
     private Color mBackgroundColor;
 
     private static final TmxMapLoader sMapLoader = new TmxMapLoader();
@@ -97,6 +99,7 @@ public class Track implements Disposable {
 
         mLapPositionTable = LapPositionTableIO.load(mMap);
         readWaypoints();
+        mNavField = NavField.load(getNavFieldFile(mId));
 
         String bgColorText = mMap.getProperties().get("backgroundcolor", "#808080", String.class);
         bgColorText = bgColorText.substring(1); // Skip leading '#'
@@ -172,6 +175,15 @@ public class Track implements Disposable {
         return mWaypointStore;
     }
 
+    /** Returns the baked nav field of the track, or null if it has not been generated */
+    public NavField getNavField() {
+        return mNavField;
+    }
+
+    public static FileHandle getNavFieldFile(String trackId) {
+        return Gdx.files.internal("maps/" + trackId + ".nav");
+    }
+
     public int[] getExtraBackgroundLayerIndexes() {
         int[] indexes = new int[mBackgroundLayers.size - 1];
         for (int idx = 1; idx < mBackgroundLayers.size; ++idx) {
@@ -279,6 +291,44 @@ public class Track implements Disposable {
         return lst;
     }
 
+    /**
+     * Adds positions behind the start tiles until positions contains count positions, for races
+     * with more racers than start tiles. The start grid is repeated behind itself, skipping the
+     * positions which are not on the road or not on the track. Stops when a whole copy of the grid
+     * has no valid position, so positions can end up with less than count positions.
+     */
+    public void addGridPositions(Array<Vector2> positions, int count) {
+        Array<Vector2> startPositions = findStartTilePositions();
+        if (startPositions.isEmpty()) {
+            return;
+        }
+        float minY = startPositions.first().y;
+        float maxY = startPositions.first().y;
+        for (Vector2 position : startPositions) {
+            minY = Math.min(minY, position.y);
+            maxY = Math.max(maxY, position.y);
+        }
+        float gridHeight = maxY - minY + mTileHeight;
+        final float PFU = 1 / Constants.UNIT_FOR_PIXEL;
+        boolean added = true;
+        for (int row = 1; added && positions.size < count; ++row) {
+            added = false;
+            // Start tiles are listed from the back of the grid to the front, and positions are
+            // used from the front to the back
+            for (int idx = startPositions.size - 1; idx >= 0 && positions.size < count; --idx) {
+                Vector2 start = startPositions.get(idx);
+                float x = start.x;
+                float y = start.y - row * gridHeight;
+                if (!getMaterialAt(x, y + mTileHeight / 2).isRoad()
+                        || mLapPositionTable.get((int) (x * PFU), (int) (y * PFU)) == null) {
+                    continue;
+                }
+                positions.add(new Vector2(x, y));
+                added = true;
+            }
+        }
+    }
+
     public Array<Vector2> findBonusSpotPositions() {
         final float U = Constants.UNIT_FOR_PIXEL;
         MapLayer layer = mMap.getLayers().get("BonusSpots");
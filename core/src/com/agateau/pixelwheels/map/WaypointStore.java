@@ -24,18 +24,28 @@ import com.agateau.utils.AgcMathUtils;
 import com.agateau.utils.Assert;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapObjects;
 import com.badlogic.gdx.maps.objects.EllipseMapObject;
 import com.badlogic.gdx.math.Ellipse;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 
-/** Holds all the waypoints used by AI players */
+/**
+ * Holds all the waypoints used by AI players
+ *
+ * <p>Waypoints are sorted by lap distance and stored in parallel arrays. The waypoint index for a
+ * lap distance is found with a binary search, or with a Cursor when the lap distance changes little
+ * between calls.
+ */
 public class WaypointStore {
     private static final OrientedPoint tmpPoint = new OrientedPoint();
+    private final Vector2 mTmpPrev = new Vector2();
+    private final Vector2 mTmpNext = new Vector2();
 
     private static class WaypointInfo implements Comparable {
         float lapDistance;
-        Vector2 waypoint;
+        float x;
+        float y;
 
         @Override
         public int compareTo(Object o) {
@@ -44,12 +54,52 @@ public class WaypointStore {
         }
     }
 
-    private final Array<WaypointInfo> mWaypointInfos = new Array<>();
+    private float[] mLapDistances = new float[0];
+    private float[] mX = new float[0];
+    private float[] mY = new float[0];
+
+    /**
+     * Remembers the last index it returned, so that finding the index of a lap distance close to
+     * the previous one only takes a few comparisons. Returns the same indexes as
+     * WaypointStore.getWaypointIndex().
+     */
+    public static class Cursor {
+        private final WaypointStore mStore;
+        private int mIndex = 0;
+
+        public Cursor(WaypointStore store) {
+            mStore = store;
+        }
+
+        public int getWaypointIndex(float lapDistance) {
+            if (mStore.isIndexFor(mIndex, lapDistance)) {
+                return mIndex;
+            }
+            int next = mStore.getNextIndex(mIndex);
+            if (mStore.isIndexFor(next, lapDistance)) {
+                mIndex = next;
+                return mIndex;
+            }
+            int previous = mStore.getPreviousIndex(mIndex);
+            if (mStore.isIndexFor(previous, lapDistance)) {
+                mIndex = previous;
+                return mIndex;
+            }
+            mIndex = mStore.getWaypointIndex(lapDistance);
+            return mIndex;
+        }
+    }
 
     public void read(MapLayer layer, LapPositionTable lapPositionTable) {
         final float U = Constants.UNIT_FOR_PIXEL;
 
-        for (MapObject object : layer.getObjects()) {
+        MapObjects objects = layer.getObjects();
+        int count = objects.getCount();
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] lapDistances = new float[count];
+        for (int idx = 0; idx < count; ++idx) {
+            MapObject object = objects.get(idx);
             Assert.check(
                     object instanceof EllipseMapObject,
                     "Waypoints layer should contains only ellipses. "
@@ -58,35 +108,65 @@ public class WaypointStore {
             Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
             final LapPosition pos = lapPositionTable.get((int) ellipse.x, (int) ellipse.y);
             Assert.check(pos != null, "No position at " + ellipse.x + "x" + ellipse.y);
+            x[idx] = ellipse.x * U;
+            y[idx] = ellipse.y * U;
+            lapDistances[idx] = pos.getLapDistance();
+        }
+        setWaypoints(x, y, lapDistances);
+    }
+
+    /** Replaces the waypoints. They do not need to be sorted */
+    public void setWaypoints(float[] x, float[] y, float[] lapDistances) {
+        Array<WaypointInfo> infos = new Array<>(lapDistances.length);
+        for (int idx = 0; idx < lapDistances.length; ++idx) {
             WaypointInfo info = new WaypointInfo();
-            info.waypoint = new Vector2(ellipse.x * U, ellipse.y * U);
-            info.lapDistance = pos.getLapDistance();
-            mWaypointInfos.add(info);
+            info.x = x[idx];
+            info.y = y[idx];
+            info.lapDistance = lapDistances[idx];
+            infos.add(info);
+        }
+        infos.sort();
+
+        mLapDistances = new float[infos.size];
+        mX = new float[infos.size];
+        mY = new float[infos.size];
+        for (int idx = 0; idx < infos.size; ++idx) {
+            WaypointInfo info = infos.get(idx);
+            mLapDistances[idx] = info.lapDistance;
+            mX[idx] = info.x;
+            mY[idx] = info.y;
         }
-        mWaypointInfos.sort();
     }
 
-    public Vector2 getWaypoint(int index) {
-        return mWaypointInfos.get(index).waypoint;
+    public float getWaypointX(int index) {
+        return mX[index];
+    }
+
+    public float getWaypointY(int index) {
+        return mY[index];
+    }
+
+    public float getLapDistance(int index) {
+        return mLapDistances[index];
     }
 
     public int getPreviousIndex(int index) {
-        return (index > 0 ? index : mWaypointInfos.size) - 1;
+        return (index > 0 ? index : mLapDistances.length) - 1;
     }
 
     public int getNextIndex(int index) {
-        return (index + 1) % mWaypointInfos.size;
+        return (index + 1) % mLapDistances.length;
     }
 
     public int getCount() {
-        return mWaypointInfos.size;
+        return mLapDistances.length;
     }
 
     public OrientedPoint getValidPosition(Vector2 pos, float lapDistance) {
         int nextIdx = getWaypointIndex(lapDistance);
         int prevIdx = getPreviousIndex(nextIdx);
-        Vector2 prev = mWaypointInfos.get(prevIdx).waypoint;
-        Vector2 next = mWaypointInfos.get(nextIdx).waypoint;
+        Vector2 prev = mTmpPrev.set(mX[prevIdx], mY[prevIdx]);
+        Vector2 next = mTmpNext.set(mX[nextIdx], mY[nextIdx]);
         Vector2 projected = AgcMathUtils.project(pos, prev, next);
         float waypointSquareLength = prev.dst2(next);
         if (projected.dst2(prev) > waypointSquareLength) {
@@ -102,12 +182,31 @@ public class WaypointStore {
         return tmpPoint;
     }
 
+    /**
+     * Returns the index of the first waypoint after lapDistance. Wraps to 0 after the last
+     * waypoint. Thread-safe.
+     */
     public int getWaypointIndex(float lapDistance) {
-        for (int idx = 0; idx < mWaypointInfos.size; ++idx) {
-            if (lapDistance < mWaypointInfos.get(idx).lapDistance) {
-                return idx;
+        // Find the first lap distance greater than lapDistance
+        int low = 0;
+        int high = mLapDistances.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lapDistance < mLapDistances[middle]) {
+                high = middle;
+            } else {
+                low = middle + 1;
             }
         }
-        return 0;
+        return low < mLapDistances.length ? low : 0;
+    }
+
+    /** True if getWaypointIndex(lapDistance) would return index */
+    private boolean isIndexFor(int index, float lapDistance) {
+        if (lapDistance >= mLapDistances[index]) {
+            // Only the first waypoint comes after the last one
+            return index == 0 && lapDistance >= mLapDistances[mLapDistances.length - 1];
+        }
+        return index == 0 || lapDistance >= mLapDistances[index - 1];
     }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.map.MapUtils;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Polyline;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+
+/**
+ * Merges the borders of a track into a single static body
+ *
+ * <p>Rectangles and polygons become solid polygons, like they were when each border had its own
+ * body: a racer pushed inside one is pushed out, where it would get stuck inside a hollow loop.
+ * Since Box2D polygons are convex and have at most 8 vertices, polygons with more vertices become
+ * ChainShape loops. Polylines become chains and ellipses become circles. All vertices are expressed
+ * in world coordinates, since the body sits at the origin.
+ *
+ * <p>Vertices closer than MIN_VERTEX_DISTANCE to the previous one are dropped first: Box2D asserts
+ * on them. Shapes left with too few vertices, or no area, are skipped.
+ *
+ * <p>Borders are never moved, so having one body for all of them instead of one body per map object
+ * keeps the body list Box2D walks at each step short.
+ */
+class BorderCompiler {
+    // b2_linearSlop: Box2D chains need consecutive vertices to be further apart than this
+    static final float MIN_VERTEX_DISTANCE = 0.005f;
+    // b2_maxPolygonVertices
+    private static final int MAX_POLYGON_VERTICES = 8;
+
+    private static final Vector2 sTmp = new Vector2();
+
+    private final Array<MapObject> mMapObjects = new Array<>();
+
+    void add(MapObject mapObject) {
+        mMapObjects.add(mapObject);
+    }
+
+    int getMapObjectCount() {
+        return mMapObjects.size;
+    }
+
+    /** Creates the body for all the added map objects. Returns null if there are none */
+    Body compile(World world) {
+        if (mMapObjects.isEmpty()) {
+            return null;
+        }
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        Body body = world.createBody(bodyDef);
+
+        for (MapObject mapObject : mMapObjects) {
+            Shape shape = createShape(mapObject);
+            if (shape == null) {
+                NLog.e("Skipping degenerate border %s", mapObject.getName());
+                continue;
+            }
+            body.createFixture(shape, 1);
+            shape.dispose();
+        }
+
+        Box2DUtils.setCollisionInfo(
+                body,
+                CollisionCategories.WALL,
+                CollisionCategories.RACER
+                        | CollisionCategories.EXPLOSABLE
+                        | CollisionCategories.RACER_BULLET);
+        Box2DUtils.setBodyRestitution(body, GamePlay.instance.borderRestitution / 10.0f);
+        return body;
+    }
+
+    /** Returns null if the map object is too small to make a valid shape */
+    private static Shape createShape(MapObject mapObject) {
+        final float u = Constants.UNIT_FOR_PIXEL;
+        float angle = MapUtils.getObjectRotation(mapObject) * MathUtils.degreesToRadians;
+
+        if (mapObject instanceof RectangleMapObject) {
+            Rectangle rect = ((RectangleMapObject) mapObject).getRectangle();
+
+            /*
+             A          D
+              x--------x
+              |        |
+              x--------x
+             B          C
+            */
+            float[] vertices =
+                    new float[] {
+                        0, 0, 0, -rect.height, rect.width, -rect.height, rect.width, 0,
+                    };
+            toWorld(vertices, rect.x, rect.y + rect.height, angle);
+            return createClosedShape(weldVertices(vertices));
+        } else if (mapObject instanceof PolygonMapObject) {
+            Polygon polygon = ((PolygonMapObject) mapObject).getPolygon();
+            float[] vertices = polygon.getVertices().clone();
+            toWorld(vertices, polygon.getX(), polygon.getY(), angle);
+            return createClosedShape(weldVertices(vertices));
+        } else if (mapObject instanceof PolylineMapObject) {
+            Polyline polyline = ((PolylineMapObject) mapObject).getPolyline();
+            float[] vertices = polyline.getVertices().clone();
+            toWorld(vertices, polyline.getX(), polyline.getY(), angle);
+            vertices = weldVertices(vertices);
+            if (vertices.length < 4) {
+                return null;
+            }
+
+            ChainShape shape = new ChainShape();
+            shape.createChain(vertices);
+            return shape;
+        } else if (mapObject instanceof EllipseMapObject) {
+            Ellipse ellipse = ((EllipseMapObject) mapObject).getEllipse();
+            float radius = ellipse.width * u / 2;
+            if (radius < MIN_VERTEX_DISTANCE) {
+                return null;
+            }
+
+            CircleShape shape = new CircleShape();
+            shape.setRadius(radius);
+            shape.setPosition(sTmp.set(ellipse.x * u + radius, ellipse.y * u + radius));
+            return shape;
+        }
+        throw new RuntimeException("Unsupported MapObject type: " + mapObject);
+    }
+
+    /**
+     * Creates a shape for the closed outline defined by vertices. Like PolygonShape.set(), uses the
+     * convex hull of the vertices
+     */
+    private static Shape createClosedShape(float[] vertices) {
+        // Drop the last vertex if it closes the outline: Box2D closes it itself
+        int length = vertices.length;
+        if (length >= 4) {
+            float closingDistance =
+                    Vector2.dst(
+                            vertices[0], vertices[1], vertices[length - 2], vertices[length - 1]);
+            if (closingDistance <= MIN_VERTEX_DISTANCE) {
+                length -= 2;
+            }
+        }
+        if (length < 6 || Math.abs(computeArea(vertices, length)) < MIN_VERTEX_DISTANCE) {
+            return null;
+        }
+        if (length / 2 <= MAX_POLYGON_VERTICES) {
+            PolygonShape shape = new PolygonShape();
+            shape.set(vertices, 0, length);
+            return shape;
+        }
+        ChainShape shape = new ChainShape();
+        float[] loopVertices = new float[length];
+        System.arraycopy(vertices, 0, loopVertices, 0, length);
+        shape.createLoop(loopVertices);
+        return shape;
+    }
+
+    /**
+     * Returns vertices without the ones closer than MIN_VERTEX_DISTANCE to the previous vertex
+     * kept. Returns vertices itself if there are none
+     */
+    static float[] weldVertices(float[] vertices) {
+        FloatArray welded = null;
+        for (int idx = 2; idx < vertices.length; idx += 2) {
+            float prevX = welded == null ? vertices[idx - 2] : welded.get(welded.size - 2);
+            float prevY = welded == null ? vertices[idx - 1] : welded.get(welded.size - 1);
+            boolean tooClose =
+                    Vector2.dst(prevX, prevY, vertices[idx], vertices[idx + 1])
+                            <= MIN_VERTEX_DISTANCE;
+            if (tooClose && welded == null) {
+                // First vertex to drop: copy the ones kept so far
+                welded = new FloatArray(vertices.length);
+                welded.addAll(vertices, 0, idx);
+            } else if (!tooClose && welded != null) {
+                welded.add(vertices[idx], vertices[idx + 1]);
+            }
+        }
+        return welded == null ? vertices : welded.toArray();
+    }
+
+    /** Signed area of the polygon made of the first length values of vertices */
+    private static float computeArea(float[] vertices, int length) {
+        float area = 0;
+        for (int idx = 0; idx < length; idx += 2) {
+            int next = (idx + 2) % length;
+            area += vertices[idx] * vertices[next + 1] - vertices[next] * vertices[idx + 1];
+        }
+        return area / 2;
+    }
+
+    /**
+     * Turns vertices relative to (originX, originY) in map pixels, rotated by angle around the
+     * origin, into world coordinates
+     */
+    private static void toWorld(float[] vertices, float originX, float originY, float angle) {
+        final float u = Constants.UNIT_FOR_PIXEL;
+        float cos = (float) Math.cos(angle);
+        float sin = (float) Math.sin(angle);
+        for (int idx = 0; idx < vertices.length; idx += 2) {
+            float x = vertices[idx];
+            float y = vertices[idx + 1];
+            vertices[idx] = (originX + x * cos - y * sin) * u;
+            vertices[idx + 1] = (originY + x * sin + y * cos) * u;
+        }
+    }
+}
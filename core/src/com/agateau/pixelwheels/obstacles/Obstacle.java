@@ -25,6 +25,7 @@ import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
 import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.Body;
@@ -32,7 +33,7 @@ import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Disposable;
 
-class Obstacle extends GameObjectAdapter implements Disposable {
+class Obstacle extends GameObjectAdapter implements Disposable, Snapshot.Savable {
     private static final float LINEAR_DRAG = 90f;
     private static final float ANGULAR_DRAG = 2f;
     private final World mWorld;
@@ -62,6 +63,16 @@ class Obstacle extends GameObjectAdapter implements Disposable {
                         | CollisionCategories.EXPLOSABLE);
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBody(mBody);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        snapshot.getBody(mBody);
+    }
+
     @Override
     public void act(float delta) {
         Box2DUtils.applyDrag(mBody, LINEAR_DRAG);
@@ -19,14 +19,12 @@
 package com.agateau.pixelwheels.obstacles;
 
 import com.agateau.pixelwheels.Constants;
-import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.TextureRegionProvider;
 import com.agateau.pixelwheels.map.MapObjectWalker;
 import com.agateau.pixelwheels.map.MapObjectWalkerFactory;
 import com.agateau.pixelwheels.map.MapUtils;
-import com.agateau.pixelwheels.racescreen.CollisionCategories;
-import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.physics.box2d.Body;
@@ -38,13 +36,17 @@ import java.util.HashMap;
 public class ObstacleCreator {
     private final HashMap<String, ObstacleDef> mObstacleDefs = new HashMap<>();
     private final HashMap<ObstacleDef, BodyDef> mBodyDefs = new HashMap<>();
+    private final BorderCompiler mBorderCompiler = new BorderCompiler();
 
     public void addObstacleDef(ObstacleDef obstacleDef) {
         mObstacleDefs.put(obstacleDef.id, obstacleDef);
 
+        if (!obstacleDef.dynamic) {
+            // Static obstacles do not get their own body, see createStatic()
+            return;
+        }
         BodyDef bodyDef = new BodyDef();
-        bodyDef.type =
-                obstacleDef.dynamic ? BodyDef.BodyType.DynamicBody : BodyDef.BodyType.StaticBody;
+        bodyDef.type = BodyDef.BodyType.DynamicBody;
         bodyDef.bullet = false;
         mBodyDefs.put(obstacleDef, bodyDef);
     }
@@ -53,11 +55,16 @@ public class ObstacleCreator {
             GameWorld gameWorld, TextureRegionProvider textureRegionProvider, MapObject mapObject) {
         String id = MapUtils.getObstacleId(mapObject);
         if (id == null) {
-            // Special case: an obstacle with no id is a border
-            createBorder(gameWorld.getBox2DWorld(), mapObject);
+            // Special case: an obstacle with no id is a border. Borders are collected and turned
+            // into a single body by createBorders()
+            mBorderCompiler.add(mapObject);
             return;
         }
         ObstacleDef obstacleDef = mObstacleDefs.get(id);
+        if (!obstacleDef.dynamic) {
+            createStatic(gameWorld, textureRegionProvider, obstacleDef, mapObject);
+            return;
+        }
         final BodyDef bodyDef = mBodyDefs.get(obstacleDef);
         MapObjectWalker walker = MapObjectWalkerFactory.get(mapObject);
         TextureRegion obstacleRegion = obstacleDef.getImage(textureRegionProvider);
@@ -77,14 +84,43 @@ public class ObstacleCreator {
                 });
     }
 
-    private static void createBorder(World world, MapObject mapObject) {
-        Body body = Box2DUtils.createStaticBodyForMapObject(world, mapObject);
-        Box2DUtils.setCollisionInfo(
-                body,
-                CollisionCategories.WALL,
-                CollisionCategories.RACER
-                        | CollisionCategories.EXPLOSABLE
-                        | CollisionCategories.RACER_BULLET);
-        Box2DUtils.setBodyRestitution(body, GamePlay.instance.borderRestitution / 10.0f);
+    private static void createStatic(
+            GameWorld gameWorld,
+            TextureRegionProvider textureRegionProvider,
+            ObstacleDef obstacleDef,
+            MapObject mapObject) {
+        StaticObstacles staticObstacles = gameWorld.getStaticObstacles();
+        MapObjectWalker walker = MapObjectWalkerFactory.get(mapObject);
+        TextureRegion obstacleRegion = obstacleDef.getImage(textureRegionProvider);
+        walker.walk(
+                obstacleRegion.getRegionWidth(),
+                obstacleRegion.getRegionHeight(),
+                (x, y, angle) ->
+                        staticObstacles.add(
+                                gameWorld.getBox2DWorld(),
+                                obstacleDef,
+                                obstacleRegion,
+                                x * Constants.UNIT_FOR_PIXEL,
+                                y * Constants.UNIT_FOR_PIXEL,
+                                angle));
+    }
+
+    /**
+     * Must be called once create() has been called for all the map objects. Returns the body of the
+     * borders, or null if there are no borders
+     */
+    public Body createBorders(World world) {
+        Body body = mBorderCompiler.compile(world);
+        if (body == null) {
+            return null;
+        }
+        // Without merging, each border would have its own body with one fixture
+        NLog.i(
+                "%d borders merged into 1 body with %d fixtures (world: %d bodies, %d fixtures)",
+                mBorderCompiler.getMapObjectCount(),
+                body.getFixtureList().size,
+                world.getBodyCount(),
+                world.getFixtureCount());
+        return body;
     }
 }
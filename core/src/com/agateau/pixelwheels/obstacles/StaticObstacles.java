@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Shape2D;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * All the obstacles which never move
+ *
+ * <p>Contrary to dynamic obstacles, static obstacles are not GameObjects: they are fixtures of a
+ * single static body, and they are drawn from a sprite cache by the GameRenderer. This way they
+ * cost nothing in the per-frame game object loop.
+ */
+public class StaticObstacles {
+    private static final Vector2 sTmp = new Vector2();
+
+    private final Array<Item> mItems = new Array<>();
+    private Body mBody;
+
+    /** Position of an obstacle, in world coordinates */
+    public static class Item {
+        public final TextureRegion region;
+        public final float x;
+        public final float y;
+        public final float angle;
+
+        Item(TextureRegion region, float x, float y, float angle) {
+            this.region = region;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+        }
+    }
+
+    /** Adds an obstacle centered on (x, y), in world coordinates, and rotated by angle radians */
+    void add(World world, ObstacleDef def, TextureRegion region, float x, float y, float angle) {
+        if (mBody == null) {
+            BodyDef bodyDef = new BodyDef();
+            bodyDef.type = BodyDef.BodyType.StaticBody;
+            mBody = world.createBody(bodyDef);
+        }
+        Shape shape = createShape(def.shape, x, y, angle);
+        Fixture fixture = mBody.createFixture(shape, def.density);
+        shape.dispose();
+        Box2DUtils.setCollisionInfo(
+                fixture,
+                CollisionCategories.SOLID_BODIES,
+                CollisionCategories.WALL
+                        | CollisionCategories.RACER
+                        | CollisionCategories.RACER_BULLET
+                        | CollisionCategories.EXPLOSABLE);
+        mItems.add(new Item(region, x, y, angle));
+    }
+
+    public Array<Item> getItems() {
+        return mItems;
+    }
+
+    /** Returns the body holding all the obstacles, or null if there are none */
+    public Body getBody() {
+        return mBody;
+    }
+
+    /** Creates a shape for shape2D, which is in pixels, moved to (x, y) and rotated by angle */
+    private static Shape createShape(Shape2D shape2D, float x, float y, float angle) {
+        final float u = Constants.UNIT_FOR_PIXEL;
+        if (shape2D instanceof Circle) {
+            Circle circle = (Circle) shape2D;
+            sTmp.set(circle.x, circle.y).scl(u).rotateRad(angle).add(x, y);
+
+            CircleShape shape = new CircleShape();
+            shape.setPosition(sTmp);
+            shape.setRadius(circle.radius * u);
+            return shape;
+        } else if (shape2D instanceof Rectangle) {
+            Rectangle rectangle = (Rectangle) shape2D;
+            float halfWidth = rectangle.width * u / 2;
+            float halfHeight = rectangle.height * u / 2;
+            sTmp.set(rectangle.x * u + halfWidth, rectangle.y * u + halfHeight)
+                    .rotateRad(angle)
+                    .add(x, y);
+
+            PolygonShape shape = new PolygonShape();
+            shape.setAsBox(halfWidth, halfHeight, sTmp, angle);
+            return shape;
+        } else {
+            throw new RuntimeException("Unsupported Shape2D type " + shape2D);
+        }
+    }
+}
@@ -18,23 +18,28 @@
  */
 package com.agateau.pixelwheels.racer;
 
-import com.agateau.pixelwheels.BodyIdentifier;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.bonus.Bonus;
 import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.NavField;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.map.WaypointStore;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.stats.TrackStats;
-import com.agateau.pixelwheels.utils.ClosestBodyFinder;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.agateau.pixelwheels.utils.StaticGeometry;
 import com.agateau.utils.AgcMathUtils;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 
-/** An AI pilot */
+/**
+ * An AI pilot
+ *
+ * <p>Each frame, plan() decides what to do, then act() applies the decision. plan() only reads the
+ * world, see AIPlanner.
+ */
 public class AIPilot implements Pilot {
     private static final float MIN_NORMAL_SPEED = 1;
     private static final float MAX_BLOCKED_DURATION = 1;
@@ -42,13 +47,8 @@ public class AIPilot implements Pilot {
     private static final int MAX_FORWARD_WAYPOINTS = 2;
     // How much of the vehicle width to move the target to avoid a mine
     private static final float MINE_AVOIDANCE_FACTOR = 2;
-
-    class MineFilter implements ClosestBodyFinder.BodyFilter {
-        @Override
-        public boolean acceptBody(Body body) {
-            return BodyIdentifier.isStaticObstacle(body);
-        }
-    }
+    // How far ahead to put the target when following the nav field
+    private static final float NAV_FIELD_LOOK_AHEAD = 4;
 
     private enum State {
         NORMAL,
@@ -79,9 +79,9 @@ public class AIPilot implements Pilot {
     private final GameWorld mGameWorld;
     private final Track mTrack;
     private final Racer mRacer;
-
-    private final MineFilter mMineFilter = new MineFilter();
-    private final ClosestBodyFinder mClosestBodyFinder = new ClosestBodyFinder(mMineFilter);
+    private final AIPlanner mPlanner;
+    private final float mHalfVehicleHeight;
+    private final WaypointStore.Cursor mWaypointCursor;
 
     private State mState = State.NORMAL;
     private float mBlockedDuration = 0;
@@ -90,18 +90,70 @@ public class AIPilot implements Pilot {
     private final Target mTarget = new Target();
     private final Target mNextTarget = new Target();
 
-    public AIPilot(GameWorld gameWorld, Track track, Racer racer) {
+    // Spreads the target searches of the AI pilots over frames when
+    // GameWorld.getAIUpdateInterval() is more than 1
+    private final int mUpdatePhase;
+    private int mFrameCount = 0;
+
+    // The plan for the next act() call. Written by plan(), read by act()
+    private boolean mHasPlan = false;
+    private float mPlannedSpeedLimit = 1;
+    private boolean mPlannedSearch = false;
+    private final Target mPlannedTarget = new Target();
+    private float mPlannedDirection = 0;
+
+    public AIPilot(GameWorld gameWorld, Track track, Racer racer, AIPlanner planner) {
         mGameWorld = gameWorld;
         mTrack = track;
         mRacer = racer;
+        mPlanner = planner;
+        // Cached because Vehicle.getHeight() goes through the body animation, which is not
+        // thread-safe
+        mHalfVehicleHeight = racer.getVehicle().getHeight() / 2;
+        mWaypointCursor = new WaypointStore.Cursor(track.getWaypointStore());
+        // Racers are added to the world after their pilot has been created, so this is the index
+        // of the racer. It must not depend on previous races, so that replays run the same way.
+        mUpdatePhase = gameWorld.getRacers().size;
     }
 
     Vector2 getTargetPosition() {
         return mTarget.position;
     }
 
+    /**
+     * Decides what the next call to act() is going to do
+     *
+     * <p>Must not modify anything outside of the plan fields of this pilot, so that AIPlanner can
+     * call it for several pilots at the same time.
+     */
+    void plan() {
+        mHasPlan = true;
+        mPlannedSpeedLimit = computeSpeedLimit();
+        mPlannedSearch = false;
+        if (mState != State.NORMAL) {
+            return;
+        }
+        if (planWithNavField()) {
+            return;
+        }
+        Target target = mTarget;
+        if (shouldSearchTarget()) {
+            mPlannedSearch = true;
+            findBestTarget();
+            target = mPlannedTarget;
+            if (target.score <= Target.MIN_SCORE) {
+                return;
+            }
+        }
+        mPlannedDirection = computeDirection(target);
+    }
+
     @Override
     public void act(float dt) {
+        if (!mHasPlan) {
+            plan();
+        }
+        mHasPlan = false;
         handleBonus(dt);
         switch (mState) {
             case NORMAL:
@@ -113,6 +165,29 @@ public class AIPilot implements Pilot {
         }
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putEnum(mState);
+        snapshot.putFloat(mBlockedDuration);
+        snapshot.putFloat(mReverseDuration);
+        snapshot.putFloat(mTarget.position.x);
+        snapshot.putFloat(mTarget.position.y);
+        snapshot.putFloat(mTarget.score);
+        snapshot.putInt(mFrameCount);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mState = snapshot.getEnum(State.values());
+        mBlockedDuration = snapshot.getFloat();
+        mReverseDuration = snapshot.getFloat();
+        mTarget.position.x = snapshot.getFloat();
+        mTarget.position.y = snapshot.getFloat();
+        mTarget.score = snapshot.getFloat();
+        mFrameCount = snapshot.getInt();
+        mHasPlan = false;
+    }
+
     private static final GameStats sDummyGameStats =
             new GameStats() {
                 @Override
@@ -189,99 +264,137 @@ public class AIPilot implements Pilot {
         Vehicle vehicle = mRacer.getVehicle();
         vehicle.setAccelerating(true);
         vehicle.setBraking(false);
+        vehicle.setSpeedLimiter(mPlannedSpeedLimit);
+    }
 
+    private float computeSpeedLimit() {
         // If we are better ranked than a player, slow down a bit
         float rank = mGameWorld.getRacerRank(mRacer);
-        boolean needLimit = false;
-        for (Racer racer : mGameWorld.getPlayerRacers()) {
-            if (mGameWorld.getRacerRank(racer) > rank) {
-                needLimit = true;
-                break;
+        // Do not use the iterator of the array: it is shared, so it cannot be used from several
+        // threads at the same time
+        Array<Racer> playerRacers = mGameWorld.getPlayerRacers();
+        for (int idx = 0; idx < playerRacers.size; ++idx) {
+            if (mGameWorld.getRacerRank(playerRacers.get(idx)) > rank) {
+                return GamePlay.instance.aiSpeedLimiter;
             }
         }
-        float limit = needLimit ? GamePlay.instance.aiSpeedLimiter : 1f;
-        vehicle.setSpeedLimiter(limit);
+        return 1f;
     }
 
     private void updateDirection() {
-        Target target = findBestTarget();
-        if (target == null) {
-            switchToBlocked();
-            return;
+        ++mFrameCount;
+        if (mPlannedSearch) {
+            mTarget.set(mPlannedTarget.position, mPlannedTarget.score);
+            if (mTarget.score <= Target.MIN_SCORE) {
+                switchToBlocked();
+                return;
+            }
         }
-        float targetAngle = mTmpVector1.set(target.position).sub(mRacer.getPosition()).angle();
+        mRacer.getVehicle().setDirection(mPlannedDirection);
+    }
+
+    private float computeDirection(Target target) {
+        float targetAngle =
+                mTmpVector1.set(target.position).sub(mRacer.getX(), mRacer.getY()).angle();
         targetAngle = AgcMathUtils.normalizeAngle(targetAngle);
 
-        Vehicle vehicle = mRacer.getVehicle();
-        float vehicleAngle = vehicle.getAngle();
+        float vehicleAngle = mRacer.getVehicle().getAngle();
         float deltaAngle = targetAngle - vehicleAngle;
         if (deltaAngle > 180) {
             deltaAngle -= 360;
         } else if (deltaAngle < -180) {
             deltaAngle += 360;
         }
-        float direction = MathUtils.clamp(deltaAngle / GamePlay.instance.lowSpeedMaxSteer, -1, 1);
-        vehicle.setDirection(direction);
+        return MathUtils.clamp(deltaAngle / GamePlay.instance.lowSpeedMaxSteer, -1, 1);
+    }
+
+    /**
+     * Steers along the nav field of the track, if there is one. Returns false if the pilot must
+     * look for a target among the waypoints instead.
+     *
+     * <p>The field already accounts for the walls, so only mines need ray checks. A lookup is cheap
+     * enough to happen every frame.
+     */
+    private boolean planWithNavField() {
+        NavField field = mTrack.getNavField();
+        if (field == null) {
+            return false;
+        }
+        float x = mRacer.getX();
+        float y = mRacer.getY();
+        int cell = field.getCellIndex(x, y);
+        // Too close to a wall, the heading baked for the center of the cell may hit it
+        if (cell == NavField.NO_CELL || field.getBorderDistance(cell) < mHalfVehicleHeight) {
+            return false;
+        }
+        mNextTarget.position.set(NAV_FIELD_LOOK_AHEAD, 0).rotate(field.getHeading(cell)).add(x, y);
+        mNextTarget.score = 0;
+        updateNextTarget(null);
+
+        mPlannedSearch = true;
+        mPlannedTarget.set(mNextTarget.position, mNextTarget.score);
+        mPlannedDirection = computeDirection(mPlannedTarget);
+        return true;
+    }
+
+    /** Called from plan(), before act() increases mFrameCount */
+    private boolean shouldSearchTarget() {
+        if (mTarget.score <= Target.MIN_SCORE) {
+            return true;
+        }
+        int interval = mGameWorld.getAIUpdateInterval();
+        return interval <= 1 || (mFrameCount + 1 + mUpdatePhase) % interval == 0;
     }
 
-    private Target findBestTarget() {
+    /** Stores the best target in mPlannedTarget, its score is MIN_SCORE if there is none */
+    private void findBestTarget() {
         float lapDistance = mRacer.getLapPositionComponent().getLapDistance();
         WaypointStore store = mTrack.getWaypointStore();
 
         // Start at the previous index, as a fallback in case the next waypoints are not visible
-        int index = store.getPreviousIndex(store.getWaypointIndex(lapDistance));
-        mTarget.reset();
+        int index = store.getPreviousIndex(mWaypointCursor.getWaypointIndex(lapDistance));
+        mPlannedTarget.reset();
         for (int i = -1; i < MAX_FORWARD_WAYPOINTS; ++i, index = store.getNextIndex(index)) {
-            mNextTarget.position.set(store.getWaypoint(index));
+            mNextTarget.position.set(store.getWaypointX(index), store.getWaypointY(index));
             mNextTarget.score = (float) i;
-            updateNextTarget();
-            if (mNextTarget.score > mTarget.score) {
-                mTarget.set(mNextTarget.position, mNextTarget.score);
+            updateNextTarget(mGameWorld.getStaticGeometry());
+            if (mNextTarget.score > mPlannedTarget.score) {
+                mPlannedTarget.set(mNextTarget.position, mNextTarget.score);
             }
         }
-
-        if (mTarget.score <= Target.MIN_SCORE) {
-            return null;
-        }
-        return mTarget;
     }
 
-    private void updateNextTarget() {
-        World world = mGameWorld.getBox2DWorld();
+    /**
+     * Scores mNextTarget and moves it away from mines. If walls is null, only looks for mines.
+     * Walls come from the static geometry, mines from the copy made by the planner: planning must
+     * not go through Box2D
+     */
+    private void updateNextTarget(StaticGeometry walls) {
         Vector2 halfWidth = mTmpVector1;
         Vector2 position = mTmpVector2;
         Vector2 adjustedTargetPos = mTmpVector3;
 
-        Vehicle vehicle = mRacer.getVehicle();
-        halfWidth.set(0, vehicle.getHeight() / 2).rotate(vehicle.getAngle());
+        halfWidth.set(0, mHalfVehicleHeight).rotate(mRacer.getVehicle().getAngle());
 
         // Check on the right
-        position.set(mRacer.getPosition()).add(halfWidth);
+        position.set(mRacer.getX(), mRacer.getY()).add(halfWidth);
         adjustedTargetPos.set(mNextTarget.position).add(halfWidth);
-        Body body = mClosestBodyFinder.find(world, position, adjustedTargetPos);
-        if (body != null) {
-            if (BodyIdentifier.isMine(body)) {
-                halfWidth.scl(-2 * MINE_AVOIDANCE_FACTOR);
-                mNextTarget.position.set(body.getPosition()).add(halfWidth);
-                mNextTarget.score += Target.MINE_BETWEEN;
-            } else {
-                mNextTarget.reset();
-            }
+        if (walls != null && walls.rayCast(position, adjustedTargetPos) != StaticGeometry.NO_HIT) {
+            mNextTarget.reset();
+            return;
+        }
+        if (avoidMine(position, adjustedTargetPos, halfWidth, 1)) {
             return;
         }
 
         // Check on the left
-        position.set(mRacer.getPosition()).sub(halfWidth);
+        position.set(mRacer.getX(), mRacer.getY()).sub(halfWidth);
         adjustedTargetPos.set(mNextTarget.position).add(halfWidth);
-        body = mClosestBodyFinder.find(world, position, adjustedTargetPos);
-        if (body != null) {
-            if (BodyIdentifier.isMine(body)) {
-                halfWidth.scl(-2 * MINE_AVOIDANCE_FACTOR);
-                mNextTarget.position.set(body.getPosition()).sub(halfWidth);
-                mNextTarget.score += Target.MINE_BETWEEN;
-            } else {
-                mNextTarget.reset();
-            }
+        if (walls != null && walls.rayCast(position, adjustedTargetPos) != StaticGeometry.NO_HIT) {
+            mNextTarget.reset();
+            return;
+        }
+        if (avoidMine(position, adjustedTargetPos, halfWidth, -1)) {
             return;
         }
 
@@ -289,7 +402,24 @@ public class AIPilot implements Pilot {
         mNextTarget.score += Target.NO_OBSTACLES;
     }
 
+    /**
+     * If there is a mine between from and to, moves mNextTarget to the other side of it and returns
+     * true. side is 1 when checking on the right of the vehicle, -1 on the left
+     */
+    private boolean avoidMine(Vector2 from, Vector2 to, Vector2 halfWidth, float side) {
+        int mine = mPlanner.findMine(from, to);
+        if (mine < 0) {
+            return false;
+        }
+        halfWidth.scl(-2 * MINE_AVOIDANCE_FACTOR * side);
+        mNextTarget.position.set(mPlanner.getMineX(mine), mPlanner.getMineY(mine));
+        mNextTarget.position.add(halfWidth);
+        mNextTarget.score += Target.MINE_BETWEEN;
+        return true;
+    }
+
     private void handleBonus(float dt) {
+        // Bonuses look for racers through Box2D, so this cannot be part of plan()
         Bonus bonus = mRacer.getBonus();
         if (bonus != null) {
             bonus.aiAct(dt);
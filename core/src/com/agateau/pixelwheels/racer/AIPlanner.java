@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import com.agateau.pixelwheels.bonus.Mine;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Runs the plan phase of the AI pilots, on several threads when there are enough of them
+ *
+ * <p>plan() must be called once per frame, before the game objects act. All pilots plan from the
+ * state of the world at the beginning of the frame, then each AIPilot.act() applies its own plan.
+ * Since no pilot sees what the others do during the frame, the result does not depend on the number
+ * of threads.
+ *
+ * <p>Dropped mines are the only dynamic obstacles the pilots look for. Their positions are copied
+ * at the beginning of plan(), so that the pilots do not have to query Box2D, which is not
+ * thread-safe.
+ */
+public class AIPlanner implements Disposable {
+    /** Below this number of pilots, it is faster to plan on the calling thread only */
+    public static final int MIN_PARALLEL_PILOT_COUNT = 6;
+
+    private static final int MAX_THREAD_COUNT = 4;
+
+    private final Array<AIPilot> mPilots = new Array<>();
+    // (x, y) of each dropped mine
+    private final FloatArray mMines = new FloatArray();
+
+    private int mThreadCount =
+            Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREAD_COUNT);
+    private AsyncExecutor mExecutor;
+    private final Array<PlanTask> mTasks = new Array<>();
+    private final Array<AsyncResult<Void>> mResults = new Array<>();
+
+    /** Plans the pilots first, first + step, first + 2 * step... */
+    private class PlanTask implements AsyncTask<Void> {
+        private final int mFirst;
+        private final int mStep;
+
+        PlanTask(int first, int step) {
+            mFirst = first;
+            mStep = step;
+        }
+
+        @Override
+        public Void call() {
+            for (int idx = mFirst; idx < mPilots.size; idx += mStep) {
+                mPilots.get(idx).plan();
+            }
+            return null;
+        }
+    }
+
+    public void addPilot(AIPilot pilot) {
+        mPilots.add(pilot);
+    }
+
+    public int getPilotCount() {
+        return mPilots.size;
+    }
+
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /** Sets the number of threads plan() uses, including the calling one. 1 disables threading */
+    public void setThreadCount(int threadCount) {
+        if (threadCount == mThreadCount) {
+            return;
+        }
+        disposeExecutor();
+        mThreadCount = Math.max(threadCount, 1);
+    }
+
+    /** mines are the mines of the world, dropped or not */
+    public void plan(Array<Mine> mines) {
+        updateMines(mines);
+        if (mThreadCount == 1 || mPilots.size < MIN_PARALLEL_PILOT_COUNT) {
+            for (AIPilot pilot : mPilots) {
+                pilot.plan();
+            }
+            return;
+        }
+        if (mExecutor == null) {
+            // The calling thread runs the first task
+            mExecutor = new AsyncExecutor(mThreadCount - 1);
+            for (int idx = 0; idx < mThreadCount; ++idx) {
+                mTasks.add(new PlanTask(idx, mThreadCount));
+            }
+        }
+        for (int idx = 1; idx < mTasks.size; ++idx) {
+            mResults.add(mExecutor.submit(mTasks.get(idx)));
+        }
+        try {
+            mTasks.first().call();
+            for (AsyncResult<Void> result : mResults) {
+                // Rethrows the exceptions of the tasks, if any
+                result.get();
+            }
+        } finally {
+            mResults.clear();
+        }
+    }
+
+    /**
+     * Returns the index of the closest mine on the way from `from` to `to`, or -1 if there is none.
+     * Thread-safe.
+     */
+    public int findMine(Vector2 from, Vector2 to) {
+        float dx = to.x - from.x;
+        float dy = to.y - from.y;
+        float a = dx * dx + dy * dy;
+        if (a == 0) {
+            return -1;
+        }
+        float radius2 = Mine.MINE_RADIUS * Mine.MINE_RADIUS;
+        int closest = -1;
+        float closestFraction = 1;
+        for (int idx = 0, count = getMineCount(); idx < count; ++idx) {
+            float fx = mMines.items[idx * 2] - from.x;
+            float fy = mMines.items[idx * 2 + 1] - from.y;
+            float c = fx * fx + fy * fy - radius2;
+            if (c < 0) {
+                // Like Box2D, ignore mines the ray starts from
+                continue;
+            }
+            float b = fx * dx + fy * dy;
+            float discriminant = b * b - a * c;
+            if (discriminant < 0) {
+                continue;
+            }
+            float fraction = (b - (float) Math.sqrt(discriminant)) / a;
+            if (fraction >= 0 && fraction <= closestFraction) {
+                closest = idx;
+                closestFraction = fraction;
+            }
+        }
+        return closest;
+    }
+
+    public int getMineCount() {
+        return mMines.size / 2;
+    }
+
+    public float getMineX(int index) {
+        return mMines.items[index * 2];
+    }
+
+    public float getMineY(int index) {
+        return mMines.items[index * 2 + 1];
+    }
+
+    @Override
+    public void dispose() {
+        disposeExecutor();
+    }
+
+    private void updateMines(Array<Mine> mines) {
+        mMines.clear();
+        for (int idx = 0; idx < mines.size; ++idx) {
+            Mine mine = mines.get(idx);
+            if (!mine.isFinished() && mine.isDropped()) {
+                mMines.add(mine.getX());
+                mMines.add(mine.getY());
+            }
+        }
+    }
+
+    private void disposeExecutor() {
+        if (mExecutor == null) {
+            return;
+        }
+        mExecutor.dispose();
+        mExecutor = null;
+        mTasks.clear();
+    }
+}
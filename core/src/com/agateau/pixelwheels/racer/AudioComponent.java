@@ -18,27 +18,20 @@
  */
 package com.agateau.pixelwheels.racer;
 
-import com.agateau.pixelwheels.BodyIdentifier;
 import com.agateau.pixelwheels.gameobjet.AudioClipper;
-import com.agateau.pixelwheels.racescreen.Collidable;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.EngineSoundPlayer;
 import com.agateau.pixelwheels.sound.SoundAtlas;
 import com.agateau.pixelwheels.sound.SoundPlayer;
 import com.agateau.pixelwheels.sound.SoundSettings;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.Fixture;
-import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 
 /** A component to play the racer audio */
-class AudioComponent implements Racer.Component, Disposable, Collidable {
+class AudioComponent implements Racer.Component, Disposable {
     private static final float FULL_VOLUME_DRIFT_DURATION = 0.6f;
-    private static final float MIN_IMPACT_SPEED = 3;
 
     private static final float MIN_COLLISION_PITCH = 0.5f;
     private static final float MAX_COLLISION_PITCH = 2f;
@@ -46,6 +39,7 @@ class AudioComponent implements Racer.Component, Disposable, Collidable {
     private static final float ICE_DRIFT_PITCH = 0.5f;
 
     private final AudioManager mAudioManager;
+    private final GameEventBus mEventBus;
     private final EngineSoundPlayer mEngineSoundPlayer;
     private final Racer mRacer;
     private final SoundPlayer mDriftingSoundPlayer;
@@ -57,8 +51,13 @@ class AudioComponent implements Racer.Component, Disposable, Collidable {
     private boolean mTurboTriggered = false;
     private boolean mJustCollided = false;
 
-    public AudioComponent(SoundAtlas atlas, AudioManager audioManager, Racer racer) {
+    private final GameEventBus.Listener mTurboListener = event -> mTurboTriggered = true;
+    private final GameEventBus.Listener mCollisionListener = event -> mJustCollided = true;
+
+    public AudioComponent(
+            SoundAtlas atlas, AudioManager audioManager, GameEventBus eventBus, Racer racer) {
         mAudioManager = audioManager;
+        mEventBus = eventBus;
         if (racer.getEntrant().isPlayer()) {
             mEngineSoundPlayer = new EngineSoundPlayer(atlas, audioManager);
         } else {
@@ -70,6 +69,8 @@ class AudioComponent implements Racer.Component, Disposable, Collidable {
         mSplashSoundPlayer = audioManager.createSoundPlayer(atlas.get("splash"));
         mSoundPlayers.addAll(mDriftingSoundPlayer, mTurboSoundPlayer, mCollisionSoundPlayer);
         mRacer = racer;
+        eventBus.subscribe(GameEventBus.Type.TURBO_TRIGGERED, racer, mTurboListener);
+        eventBus.subscribe(GameEventBus.Type.COLLISION, racer, mCollisionListener);
     }
 
     public AudioManager getAudioManager() {
@@ -135,18 +136,10 @@ class AudioComponent implements Racer.Component, Disposable, Collidable {
         }
     }
 
-    public void triggerTurbo() {
-        mTurboTriggered = true;
-    }
-
-    private void onCollision() {
-        if (mRacer.getVehicle().getSpeed() > MIN_IMPACT_SPEED) {
-            mJustCollided = true;
-        }
-    }
-
     @Override
     public void dispose() {
+        mEventBus.unsubscribe(GameEventBus.Type.TURBO_TRIGGERED, mRacer, mTurboListener);
+        mEventBus.unsubscribe(GameEventBus.Type.COLLISION, mRacer, mCollisionListener);
         if (mEngineSoundPlayer != null) {
             mEngineSoundPlayer.stop();
         }
@@ -154,21 +147,4 @@ class AudioComponent implements Racer.Component, Disposable, Collidable {
             soundPlayer.stop();
         }
     }
-
-    @Override
-    public void beginContact(Contact contact, Fixture otherFixture) {}
-
-    @Override
-    public void endContact(Contact contact, Fixture otherFixture) {}
-
-    @Override
-    public void preSolve(Contact contact, Fixture otherFixture, Manifold oldManifold) {
-        Body otherBody = otherFixture.getBody();
-        if (BodyIdentifier.isVehicle(otherBody) || BodyIdentifier.isWall(otherBody)) {
-            onCollision();
-        }
-    }
-
-    @Override
-    public void postSolve(Contact contact, Fixture otherFixture, ContactImpulse impulse) {}
 }
@@ -20,13 +20,14 @@ package com.agateau.pixelwheels.racer;
 
 import com.agateau.pixelwheels.bonus.BonusSpot;
 import com.agateau.pixelwheels.racescreen.Collidable;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.physics.box2d.Contact;
 import com.badlogic.gdx.physics.box2d.ContactImpulse;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.Manifold;
 
 /** Handles hitting a bonus spot */
-public class BonusSpotHitComponent implements Racer.Component, Collidable {
+public class BonusSpotHitComponent implements Racer.Component, Collidable, Snapshot.Savable {
     private final Racer mRacer;
     private boolean mMustSelectBonus = false;
 
@@ -58,6 +59,16 @@ public class BonusSpotHitComponent implements Racer.Component, Collidable {
     @Override
     public void postSolve(Contact contact, Fixture otherFixture, ContactImpulse impulse) {}
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBoolean(mMustSelectBonus);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mMustSelectBonus = snapshot.getBoolean();
+    }
+
     @Override
     public void act(float delta) {
         if (mMustSelectBonus) {
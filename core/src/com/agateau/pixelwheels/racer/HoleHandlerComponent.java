@@ -21,14 +21,16 @@ package com.agateau.pixelwheels.racer;
 import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.racescreen.Helicopter;
 import com.agateau.pixelwheels.utils.OrientedPoint;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 
 /** Handles falling in holes */
-public class HoleHandlerComponent implements Racer.Component {
+public class HoleHandlerComponent implements Racer.Component, Snapshot.Savable {
     private static final float LIFTING_DELAY = 0.5f;
     private static final float MAX_RECOVERING_SPEED = 20;
     private static final float MAX_RECOVERING_ROTATION_SPEED = 720;
@@ -76,6 +78,10 @@ public class HoleHandlerComponent implements Racer.Component {
         return mVehicle;
     }
 
+    public Racer getRacer() {
+        return mRacer;
+    }
+
     @Override
     public void act(float delta) {
         switch (mState) {
@@ -112,6 +118,7 @@ public class HoleHandlerComponent implements Racer.Component {
         mGameWorld.addGameObject(mHelicopter);
         mState = State.FALLING;
         mTime = 0;
+        mGameWorld.getEventBus().post(GameEventBus.Type.ENTERED_HOLE, mRacer);
     }
 
     private void actFalling(float delta) {
@@ -190,11 +197,13 @@ public class HoleHandlerComponent implements Racer.Component {
         if (posOK) {
             mVehicle.getBody().setLinearVelocity(0, 0);
             mVehicle.getBody().setAngularVelocity(0);
+            mVehicle.refreshBodyState();
             mState = State.DROPPING;
             mTime = 0;
         } else {
             mVehicle.getBody().setLinearVelocity(mVelocity);
             mVehicle.getBody().setAngularVelocity(angleOK ? 0 : angularVelocity);
+            mVehicle.refreshBodyState();
             mHelicopter.setPosition(mVehicle.getPosition());
             mHelicopter.setAngle(mVehicle.getAngle());
         }
@@ -215,6 +224,42 @@ public class HoleHandlerComponent implements Racer.Component {
         mState = State.NORMAL;
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putEnum(mState);
+        snapshot.putFloat(mTime);
+        snapshot.putBoolean(mDropPoint != null);
+        if (mDropPoint != null) {
+            snapshot.putFloat(mDropPoint.x);
+            snapshot.putFloat(mDropPoint.y);
+            snapshot.putFloat(mDropPoint.angle);
+        }
+        // mHelicopter is not reset when the helicopter leaves, and only the states below use it
+        boolean hasHelicopter =
+                mState == State.FALLING || mState == State.LIFTING || mState == State.RECOVERING;
+        snapshot.putReference(hasHelicopter ? mHelicopter : null);
+    }
+
+    /**
+     * The helicopter is a game object of its own, saved as a reference: GameWorldImpl restores it
+     * with the other game objects
+     */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mState = snapshot.getEnum(State.values());
+        mTime = snapshot.getFloat();
+        if (snapshot.getBoolean()) {
+            // Do not reuse mDropPoint: it may be an instance owned by the track
+            float x = snapshot.getFloat();
+            float y = snapshot.getFloat();
+            float angle = snapshot.getFloat();
+            mDropPoint = new OrientedPoint(x, y, angle);
+        } else {
+            mDropPoint = null;
+        }
+        mHelicopter = snapshot.getReference();
+    }
+
     public boolean isInHole() {
         return mGameWorld.getTrack().getMaterialAt(mVehicle.getPosition()).isHole();
     }
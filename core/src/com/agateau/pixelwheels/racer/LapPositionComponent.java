@@ -19,12 +19,15 @@
 package com.agateau.pixelwheels.racer;
 
 import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.map.LapPosition;
 import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.agateau.utils.log.NLog;
 
 /** A component to track the racer time */
-public class LapPositionComponent implements Racer.Component {
+public class LapPositionComponent implements Racer.Component, Snapshot.Savable {
     public enum Status {
         RACING,
         /** Crossed the finished line, or was an AI currently racing when the last human finished */
@@ -34,17 +37,21 @@ public class LapPositionComponent implements Racer.Component {
     }
 
     private final Track mTrack;
+    private final GameEventBus mEventBus;
+    private final Racer mRacer;
     private final Vehicle mVehicle;
 
     private float mBestLapTime = -1;
     private float mTotalTime = 0;
     private float mLapTime = 0;
+    private float mLastLapTime = -1;
     /**
      * Current lap. mLapCount is 1-based: as soon as we cross the finish line to start the first
      * lap, it is set to 1.
      */
     private int mLapCount = 0;
 
+    private static final LapPosition sUninitializedLapPosition = new LapPosition();
     private final LapPosition mLapPosition = new LapPosition();
     private Status mStatus = Status.RACING;
 
@@ -53,8 +60,10 @@ public class LapPositionComponent implements Racer.Component {
     // Set to true again when we pass the line backward
     private boolean mSkipNextFinishLine = true;
 
-    public LapPositionComponent(Track track, Vehicle vehicle) {
-        mTrack = track;
+    public LapPositionComponent(GameWorld gameWorld, Racer racer, Vehicle vehicle) {
+        mTrack = gameWorld.getTrack();
+        mEventBus = gameWorld.getEventBus();
+        mRacer = racer;
         mVehicle = vehicle;
     }
 
@@ -76,6 +85,16 @@ public class LapPositionComponent implements Racer.Component {
         return mTotalTime;
     }
 
+    /** Time spent in the current lap */
+    public float getLapTime() {
+        return mLapTime;
+    }
+
+    /** Time of the last completed lap, or -1 if no lap has been completed yet */
+    public float getLastLapTime() {
+        return mLastLapTime;
+    }
+
     public int getLapCount() {
         return mLapCount;
     }
@@ -112,21 +131,30 @@ public class LapPositionComponent implements Racer.Component {
             } else {
                 onLapCompleted();
             }
-            ++mLapCount;
-            if (mLapCount > mTrack.getTotalLapCount()) {
-                --mLapCount;
+            if (mLapCount == mTrack.getTotalLapCount()) {
                 mStatus = Status.COMPLETED;
+            } else {
+                setLapCount(mLapCount + 1);
             }
         } else if (crossedFinishLineBackward) {
-            --mLapCount;
+            setLapCount(mLapCount - 1);
             mSkipNextFinishLine = true;
         }
     }
 
+    private void setLapCount(int lapCount) {
+        if (lapCount == mLapCount) {
+            return;
+        }
+        mLapCount = lapCount;
+        mEventBus.post(GameEventBus.Type.LAP_COUNT_CHANGED, mRacer, lapCount);
+    }
+
     private void onLapCompleted() {
         if (!hasBestLapTime() || mLapTime < mBestLapTime) {
             mBestLapTime = mLapTime;
         }
+        mLastLapTime = mLapTime;
         mLapTime = 0;
     }
 
@@ -144,7 +172,7 @@ public class LapPositionComponent implements Racer.Component {
             mBestLapTime = fakeBestLapTime;
         }
         mStatus = Status.COMPLETED;
-        mLapCount = mTrack.getTotalLapCount();
+        setLapCount(mTrack.getTotalLapCount());
         mTotalTime = fakeTotalTime;
     }
 
@@ -173,6 +201,40 @@ public class LapPositionComponent implements Racer.Component {
         fakeCompletion(mTotalTime / percentageDone);
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putFloat(mBestLapTime);
+        snapshot.putFloat(mTotalTime);
+        snapshot.putFloat(mLapTime);
+        snapshot.putFloat(mLastLapTime);
+        snapshot.putInt(mLapCount);
+        snapshot.putEnum(mStatus);
+        snapshot.putBoolean(mSkipNextFinishLine);
+        // Only save the coordinates of the lap position, it is looked up again when restoring
+        snapshot.putInt(mLapPosition.getSectionId());
+        snapshot.putInt((int) mLapPosition.getX());
+        snapshot.putInt((int) mLapPosition.getY());
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mBestLapTime = snapshot.getFloat();
+        mTotalTime = snapshot.getFloat();
+        mLapTime = snapshot.getFloat();
+        mLastLapTime = snapshot.getFloat();
+        setLapCount(snapshot.getInt());
+        mStatus = snapshot.getEnum(Status.values());
+        mSkipNextFinishLine = snapshot.getBoolean();
+        int sectionId = snapshot.getInt();
+        int pixelX = snapshot.getInt();
+        int pixelY = snapshot.getInt();
+        LapPosition pos = null;
+        if (sectionId != -1) {
+            pos = mTrack.getLapPositionTable().get(pixelX, pixelY);
+        }
+        mLapPosition.copy(pos != null ? pos : sUninitializedLapPosition);
+    }
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     private boolean hasBestLapTime() {
         return mBestLapTime > 0;
@@ -19,8 +19,9 @@
 package com.agateau.pixelwheels.racer;
 
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.Snapshot;
 
 /** A Pilot */
-public interface Pilot extends Racer.Component {
+public interface Pilot extends Racer.Component, Snapshot.Savable {
     GameStats getGameStats();
 }
@@ -24,8 +24,11 @@ import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.gameinput.GameInput;
 import com.agateau.pixelwheels.gameinput.GameInputHandler;
 import com.agateau.pixelwheels.gameinput.KeyboardInputHandler;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.racescreen.Hud;
+import com.agateau.pixelwheels.replay.RaceRecorder;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.agateau.ui.InputMapper;
 import com.agateau.ui.VirtualKey;
 
@@ -39,6 +42,11 @@ public class PlayerPilot implements Pilot {
 
     private GameInputHandler mInputHandler;
     private boolean mLastTriggering = false;
+    private RaceRecorder mRaceRecorder = null;
+
+    // The input handler is only told about bonus changes, this is false when it must be told
+    // again
+    private boolean mShownBonusValid = false;
 
     public PlayerPilot(
             Assets assets,
@@ -54,11 +62,34 @@ public class PlayerPilot implements Pilot {
         updateInputHandler();
 
         mGameConfig.addListener(() -> updateInputHandler());
+        GameEventBus.Listener bonusListener = event -> mShownBonusValid = false;
+        GameEventBus eventBus = gameWorld.getEventBus();
+        eventBus.subscribe(GameEventBus.Type.BONUS_PICKED, racer, bonusListener);
+        eventBus.subscribe(GameEventBus.Type.BONUS_USED, racer, bonusListener);
+    }
+
+    public int getPlayerIndex() {
+        return mPlayerIndex;
+    }
+
+    /**
+     * Replaces the input handler defined by the game config. Used to replay recorded races, the
+     * handler is replaced again if the game config changes
+     */
+    public void setInputHandler(GameInputHandler inputHandler) {
+        mInputHandler = inputHandler;
+        mShownBonusValid = false;
+    }
+
+    /** If recorder is not null, it receives the input used at each frame */
+    public void setRaceRecorder(RaceRecorder recorder) {
+        mRaceRecorder = recorder;
     }
 
     public void createHudButtons(Hud hud) {
         hud.deleteInputUiContainer();
         mInputHandler.createHudButtons(mAssets, hud);
+        mShownBonusValid = false;
     }
 
     @Override
@@ -66,8 +97,11 @@ public class PlayerPilot implements Pilot {
         Vehicle vehicle = mRacer.getVehicle();
 
         if (mGameWorld.getState() == GameWorld.State.RUNNING) {
-            mInputHandler.setBonus(mRacer.getBonus());
+            updateBonus();
             GameInput input = mInputHandler.getGameInput();
+            if (mRaceRecorder != null) {
+                mRaceRecorder.recordInput(mPlayerIndex, input);
+            }
             vehicle.setDirection(input.direction);
             vehicle.setAccelerating(input.accelerating);
             vehicle.setBraking(input.braking);
@@ -83,6 +117,18 @@ public class PlayerPilot implements Pilot {
         return mGameWorld.getGameStats();
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBoolean(mLastTriggering);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mLastTriggering = snapshot.getBoolean();
+        // The bonus may have changed
+        mShownBonusValid = false;
+    }
+
     public boolean isPauseKeyPressed() {
         if (!(mInputHandler instanceof KeyboardInputHandler)) {
             return false;
@@ -91,7 +137,16 @@ public class PlayerPilot implements Pilot {
         return inputMapper.isKeyJustPressed(VirtualKey.BACK);
     }
 
+    private void updateBonus() {
+        if (mShownBonusValid) {
+            return;
+        }
+        mInputHandler.setBonus(mRacer.getBonus());
+        mShownBonusValid = true;
+    }
+
     private void updateInputHandler() {
         mInputHandler = mGameConfig.getPlayerInputHandler(mPlayerIndex);
+        mShownBonusValid = false;
     }
 }
@@ -19,6 +19,7 @@
 package com.agateau.pixelwheels.racer;
 
 import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.BodyIdentifier;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.ZLevel;
@@ -30,8 +31,10 @@ import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
 import com.agateau.pixelwheels.gamesetup.GameInfo;
 import com.agateau.pixelwheels.racescreen.Collidable;
 import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
@@ -44,7 +47,9 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 
 /** A racer */
-public class Racer extends GameObjectAdapter implements Collidable, Disposable {
+public class Racer extends GameObjectAdapter implements Collidable, Disposable, Snapshot.Savable {
+    private static final float MIN_IMPACT_SPEED = 3;
+
     private final GameWorld mGameWorld;
     private final Vehicle mVehicle;
     private final VehicleRenderer mVehicleRenderer;
@@ -60,6 +65,11 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
 
     // State
     private Bonus mBonus;
+    // Index of the pool mBonus comes from in GameWorld.getBonusPools(), so that snapshots can
+    // obtain the same kind of bonus
+    private int mBonusPoolIndex = -1;
+    // True once a COLLISION event has been posted for the current frame
+    private boolean mCollisionPosted = false;
     private final RecordRanks mRecordRanks = new RecordRanks();
 
     public static class RecordRanks {
@@ -96,7 +106,7 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
             Vehicle vehicle,
             GameInfo.Entrant entrant) {
         mGameWorld = gameWorld;
-        mLapPositionComponent = new LapPositionComponent(gameWorld.getTrack(), vehicle);
+        mLapPositionComponent = new LapPositionComponent(gameWorld, this, vehicle);
         mSpinningComponent = new SpinningComponent(vehicle);
 
         mVehicle = vehicle;
@@ -116,7 +126,8 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
 
         PilotSupervisorComponent supervisorComponent = new PilotSupervisorComponent();
 
-        mAudioComponent = new AudioComponent(assets.soundAtlas, audioManager, this);
+        mAudioComponent =
+                new AudioComponent(assets.soundAtlas, audioManager, mGameWorld.getEventBus(), this);
 
         addComponent(mLapPositionComponent);
         addComponent(mVehicle);
@@ -164,12 +175,12 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         return mBonus;
     }
 
-    public LapPositionComponent getLapPositionComponent() {
-        return mLapPositionComponent;
+    public HoleHandlerComponent getHoleHandlerComponent() {
+        return mHoleHandlerComponent;
     }
 
-    public AudioComponent getAudioComponent() {
-        return mAudioComponent;
+    public LapPositionComponent getLapPositionComponent() {
+        return mLapPositionComponent;
     }
 
     public AudioManager getAudioManager() {
@@ -221,6 +232,16 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
             applySimplifiedRacerCollision((Racer) other);
         }
 
+        // Check the speed here: once the event is dispatched the impact has already slowed down the
+        // vehicle
+        if (!mCollisionPosted && getVehicle().getSpeed() > MIN_IMPACT_SPEED) {
+            Body otherBody = otherFixture.getBody();
+            if (BodyIdentifier.isVehicle(otherBody) || BodyIdentifier.isWall(otherBody)) {
+                mCollisionPosted = true;
+                mGameWorld.getEventBus().post(GameEventBus.Type.COLLISION, this);
+            }
+        }
+
         for (Collidable collidable : mCollidableComponents) {
             collidable.preSolve(contact, otherFixture, oldManifold);
         }
@@ -266,8 +287,49 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         }
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        for (Racer.Component component : mComponents) {
+            if (component instanceof Snapshot.Savable) {
+                ((Snapshot.Savable) component).saveState(snapshot);
+            }
+        }
+        mPilot.saveState(snapshot);
+        if (mBonus == null) {
+            snapshot.putInt(-1);
+        } else {
+            snapshot.putInt(mBonusPoolIndex);
+            mBonus.saveState(snapshot);
+        }
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        if (mBonus != null) {
+            mBonus.discard();
+        }
+        for (Racer.Component component : mComponents) {
+            if (component instanceof Snapshot.Savable) {
+                ((Snapshot.Savable) component).restoreState(snapshot);
+            }
+        }
+        mPilot.restoreState(snapshot);
+        int bonusPoolIndex = snapshot.getInt();
+        if (bonusPoolIndex >= 0) {
+            mBonusPoolIndex = bonusPoolIndex;
+            mBonus = (Bonus) mGameWorld.getBonusPools().get(bonusPoolIndex).obtain();
+            mBonus.onRestored(this);
+            mBonus.restoreState(snapshot);
+        }
+        mVehicleRenderer.updateTransforms();
+    }
+
     @Override
     public void act(float delta) {
+        // Contacts happen during the physics step, which runs between the PRE_PHYSICS and
+        // POST_PHYSICS phases. Racers act in POST_PHYSICS, so this resets the flag for the next
+        // step
+        mCollisionPosted = false;
         for (Racer.Component component : mComponents) {
             component.act(delta);
         }
@@ -275,6 +337,8 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         if (mBonus != null) {
             mBonus.act(delta);
         }
+
+        mVehicleRenderer.updateTransforms();
     }
 
     @SuppressWarnings("rawtypes")
@@ -289,10 +353,11 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
 
         // To avoid allocating an array of the counts for each normalized rank, we subtract counts
         // from pick, until it is less than 0, at this point we are on the selected pool
-        float pick = MathUtils.random(0f, totalCount);
+        float pick = mGameWorld.getRandom().nextFloat() * totalCount;
         BonusPool pool = null;
         for (int idx = 0; idx < pools.size; ++idx) {
             pool = pools.get(idx);
+            mBonusPoolIndex = idx;
             pick -= pool.getCountForNormalizedRank(normalizedRank);
             if (pick < 0) {
                 break;
@@ -300,11 +365,13 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         }
         if (pool == null) {
             pool = pools.get(pools.size - 1);
+            mBonusPoolIndex = pools.size - 1;
         }
 
         mBonus = (Bonus) pool.obtain();
         mBonus.onPicked(this);
         getGameStats().recordEvent(GameStats.Event.PICKED_BONUS);
+        mGameWorld.getEventBus().post(GameEventBus.Type.BONUS_PICKED, this, mBonus);
     }
 
     public void triggerBonus() {
@@ -317,6 +384,7 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
     /** Called by bonuses when they are done */
     public void resetBonus() {
         mBonus = null;
+        mGameWorld.getEventBus().post(GameEventBus.Type.BONUS_USED, this);
     }
 
     /** Called when something bad happens to the racer, causing her to loose her bonus */
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import java.util.Arrays;
+
+/**
+ * Uniform grid of the racer positions, to find the racers close to a point without going through
+ * Box2D or looking at every racer
+ *
+ * <p>update() must be called once per frame, after the physics step: queries use the positions
+ * recorded by the last update(). The racers of a cell are stored contiguously, so update() is a
+ * counting sort and does not allocate.
+ *
+ * <p>Queries share work buffers, so they must all be made from the same thread.
+ */
+public class RacerSpatialIndex {
+    /** Size of a grid cell, in world units */
+    public static final float CELL_SIZE = 8;
+
+    private final int mColumns;
+    private final int mRows;
+    // The racers of cell are mCellItems[mCellStarts[cell]] to mCellItems[mCellStarts[cell + 1] - 1]
+    private final int[] mCellStarts;
+    private int[] mCellItems = new int[0];
+
+    private Racer[] mRacers = new Racer[0];
+    private float[] mX = new float[0];
+    private float[] mY = new float[0];
+    // Radius of a circle containing the vehicle of each racer
+    private float[] mRadii = new float[0];
+    private float mMaxRadius = 0;
+    private int[] mRacerCells = new int[0];
+
+    // Work buffers
+    private int[] mCandidates = new int[0];
+    private float[] mCandidateDistances2 = new float[0];
+    private int mCandidateCount = 0;
+
+    private int mQueryCount = 0;
+    private long mQueryNanos = 0;
+    private long mUpdateNanos = 0;
+
+    /** Creates an index for a world going from (0, 0) to (width, height) */
+    public RacerSpatialIndex(float width, float height) {
+        mColumns = Math.max(MathUtils.ceil(width / CELL_SIZE), 1);
+        mRows = Math.max(MathUtils.ceil(height / CELL_SIZE), 1);
+        mCellStarts = new int[mColumns * mRows + 1];
+    }
+
+    public void setRacers(Array<Racer> racers) {
+        int count = racers.size;
+        mRacers = new Racer[count];
+        mX = new float[count];
+        mY = new float[count];
+        mRadii = new float[count];
+        mRacerCells = new int[count];
+        mCellItems = new int[count];
+        mCandidates = new int[count];
+        mCandidateDistances2 = new float[count];
+        mMaxRadius = 0;
+        for (int idx = 0; idx < count; ++idx) {
+            Racer racer = racers.get(idx);
+            Vehicle vehicle = racer.getVehicle();
+            mRacers[idx] = racer;
+            mRadii[idx] = Math.max(vehicle.getWidth(), vehicle.getHeight()) / 2;
+            mMaxRadius = Math.max(mMaxRadius, mRadii[idx]);
+        }
+        update();
+    }
+
+    /** Records the racer positions. Must be called after each World.step() batch */
+    public void update() {
+        long start = System.nanoTime();
+        mQueryCount = 0;
+        mQueryNanos = 0;
+        int cellCount = mCellStarts.length - 1;
+        Arrays.fill(mCellStarts, 0);
+        for (int idx = 0; idx < mRacers.length; ++idx) {
+            Racer racer = mRacers[idx];
+            mX[idx] = racer.getX();
+            mY[idx] = racer.getY();
+            int cell = getCell(mX[idx], mY[idx]);
+            mRacerCells[idx] = cell;
+            ++mCellStarts[cell];
+        }
+        // Turn the counts into cell ends, then fill the cells backward, turning the ends into
+        // starts. Going backward keeps the racers of a cell in the same order as mRacers
+        for (int cell = 1; cell < cellCount; ++cell) {
+            mCellStarts[cell] += mCellStarts[cell - 1];
+        }
+        mCellStarts[cellCount] = mRacers.length;
+        for (int idx = mRacers.length - 1; idx >= 0; --idx) {
+            int cell = mRacerCells[idx];
+            --mCellStarts[cell];
+            mCellItems[mCellStarts[cell]] = idx;
+        }
+        mUpdateNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the closest racer in the cone starting at (x, y), pointing at angle, opening by arc
+     * and going up to depth, or null. Angles are in degrees. A racer is in the cone if part of its
+     * vehicle is, so a cone with an arc of 0 finds the racers a ray would hit.
+     *
+     * <p>If walls is not null, racers hidden by walls are ignored.
+     */
+    public Racer findNearestInCone(
+            float x,
+            float y,
+            float angle,
+            float arc,
+            float depth,
+            Racer ignoredRacer,
+            StaticGeometry walls) {
+        long start = System.nanoTime();
+        ++mQueryCount;
+        collectCandidates(x, y, depth + mMaxRadius, ignoredRacer);
+
+        // Only keep the candidates in the cone
+        int keptCount = 0;
+        for (int idx = 0; idx < mCandidateCount; ++idx) {
+            int racerIdx = mCandidates[idx];
+            float distance = (float) Math.sqrt(mCandidateDistances2[idx]);
+            float radius = mRadii[racerIdx];
+            if (distance > depth + radius) {
+                continue;
+            }
+            if (distance > radius) {
+                float racerAngle =
+                        MathUtils.atan2(mY[racerIdx] - y, mX[racerIdx] - x) * MathUtils.radDeg;
+                float tolerance = arc / 2 + (float) Math.asin(radius / distance) * MathUtils.radDeg;
+                if (getAngleDifference(racerAngle, angle) > tolerance) {
+                    continue;
+                }
+            }
+            mCandidates[keptCount] = racerIdx;
+            mCandidateDistances2[keptCount] = mCandidateDistances2[idx];
+            ++keptCount;
+        }
+        mCandidateCount = keptCount;
+
+        // Try the candidates from the closest one, until one is not hidden
+        Racer found = null;
+        while (mCandidateCount > 0) {
+            int closest = 0;
+            for (int idx = 1; idx < mCandidateCount; ++idx) {
+                if (mCandidateDistances2[idx] < mCandidateDistances2[closest]) {
+                    closest = idx;
+                }
+            }
+            int racerIdx = mCandidates[closest];
+            if (walls == null
+                    || walls.rayCast(x, y, mX[racerIdx], mY[racerIdx]) == StaticGeometry.NO_HIT) {
+                found = mRacers[racerIdx];
+                break;
+            }
+            removeCandidate(closest);
+        }
+        mQueryNanos += System.nanoTime() - start;
+        return found;
+    }
+
+    /**
+     * Replaces the content of out with the racers whose center is at most radius away from (x, y),
+     * in no particular order. Returns the number of racers found
+     */
+    public int findInRadius(float x, float y, float radius, Racer ignoredRacer, Array<Racer> out) {
+        long start = System.nanoTime();
+        ++mQueryCount;
+        collectCandidates(x, y, radius, ignoredRacer);
+        out.clear();
+        for (int idx = 0; idx < mCandidateCount; ++idx) {
+            out.add(mRacers[mCandidates[idx]]);
+        }
+        mQueryNanos += System.nanoTime() - start;
+        return out.size;
+    }
+
+    /**
+     * Replaces the content of out with the count racers closest to (x, y), closest first. Only
+     * looks at racers whose center is at most maxDistance away. Returns the number of racers found
+     */
+    public int findNearest(
+            float x, float y, int count, float maxDistance, Racer ignoredRacer, Array<Racer> out) {
+        long start = System.nanoTime();
+        ++mQueryCount;
+        collectCandidates(x, y, maxDistance, ignoredRacer);
+        out.clear();
+        // Partial selection sort: count is expected to be small
+        while (out.size < count && mCandidateCount > 0) {
+            int closest = 0;
+            for (int idx = 1; idx < mCandidateCount; ++idx) {
+                if (mCandidateDistances2[idx] < mCandidateDistances2[closest]) {
+                    closest = idx;
+                }
+            }
+            out.add(mRacers[mCandidates[closest]]);
+            removeCandidate(closest);
+        }
+        mQueryNanos += System.nanoTime() - start;
+        return out.size;
+    }
+
+    /** Number of queries made since the last update() */
+    public int getQueryCount() {
+        return mQueryCount;
+    }
+
+    /** Time spent in the queries made since the last update(), in nanoseconds */
+    public long getQueryNanos() {
+        return mQueryNanos;
+    }
+
+    /** Time spent in the last update(), in nanoseconds */
+    public long getUpdateNanos() {
+        return mUpdateNanos;
+    }
+
+    /** Fills mCandidates with the racers whose center is at most radius away from (x, y) */
+    private void collectCandidates(float x, float y, float radius, Racer ignoredRacer) {
+        mCandidateCount = 0;
+        float radius2 = radius * radius;
+        int minCx = getColumn(x - radius);
+        int maxCx = getColumn(x + radius);
+        int minCy = getRow(y - radius);
+        int maxCy = getRow(y + radius);
+        for (int cy = minCy; cy <= maxCy; ++cy) {
+            for (int cx = minCx; cx <= maxCx; ++cx) {
+                int cell = cy * mColumns + cx;
+                for (int item = mCellStarts[cell]; item < mCellStarts[cell + 1]; ++item) {
+                    int racerIdx = mCellItems[item];
+                    if (mRacers[racerIdx] == ignoredRacer) {
+                        continue;
+                    }
+                    float dx = mX[racerIdx] - x;
+                    float dy = mY[racerIdx] - y;
+                    float distance2 = dx * dx + dy * dy;
+                    if (distance2 <= radius2) {
+                        mCandidates[mCandidateCount] = racerIdx;
+                        mCandidateDistances2[mCandidateCount] = distance2;
+                        ++mCandidateCount;
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeCandidate(int idx) {
+        --mCandidateCount;
+        mCandidates[idx] = mCandidates[mCandidateCount];
+        mCandidateDistances2[idx] = mCandidateDistances2[mCandidateCount];
+    }
+
+    private int getCell(float x, float y) {
+        return getRow(y) * mColumns + getColumn(x);
+    }
+
+    // Positions outside the grid go to the border cells
+    private int getColumn(float x) {
+        return MathUtils.clamp((int) Math.floor(x / CELL_SIZE), 0, mColumns - 1);
+    }
+
+    private int getRow(float y) {
+        return MathUtils.clamp((int) Math.floor(y / CELL_SIZE), 0, mRows - 1);
+    }
+
+    /** Returns the absolute difference between two angles in degrees, between 0 and 180 */
+    private static float getAngleDifference(float angle1, float angle2) {
+        float diff = (angle1 - angle2) % 360;
+        if (diff < 0) {
+            diff += 360;
+        }
+        return diff > 180 ? 360 - diff : diff;
+    }
+}
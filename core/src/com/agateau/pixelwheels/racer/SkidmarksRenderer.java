@@ -25,6 +25,7 @@ import com.agateau.utils.CircularArray;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 
 /** Render a circular array of skidmarks */
@@ -46,7 +47,8 @@ public class SkidmarksRenderer {
         mAssets = assets;
     }
 
-    public void draw(Batch batch, CircularArray<Wheel.Skidmark> skidmarks) {
+    /** If cullingRect is not null, skidmarks outside it are not drawn */
+    public void draw(Batch batch, CircularArray<Wheel.Skidmark> skidmarks, Rectangle cullingRect) {
         int idx1 = skidmarks.getBeginIndex();
         if (idx1 == skidmarks.getEndIndex()) {
             return;
@@ -74,12 +76,16 @@ public class SkidmarksRenderer {
                 Vector2 thickness = AgcMathUtils.computeWidthVector(pos1, pos2, SKIDMARK_WIDTH / 2);
                 mThickX2 = thickness.x;
                 mThickY2 = thickness.y;
-                drawSkidmark(
-                        batch,
-                        pos1,
-                        pos2,
-                        alpha * mark1.getOpacity(),
-                        (alpha + SKIDMARK_ALPHA_INC) * mark2.getOpacity());
+                if (cullingRect == null
+                        || cullingRect.contains(pos1)
+                        || cullingRect.contains(pos2)) {
+                    drawSkidmark(
+                            batch,
+                            pos1,
+                            pos2,
+                            alpha * mark1.getOpacity(),
+                            (alpha + SKIDMARK_ALPHA_INC) * mark2.getOpacity());
+                }
                 alpha = Math.min(SKIDMARK_ALPHA_MAX, alpha + SKIDMARK_ALPHA_INC);
             } else {
                 mValidThickness = false;
@@ -21,6 +21,8 @@ package com.agateau.pixelwheels.racer;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.racescreen.Collidable;
 import com.agateau.pixelwheels.racescreen.CollisionCategories;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Contact;
@@ -29,7 +31,7 @@ import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.Manifold;
 
 /** Make a vehicle spin on itself for a full circle */
-public class SpinningComponent implements Racer.Component, Collidable {
+public class SpinningComponent implements Racer.Component, Collidable, Snapshot.Savable {
     private static final float MIN_ANGULAR_VELOCITY = 1f;
     private static final float MAX_ANGULAR_VELOCITY = 15f;
     private final Vehicle mVehicle;
@@ -70,6 +72,7 @@ public class SpinningComponent implements Racer.Component, Collidable {
         // Spin
         float nextAngle = body.getAngle() + body.getAngularVelocity() * GameWorld.BOX2D_TIME_STEP;
         if (nextAngle > mTargetBodyAngle) {
+            mVehicle.refreshBodyState();
             stopSpinning();
             return;
         }
@@ -87,6 +90,22 @@ public class SpinningComponent implements Racer.Component, Collidable {
         }
         float impulse = body.getInertia() * (desiredAngularVelocity - body.getAngularVelocity());
         body.applyAngularImpulse(impulse, true);
+        mVehicle.refreshBodyState();
+    }
+
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBoolean(mActive);
+        snapshot.putFloat(mOriginalAngle);
+        snapshot.putFloat(mTargetBodyAngle);
+    }
+
+    /** Wheel grip is part of the wheel state, so it is restored by the vehicle */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mActive = snapshot.getBoolean();
+        mOriginalAngle = snapshot.getFloat();
+        mTargetBodyAngle = snapshot.getFloat();
     }
 
     private void stopSpinning() {
@@ -107,7 +126,8 @@ public class SpinningComponent implements Racer.Component, Collidable {
         }
         // If we hit something, stop spinning: we may not be able to do a full circle at all if we
         // are blocked by a wall
-        if ((otherFixture.getFilterData().categoryBits & CollisionCategories.SOLID_BODIES) != 0) {
+        int otherCategory = Box2DUtils.getCategoryBits(otherFixture);
+        if ((otherCategory & CollisionCategories.SOLID_BODIES) != 0) {
             stopSpinning();
         }
     }
@@ -23,8 +23,11 @@ import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.TextureRegionProvider;
 import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.racescreen.GameEventBus;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.BodyStateCache;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.agateau.pixelwheels.vehicledef.VehicleDef;
 import com.agateau.utils.AgcMathUtils;
 import com.badlogic.gdx.graphics.g2d.Animation;
@@ -35,6 +38,7 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.RevoluteJoint;
 import com.badlogic.gdx.physics.box2d.joints.RevoluteJointDef;
 import com.badlogic.gdx.utils.Array;
@@ -42,7 +46,8 @@ import com.badlogic.gdx.utils.ArrayMap;
 import com.badlogic.gdx.utils.Disposable;
 
 /** Represents a car on the world */
-public class Vehicle implements Racer.Component, Disposable {
+public class Vehicle
+        implements Racer.Component, Disposable, Snapshot.Savable, VehicleRenderer.Source {
     private static final float ACCELERATION_DELTA = 1;
     private static final float BRAKING_DELTA = 0.8f;
     // If the angle in degrees between body and velocity is more than this
@@ -50,14 +55,32 @@ public class Vehicle implements Racer.Component, Disposable {
     private static final float MIN_ICE_DRIFT_ANGLE = 5;
     private static final float MIN_ICE_DRIFT_SPEED = 4;
 
+    /** How the wheels are simulated */
+    public enum PhysicsModel {
+        /** Each wheel has its own body, attached to the vehicle body with a revolute joint */
+        JOINTED_WHEELS,
+        /**
+         * Wheels are fixtures of the vehicle body, their friction and steering are applied to the
+         * vehicle body. Cheaper to simulate, since it needs only one body and no joints
+         */
+        SINGLE_BODY
+    }
+
     public static class WheelInfo {
         public Wheel wheel;
+        /** Null if the physics model is SINGLE_BODY */
         public RevoluteJoint joint;
+        /** The definition of joint, used to create it again when restoring snapshots */
+        RevoluteJointDef jointDef;
+
         public float steeringFactor;
     }
 
     private final Body mBody;
+    private final PhysicsModel mPhysicsModel;
     private final GameWorld mGameWorld;
+    private final BodyStateCache mBodyStateCache;
+    private final int mBodySlot;
     private Racer mRacer;
 
     private final Animation<TextureRegion> mBodyAnimation;
@@ -81,14 +104,20 @@ public class Vehicle implements Racer.Component, Disposable {
 
     private final ArrayMap<Long, Float> mTurboCellMap = new ArrayMap<>(8);
 
+    private final Vector2 mPosition = new Vector2();
+    private final Vector2 mWorldCenter = new Vector2();
+    private final Vector2 mTmp = new Vector2();
+
     public Vehicle(
             TextureRegionProvider textureRegionProvider,
             GameWorld gameWorld,
             float originX,
             float originY,
             VehicleDef vehicleDef,
-            float angle) {
+            float angle,
+            PhysicsModel physicsModel) {
         mGameWorld = gameWorld;
+        mPhysicsModel = physicsModel;
 
         // Main
         mBodyAnimation = vehicleDef.getAnimation(textureRegionProvider);
@@ -111,6 +140,9 @@ public class Vehicle implements Racer.Component, Disposable {
             mBody.createFixture(fixtureDef);
             fixtureDef.shape.dispose();
         }
+
+        mBodyStateCache = mGameWorld.getBodyStateCache();
+        mBodySlot = mBodyStateCache.register(mBody);
     }
 
     @Override
@@ -118,18 +150,90 @@ public class Vehicle implements Racer.Component, Disposable {
         for (WheelInfo info : mWheels) {
             info.wheel.dispose();
         }
+        mBodyStateCache.unregister(mBodySlot);
         mGameWorld.getBox2DWorld().destroyBody(mBody);
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putBody(mBody);
+        for (WheelInfo info : mWheels) {
+            info.wheel.saveState(snapshot);
+            if (info.joint != null) {
+                snapshot.putFloat(info.joint.getLowerLimit());
+                snapshot.putFloat(info.joint.getUpperLimit());
+            }
+        }
+        snapshot.putBoolean(mAccelerating);
+        snapshot.putBoolean(mBraking);
+        snapshot.putFloat(mZ);
+        snapshot.putFloat(mDirection);
+        snapshot.putFloat(mTurboTime);
+        snapshot.putBoolean(mStopped);
+        snapshot.putEnum(mMaterial);
+        snapshot.putFloat(mSpeedLimiter);
+        snapshot.putInt(mTurboCellMap.size);
+        for (int idx = 0; idx < mTurboCellMap.size; ++idx) {
+            snapshot.putLong(mTurboCellMap.getKeyAt(idx));
+            snapshot.putFloat(mTurboCellMap.getValueAt(idx));
+        }
+    }
+
+    /**
+     * Wheel joints are created again: Box2D does not give access to the impulses a joint
+     * accumulated during the last step, so a joint whose impulses have been reset is the only state
+     * which can be restored exactly
+     */
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        snapshot.getBody(mBody);
+        World world = mGameWorld.getBox2DWorld();
+        for (WheelInfo info : mWheels) {
+            info.wheel.restoreState(snapshot);
+            if (info.joint != null) {
+                info.jointDef.lowerAngle = snapshot.getFloat();
+                info.jointDef.upperAngle = snapshot.getFloat();
+                world.destroyJoint(info.joint);
+                info.joint = (RevoluteJoint) world.createJoint(info.jointDef);
+            }
+        }
+        mAccelerating = snapshot.getBoolean();
+        mBraking = snapshot.getBoolean();
+        // Use setZ() so that collisions are enabled or disabled as needed
+        setZ(snapshot.getFloat());
+        mDirection = snapshot.getFloat();
+        mTurboTime = snapshot.getFloat();
+        mStopped = snapshot.getBoolean();
+        mMaterial = snapshot.getEnum(Material.values());
+        mSpeedLimiter = snapshot.getFloat();
+        mTurboCellMap.clear();
+        for (int count = snapshot.getInt(); count > 0; --count) {
+            long cellId = snapshot.getLong();
+            mTurboCellMap.put(cellId, snapshot.getFloat());
+        }
+    }
+
+    /**
+     * Adds a wheel at (x, y), relative to the vehicle position but in world orientation. angle is
+     * the angle of the vehicle, in degrees
+     */
     public WheelInfo addWheel(TextureRegion region, float x, float y, float angle) {
         WheelInfo info = new WheelInfo();
-        info.wheel = new Wheel(mGameWorld, this, region, getX() + x, getY() + y, angle);
         mWheels.add(info);
+        if (mPhysicsModel == PhysicsModel.SINGLE_BODY) {
+            mTmp.set(x, y).rotate(-angle);
+            info.wheel = Wheel.createAsFixture(mGameWorld, this, region, mTmp.x, mTmp.y);
+            // Adding the fixture changed the mass of the body
+            mBodyStateCache.refreshMassData(mBodySlot);
+            return info;
+        }
+        info.wheel = Wheel.createWithBody(mGameWorld, this, region, getX() + x, getY() + y, angle);
 
         Body body = info.wheel.getBody();
         body.setUserData(mBody.getUserData());
 
         RevoluteJointDef jointDef = new RevoluteJointDef();
+        info.jointDef = jointDef;
         // Call initialize() instead of defining bodies and anchors manually. Defining anchors
         // manually
         // causes Box2D to move the car a bit while it solves the constraints defined by the joints
@@ -164,6 +268,37 @@ public class Vehicle implements Racer.Component, Disposable {
         return mWheels;
     }
 
+    @Override
+    public int getWheelCount() {
+        return mWheels.size;
+    }
+
+    @Override
+    public TextureRegion getWheelRegion(int wheelIdx) {
+        return mWheels.get(wheelIdx).wheel.getRegion();
+    }
+
+    @Override
+    public boolean isWheelInWater(int wheelIdx) {
+        return mWheels.get(wheelIdx).wheel.getMaterial().isWater();
+    }
+
+    @Override
+    public void getTransforms(float[] transforms) {
+        Vector2 pos = mBody.getPosition();
+        transforms[0] = pos.x;
+        transforms[1] = pos.y;
+        transforms[2] = mBody.getAngle();
+        for (int idx = 0; idx < mWheels.size; ++idx) {
+            // Do not use the wheel body: it is the vehicle body if the wheel is a fixture of it
+            Wheel wheel = mWheels.get(idx).wheel;
+            int offset = (idx + 1) * VehicleRenderer.TRANSFORM_SIZE;
+            transforms[offset] = wheel.getX();
+            transforms[offset + 1] = wheel.getY();
+            transforms[offset + 2] = wheel.getAngleRad();
+        }
+    }
+
     public String getId() {
         return mId;
     }
@@ -176,12 +311,29 @@ public class Vehicle implements Racer.Component, Disposable {
         return mBody;
     }
 
+    int getBodySlot() {
+        return mBodySlot;
+    }
+
+    /**
+     * Must be called after changing the position or the velocity of the body directly, outside of a
+     * physics step
+     */
+    void refreshBodyState() {
+        mBodyStateCache.refresh(mBodySlot);
+    }
+
+    public PhysicsModel getPhysicsModel() {
+        return mPhysicsModel;
+    }
+
+    @Override
     public TextureRegion getRegion(float time) {
         return mBodyAnimation.getKeyFrame(time);
     }
 
     public float getSpeed() {
-        return mBody.getLinearVelocity().len();
+        return mBodyStateCache.getSpeed(mBodySlot);
     }
 
     public boolean isDrifting() {
@@ -199,8 +351,8 @@ public class Vehicle implements Racer.Component, Disposable {
         }
         for (WheelInfo wheelInfo : mWheels) {
             if (wheelInfo.wheel.getMaterial() == Material.ICE) {
-                float delta =
-                        AgcMathUtils.angleDelta(mBody.getLinearVelocity().angle(), getAngle());
+                float velocityAngle = mBodyStateCache.getLinearVelocity(mBodySlot, mTmp).angle();
+                float delta = AgcMathUtils.angleDelta(velocityAngle, getAngle());
                 return Math.abs(delta % 180) > MIN_ICE_DRIFT_ANGLE;
             }
         }
@@ -226,9 +378,11 @@ public class Vehicle implements Racer.Component, Disposable {
 
     /** Returns the angle the car is facing */
     public float getAngle() {
-        return AgcMathUtils.normalizeAngle(mBody.getAngle() * MathUtils.radiansToDegrees);
+        return AgcMathUtils.normalizeAngle(
+                mBodyStateCache.getAngle(mBodySlot) * MathUtils.radiansToDegrees);
     }
 
+    @Override
     public float getWidth() {
         return Constants.UNIT_FOR_PIXEL * getRegion(0).getRegionWidth();
     }
@@ -237,14 +391,17 @@ public class Vehicle implements Racer.Component, Disposable {
         return Constants.UNIT_FOR_PIXEL * getRegion(0).getRegionHeight();
     }
 
+    @Override
     public boolean isFlying() {
         return mZ > 0;
     }
 
+    @Override
     public boolean isFalling() {
         return mZ < 0;
     }
 
+    @Override
     public float getZ() {
         return mZ;
     }
@@ -255,7 +412,9 @@ public class Vehicle implements Racer.Component, Disposable {
         if (!wasFlying && flying) {
             Box2DUtils.setCollisionInfo(mBody, 0, 0);
             for (WheelInfo info : mWheels) {
-                Box2DUtils.setCollisionInfo(info.wheel.getBody(), 0, 0);
+                if (info.joint != null) {
+                    Box2DUtils.setCollisionInfo(info.wheel.getBody(), 0, 0);
+                }
             }
         } else if (wasFlying && !flying) {
             applyCollisionInfo();
@@ -287,9 +446,11 @@ public class Vehicle implements Racer.Component, Disposable {
     }
 
     private void actStopping(float dt) {
-        Vector2 invVelocity = mBody.getLinearVelocity().scl(-0.1f);
+        Vector2 invVelocity = mBodyStateCache.getLinearVelocity(mBodySlot, mTmp).scl(-0.1f);
         mBody.applyForce(
-                invVelocity.scl(mBody.getMass()).scl(1 / dt), mBody.getWorldCenter(), true);
+                invVelocity.scl(mBodyStateCache.getMass(mBodySlot)).scl(1 / dt),
+                getWorldCenter(),
+                true);
     }
 
     /**
@@ -319,7 +480,8 @@ public class Vehicle implements Racer.Component, Disposable {
 
         boolean turboOn = mTurboTime > 0;
         if (groundSpeed < 1f && !turboOn) {
-            Box2DUtils.applyDrag(mBody, (1 - groundSpeed) * GP.groundDragFactor);
+            Box2DUtils.applyDrag(
+                    mBody, mBodyStateCache, mBodySlot, (1 - groundSpeed) * GP.groundDragFactor);
         }
     }
 
@@ -339,16 +501,24 @@ public class Vehicle implements Racer.Component, Disposable {
         for (WheelInfo info : mWheels) {
             float angle = info.steeringFactor * steerAngle;
             info.wheel.adjustSpeed(speedDelta);
-            info.joint.setLimits(angle, angle);
+            if (info.joint == null) {
+                info.wheel.setSteerAngle(angle);
+            } else {
+                info.joint.setLimits(angle, angle);
+            }
         }
     }
 
     private void updateMaterial() {
         Material oldMaterial = mMaterial;
-        mMaterial = mGameWorld.getTrack().getMaterialAt(mBody.getWorldCenter());
+        mMaterial = mGameWorld.getTrack().getMaterialAt(getWorldCenter());
+        if (mMaterial == oldMaterial) {
+            return;
+        }
         if (!mMaterial.isRoad() && oldMaterial.isRoad()) {
             mRacer.getGameStats().recordEvent(GameStats.Event.LEAVING_ROAD);
         }
+        mGameWorld.getEventBus().post(GameEventBus.Type.MATERIAL_CHANGED, mRacer, mMaterial);
     }
 
     private void actWheels(float dt) {
@@ -360,20 +530,19 @@ public class Vehicle implements Racer.Component, Disposable {
     private final Vector2 mDirectionVector = new Vector2();
 
     private Vector2 computeDirectionVector(float strength) {
-        return mDirectionVector.set(strength, 0).rotateRad(mBody.getAngle());
+        return mDirectionVector.set(strength, 0).rotateRad(mBodyStateCache.getAngle(mBodySlot));
     }
 
     private void applyTurbo(float dt) {
         final GamePlay GP = GamePlay.instance;
 
         if (mTurboTime == 0) {
-            mBody.applyLinearImpulse(
-                    computeDirectionVector(GP.turboStrength / 6), mBody.getWorldCenter(), true);
+            mBodyStateCache.applyLinearImpulse(
+                    mBodySlot, computeDirectionVector(GP.turboStrength / 6), getWorldCenter());
         }
         if (mTurboTime >= 0) {
             mTurboTime += dt;
-            mBody.applyForce(
-                    computeDirectionVector(GP.turboStrength), mBody.getWorldCenter(), true);
+            mBody.applyForce(computeDirectionVector(GP.turboStrength), getWorldCenter(), true);
             if (mTurboTime > GP.turboDuration) {
                 mTurboTime = -1;
             }
@@ -384,7 +553,7 @@ public class Vehicle implements Racer.Component, Disposable {
         final GamePlay GP = GamePlay.instance;
         if (mDirection == 0) {
             if (mProbe != null) {
-                float speed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
+                float speed = getSpeed() * Box2DUtils.MS_TO_KMH;
                 mProbe.addValue("steer", 0);
                 mProbe.addValue("speed", speed);
                 mProbe.addValue("category", 0);
@@ -392,7 +561,7 @@ public class Vehicle implements Racer.Component, Disposable {
             return 0;
         }
 
-        float speed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
+        float speed = getSpeed() * Box2DUtils.MS_TO_KMH;
         float steer;
         // Category is 0 if speed is < GP.lowSpeed, 1 if < GP.maxSpeed, 2 if > GP.maxSpeed
         // For a better driving experience, it should not reach 2 except when triggering turbos
@@ -452,15 +621,19 @@ public class Vehicle implements Racer.Component, Disposable {
     }
 
     public Vector2 getPosition() {
-        return mBody.getPosition();
+        return mPosition.set(getX(), getY());
     }
 
     public float getX() {
-        return mBody.getPosition().x;
+        return mBodyStateCache.getX(mBodySlot);
     }
 
     public float getY() {
-        return mBody.getPosition().y;
+        return mBodyStateCache.getY(mBodySlot);
+    }
+
+    private Vector2 getWorldCenter() {
+        return mBodyStateCache.getWorldCenter(mBodySlot, mWorldCenter);
     }
 
     public void setName(String name) {
@@ -471,20 +644,23 @@ public class Vehicle implements Racer.Component, Disposable {
         return mName;
     }
 
+    @Override
     public float getTurboTime() {
         return mTurboTime;
     }
 
     public void triggerTurbo() {
-        mRacer.getAudioComponent().triggerTurbo();
+        mGameWorld.getEventBus().post(GameEventBus.Type.TURBO_TRIGGERED, mRacer);
         mTurboTime = 0;
     }
 
     private void applyCollisionInfo() {
         Box2DUtils.setCollisionInfo(mBody, mCollisionCategoryBits, mCollisionMaskBits);
         for (WheelInfo info : mWheels) {
-            Box2DUtils.setCollisionInfo(
-                    info.wheel.getBody(), mCollisionCategoryBits, mCollisionMaskBits);
+            if (info.joint != null) {
+                Box2DUtils.setCollisionInfo(
+                        info.wheel.getBody(), mCollisionCategoryBits, mCollisionMaskBits);
+            }
         }
     }
 
@@ -28,24 +28,68 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.utils.Array;
 
 /** Renders a vehicle */
 public class VehicleRenderer implements Renderer {
+    /** What VehicleRenderer draws. Implemented by Vehicle, and by vehicles which do not simulate */
+    public interface Source {
+        int getWheelCount();
+
+        TextureRegion getWheelRegion(int wheelIdx);
+
+        boolean isWheelInWater(int wheelIdx);
+
+        TextureRegion getRegion(float time);
+
+        /** Width of the vehicle body, in world units */
+        float getWidth();
+
+        float getZ();
+
+        boolean isFlying();
+
+        boolean isFalling();
+
+        /** Time since the turbo has been triggered, or a negative value if there is no turbo */
+        float getTurboTime();
+
+        /**
+         * Stores the transforms of the vehicle body, then of each wheel, in transforms, as (x, y,
+         * angle in radians) triplets
+         */
+        void getTransforms(float[] transforms);
+    }
+
     private static final Color IMMERSED_COLOR = new Color(0, 0.5f, 1, 0.2f);
     private final Assets mAssets;
-    private final Vehicle mVehicle;
+    private final Source mVehicle;
     private final Array<Renderer> mRenderers = new Array<>();
-    private final SkidmarksRenderer mSkidmarksRenderer;
     private float mTime = 0;
     private final BodyRegionDrawer mBodyRegionDrawer = new BodyRegionDrawer();
 
-    public VehicleRenderer(Assets assets, Vehicle vehicle) {
+    // Transforms of the vehicle body, then of each wheel, stored as (x, y, angle in radians)
+    // triplets. They are read from the source once per frame by updateTransforms(), so that the
+    // draw passes do not have to go through JNI for each body again and again.
+    public static final int TRANSFORM_SIZE = 3;
+    private final float[] mTransforms;
+
+    public VehicleRenderer(Assets assets, Source vehicle) {
         mAssets = assets;
         mVehicle = vehicle;
-        mSkidmarksRenderer = new SkidmarksRenderer(mAssets);
+        mTransforms = new float[(1 + mVehicle.getWheelCount()) * TRANSFORM_SIZE];
+        updateTransforms();
+    }
+
+    /** Must be called once the vehicle has been moved for the frame */
+    public void updateTransforms() {
+        mVehicle.getTransforms(mTransforms);
+    }
+
+    private void drawFromTransform(int index, TextureRegion region) {
+        int offset = index * TRANSFORM_SIZE;
+        mBodyRegionDrawer.draw(
+                mTransforms[offset], mTransforms[offset + 1], mTransforms[offset + 2], region);
     }
 
     public void addRenderer(Renderer renderer) {
@@ -65,21 +109,17 @@ public class VehicleRenderer implements Renderer {
         mTime += Gdx.app.getGraphics().getDeltaTime();
         TextureRegion bodyRegion = mVehicle.getRegion(mTime);
 
-        // Ground: skidmarks, splash, shadow
+        // Ground: splash, shadow. Skidmarks are drawn by GameRenderer
         if (zLevel == ZLevel.GROUND) {
-            for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
-                mSkidmarksRenderer.draw(batch, info.wheel.getSkidmarks());
-            }
-
             // Only draw splash and shadow if we are not falling
             if (!mVehicle.isFalling()) {
-                for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
-                    if (info.wheel.getMaterial().isWater()) {
-                        mBodyRegionDrawer.draw(
-                                info.wheel.getBody(), mAssets.splash.getKeyFrame(mTime, true));
+                for (int idx = 0; idx < mVehicle.getWheelCount(); ++idx) {
+                    if (mVehicle.isWheelInWater(idx)) {
+                        drawFromTransform(idx + 1, mAssets.splash.getKeyFrame(mTime, true));
                     }
                 }
-                mBodyRegionDrawer.drawShadow(mVehicle.getBody(), bodyRegion);
+                mBodyRegionDrawer.drawShadow(
+                        mTransforms[0], mTransforms[1], mTransforms[2], bodyRegion);
             }
             return;
         }
@@ -100,11 +140,11 @@ public class VehicleRenderer implements Renderer {
             // Do not draw the wheels when falling: when the body is painted with alpha < 1 the
             // wheels are visible
             // through it and it looks ugly
-            for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
-                mBodyRegionDrawer.draw(info.wheel.getBody(), info.wheel.getRegion());
+            for (int idx = 0; idx < mVehicle.getWheelCount(); ++idx) {
+                drawFromTransform(idx + 1, mVehicle.getWheelRegion(idx));
             }
         }
-        mBodyRegionDrawer.draw(mVehicle.getBody(), bodyRegion);
+        drawFromTransform(0, bodyRegion);
 
         if (mVehicle.getTurboTime() >= 0) {
             drawTurbo(batch);
@@ -121,14 +161,12 @@ public class VehicleRenderer implements Renderer {
 
     private void drawTurbo(Batch batch) {
         TextureRegion region = mAssets.turboFlame.getKeyFrame(mVehicle.getTurboTime(), true);
-        Body body = mVehicle.getBody();
-        Vector2 center = body.getPosition();
-        float angle = body.getAngle() * MathUtils.radiansToDegrees;
+        float angle = mTransforms[2] * MathUtils.radiansToDegrees;
         float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
         float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
         float refH = -mVehicle.getWidth() / 2;
-        float x = center.x + refH * MathUtils.cosDeg(angle);
-        float y = center.y + refH * MathUtils.sinDeg(angle);
+        float x = mTransforms[0] + refH * MathUtils.cosDeg(angle);
+        float y = mTransforms[1] + refH * MathUtils.sinDeg(angle);
         batch.draw(
                 region,
                 x - w / 2,
@@ -23,7 +23,9 @@ import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.utils.BodyStateCache;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.agateau.utils.CircularArray;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Interpolation;
@@ -34,13 +36,20 @@ import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.utils.Disposable;
 
-/** A wheel */
+/**
+ * A wheel
+ *
+ * <p>Depending on the vehicle physics model, a wheel is either a body of its own, attached to the
+ * vehicle body with a joint, or a fixture of the vehicle body. In the latter case, the position,
+ * velocity and steering of the wheel are computed from the state of the vehicle body.
+ */
 public class Wheel implements Disposable {
     private static final float DRIFT_IMPULSE_REDUCTION =
             0.5f; // Limit how much of the lateral velocity is killed when drifting
     private static final float DRAG_FACTOR = 1;
     private static final int SKIDMARK_INTERVAL = 3;
     private static final float SKIDMARK_LIFETIME = 10f;
+    private static final float DENSITY = 2f;
 
     public static class Skidmark {
         private final Vector2 mPos = new Vector2();
@@ -84,38 +93,124 @@ public class Wheel implements Disposable {
 
     private final Body mBody;
     private final GameWorld mGameWorld;
+    private final BodyStateCache mBodyStateCache;
+    private final int mBodySlot;
     private final TextureRegion mRegion;
     private final Vehicle mVehicle;
+
+    // False if the wheel is a fixture of the vehicle body
+    private final boolean mOwnsBody;
+    private final float mMass;
+    private final float mInertia;
+    // Only used if the wheel is a fixture of the vehicle body: position of the wheel in the
+    // vehicle body coordinates and steering angle in radians
+    private final float mLocalX;
+    private final float mLocalY;
+    private float mSteerAngle = 0;
+
     private boolean mCanDrift = false;
     private float mMaxDrivingForce = GamePlay.instance.maxDrivingForce;
     private boolean mGripEnabled = true;
     private Material mMaterial = Material.ROAD;
     private boolean mDrifting = false;
 
-    public Wheel(
+    private final Vector2 mWorldCenter = new Vector2();
+    private final Vector2 mImpulse = new Vector2();
+    private final Vector2 mVelocity = new Vector2();
+    private final Vector2 mTmp = new Vector2();
+
+    private Wheel(
             GameWorld gameWorld,
             Vehicle vehicle,
             TextureRegion region,
-            float posX,
-            float posY,
-            float angle) {
+            Body body,
+            float localX,
+            float localY) {
         mGameWorld = gameWorld;
         mVehicle = vehicle;
         mRegion = region;
+        mBody = body;
+        mOwnsBody = body != vehicle.getBody();
+        mLocalX = localX;
+        mLocalY = localY;
+
+        mBodyStateCache = mGameWorld.getBodyStateCache();
+        if (mOwnsBody) {
+            mBodySlot = mBodyStateCache.register(mBody);
+            mMass = mBodyStateCache.getMass(mBodySlot);
+            mInertia = mBodyStateCache.getInertia(mBodySlot);
+        } else {
+            mBodySlot = vehicle.getBodySlot();
+            // Box2D does not give access to the mass of a single fixture, use the values of a
+            // w x h rectangle
+            float w = getRegionWorldWidth(region);
+            float h = getRegionWorldHeight(region);
+            mMass = DENSITY * w * h;
+            mInertia = mMass * (w * w + h * h) / 12;
+        }
+    }
 
-        float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
-        float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
-
+    /**
+     * Creates a wheel with its own body, centered on (posX, posY), in world coordinates. The caller
+     * is responsible for attaching it to the vehicle body
+     */
+    static Wheel createWithBody(
+            GameWorld gameWorld,
+            Vehicle vehicle,
+            TextureRegion region,
+            float posX,
+            float posY,
+            float angle) {
         BodyDef bodyDef = new BodyDef();
         bodyDef.type = BodyDef.BodyType.DynamicBody;
         bodyDef.position.set(posX, posY);
         bodyDef.angle = angle * MathUtils.degreesToRadians;
-        mBody = mGameWorld.getBox2DWorld().createBody(bodyDef);
+        Body body = gameWorld.getBox2DWorld().createBody(bodyDef);
 
-        PolygonShape shape = new PolygonShape();
-        shape.set(Box2DUtils.createOctogon(w, h, w / 4, w / 4));
-        mBody.createFixture(shape, 2f);
+        PolygonShape shape = createShape(region, 0, 0);
+        body.createFixture(shape, DENSITY);
+        shape.dispose();
+
+        return new Wheel(gameWorld, vehicle, region, body, 0, 0);
+    }
+
+    /**
+     * Creates a wheel as a fixture of the vehicle body, centered on (localX, localY), in vehicle
+     * body coordinates
+     */
+    static Wheel createAsFixture(
+            GameWorld gameWorld,
+            Vehicle vehicle,
+            TextureRegion region,
+            float localX,
+            float localY) {
+        Body body = vehicle.getBody();
+        PolygonShape shape = createShape(region, localX, localY);
+        body.createFixture(shape, DENSITY);
         shape.dispose();
+
+        return new Wheel(gameWorld, vehicle, region, body, localX, localY);
+    }
+
+    private static PolygonShape createShape(TextureRegion region, float x, float y) {
+        float w = getRegionWorldWidth(region);
+        float h = getRegionWorldHeight(region);
+        float[] vertices = Box2DUtils.createOctogon(w, h, w / 4, w / 4);
+        for (int idx = 0; idx < vertices.length; idx += 2) {
+            vertices[idx] += x;
+            vertices[idx + 1] += y;
+        }
+        PolygonShape shape = new PolygonShape();
+        shape.set(vertices);
+        return shape;
+    }
+
+    private static float getRegionWorldWidth(TextureRegion region) {
+        return Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
+    }
+
+    private static float getRegionWorldHeight(TextureRegion region) {
+        return Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
     }
 
     public TextureRegion getRegion() {
@@ -128,9 +223,68 @@ public class Wheel implements Disposable {
 
     @Override
     public void dispose() {
+        if (!mOwnsBody) {
+            // The vehicle takes care of its own body
+            return;
+        }
+        mBodyStateCache.unregister(mBodySlot);
         mGameWorld.getBox2DWorld().destroyBody(mBody);
     }
 
+    /** Called by Vehicle.saveState() */
+    void saveState(Snapshot snapshot) {
+        if (mOwnsBody) {
+            snapshot.putBody(mBody);
+        }
+        snapshot.putFloat(mSteerAngle);
+        snapshot.putBoolean(mCanDrift);
+        snapshot.putFloat(mMaxDrivingForce);
+        snapshot.putBoolean(mGripEnabled);
+        snapshot.putEnum(mMaterial);
+        snapshot.putBoolean(mDrifting);
+        snapshot.putInt(mSkidmarkCount);
+
+        int count = 0;
+        for (int idx = mSkidmarks.getBeginIndex(), end = mSkidmarks.getEndIndex();
+                idx != end;
+                idx = mSkidmarks.getNextIndex(idx)) {
+            ++count;
+        }
+        snapshot.putInt(count);
+        for (int idx = mSkidmarks.getBeginIndex(), end = mSkidmarks.getEndIndex();
+                idx != end;
+                idx = mSkidmarks.getNextIndex(idx)) {
+            Skidmark skidmark = mSkidmarks.get(idx);
+            snapshot.putFloat(skidmark.mPos.x);
+            snapshot.putFloat(skidmark.mPos.y);
+            snapshot.putBoolean(skidmark.mIsEnd);
+            snapshot.putFloat(skidmark.mRemainingLife);
+        }
+    }
+
+    /** Called by Vehicle.restoreState() */
+    void restoreState(Snapshot snapshot) {
+        if (mOwnsBody) {
+            snapshot.getBody(mBody);
+        }
+        mSteerAngle = snapshot.getFloat();
+        mCanDrift = snapshot.getBoolean();
+        mMaxDrivingForce = snapshot.getFloat();
+        mGripEnabled = snapshot.getBoolean();
+        mMaterial = snapshot.getEnum(Material.values());
+        mDrifting = snapshot.getBoolean();
+        mSkidmarkCount = snapshot.getInt();
+
+        mSkidmarks.clear();
+        for (int count = snapshot.getInt(); count > 0; --count) {
+            Skidmark skidmark = mSkidmarks.add();
+            skidmark.mPos.x = snapshot.getFloat();
+            skidmark.mPos.y = snapshot.getFloat();
+            skidmark.mIsEnd = snapshot.getBoolean();
+            skidmark.mRemainingLife = snapshot.getFloat();
+        }
+    }
+
     @SuppressWarnings("UnusedParameters")
     public void act(float delta) {
         updateGroundInfo();
@@ -138,7 +292,7 @@ public class Wheel implements Disposable {
             if (mGripEnabled) {
                 updateFriction();
             }
-            Box2DUtils.applyDrag(mBody, DRAG_FACTOR);
+            applyDrag();
         }
         for (int idx = mSkidmarks.getBeginIndex(), end = mSkidmarks.getEndIndex();
                 idx != end;
@@ -147,10 +301,32 @@ public class Wheel implements Disposable {
         }
     }
 
+    /** Returns the wheel body. This is the vehicle body if the wheel is a fixture of it */
     public Body getBody() {
         return mBody;
     }
 
+    public float getX() {
+        return getWorldCenter().x;
+    }
+
+    public float getY() {
+        return getWorldCenter().y;
+    }
+
+    /** Returns the angle of the wheel, in radians */
+    public float getAngleRad() {
+        return mBodyStateCache.getAngle(mBodySlot) + mSteerAngle;
+    }
+
+    /**
+     * Sets the angle of the wheel relative to the vehicle, in radians. Only used when the wheel is
+     * a fixture of the vehicle body, otherwise the vehicle steers the wheel through its joint
+     */
+    void setSteerAngle(float angle) {
+        mSteerAngle = angle;
+    }
+
     public float getGroundSpeed() {
         return mMaterial.getSpeed();
     }
@@ -163,36 +339,92 @@ public class Wheel implements Disposable {
         if (amount == 0) {
             return;
         }
-        final float currentSpeed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
+        final float currentSpeed = getSpeed() * Box2DUtils.MS_TO_KMH;
 
         final float limit =
                 1 - 0.2f * Interpolation.sineOut.apply(currentSpeed / GamePlay.instance.maxSpeed);
         amount *= limit;
 
         float force = mMaxDrivingForce * amount;
-        float angle = mBody.getAngle();
-        Vector2 pos = mBody.getWorldCenter();
+        float angle = getAngleRad();
+        Vector2 pos = getWorldCenter();
         mBody.applyForce(
                 force * MathUtils.cos(angle), force * MathUtils.sin(angle), pos.x, pos.y, true);
     }
 
     public long getCellId() {
-        return mGameWorld
-                .getTrack()
-                .getCellIdAt(mBody.getWorldCenter().x, mBody.getWorldCenter().y);
+        Vector2 center = getWorldCenter();
+        return mGameWorld.getTrack().getCellIdAt(center.x, center.y);
+    }
+
+    private Vector2 getWorldCenter() {
+        if (mOwnsBody) {
+            return mBodyStateCache.getWorldCenter(mBodySlot, mWorldCenter);
+        }
+        float angle = mBodyStateCache.getAngle(mBodySlot);
+        float cos = (float) Math.cos(angle);
+        float sin = (float) Math.sin(angle);
+        return mWorldCenter.set(
+                mBodyStateCache.getX(mBodySlot) + mLocalX * cos - mLocalY * sin,
+                mBodyStateCache.getY(mBodySlot) + mLocalX * sin + mLocalY * cos);
+    }
+
+    /** Returns the velocity of the wheel center */
+    private Vector2 getLinearVelocity(Vector2 out) {
+        mBodyStateCache.getLinearVelocity(mBodySlot, out);
+        if (mOwnsBody) {
+            return out;
+        }
+        // Velocity of a point of a rigid body: v + w x r, where r goes from the center of mass of
+        // the body to the point
+        Vector2 center = getWorldCenter();
+        Vector2 massCenter = mBodyStateCache.getWorldCenter(mBodySlot, mTmp);
+        float rx = center.x - massCenter.x;
+        float ry = center.y - massCenter.y;
+        float angularVelocity = mBodyStateCache.getAngularVelocity(mBodySlot);
+        return out.add(-angularVelocity * ry, angularVelocity * rx);
+    }
+
+    private float getSpeed() {
+        if (mOwnsBody) {
+            return mBodyStateCache.getSpeed(mBodySlot);
+        }
+        return getLinearVelocity(mVelocity).len();
+    }
+
+    private Vector2 getLateralVelocity(Vector2 out) {
+        if (mOwnsBody) {
+            return Box2DUtils.getLateralVelocity(mBodyStateCache, mBodySlot, out);
+        }
+        // Same as Box2DUtils.getLateralVelocity(), but using the wheel angle and velocity
+        getLinearVelocity(out);
+        float angle = getAngleRad();
+        float normalX = (float) -Math.sin(angle);
+        float normalY = (float) Math.cos(angle);
+        float v = out.x * normalX + out.y * normalY;
+        return out.set(normalX * v, normalY * v);
+    }
+
+    private void applyDrag() {
+        if (mOwnsBody) {
+            Box2DUtils.applyDrag(mBody, mBodyStateCache, mBodySlot, DRAG_FACTOR);
+            return;
+        }
+        Vector2 dragForce = getLinearVelocity(mVelocity).scl(-DRAG_FACTOR);
+        Vector2 center = getWorldCenter();
+        mBody.applyForce(dragForce.x, dragForce.y, center.x, center.y, true);
     }
 
     private void updateFriction() {
         // Kill lateral velocity
-        Vector2 impulse =
-                Box2DUtils.getLateralVelocity(mBody).scl(-mBody.getMass()).scl(mMaterial.getGrip());
+        Vector2 impulse = getLateralVelocity(mImpulse).scl(-mMass).scl(mMaterial.getGrip());
         float maxImpulse =
                 (float) GamePlay.instance.maxLateralImpulse / (mVehicle.isBraking() ? 0.2f : 1);
         if (mMaterial != Material.ICE && mCanDrift && impulse.len() > maxImpulse) {
             // Drift
             mDrifting = true;
             if (mSkidmarkCount == 0) {
-                mSkidmarks.add().init(mBody.getWorldCenter());
+                mSkidmarks.add().init(getWorldCenter());
             }
             mSkidmarkCount = (mSkidmarkCount + 1) % SKIDMARK_INTERVAL;
             maxImpulse = Math.max(maxImpulse, impulse.len() - DRIFT_IMPULSE_REDUCTION);
@@ -201,10 +433,13 @@ public class Wheel implements Disposable {
             mSkidmarks.add().initAsEnd();
             mDrifting = false;
         }
-        mBody.applyLinearImpulse(impulse, mBody.getWorldCenter(), true);
+        // Go through the cache, so that applyDrag() and the next wheels of the vehicle see the
+        // new velocity
+        mBodyStateCache.applyLinearImpulse(mBodySlot, impulse, getWorldCenter());
 
         // Kill angular velocity
-        mBody.applyAngularImpulse(0.1f * mBody.getInertia() * -mBody.getAngularVelocity(), true);
+        mBodyStateCache.applyAngularImpulse(
+                mBodySlot, 0.1f * mInertia * -mBodyStateCache.getAngularVelocity(mBodySlot));
     }
 
     private void updateGroundInfo() {
@@ -212,7 +447,7 @@ public class Wheel implements Disposable {
             mMaterial = Material.AIR;
             return;
         }
-        mMaterial = mGameWorld.getTrack().getMaterialAt(mBody.getWorldCenter());
+        mMaterial = mGameWorld.getTrack().getMaterialAt(getWorldCenter());
     }
 
     public void setCanDrift(boolean canDrift) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+
+/**
+ * Dispatches Box2D contacts to the Collidable user data of the bodies, but only for the pairs of
+ * collision categories registered for the callback.
+ *
+ * <p>preSolve() and postSolve() are called for every touching pair at each step, so skipping pairs
+ * nobody is interested in avoids reading the bodies and calling all their Collidable components.
+ */
+class ContactDispatcher implements ContactListener {
+    enum Callback {
+        BEGIN_CONTACT,
+        END_CONTACT,
+        PRE_SOLVE,
+        POST_SOLVE
+    }
+
+    // Categories are bit fields, they must fit in this number of bits
+    private static final int CATEGORY_BITS = 4;
+    private static final int CATEGORY_COUNT = 1 << CATEGORY_BITS;
+
+    private static final int CALLBACK_COUNT = Callback.values().length;
+
+    // mMasks[callback][categoryA] is the mask of categoryB values for which a contact must be
+    // dispatched
+    private final int[][] mMasks = new int[CALLBACK_COUNT][CATEGORY_COUNT];
+
+    private final int[] mCallCounts = new int[CALLBACK_COUNT];
+    private final int[] mDispatchCounts = new int[CALLBACK_COUNT];
+
+    /** Dispatch callback for contacts between categoryA and categoryB fixtures */
+    void register(Callback callback, int categoryA, int categoryB) {
+        int[] masks = mMasks[callback.ordinal()];
+        for (int category = 0; category < CATEGORY_COUNT; ++category) {
+            if ((category & categoryA) != 0) {
+                masks[category] |= categoryB;
+            }
+            if ((category & categoryB) != 0) {
+                masks[category] |= categoryA;
+            }
+        }
+    }
+
+    /** How many times callback has been called by Box2D since the last resetCounters() */
+    int getCallCount(Callback callback) {
+        return mCallCounts[callback.ordinal()];
+    }
+
+    /** How many of these calls have been dispatched to the Collidable objects */
+    int getDispatchCount(Callback callback) {
+        return mDispatchCounts[callback.ordinal()];
+    }
+
+    void resetCounters() {
+        for (int idx = 0; idx < CALLBACK_COUNT; ++idx) {
+            mCallCounts[idx] = 0;
+            mDispatchCounts[idx] = 0;
+        }
+    }
+
+    @Override
+    public void beginContact(Contact contact) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        if (!mustDispatch(Callback.BEGIN_CONTACT, fixtureA, fixtureB)) {
+            return;
+        }
+        Object userA = fixtureA.getBody().getUserData();
+        Object userB = fixtureB.getBody().getUserData();
+        if (userA instanceof Collidable) {
+            ((Collidable) userA).beginContact(contact, fixtureB);
+        }
+        if (userB instanceof Collidable) {
+            ((Collidable) userB).beginContact(contact, fixtureA);
+        }
+    }
+
+    @Override
+    public void endContact(Contact contact) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        if (!mustDispatch(Callback.END_CONTACT, fixtureA, fixtureB)) {
+            return;
+        }
+        Object userA = fixtureA.getBody().getUserData();
+        Object userB = fixtureB.getBody().getUserData();
+        if (userA instanceof Collidable) {
+            ((Collidable) userA).endContact(contact, fixtureB);
+        }
+        if (userB instanceof Collidable) {
+            ((Collidable) userB).endContact(contact, fixtureA);
+        }
+    }
+
+    @Override
+    public void preSolve(Contact contact, Manifold oldManifold) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        if (!mustDispatch(Callback.PRE_SOLVE, fixtureA, fixtureB)) {
+            return;
+        }
+        Object userA = fixtureA.getBody().getUserData();
+        Object userB = fixtureB.getBody().getUserData();
+        if (userA instanceof Collidable) {
+            ((Collidable) userA).preSolve(contact, fixtureB, oldManifold);
+        }
+        if (userB instanceof Collidable) {
+            ((Collidable) userB).preSolve(contact, fixtureA, oldManifold);
+        }
+    }
+
+    @Override
+    public void postSolve(Contact contact, ContactImpulse impulse) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        if (!mustDispatch(Callback.POST_SOLVE, fixtureA, fixtureB)) {
+            return;
+        }
+        Object userA = fixtureA.getBody().getUserData();
+        Object userB = fixtureB.getBody().getUserData();
+        if (userA instanceof Collidable) {
+            ((Collidable) userA).postSolve(contact, fixtureB, impulse);
+        }
+        if (userB instanceof Collidable) {
+            ((Collidable) userB).postSolve(contact, fixtureA, impulse);
+        }
+    }
+
+    private boolean mustDispatch(Callback callback, Fixture fixtureA, Fixture fixtureB) {
+        int idx = callback.ordinal();
+        ++mCallCounts[idx];
+        int categoryA = Box2DUtils.getCategoryBits(fixtureA);
+        int categoryB = Box2DUtils.getCategoryBits(fixtureB);
+        // Be safe with categories we do not know about
+        boolean dispatch =
+                categoryA >= CATEGORY_COUNT
+                        || categoryB >= CATEGORY_COUNT
+                        || (mMasks[idx][categoryA] & categoryB) != 0;
+        if (dispatch) {
+            ++mDispatchCounts[idx];
+        }
+        return dispatch;
+    }
+}
@@ -21,10 +21,11 @@ package com.agateau.pixelwheels.racescreen;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.SoundAtlas;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.math.MathUtils;
 
 /** Handles the non-visible part of the count down */
-public class CountDown {
+public class CountDown implements Snapshot.Savable {
     private static final int START = 3;
     private static final float TICK_DURATION = 0.75f;
 
@@ -54,6 +55,18 @@ public class CountDown {
         return mTime < -1;
     }
 
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putFloat(mTime);
+        snapshot.putBoolean(mFirstCall);
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        mTime = snapshot.getFloat();
+        mFirstCall = snapshot.getBoolean();
+    }
+
     public void act(float delta) {
         if (isFinished()) {
             return;
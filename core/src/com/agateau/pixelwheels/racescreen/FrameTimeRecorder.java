@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Records the time taken by each frame of a race, to compare rendering modes
+ *
+ * <p>Two times are recorded: the frame time, which is the delta between two frames and includes
+ * waiting for the GPU and for vsync, and the render time, which is the CPU time spent in
+ * GameRenderer.render().
+ */
+class FrameTimeRecorder {
+    private final String mDescription;
+    private final FloatArray mFrameTimes = new FloatArray(3600);
+    private final FloatArray mRenderTimes = new FloatArray(3600);
+    private long mRenderStartTime;
+
+    /** description tells what is measured, it is used as a prefix for the log line */
+    FrameTimeRecorder(String description) {
+        mDescription = description;
+    }
+
+    void beginRender() {
+        mRenderStartTime = TimeUtils.nanoTime();
+    }
+
+    void endRender(float delta) {
+        mRenderTimes.add((TimeUtils.nanoTime() - mRenderStartTime) / 1e6f);
+        mFrameTimes.add(delta * 1000);
+    }
+
+    /** Logs the statistics of the recorded frames */
+    void log() {
+        if (mFrameTimes.size == 0) {
+            return;
+        }
+        mFrameTimes.sort();
+        mRenderTimes.sort();
+        NLog.i(
+                "%s: %d frames, frame time (ms): mean %.2f, p50 %.2f, p95 %.2f, max %.2f;"
+                        + " render time (ms): mean %.2f, p50 %.2f, p95 %.2f, max %.2f",
+                mDescription,
+                mFrameTimes.size,
+                getMean(mFrameTimes),
+                getPercentile(mFrameTimes, 50),
+                getPercentile(mFrameTimes, 95),
+                mFrameTimes.peek(),
+                getMean(mRenderTimes),
+                getPercentile(mRenderTimes, 50),
+                getPercentile(mRenderTimes, 95),
+                mRenderTimes.peek());
+    }
+
+    private static float getMean(FloatArray values) {
+        float sum = 0;
+        for (int idx = 0; idx < values.size; ++idx) {
+            sum += values.get(idx);
+        }
+        return sum / values.size;
+    }
+
+    /** values must be sorted */
+    private static float getPercentile(FloatArray values, int percentile) {
+        int idx = (values.size - 1) * percentile / 100;
+        return values.get(idx);
+    }
+}
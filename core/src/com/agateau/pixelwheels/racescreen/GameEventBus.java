@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.racer.Racer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Delivers gameplay events to the objects which subscribed to them, so that they do not have to
+ * poll the state of the racers every frame
+ *
+ * <p>post() queues an event, dispatch() delivers the queued events. GameWorldImpl calls dispatch()
+ * once per frame, at the end of act(), so listeners see the state of the world at the end of the
+ * frame. Events posted while dispatching are delivered by the same dispatch() call.
+ *
+ * <p>Event objects are preallocated and reused: listeners must not keep them. Events nobody
+ * subscribed to are not queued.
+ */
+public class GameEventBus {
+    private static final int INITIAL_CAPACITY = 32;
+
+    public enum Type {
+        /** The lap count of the racer changed. intValue: the lap count */
+        LAP_COUNT_CHANGED,
+        /** intValue: the new rank of the racer */
+        RANK_CHANGED,
+        /** object: the Bonus */
+        BONUS_PICKED,
+        /** The racer no longer has a bonus: it has been used, lost or discarded */
+        BONUS_USED,
+        /** The vehicle entered a different material. object: the Material */
+        MATERIAL_CHANGED,
+        ENTERED_HOLE,
+        /**
+         * The vehicle hit another vehicle or a wall fast enough to be heard. Posted at most once
+         * per frame and racer
+         */
+        COLLISION,
+        TURBO_TRIGGERED
+    }
+
+    public static class Event {
+        public Type type;
+        public Racer racer;
+        public int intValue;
+        public Object object;
+    }
+
+    public interface Listener {
+        void onEvent(Event event);
+    }
+
+    private static class Listeners {
+        final Array<Listener> all = new Array<>();
+        final ObjectMap<Racer, Array<Listener>> byRacer = new ObjectMap<>();
+    }
+
+    private final Listeners[] mListeners;
+    private final Array<Event> mEvents = new Array<>(INITIAL_CAPACITY);
+    private int mEventCount = 0;
+    private int mDispatchedCount = 0;
+
+    public GameEventBus() {
+        Type[] types = Type.values();
+        mListeners = new Listeners[types.length];
+        for (int idx = 0; idx < types.length; ++idx) {
+            mListeners[idx] = new Listeners();
+        }
+        for (int idx = 0; idx < INITIAL_CAPACITY; ++idx) {
+            mEvents.add(new Event());
+        }
+    }
+
+    /** Subscribes listener to all the events of type */
+    public void subscribe(Type type, Listener listener) {
+        mListeners[type.ordinal()].all.add(listener);
+    }
+
+    /** Subscribes listener to the events of type about racer */
+    public void subscribe(Type type, Racer racer, Listener listener) {
+        ObjectMap<Racer, Array<Listener>> byRacer = mListeners[type.ordinal()].byRacer;
+        Array<Listener> listeners = byRacer.get(racer);
+        if (listeners == null) {
+            listeners = new Array<>();
+            byRacer.put(racer, listeners);
+        }
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Type type, Listener listener) {
+        mListeners[type.ordinal()].all.removeValue(listener, true);
+    }
+
+    public void unsubscribe(Type type, Racer racer, Listener listener) {
+        Array<Listener> listeners = mListeners[type.ordinal()].byRacer.get(racer);
+        if (listeners != null) {
+            listeners.removeValue(listener, true);
+        }
+    }
+
+    public void post(Type type, Racer racer) {
+        post(type, racer, 0, null);
+    }
+
+    public void post(Type type, Racer racer, int intValue) {
+        post(type, racer, intValue, null);
+    }
+
+    public void post(Type type, Racer racer, Object object) {
+        post(type, racer, 0, object);
+    }
+
+    private void post(Type type, Racer racer, int intValue, Object object) {
+        if (!hasListeners(type, racer)) {
+            return;
+        }
+        if (mEventCount == mEvents.size) {
+            mEvents.add(new Event());
+        }
+        Event event = mEvents.get(mEventCount++);
+        event.type = type;
+        event.racer = racer;
+        event.intValue = intValue;
+        event.object = object;
+    }
+
+    /** Delivers the queued events */
+    public void dispatch() {
+        // Do not cache mEventCount: listeners may post events
+        for (int idx = 0; idx < mEventCount; ++idx) {
+            Event event = mEvents.get(idx);
+            Listeners listeners = mListeners[event.type.ordinal()];
+            deliver(listeners.all, event);
+            if (event.racer != null) {
+                deliver(listeners.byRacer.get(event.racer), event);
+            }
+            // Do not keep references to objects which may be gone by the next frame
+            event.racer = null;
+            event.object = null;
+        }
+        mDispatchedCount = mEventCount;
+        mEventCount = 0;
+    }
+
+    /** Number of events delivered by the last dispatch() call */
+    public int getDispatchedCount() {
+        return mDispatchedCount;
+    }
+
+    private boolean hasListeners(Type type, Racer racer) {
+        Listeners listeners = mListeners[type.ordinal()];
+        if (listeners.all.size > 0) {
+            return true;
+        }
+        if (racer == null) {
+            return false;
+        }
+        Array<Listener> racerListeners = listeners.byRacer.get(racer);
+        return racerListeners != null && racerListeners.size > 0;
+    }
+
+    private static void deliver(Array<Listener> listeners, Event event) {
+        if (listeners == null) {
+            return;
+        }
+        for (int idx = 0; idx < listeners.size; ++idx) {
+            listeners.get(idx).onEvent(event);
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package com.agateau.pixelwheels.racescreen;
 
+import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
@@ -27,40 +28,105 @@ import com.agateau.pixelwheels.debug.DebugShapeMap;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.map.WaypointStore;
+import com.agateau.pixelwheels.obstacles.StaticObstacles;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.SkidmarksRenderer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.HdpiUtils;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
 
-/** Responsible for rendering the game world */
-public class GameRenderer {
+/**
+ * Responsible for rendering the game world
+ *
+ * <p>The world can be rendered in one or more views. All views share the tile renderer. When there
+ * is more than one view, the objects visible in at least one view are listed once per frame, then
+ * each view only draws the objects and skidmarks which are close to its rect.
+ */
+public class GameRenderer implements Disposable {
+    /** How to render a race with more than one player */
+    public enum MultiPlayerMode {
+        /** One view, zoomed out to contain all players */
+        ZOOM_OUT,
+        /** One view per player */
+        SPLIT_SCREEN
+    }
+
+    // Objects can draw things away from their position (for example the target indicator of a
+    // missile), so keep them a bit longer than strictly necessary
+    private static final float CULLING_MARGIN = 40;
+
     private final Track mTrack;
     private final OrthogonalTiledMapRenderer mRenderer;
     private final Box2DDebugRenderer mDebugRenderer;
     private final Batch mBatch;
-    private final OrthographicCamera mCamera;
     private final ShapeRenderer mShapeRenderer = new ShapeRenderer();
     private final GameWorld mWorld;
-    private final CameraUpdater mCameraUpdater;
+    private final SkidmarksRenderer mSkidmarksRenderer;
+    private final StaticObstaclesRenderer mStaticObstaclesRenderer;
 
     private final int[] mBackgroundLayerFirstIndexes = {0};
     private final int[] mExtraBackgroundLayerIndexes;
     private final int[] mForegroundLayerIndexes;
 
-    private int mScreenX;
-    private int mScreenY;
-    private int mScreenWidth;
-    private int mScreenHeight;
+    private final Array<View> mViews = new Array<>();
+    private final Array<GameObject> mVisibleGameObjects = new Array<>();
+    private final Rectangle mVisibleRect = new Rectangle();
+
     private final PerformanceCounter mTilePerformanceCounter;
     private final PerformanceCounter mGameObjectPerformanceCounter;
 
-    public GameRenderer(GameWorld world, Batch batch, PerformanceCounters counters) {
+    private static class View {
+        final OrthographicCamera camera = new OrthographicCamera();
+        final CameraUpdater cameraUpdater;
+        final Rectangle rect = new Rectangle();
+        final Rectangle cullingRect = new Rectangle();
+        int screenX;
+        int screenY;
+        int screenWidth;
+        int screenHeight;
+
+        View(CameraUpdater cameraUpdater) {
+            this.cameraUpdater = cameraUpdater;
+        }
+
+        void updateRect() {
+            float width = camera.viewportWidth * camera.zoom;
+            float height = camera.viewportHeight * camera.zoom;
+            rect.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+            cullingRect.set(
+                    rect.x - CULLING_MARGIN,
+                    rect.y - CULLING_MARGIN,
+                    rect.width + 2 * CULLING_MARGIN,
+                    rect.height + 2 * CULLING_MARGIN);
+        }
+
+        boolean containsScreenPoint(float x, float y) {
+            return x >= screenX
+                    && x < screenX + screenWidth
+                    && y >= screenY
+                    && y < screenY + screenHeight;
+        }
+    }
+
+    public GameRenderer(
+            GameWorld world,
+            Assets assets,
+            Batch batch,
+            MultiPlayerMode multiPlayerMode,
+            PerformanceCounters counters) {
         mDebugRenderer = new Box2DDebugRenderer();
         mWorld = world;
 
@@ -70,14 +136,13 @@ public class GameRenderer {
         mForegroundLayerIndexes = mTrack.getForegroundLayerIndexes();
 
         mBatch = batch;
-        mCamera = new OrthographicCamera();
-        boolean singlePlayer = mWorld.getPlayerRacers().size == 1;
-        mCameraUpdater =
-                GamePlay.instance.freeCamera
-                        ? new FreeCameraUpdater(mWorld)
-                        : singlePlayer
-                                ? new SinglePlayerCameraUpdater(mWorld)
-                                : new MultiPlayerCameraUpdater(mWorld);
+        mSkidmarksRenderer = new SkidmarksRenderer(assets);
+        StaticObstacles staticObstacles = mWorld.getStaticObstacles();
+        mStaticObstaclesRenderer =
+                staticObstacles.getItems().isEmpty()
+                        ? null
+                        : new StaticObstaclesRenderer(staticObstacles);
+        createViews(multiPlayerMode);
         mRenderer =
                 new OrthogonalTiledMapRenderer(mTrack.getMap(), Constants.UNIT_FOR_PIXEL, mBatch);
 
@@ -91,6 +156,21 @@ public class GameRenderer {
         }
     }
 
+    private void createViews(MultiPlayerMode multiPlayerMode) {
+        Array<Racer> playerRacers = mWorld.getPlayerRacers();
+        if (GamePlay.instance.freeCamera) {
+            mViews.add(new View(new FreeCameraUpdater(mWorld)));
+        } else if (playerRacers.size == 1) {
+            mViews.add(new View(new SinglePlayerCameraUpdater(mWorld, playerRacers.first())));
+        } else if (multiPlayerMode == MultiPlayerMode.SPLIT_SCREEN) {
+            for (Racer racer : playerRacers) {
+                mViews.add(new View(new SinglePlayerCameraUpdater(mWorld, racer)));
+            }
+        } else {
+            mViews.add(new View(new MultiPlayerCameraUpdater(mWorld)));
+        }
+    }
+
     private void setupWaypointDebugShape() {
         DebugShapeMap.put(
                 "waypoints",
@@ -101,28 +181,88 @@ public class GameRenderer {
                     for (int idx = 0; idx < store.getCount(); ++idx) {
                         renderer.setColor(idx % 2, 1, 0, 1);
                         int prevIdx = store.getPreviousIndex(idx);
-                        renderer.line(store.getWaypoint(prevIdx), store.getWaypoint(idx));
+                        renderer.line(
+                                store.getWaypointX(prevIdx),
+                                store.getWaypointY(prevIdx),
+                                store.getWaypointX(idx),
+                                store.getWaypointY(idx));
                     }
                     renderer.end();
                 });
     }
 
+    /** Split the screen rect in a grid of views, as square as possible */
     public void setScreenRect(int x, int y, int width, int height) {
-        mScreenX = x;
-        mScreenY = y;
-        mScreenWidth = width;
-        mScreenHeight = height;
-        mCameraUpdater.init(mCamera, width, height);
+        int columns = MathUtils.ceil((float) Math.sqrt(mViews.size));
+        int rows = MathUtils.ceil((float) mViews.size / columns);
+        int viewWidth = width / columns;
+        int viewHeight = height / rows;
+        for (int idx = 0; idx < mViews.size; ++idx) {
+            View view = mViews.get(idx);
+            int column = idx % columns;
+            // Start from the top, OpenGL coordinates go upward
+            int row = rows - 1 - idx / columns;
+            view.screenX = x + column * viewWidth;
+            view.screenY = y + row * viewHeight;
+            view.screenWidth = viewWidth;
+            view.screenHeight = viewHeight;
+            view.cameraUpdater.init(view.camera, viewWidth, viewHeight);
+        }
     }
 
     public void onAboutToStart() {
-        updateCamera(CameraUpdater.IMMEDIATE);
+        for (View view : mViews) {
+            view.cameraUpdater.update(CameraUpdater.IMMEDIATE);
+        }
     }
 
     public void render(float delta) {
-        HdpiUtils.glViewport(mScreenX, mScreenY, mScreenWidth, mScreenHeight);
-        updateCamera(delta);
-        updateMapRendererCamera();
+        for (View view : mViews) {
+            view.cameraUpdater.update(delta);
+            view.updateRect();
+        }
+        if (isSplitScreen()) {
+            updateVisibleGameObjects();
+        }
+
+        for (View view : mViews) {
+            renderView(view);
+        }
+    }
+
+    private boolean isSplitScreen() {
+        return mViews.size > 1;
+    }
+
+    /**
+     * Fill mVisibleGameObjects with the objects visible in at least one view. This is shared by all
+     * views so that they only have to go through a subset of the objects.
+     */
+    private void updateVisibleGameObjects() {
+        mVisibleRect.set(mViews.first().rect);
+        for (int idx = 1; idx < mViews.size; ++idx) {
+            mVisibleRect.merge(mViews.get(idx).rect);
+        }
+        float left = mVisibleRect.x - CULLING_MARGIN;
+        float bottom = mVisibleRect.y - CULLING_MARGIN;
+        float right = mVisibleRect.x + mVisibleRect.width + CULLING_MARGIN;
+        float top = mVisibleRect.y + mVisibleRect.height + CULLING_MARGIN;
+
+        mVisibleGameObjects.clear();
+        for (GameObject object : mWorld.getActiveGameObjects()) {
+            float x = object.getX();
+            float y = object.getY();
+            if (x >= left && x <= right && y >= bottom && y <= top) {
+                mVisibleGameObjects.add(object);
+            }
+        }
+    }
+
+    private void renderView(View view) {
+        HdpiUtils.glViewport(view.screenX, view.screenY, view.screenWidth, view.screenHeight);
+        OrthographicCamera camera = view.camera;
+        mRenderer.setView(
+                camera.combined, view.rect.x, view.rect.y, view.rect.width, view.rect.height);
 
         mTilePerformanceCounter.start();
         // Reset the color in case it was modified by the previous frame
@@ -136,10 +276,20 @@ public class GameRenderer {
         mTilePerformanceCounter.stop();
 
         mGameObjectPerformanceCounter.start();
+        // With a single view, culling would cost more than it saves
+        Rectangle cullingRect = isSplitScreen() ? view.cullingRect : null;
+        Array<GameObject> gameObjects =
+                cullingRect == null ? mWorld.getActiveGameObjects() : mVisibleGameObjects;
         mBatch.begin();
+        drawSkidmarks(cullingRect);
         for (ZLevel z : ZLevel.values()) {
-            for (GameObject object : mWorld.getActiveGameObjects()) {
-                object.draw(mBatch, z);
+            if (mStaticObstaclesRenderer != null) {
+                drawStaticObstacles(camera, z);
+            }
+            for (GameObject object : gameObjects) {
+                if (cullingRect == null || cullingRect.contains(object.getX(), object.getY())) {
+                    object.draw(mBatch, z);
+                }
             }
 
             if (z == ZLevel.OBSTACLES && mForegroundLayerIndexes.length > 0) {
@@ -158,51 +308,85 @@ public class GameRenderer {
         mBatch.end();
 
         if (Debug.instance.showDebugLayer) {
-            mShapeRenderer.setProjectionMatrix(mCamera.combined);
-            if (Debug.instance.drawTileCorners) {
-                mShapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
-                mShapeRenderer.setColor(1, 1, 1, 1);
-                float tileW = mTrack.getTileWidth();
-                float tileH = mTrack.getTileHeight();
-                float mapWidth = mTrack.getMapWidth();
-                float mapHeight = mTrack.getMapHeight();
-                for (float y = 0; y < mapHeight; y += tileH) {
-                    for (float x = 0; x < mapWidth; x += tileW) {
-                        mShapeRenderer.rect(
-                                x, y, Constants.UNIT_FOR_PIXEL, Constants.UNIT_FOR_PIXEL);
-                    }
-                }
-                mShapeRenderer.end();
-            }
-
-            for (DebugShapeMap.Shape shape : DebugShapeMap.values()) {
-                shape.draw(mShapeRenderer);
-            }
+            renderDebugLayer(camera);
+        }
+    }
 
-            mDebugRenderer.render(mWorld.getBox2DWorld(), mCamera.combined);
+    private void drawStaticObstacles(OrthographicCamera camera, ZLevel z) {
+        if (z != ZLevel.SHADOWS && z != ZLevel.OBSTACLES) {
+            return;
+        }
+        mBatch.end();
+        if (z == ZLevel.SHADOWS) {
+            mStaticObstaclesRenderer.drawShadows(camera.combined);
+        } else {
+            mStaticObstaclesRenderer.drawObstacles(camera.combined);
         }
+        mBatch.begin();
     }
 
-    private void updateCamera(float delta) {
-        mCameraUpdater.update(delta);
+    /**
+     * Skidmarks are drawn in a single layer, independently of the culling of their racers: they can
+     * still be visible long after the racer which created them is gone. If cullingRect is not null,
+     * only the skidmarks inside it are drawn.
+     */
+    private void drawSkidmarks(Rectangle cullingRect) {
+        for (Racer racer : mWorld.getRacers()) {
+            for (Vehicle.WheelInfo info : racer.getVehicle().getWheelInfos()) {
+                mSkidmarksRenderer.draw(mBatch, info.wheel.getSkidmarks(), cullingRect);
+            }
+        }
     }
 
-    private void updateMapRendererCamera() {
-        float width = mCamera.viewportWidth * mCamera.zoom;
-        float height = mCamera.viewportHeight * mCamera.zoom;
-        mRenderer.setView(
-                mCamera.combined,
-                mCamera.position.x - width / 2,
-                mCamera.position.y - height / 2,
-                width,
-                height);
+    private void renderDebugLayer(OrthographicCamera camera) {
+        mShapeRenderer.setProjectionMatrix(camera.combined);
+        if (Debug.instance.drawTileCorners) {
+            mShapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+            mShapeRenderer.setColor(1, 1, 1, 1);
+            float tileW = mTrack.getTileWidth();
+            float tileH = mTrack.getTileHeight();
+            float mapWidth = mTrack.getMapWidth();
+            float mapHeight = mTrack.getMapHeight();
+            for (float y = 0; y < mapHeight; y += tileH) {
+                for (float x = 0; x < mapWidth; x += tileW) {
+                    mShapeRenderer.rect(x, y, Constants.UNIT_FOR_PIXEL, Constants.UNIT_FOR_PIXEL);
+                }
+            }
+            mShapeRenderer.end();
+        }
+
+        for (DebugShapeMap.Shape shape : DebugShapeMap.values()) {
+            shape.draw(mShapeRenderer);
+        }
+
+        mDebugRenderer.render(mWorld.getBox2DWorld(), camera.combined);
     }
 
     private final Vector3 sTmp3 = new Vector3();
 
+    /**
+     * Maps screen coordinates to world coordinates, using the view which contains them. Screen
+     * coordinates go downward, view coordinates go upward.
+     */
     public void mapFromScreen(Vector2 coord) {
+        View view = mViews.first();
+        float glY = Gdx.graphics.getHeight() - 1 - coord.y;
+        for (View candidate : mViews) {
+            if (candidate.containsScreenPoint(coord.x, glY)) {
+                view = candidate;
+                break;
+            }
+        }
         sTmp3.set(coord, 0);
-        mCamera.unproject(sTmp3);
+        view.camera.unproject(
+                sTmp3, view.screenX, view.screenY, view.screenWidth, view.screenHeight);
         coord.set(sTmp3.x, sTmp3.y);
     }
+
+    @Override
+    public void dispose() {
+        if (mStaticObstaclesRenderer != null) {
+            mStaticObstaclesRenderer.dispose();
+        }
+    }
 }
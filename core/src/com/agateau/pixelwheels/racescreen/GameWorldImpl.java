@@ -20,48 +20,67 @@ package com.agateau.pixelwheels.racescreen;
 
 import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.PwGame;
 import com.agateau.pixelwheels.bonus.Bonus;
 import com.agateau.pixelwheels.bonus.BonusPool;
 import com.agateau.pixelwheels.bonus.BonusSpot;
+import com.agateau.pixelwheels.bonus.Bullet;
 import com.agateau.pixelwheels.bonus.GunBonus;
+import com.agateau.pixelwheels.bonus.HitscanBullet;
+import com.agateau.pixelwheels.bonus.Mine;
 import com.agateau.pixelwheels.bonus.MineBonus;
+import com.agateau.pixelwheels.bonus.Missile;
 import com.agateau.pixelwheels.bonus.MissileBonus;
 import com.agateau.pixelwheels.bonus.TurboBonus;
+import com.agateau.pixelwheels.debug.Debug;
+import com.agateau.pixelwheels.debug.DebugStringMap;
+import com.agateau.pixelwheels.gameobjet.AnimationObject;
 import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.gameobjet.GameObjectStore;
 import com.agateau.pixelwheels.gamesetup.GameInfo;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.obstacles.ObstacleCreator;
 import com.agateau.pixelwheels.obstacles.ObstacleDef;
+import com.agateau.pixelwheels.obstacles.StaticObstacles;
 import com.agateau.pixelwheels.racer.AIPilot;
+import com.agateau.pixelwheels.racer.AIPlanner;
 import com.agateau.pixelwheels.racer.LapPositionComponent;
 import com.agateau.pixelwheels.racer.PlayerPilot;
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.RacerSpatialIndex;
 import com.agateau.pixelwheels.racer.Vehicle;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.stats.TrackResult;
 import com.agateau.pixelwheels.stats.TrackStats;
+import com.agateau.pixelwheels.utils.BodyRecycler;
+import com.agateau.pixelwheels.utils.BodyStateCache;
+import com.agateau.pixelwheels.utils.ContactResetter;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.agateau.pixelwheels.utils.StaticGeometry;
 import com.agateau.pixelwheels.vehicledef.VehicleCreator;
 import com.agateau.pixelwheels.vehicledef.VehicleDef;
 import com.agateau.utils.Assert;
+import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
-import com.badlogic.gdx.utils.Sort;
 import java.util.Comparator;
+import java.util.Locale;
 import java.util.Scanner;
 
-public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
+public class GameWorldImpl implements Disposable, GameWorld {
     private static final Racer.RecordRanks DEBUG_RECORD_RANKS = parseFinishedOverlayDebugScreen();
 
     private final PwGame mGame;
@@ -69,34 +88,74 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
     private final CountDown mCountDown;
 
     private final World mBox2DWorld;
+    private final BodyStateCache mBodyStateCache = new BodyStateCache();
+    private final BodyRecycler mBodyRecycler;
+    private final StaticObstacles mStaticObstacles = new StaticObstacles();
+    private StaticGeometry mStaticGeometry;
+    private final ContactDispatcher mContactDispatcher = new ContactDispatcher();
+    private final ContactResetter mContactResetter;
+    private final RandomXS128 mRandom = new RandomXS128();
+    private long mRandomSeed;
     private float mTimeAccumulator = 0;
 
     @SuppressWarnings("rawtypes")
     private final Array<BonusPool> mBonusPools = new Array<>();
+    // All the pools the world uses, for the debug HUD
+    private final Array<GamePool<?>> mPools = new Array<>();
 
     private final Array<Racer> mRacers = new Array<>();
     private final Array<Racer> mPlayerRacers = new Array<>();
+    // Rank of each racer, updated each time mRacers changes, so that getRacerRank() does not have
+    // to look for the racer in mRacers
+    private final ObjectIntMap<Racer> mRacerRanks = new ObjectIntMap<>();
+    private final RacerSpatialIndex mRacerIndex;
+    private final GameEventBus mEventBus = new GameEventBus();
     private State mState = GameWorld.State.COUNTDOWN;
 
-    private final Array<GameObject> mActiveGameObjects = new Array<>();
+    private final GameObjectStore mGameObjects = new GameObjectStore();
+
+    // Classes of the short-lived game objects, and the factories used to create them again when
+    // restoring snapshots. Snapshots refer to them by their index
+    private final Array<Class<? extends GameObject>> mSnapshotClasses = new Array<>();
+    private final Array<GamePool.Factory<GameObject>> mSnapshotFactories = new Array<>();
+    // The other game objects, in the order they have been added. They stay in the world until it
+    // is disposed
+    private final Array<GameObject> mPersistentObjects = new Array<>();
+    // Assets game objects refer to, see AnimationObject.saveState()
+    private final Array<Object> mSnapshotAssets = new Array<>();
+    // What Snapshot.putReference() can refer to: persistent objects, short-lived objects, then
+    // assets
+    private final Array<Object> mSnapshotReferences = new Array<>();
+    private final AIPlanner mAIPlanner = new AIPlanner();
 
     private final PerformanceCounter mBox2DPerformanceCounter;
+    private final PerformanceCounter mAIPlanPerformanceCounter;
     private final PerformanceCounter mGameObjectPerformanceCounter;
+    private final PhysicsQualityGovernor mPhysicsQualityGovernor;
 
-    GameWorldImpl(PwGame game, GameInfo gameInfo, PerformanceCounters performanceCounters) {
+    public GameWorldImpl(PwGame game, GameInfo gameInfo, PerformanceCounters performanceCounters) {
         mGame = game;
+        setRandomSeed(MathUtils.random.nextLong());
         mBox2DWorld = new World(new Vector2(0, 0), true);
-        mBox2DWorld.setContactListener(this);
+        mBodyRecycler = new BodyRecycler(mBox2DWorld);
+        mContactResetter = new ContactResetter(mBox2DWorld);
+        setupSnapshotClasses();
+        setupContactDispatcher();
+        mBox2DWorld.setContactListener(mContactDispatcher);
         mTrack = gameInfo.getTrack();
         mTrack.init();
+        mRacerIndex = new RacerSpatialIndex(mTrack.getMapWidth(), mTrack.getMapHeight());
         mCountDown = new CountDown(this, game.getAudioManager(), game.getAssets().soundAtlas);
 
         mBox2DPerformanceCounter = performanceCounters.add("- box2d");
+        mAIPlanPerformanceCounter = performanceCounters.add("- ai plan");
         mGameObjectPerformanceCounter = performanceCounters.add("- g.o");
+        mPhysicsQualityGovernor = new PhysicsQualityGovernor(mBox2DPerformanceCounter);
         setupRacers(gameInfo.getEntrants());
         setupObstacles();
         setupBonusSpots();
         setupBonusPools();
+        warmUpPools();
     }
 
     @Override
@@ -109,6 +168,71 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         return mBox2DWorld;
     }
 
+    @Override
+    public BodyStateCache getBodyStateCache() {
+        return mBodyStateCache;
+    }
+
+    @Override
+    public BodyRecycler getBodyRecycler() {
+        return mBodyRecycler;
+    }
+
+    @Override
+    public StaticObstacles getStaticObstacles() {
+        return mStaticObstacles;
+    }
+
+    @Override
+    public StaticGeometry getStaticGeometry() {
+        return mStaticGeometry;
+    }
+
+    @Override
+    public RacerSpatialIndex getRacerIndex() {
+        return mRacerIndex;
+    }
+
+    @Override
+    public GameEventBus getEventBus() {
+        return mEventBus;
+    }
+
+    @Override
+    public int getAIUpdateInterval() {
+        return mPhysicsQualityGovernor.getLevel().aiUpdateInterval;
+    }
+
+    @Override
+    public RandomXS128 getRandom() {
+        return mRandom;
+    }
+
+    public long getRandomSeed() {
+        return mRandomSeed;
+    }
+
+    /**
+     * Restarts the random generator returned by getRandom() from seed. Two races using the same
+     * seed and the same inputs run the same way
+     */
+    public void setRandomSeed(long seed) {
+        mRandomSeed = seed;
+        mRandom.setSeed(seed);
+    }
+
+    /**
+     * Keeps the physics quality at its highest level, whatever the time spent in Box2D. Used when
+     * recording or replaying races, since changing the quality changes the way the race runs
+     */
+    public void disablePhysicsQualityAdaptation() {
+        mPhysicsQualityGovernor.disableAdaptation();
+    }
+
+    public AIPlanner getAIPlanner() {
+        return mAIPlanner;
+    }
+
     @Override
     public Racer getPlayerRacer(int playerId) {
         return mPlayerRacers.get(playerId);
@@ -132,12 +256,142 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
     @Override
     public Array<GameObject> getActiveGameObjects() {
-        return mActiveGameObjects;
+        return mGameObjects.getAll();
     }
 
     @Override
     public void addGameObject(GameObject object) {
-        mActiveGameObjects.add(object);
+        if (mSnapshotClasses.indexOf(object.getClass(), true) == -1) {
+            mPersistentObjects.add(object);
+        }
+        mGameObjects.add(object);
+    }
+
+    /**
+     * Returns true if the state of the world can be saved with saveSnapshot()
+     *
+     * <p>This is the case if all the game objects can save their state.
+     */
+    public boolean canSaveSnapshot() {
+        if (mState == State.FINISHED) {
+            // Points and times have already been given to entrants
+            return false;
+        }
+        for (GameObject object : mGameObjects.getAll()) {
+            if (!(object instanceof Snapshot.Savable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the state of the world in snapshot. Must not be called from act()
+     *
+     * <p>Short-lived objects such as missiles, mines, bullets, helicopters or explosions are saved
+     * with the index of their class in mSnapshotClasses, and the id of their body in the body
+     * recycler, so that restoring the snapshot gives them the same body again.
+     *
+     * <p>The state of Box2D contacts and joints cannot be saved, restoring a snapshot creates them
+     * again. Saving a snapshot restores it right away, so that the world continues from the same
+     * state as a world in which it is restored later.
+     */
+    public void saveSnapshot(Snapshot snapshot) {
+        Assert.check(canSaveSnapshot(), "The world state cannot be saved now");
+        snapshot.clear();
+        snapshot.putEnum(mState);
+        snapshot.putFloat(mTimeAccumulator);
+        mCountDown.saveState(snapshot);
+
+        snapshot.putLong(mRandom.getState(0));
+        snapshot.putLong(mRandom.getState(1));
+
+        mSnapshotReferences.clear();
+        mSnapshotReferences.addAll(mPersistentObjects);
+        snapshot.putInt(mPersistentObjects.size);
+        Array<GameObject> gameObjects = mGameObjects.getAll();
+        snapshot.putInt(gameObjects.size - mPersistentObjects.size);
+        for (GameObject object : gameObjects) {
+            int classIdx = mSnapshotClasses.indexOf(object.getClass(), true);
+            if (classIdx != -1) {
+                snapshot.putInt(classIdx);
+                mSnapshotReferences.add(object);
+            }
+        }
+        int objectCount = mSnapshotReferences.size;
+        mSnapshotReferences.addAll(mSnapshotAssets);
+        snapshot.setReferences(mSnapshotReferences);
+
+        for (int idx = 0; idx < objectCount; ++idx) {
+            ((Snapshot.Savable) mSnapshotReferences.get(idx)).saveState(snapshot);
+        }
+        for (Racer racer : mRacers) {
+            snapshot.putReference(racer);
+        }
+        snapshot.setReferences(null);
+
+        restoreSnapshot(snapshot);
+    }
+
+    /**
+     * Puts the world back in the state saved in snapshot. Must not be called from act()
+     *
+     * <p>Short-lived objects are removed, then created again from the snapshot. The other game
+     * objects are never removed, so they are the ones which were there when the snapshot was saved.
+     * Box2D contacts are reset, see ContactResetter.
+     */
+    public void restoreSnapshot(Snapshot snapshot) {
+        for (Class<? extends GameObject> type : mSnapshotClasses) {
+            mGameObjects.removeAll(type);
+        }
+
+        snapshot.rewind();
+        mState = snapshot.getEnum(State.values());
+        mTimeAccumulator = snapshot.getFloat();
+        mCountDown.restoreState(snapshot);
+
+        long seed0 = snapshot.getLong();
+        long seed1 = snapshot.getLong();
+        mRandom.setState(seed0, seed1);
+
+        int persistentCount = snapshot.getInt();
+        Assert.check(
+                persistentCount == mPersistentObjects.size,
+                "Snapshot has "
+                        + persistentCount
+                        + " persistent game objects, world has "
+                        + mPersistentObjects.size);
+        mSnapshotReferences.clear();
+        mSnapshotReferences.addAll(mPersistentObjects);
+        for (int count = snapshot.getInt(); count > 0; --count) {
+            GameObject object = mSnapshotFactories.get(snapshot.getInt()).create();
+            mGameObjects.add(object);
+            mSnapshotReferences.add(object);
+        }
+        int objectCount = mSnapshotReferences.size;
+        mSnapshotReferences.addAll(mSnapshotAssets);
+        snapshot.setReferences(mSnapshotReferences);
+
+        // Short-lived objects refer to persistent ones and the other way around: all of them must
+        // exist before any state is restored
+        for (int idx = 0; idx < objectCount; ++idx) {
+            ((Snapshot.Savable) mSnapshotReferences.get(idx)).restoreState(snapshot);
+        }
+        for (int idx = 0; idx < mRacers.size; ++idx) {
+            mRacers.set(idx, snapshot.getReference());
+        }
+        snapshot.setReferences(null);
+
+        mBodyRecycler.sortFreeBodies();
+        mBox2DWorld.setContactListener(null);
+        mContactResetter.reset();
+        mBox2DWorld.setContactListener(mContactDispatcher);
+
+        updateRacerRanks();
+        mEventBus.dispatch();
+
+        mBodyStateCache.update();
+        mRacerIndex.update();
     }
 
     @Override
@@ -147,12 +401,7 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
     @Override
     public int getRacerRank(Racer racer) {
-        for (int idx = mRacers.size - 1; idx >= 0; --idx) {
-            if (mRacers.get(idx) == racer) {
-                return idx + 1;
-            }
-        }
-        return -1;
+        return mRacerRanks.get(racer, -1);
     }
 
     /**
@@ -200,31 +449,85 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
     @Override
     public void act(float delta) {
         mCountDown.act(delta);
+        // Uses the Box2D time of the previous frames, so must be called before start()
+        mPhysicsQualityGovernor.update(delta);
+        PhysicsQualityGovernor.Level level = mPhysicsQualityGovernor.getLevel();
+
+        mGameObjectPerformanceCounter.start();
+        mGameObjects.act(GameObject.UpdatePhase.PRE_PHYSICS, delta);
+        mGameObjectPerformanceCounter.stop();
+
         mBox2DPerformanceCounter.start();
         // fixed time step
         // max frame time to avoid spiral of death (on slow devices)
         float frameTime = Math.min(delta, 0.25f);
         mTimeAccumulator += frameTime;
+        int subSteps = 0;
         while (mTimeAccumulator >= GameWorld.BOX2D_TIME_STEP) {
+            if (subSteps == level.maxSubSteps) {
+                // Too late to catch up: drop the remaining time, the game slows down a bit but
+                // does not stutter
+                mTimeAccumulator = 0;
+                break;
+            }
             mBox2DWorld.step(
-                    GameWorld.BOX2D_TIME_STEP,
-                    GameWorld.VELOCITY_ITERATIONS,
-                    GameWorld.POSITION_ITERATIONS);
+                    GameWorld.BOX2D_TIME_STEP, level.velocityIterations, level.positionIterations);
             mTimeAccumulator -= GameWorld.BOX2D_TIME_STEP;
+            ++subSteps;
+        }
+        if (Debug.instance.showDebugHud) {
+            DebugStringMap.put(
+                    "physics",
+                    level
+                            + " ("
+                            + level.velocityIterations
+                            + "/"
+                            + level.positionIterations
+                            + " it., "
+                            + subSteps
+                            + "/"
+                            + level.maxSubSteps
+                            + " steps, AI 1/"
+                            + level.aiUpdateInterval
+                            + ")");
+            // Stats for the previous frame, before update() resets them
+            DebugStringMap.put(
+                    "body cache",
+                    mBodyStateCache.getJniCallCount()
+                            + " JNI calls, "
+                            + mBodyStateCache.getReadCount()
+                            + " reads");
+            DebugStringMap.put(
+                    "racer index",
+                    String.format(
+                            Locale.US,
+                            "%d queries, %d us, update %d us",
+                            mRacerIndex.getQueryCount(),
+                            mRacerIndex.getQueryNanos() / 1000,
+                            mRacerIndex.getUpdateNanos() / 1000));
+            DebugStringMap.put(
+                    "body recycler",
+                    mBodyRecycler.getCreatedCount()
+                            + " created, "
+                            + mBodyRecycler.getReusedCount()
+                            + " reused");
+            DebugStringMap.put("events", String.valueOf(mEventBus.getDispatchedCount()));
+            updateContactDebugStrings();
+            updatePoolDebugStrings();
         }
+        mContactDispatcher.resetCounters();
+        mBodyStateCache.update();
         mBox2DPerformanceCounter.stop();
+        mRacerIndex.update();
+
+        mAIPlanPerformanceCounter.start();
+        mAIPlanner.plan(mGameObjects.getObjects(Mine.class));
+        mAIPlanPerformanceCounter.stop();
 
         mGameObjectPerformanceCounter.start();
-        for (int idx = mActiveGameObjects.size - 1; idx >= 0; --idx) {
-            GameObject obj = mActiveGameObjects.get(idx);
-            obj.act(delta);
-            if (obj.isFinished()) {
-                mActiveGameObjects.removeIndex(idx);
-                if (obj instanceof Disposable) {
-                    ((Disposable) obj).dispose();
-                }
-            }
-        }
+        mGameObjects.act(GameObject.UpdatePhase.POST_PHYSICS, delta);
+        mGameObjects.act(GameObject.UpdatePhase.LATE, delta);
+        mGameObjects.flushAddedObjects();
         mGameObjectPerformanceCounter.stop();
 
         // Skip finished racers so that they keep the position they had when they crossed the finish
@@ -235,11 +538,43 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
                 break;
             }
         }
-        Sort.instance().sort(mRacers.items, sRacerComparator, fromIndex, mRacers.size);
+        sortRacers(fromIndex);
 
         if (haveAllRacersFinished()) {
             setState(GameWorld.State.FINISHED);
         }
+        updateRacerRanks();
+        mEventBus.dispatch();
+    }
+
+    /**
+     * Sorts mRacers from fromIndex, with an insertion sort: ranks change little from one frame to
+     * the next, so this is close to O(n) and does not allocate. It is stable: racers with the same
+     * position keep their order.
+     */
+    private void sortRacers(int fromIndex) {
+        Racer[] racers = mRacers.items;
+        for (int idx = fromIndex + 1; idx < mRacers.size; ++idx) {
+            Racer racer = racers[idx];
+            int insertIdx = idx;
+            while (insertIdx > fromIndex
+                    && sRacerComparator.compare(racers[insertIdx - 1], racer) > 0) {
+                racers[insertIdx] = racers[insertIdx - 1];
+                --insertIdx;
+            }
+            racers[insertIdx] = racer;
+        }
+    }
+
+    private void updateRacerRanks() {
+        for (int idx = 0; idx < mRacers.size; ++idx) {
+            Racer racer = mRacers.get(idx);
+            int rank = idx + 1;
+            if (mRacerRanks.get(racer, 0) != rank) {
+                mRacerRanks.put(racer, rank);
+                mEventBus.post(GameEventBus.Type.RANK_CHANGED, racer, rank);
+            }
+        }
     }
 
     private boolean haveAllRacersFinished() {
@@ -302,14 +637,23 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         final float startAngle = 90;
         Array<Vector2> positions = mTrack.findStartTilePositions();
         positions.reverse();
+        if (entrants.size > positions.size) {
+            mTrack.addGridPositions(positions, entrants.size);
+        }
+        if (entrants.size > positions.size) {
+            removeExtraEntrants(entrants, positions.size);
+        }
 
         AudioManager audioManager = mGame.getAudioManager();
         for (int idx = 0; idx < entrants.size; ++idx) {
-            Assert.check(
-                    idx < positions.size, "Too many entrants (" + idx + "/" + positions.size + ")");
             GameInfo.Entrant entrant = entrants.get(idx);
             VehicleDef vehicleDef = assets.findVehicleDefById(entrant.getVehicleId());
-            Vehicle vehicle = creator.create(vehicleDef, positions.get(idx), startAngle);
+            Vehicle.PhysicsModel physicsModel =
+                    !entrant.isPlayer() && GamePlay.instance.singleBodyAIVehicles
+                            ? Vehicle.PhysicsModel.SINGLE_BODY
+                            : Vehicle.PhysicsModel.JOINTED_WHEELS;
+            Vehicle vehicle =
+                    creator.create(vehicleDef, positions.get(idx), startAngle, physicsModel);
             Racer racer = new Racer(assets, audioManager, this, vehicle, entrant);
             if (entrant.isPlayer()) {
                 GameInfo.Player player = (GameInfo.Player) entrant;
@@ -318,11 +662,29 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
                 racer.setPilot(pilot);
                 mPlayerRacers.add(racer);
             } else {
-                racer.setPilot(new AIPilot(this, mTrack, racer));
+                AIPilot pilot = new AIPilot(this, mTrack, racer, mAIPlanner);
+                racer.setPilot(pilot);
+                mAIPlanner.addPilot(pilot);
             }
             addGameObject(racer);
             mRacers.add(racer);
         }
+        updateRacerRanks();
+        mRacerIndex.setRacers(mRacers);
+    }
+
+    /**
+     * The track may not have room for all the entrants when the racer count is raised from the
+     * debug screen: remove AI entrants until the others fit. Entrants are removed from the GameInfo
+     * so that recordings and results match the racers.
+     */
+    private static void removeExtraEntrants(Array<GameInfo.Entrant> entrants, int maxCount) {
+        NLog.e("Not enough start positions for %d entrants, keeping %d", entrants.size, maxCount);
+        for (int idx = entrants.size - 1; idx >= 0 && entrants.size > maxCount; --idx) {
+            if (!entrants.get(idx).isPlayer()) {
+                entrants.removeIndex(idx);
+            }
+        }
     }
 
     private void setupObstacles() {
@@ -334,6 +696,19 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         for (MapObject object : mTrack.getObstacleObjects()) {
             creator.create(this, mGame.getAssets(), object);
         }
+        Body borders = creator.createBorders(getBox2DWorld());
+
+        StaticGeometry.Builder builder = new StaticGeometry.Builder();
+        if (borders != null) {
+            builder.addBody(borders);
+        }
+        if (mStaticObstacles.getBody() != null) {
+            builder.addBody(mStaticObstacles.getBody());
+        }
+        mStaticGeometry = builder.build();
+        NLog.i(
+                "Static geometry: %d primitives, %d nodes",
+                mStaticGeometry.getPrimitiveCount(), mStaticGeometry.getNodeCount());
     }
 
     private void setupBonusSpots() {
@@ -344,67 +719,128 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         }
     }
 
+    private void setupSnapshotClasses() {
+        Assets assets = mGame.getAssets();
+        AudioManager audioManager = mGame.getAudioManager();
+        addSnapshotClass(Mine.class, () -> Mine.createForSnapshot(this, assets, audioManager));
+        addSnapshotClass(
+                Missile.class, () -> Missile.createForSnapshot(assets, this, audioManager));
+        addSnapshotClass(Bullet.class, () -> Bullet.createForSnapshot(assets, this, audioManager));
+        addSnapshotClass(
+                HitscanBullet.class,
+                () -> HitscanBullet.createForSnapshot(assets, this, audioManager));
+        addSnapshotClass(
+                AnimationObject.class, () -> AnimationObject.createForSnapshot(audioManager));
+        addSnapshotClass(
+                Helicopter.class, () -> Helicopter.createForSnapshot(assets, audioManager));
+
+        mSnapshotAssets.add(assets.explosion);
+        mSnapshotAssets.add(assets.impact);
+        mSnapshotAssets.add(assets.soundAtlas.get("explosion"));
+        mSnapshotAssets.add(assets.soundAtlas.get("impact"));
+    }
+
+    private void addSnapshotClass(
+            Class<? extends GameObject> type, GamePool.Factory<GameObject> factory) {
+        mSnapshotClasses.add(type);
+        mSnapshotFactories.add(factory);
+    }
+
     private void setupBonusPools() {
         // Important: do not allow acceleration bonuses like the Turbo when ranked first, otherwise
         // getting a best score becomes too random.
-        addPool(GunBonus.class, new float[] {0.2f, 1.0f, 1.0f});
-        addPool(MineBonus.class, new float[] {2.0f, 1.0f, 0.5f, 0f});
-        addPool(TurboBonus.class, new float[] {0f, 1.0f, 2.0f});
-        addPool(MissileBonus.class, new float[] {0.2f, 1.0f, 1.0f});
+        addPool("gun bonuses", GunBonus::new, new float[] {0.2f, 1.0f, 1.0f});
+        addPool("mine bonuses", MineBonus::new, new float[] {2.0f, 1.0f, 0.5f, 0f});
+        addPool("turbo bonuses", TurboBonus::new, new float[] {0f, 1.0f, 2.0f});
+        addPool("missile bonuses", MissileBonus::new, new float[] {0.2f, 1.0f, 1.0f});
     }
 
-    private <T extends Bonus> void addPool(Class<T> bonusClass, float[] counts) {
+    private <T extends Bonus> void addPool(
+            String name, GamePool.Factory<T> factory, float[] counts) {
         BonusPool<T> pool =
-                new BonusPool<>(bonusClass, mGame.getAssets(), this, mGame.getAudioManager());
+                new BonusPool<>(name, factory, mGame.getAssets(), this, mGame.getAudioManager());
         pool.setCounts(counts);
         mBonusPools.add(pool);
     }
 
-    @Override
-    public void beginContact(Contact contact) {
-        Object userA = contact.getFixtureA().getBody().getUserData();
-        Object userB = contact.getFixtureB().getBody().getUserData();
-        if (userA instanceof Collidable) {
-            ((Collidable) userA).beginContact(contact, contact.getFixtureB());
+    /**
+     * Fills the pools of the objects created during the race, so that the first bonus, shot or
+     * explosion of each kind does not have to create objects. Capacities assume that a quarter of
+     * the racers use the same kind of bonus at the same time.
+     */
+    @SuppressWarnings("rawtypes")
+    private void warmUpPools() {
+        int racerCount = mRacers.size;
+        int userCount = MathUtils.ceil(racerCount / 4f);
+        for (BonusPool pool : mBonusPools) {
+            // A racer holds at most one bonus
+            warmUpPool(pool, racerCount);
         }
-        if (userB instanceof Collidable) {
-            ((Collidable) userB).beginContact(contact, contact.getFixtureA());
+        if (GamePlay.instance.hitscanGun) {
+            warmUpPool(HitscanBullet.getPool(), userCount * GunBonus.SHOOT_COUNT);
+        } else {
+            warmUpPool(Bullet.getPool(), userCount * GunBonus.SHOOT_COUNT);
         }
+        warmUpPool(Missile.getPool(), userCount);
+        warmUpPool(Mine.getPool(), userCount * 2);
+        // Explosions and bullet impacts
+        warmUpPool(AnimationObject.getPool(), userCount * 4);
+        warmUpPool(Helicopter.getPool(), userCount);
     }
 
-    @Override
-    public void endContact(Contact contact) {
-        Object userA = contact.getFixtureA().getBody().getUserData();
-        Object userB = contact.getFixtureB().getBody().getUserData();
-        if (userA instanceof Collidable) {
-            ((Collidable) userA).endContact(contact, contact.getFixtureB());
-        }
-        if (userB instanceof Collidable) {
-            ((Collidable) userB).endContact(contact, contact.getFixtureA());
-        }
+    private void warmUpPool(GamePool<?> pool, int capacity) {
+        pool.warmUp(capacity);
+        mPools.add(pool);
     }
 
-    @Override
-    public void preSolve(Contact contact, Manifold oldManifold) {
-        Object userA = contact.getFixtureA().getBody().getUserData();
-        Object userB = contact.getFixtureB().getBody().getUserData();
-        if (userA instanceof Collidable) {
-            ((Collidable) userA).preSolve(contact, contact.getFixtureB(), oldManifold);
-        }
-        if (userB instanceof Collidable) {
-            ((Collidable) userB).preSolve(contact, contact.getFixtureA(), oldManifold);
-        }
+    /**
+     * Defines which contacts must be dispatched to the Collidable objects. Keep this in sync with
+     * the Collidable implementations.
+     */
+    private void setupContactDispatcher() {
+        final int racer = CollisionCategories.RACER;
+        final int wall = CollisionCategories.WALL;
+        final int bullet = CollisionCategories.RACER_BULLET;
+        final int explosable = CollisionCategories.EXPLOSABLE;
+
+        // BonusSpotHitComponent: racer vs bonus spots, which use the default category (WALL)
+        // SpinningComponent: racer vs anything solid
+        // Mine: mine vs racer
+        mContactDispatcher.register(
+                ContactDispatcher.Callback.BEGIN_CONTACT, racer, CollisionCategories.SOLID_BODIES);
+
+        // Racer: simplified racer vs racer collisions
+        // Racer: COLLISION events, racer vs racer or wall
+        mContactDispatcher.register(ContactDispatcher.Callback.PRE_SOLVE, racer, racer | wall);
+        // Bullet and Missile: disable contacts with the shooter, explode on contact
+        mContactDispatcher.register(
+                ContactDispatcher.Callback.PRE_SOLVE, bullet, racer | wall | explosable);
+
+        // Nobody needs END_CONTACT and POST_SOLVE for now
     }
 
-    @Override
-    public void postSolve(Contact contact, ContactImpulse impulse) {
-        Object userA = contact.getFixtureA().getBody().getUserData();
-        Object userB = contact.getFixtureB().getBody().getUserData();
-        if (userA instanceof Collidable) {
-            ((Collidable) userA).postSolve(contact, contact.getFixtureB(), impulse);
+    private void updatePoolDebugStrings() {
+        for (GamePool<?> pool : mPools) {
+            DebugStringMap.put(
+                    "pool " + pool.getName(),
+                    pool.getLiveCount()
+                            + " live, "
+                            + pool.getPeakLiveCount()
+                            + " peak, "
+                            + pool.getFree()
+                            + " free, "
+                            + pool.getMissCount()
+                            + " misses");
         }
-        if (userB instanceof Collidable) {
-            ((Collidable) userB).postSolve(contact, contact.getFixtureA(), impulse);
+    }
+
+    private void updateContactDebugStrings() {
+        for (ContactDispatcher.Callback callback : ContactDispatcher.Callback.values()) {
+            DebugStringMap.put(
+                    callback.toString(),
+                    mContactDispatcher.getDispatchCount(callback)
+                            + "/"
+                            + mContactDispatcher.getCallCount(callback));
         }
     }
 
@@ -434,15 +870,12 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
     @Override
     public void dispose() {
+        mAIPlanner.dispose();
         if (mTrack != null) {
             mTrack.dispose();
         }
-        for (GameObject gameObject : mActiveGameObjects) {
-            if (gameObject instanceof Disposable) {
-                ((Disposable) gameObject).dispose();
-            }
-        }
-        mActiveGameObjects.clear();
+        mGameObjects.dispose();
+        mContactResetter.dispose();
     }
 
     void forgetTrack() {
@@ -27,9 +27,12 @@ import com.agateau.pixelwheels.gameobjet.AudioClipper;
 import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.racer.HoleHandlerComponent;
+import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.racer.Vehicle;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.SoundPlayer;
+import com.agateau.pixelwheels.utils.GamePool;
+import com.agateau.pixelwheels.utils.Snapshot;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
@@ -43,10 +46,10 @@ import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** The rescue helicopter which comes to pick up fallen vehicles */
-public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disposable {
+public class Helicopter extends GameObjectAdapter
+        implements Pool.Poolable, Disposable, Snapshot.Savable {
     private static final float SHADOW_OFFSET = 80;
     private static final Vector2 BODY_CENTER = new Vector2(30, (111 - 35));
     private static final float PROPELLER_SPEED = -720;
@@ -62,7 +65,8 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         LEAVING
     }
 
-    private static final ReflectionPool<Helicopter> sPool = new ReflectionPool<>(Helicopter.class);
+    private static final GamePool<Helicopter> sPool =
+            new GamePool<>("helicopters", Helicopter::new);
 
     private SoundPlayer mSoundPlayer;
     private FrameBuffer mFrameBuffer;
@@ -81,25 +85,21 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
     private float mTime;
     private State mState;
 
+    public static GamePool<Helicopter> getPool() {
+        return sPool;
+    }
+
     public static Helicopter create(
             Assets assets,
             AudioManager audioManager,
             Track track,
             HoleHandlerComponent holeHandlerComponent) {
         Vehicle vehicle = holeHandlerComponent.getVehicle();
-        Helicopter object = sPool.obtain();
-        object.setFinished(false);
+        Helicopter object = createForSnapshot(assets, audioManager);
 
         float height = Constants.UNIT_FOR_PIXEL * assets.helicopterBody.getRegionHeight();
         float mapHeight = track.getMapHeight() * track.getTileHeight();
 
-        if (object.mSoundPlayer == null) {
-            object.mSoundPlayer =
-                    audioManager.createSoundPlayer(assets.soundAtlas.get("helicopter"));
-        }
-        object.mBodyRegion = assets.helicopterBody;
-        object.mPropellerRegion = assets.helicopterPropeller;
-        object.mPropellerTopRegion = assets.helicopterPropellerTop;
         object.mHoleHandlerComponent = holeHandlerComponent;
         object.mPosition.set(vehicle.getPosition().x, -height);
         object.mAngle = 0;
@@ -110,6 +110,24 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         object.mLeavePosition.set(vehicle.getPosition().x, mapHeight);
         object.mTime = 0;
         object.mState = State.ARRIVING;
+        return object;
+    }
+
+    /**
+     * Returns a helicopter whose state must be restored with restoreState(). Used by GameWorldImpl
+     * to restore snapshots, the helicopter is not added to the world
+     */
+    public static Helicopter createForSnapshot(Assets assets, AudioManager audioManager) {
+        Helicopter object = sPool.obtain();
+        object.setFinished(false);
+
+        if (object.mSoundPlayer == null) {
+            object.mSoundPlayer =
+                    audioManager.createSoundPlayer(assets.soundAtlas.get("helicopter"));
+        }
+        object.mBodyRegion = assets.helicopterBody;
+        object.mPropellerRegion = assets.helicopterPropeller;
+        object.mPropellerTopRegion = assets.helicopterPropellerTop;
 
         if (object.mFrameBuffer == null) {
             int bufferWidth = object.mPropellerRegion.getRegionWidth();
@@ -129,13 +147,59 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
     }
 
     @Override
-    public void reset() {}
+    public void reset() {
+        // The helicopter can be removed before it is finished when a snapshot is restored
+        mSoundPlayer.stop();
+    }
 
     @Override
     public void dispose() {
         sPool.free(this);
     }
 
+    /**
+     * The sound player volume is saved because actLeaving() relies on it. The sound player itself
+     * is not saved: it starts looping again on the next audioRender() call
+     */
+    @Override
+    public void saveState(Snapshot snapshot) {
+        snapshot.putReference(mHoleHandlerComponent.getRacer());
+        snapshot.putEnum(mState);
+        snapshot.putFloat(mTime);
+        snapshot.putFloat(mPosition.x);
+        snapshot.putFloat(mPosition.y);
+        snapshot.putFloat(mAngle);
+        snapshot.putFloat(mStartPosition.x);
+        snapshot.putFloat(mStartPosition.y);
+        snapshot.putFloat(mStartAngle);
+        snapshot.putFloat(mEndPosition.x);
+        snapshot.putFloat(mEndPosition.y);
+        snapshot.putFloat(mEndAngle);
+        snapshot.putFloat(mLeavePosition.x);
+        snapshot.putFloat(mLeavePosition.y);
+        snapshot.putFloat(mSoundPlayer.getVolume());
+    }
+
+    @Override
+    public void restoreState(Snapshot snapshot) {
+        Racer racer = snapshot.getReference();
+        mHoleHandlerComponent = racer.getHoleHandlerComponent();
+        mState = snapshot.getEnum(State.values());
+        mTime = snapshot.getFloat();
+        mPosition.x = snapshot.getFloat();
+        mPosition.y = snapshot.getFloat();
+        mAngle = snapshot.getFloat();
+        mStartPosition.x = snapshot.getFloat();
+        mStartPosition.y = snapshot.getFloat();
+        mStartAngle = snapshot.getFloat();
+        mEndPosition.x = snapshot.getFloat();
+        mEndPosition.y = snapshot.getFloat();
+        mEndAngle = snapshot.getFloat();
+        mLeavePosition.x = snapshot.getFloat();
+        mLeavePosition.y = snapshot.getFloat();
+        mSoundPlayer.setVolume(snapshot.getFloat());
+    }
+
     public boolean isReadyToRecover() {
         return mState == State.RECOVERING;
     }
@@ -49,6 +49,11 @@ public class HudContent {
     private final Label mCountDownLabel;
     private Label mDebugLabel = null;
 
+    // Lap counts currently shown by the labels, used to update the labels only when needed:
+    // setText() causes a new glyph layout
+    private final int[] mShownLapCounts;
+    private int mShownCount = -1;
+
     private final StringBuilder mStringBuilder = new StringBuilder();
 
     public HudContent(Assets assets, GameWorld gameWorld, Hud hud) {
@@ -59,7 +64,10 @@ public class HudContent {
 
         AnchorGroup root = hud.getRoot();
 
+        int playerCount = mGameWorld.getPlayerRacers().size;
+        mShownLapCounts = new int[playerCount];
         createPlayerLabels(root);
+        subscribeToPlayerEvents();
 
         mCountDownLabel = new Label("", skin, "hudCountDown");
         mCountDownLabel.setAlignment(Align.bottom);
@@ -110,48 +118,66 @@ public class HudContent {
         root.addPositionRule(button, Anchor.TOP_LEFT, root, Anchor.TOP_LEFT);
     }
 
+    /** Ranks and lap counts are only updated when they change */
+    private void subscribeToPlayerEvents() {
+        GameEventBus eventBus = mGameWorld.getEventBus();
+        Array<Racer> racers = mGameWorld.getPlayerRacers();
+        for (int idx = 0; idx < racers.size; ++idx) {
+            Racer racer = racers.get(idx);
+            final int playerIdx = idx;
+            eventBus.subscribe(
+                    GameEventBus.Type.RANK_CHANGED,
+                    racer,
+                    event -> updateRankLabel(playerIdx, event.intValue));
+            eventBus.subscribe(
+                    GameEventBus.Type.LAP_COUNT_CHANGED,
+                    racer,
+                    event -> updateLapLabel(playerIdx, event.intValue));
+            updateRankLabel(idx, mGameWorld.getRacerRank(racer));
+            updateLapLabel(idx, racer.getLapPositionComponent().getLapCount());
+        }
+    }
+
     @SuppressWarnings("UnusedParameters")
     public void act(float delta) {
-        updateLabels();
         updateCountDownLabel();
         if (mDebugLabel != null) {
             updateDebugLabel();
         }
     }
 
-    private void updateLabels() {
-        int idx = 0;
-        boolean singlePlayer = mGameWorld.getPlayerRacers().size == 1;
-        for (Racer racer : mGameWorld.getPlayerRacers()) {
-            Label lapLabel = mLapLabels.get(idx);
-            Label rankLabel = mRankLabels.get(idx);
-
-            int lapCount = Math.max(racer.getLapPositionComponent().getLapCount(), 1);
-            int totalLapCount = mGameWorld.getTrack().getTotalLapCount();
-            int rank = mGameWorld.getRacerRank(racer);
-
-            mStringBuilder.setLength(0);
-            if (!singlePlayer) {
-                mStringBuilder.append("P").append(idx + 1).append(": ");
-            }
-
-            mStringBuilder.append(rank).append(StringUtils.getRankSuffix(rank));
-            rankLabel.setText(mStringBuilder);
-            rankLabel.pack();
-
-            mStringBuilder.setLength(0);
-            mStringBuilder.append("Lap ").append(lapCount).append('/').append(totalLapCount);
-            lapLabel.setText(mStringBuilder);
-            lapLabel.pack();
+    private void updateRankLabel(int playerIdx, int rank) {
+        Label label = mRankLabels.get(playerIdx);
+        mStringBuilder.setLength(0);
+        if (mRankLabels.size > 1) {
+            mStringBuilder.append("P").append(playerIdx + 1).append(": ");
+        }
+        mStringBuilder.append(rank).append(StringUtils.getRankSuffix(rank));
+        label.setText(mStringBuilder);
+        label.pack();
+    }
 
-            ++idx;
+    private void updateLapLabel(int playerIdx, int lapCount) {
+        // The lap count is 0 until the racer crosses the start line
+        lapCount = Math.max(lapCount, 1);
+        if (lapCount == mShownLapCounts[playerIdx]) {
+            return;
         }
+        mShownLapCounts[playerIdx] = lapCount;
+        Label label = mLapLabels.get(playerIdx);
+        int totalLapCount = mGameWorld.getTrack().getTotalLapCount();
+        mStringBuilder.setLength(0);
+        mStringBuilder.append("Lap ").append(lapCount).append('/').append(totalLapCount);
+        label.setText(mStringBuilder);
+        label.pack();
     }
 
     private void updateCountDownLabel() {
         CountDown countDown = mGameWorld.getCountDown();
         if (countDown.isFinished()) {
-            mCountDownLabel.setVisible(false);
+            if (mCountDownLabel.isVisible()) {
+                mCountDownLabel.setVisible(false);
+            }
             return;
         }
         float alpha = countDown.getPercent();
@@ -159,8 +185,11 @@ public class HudContent {
 
         mCountDownLabel.setColor(1, 1, 1, alpha);
 
-        String text = count > 0 ? String.valueOf(count) : "GO!";
-        mCountDownLabel.setText(text);
+        if (count != mShownCount) {
+            mShownCount = count;
+            String text = count > 0 ? String.valueOf(count) : "GO!";
+            mCountDownLabel.setText(text);
+        }
     }
 
     private static final StringBuilder sDebugSB = new StringBuilder();
@@ -40,6 +40,12 @@ class MineDropper extends GameObjectAdapter {
         mGameRenderer = gameRenderer;
     }
 
+    @Override
+    public UpdatePhase getUpdatePhase() {
+        // Reacts to touches before the physics step
+        return UpdatePhase.PRE_PHYSICS;
+    }
+
     @Override
     public void act(float delta) {
         if (Gdx.input.justTouched()) {
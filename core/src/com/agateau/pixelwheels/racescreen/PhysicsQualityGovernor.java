@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.PerformanceCounter;
+
+/**
+ * Adapts the cost of the physics simulation to keep the time spent in Box2D within a budget
+ *
+ * <p>When the time measured by the Box2D performance counter stays above
+ * GamePlay.physicsTimeBudget, the quality goes down one level: fewer solver iterations, fewer
+ * sub-steps per frame and less frequent AI updates. It goes back up when Box2D stays well below the
+ * budget. The quality never goes below GamePlay.minPhysicsQuality.
+ */
+class PhysicsQualityGovernor {
+    static class Level {
+        final String name;
+        final int velocityIterations;
+        final int positionIterations;
+        final int maxSubSteps;
+        final int aiUpdateInterval;
+
+        Level(
+                String name,
+                int velocityIterations,
+                int positionIterations,
+                int maxSubSteps,
+                int aiUpdateInterval) {
+            this.name = name;
+            this.velocityIterations = velocityIterations;
+            this.positionIterations = positionIterations;
+            this.maxSubSteps = maxSubSteps;
+            this.aiUpdateInterval = aiUpdateInterval;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /** Indexed by quality, from the lowest to the highest */
+    private static final Level[] LEVELS = {
+        new Level("lowest", 3, 1, 4, 3),
+        new Level("low", 4, 2, 6, 2),
+        new Level("medium", 5, 2, 8, 1),
+        // Same as before the governor existed: 15 sub-steps is 0.25s
+        new Level("high", GameWorld.VELOCITY_ITERATIONS, GameWorld.POSITION_ITERATIONS, 15, 1),
+    };
+
+    static final int MAX_QUALITY = LEVELS.length - 1;
+
+    // How long Box2D must stay over or under budget before the quality changes, in seconds
+    private static final float DOWNGRADE_DELAY = 1;
+    private static final float UPGRADE_DELAY = 5;
+    // Only go back up when Box2D uses less than this part of the budget, to avoid oscillating
+    // between two levels
+    private static final float UPGRADE_THRESHOLD = 0.5f;
+
+    private final PerformanceCounter mCounter;
+    private int mQuality = MAX_QUALITY;
+    private boolean mAdaptationEnabled = true;
+    private float mOverBudgetDuration = 0;
+    private float mUnderBudgetDuration = 0;
+
+    PhysicsQualityGovernor(PerformanceCounter counter) {
+        mCounter = counter;
+    }
+
+    Level getLevel() {
+        return LEVELS[mQuality];
+    }
+
+    /** Goes back to the highest quality and stays there */
+    void disableAdaptation() {
+        mAdaptationEnabled = false;
+        setQuality(MAX_QUALITY, 0);
+    }
+
+    /** Must be called once per frame, before running the physics steps */
+    void update(float delta) {
+        final GamePlay GP = GamePlay.instance;
+        if (!mAdaptationEnabled || !GP.adaptivePhysicsQuality) {
+            mOverBudgetDuration = 0;
+            mUnderBudgetDuration = 0;
+            setQuality(MAX_QUALITY, 0);
+            return;
+        }
+        // Windowed mean of the last frames, in milliseconds. `average` would be the mean since the
+        // start of the race, which reacts too slowly
+        float box2DTime = mCounter.time.value * 1000;
+        if (box2DTime > GP.physicsTimeBudget) {
+            mOverBudgetDuration += delta;
+            mUnderBudgetDuration = 0;
+        } else if (box2DTime < GP.physicsTimeBudget * UPGRADE_THRESHOLD) {
+            mUnderBudgetDuration += delta;
+            mOverBudgetDuration = 0;
+        } else {
+            mOverBudgetDuration = 0;
+            mUnderBudgetDuration = 0;
+        }
+
+        int minQuality = MathUtils.clamp(GP.minPhysicsQuality, 0, MAX_QUALITY);
+        if (mQuality < minQuality) {
+            setQuality(minQuality, box2DTime);
+        } else if (mOverBudgetDuration > DOWNGRADE_DELAY && mQuality > minQuality) {
+            setQuality(mQuality - 1, box2DTime);
+        } else if (mUnderBudgetDuration > UPGRADE_DELAY && mQuality < MAX_QUALITY) {
+            setQuality(mQuality + 1, box2DTime);
+        }
+    }
+
+    private void setQuality(int quality, float box2DTime) {
+        if (quality == mQuality) {
+            return;
+        }
+        NLog.i(
+                "Physics quality: %s -> %s (box2d: %.2f ms, budget: %.2f ms)",
+                LEVELS[mQuality], LEVELS[quality], box2DTime, GamePlay.instance.physicsTimeBudget);
+        mQuality = quality;
+        mOverBudgetDuration = 0;
+        mUnderBudgetDuration = 0;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.gameobjet.AudioClipper;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.racer.Racer;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Lowers the volume of game objects as they get further from the closest player racer
+ *
+ * <p>The positions of the player racers are read once per frame, in update(), so that clip() only
+ * reads the position of the object once.
+ */
+class PlayerAudioClipper implements AudioClipper {
+    private final GameWorld mGameWorld;
+    private final float[] mPlayerPositions = new float[Constants.MAX_PLAYERS * 2];
+    private int mPlayerCount = 0;
+    private float mMaxDistance;
+
+    PlayerAudioClipper(GameWorld gameWorld) {
+        mGameWorld = gameWorld;
+    }
+
+    /** Must be called before the game objects render their sounds */
+    void update() {
+        mMaxDistance = GamePlay.instance.viewportWidth;
+        Array<Racer> racers = mGameWorld.getPlayerRacers();
+        mPlayerCount = racers.size;
+        for (int idx = 0; idx < mPlayerCount; ++idx) {
+            Racer racer = racers.get(idx);
+            mPlayerPositions[idx * 2] = racer.getX();
+            mPlayerPositions[idx * 2 + 1] = racer.getY();
+        }
+    }
+
+    @Override
+    public float clip(GameObject gameObject) {
+        float x = gameObject.getX();
+        float y = gameObject.getY();
+        float maxDistance2 = mMaxDistance * mMaxDistance;
+        float distance2 = maxDistance2;
+        for (int idx = 0; idx < mPlayerCount; ++idx) {
+            float dx = mPlayerPositions[idx * 2] - x;
+            float dy = mPlayerPositions[idx * 2 + 1] - y;
+            distance2 = Math.min(dx * dx + dy * dy, distance2);
+        }
+        if (distance2 >= maxDistance2) {
+            return 0;
+        }
+        return 1f - (float) Math.sqrt(distance2) / mMaxDistance;
+    }
+}
@@ -24,7 +24,6 @@ import com.agateau.pixelwheels.PwGame;
 import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.debug.DebugShapeMap;
 import com.agateau.pixelwheels.gameinput.GameInputHandlerFactories;
-import com.agateau.pixelwheels.gameobjet.AudioClipper;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.gamesetup.GameInfo;
 import com.agateau.pixelwheels.map.Track;
@@ -32,12 +31,19 @@ import com.agateau.pixelwheels.racer.Pilot;
 import com.agateau.pixelwheels.racer.PlayerPilot;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.racer.RacerDebugShape;
+import com.agateau.pixelwheels.replay.Ghost;
+import com.agateau.pixelwheels.replay.GhostRecorder;
+import com.agateau.pixelwheels.replay.GhostRecording;
+import com.agateau.pixelwheels.replay.RaceRecorder;
+import com.agateau.pixelwheels.replay.RaceRecording;
 import com.agateau.pixelwheels.screens.ConfigScreen;
 import com.agateau.pixelwheels.screens.PwStageScreen;
+import com.agateau.utils.FileUtils;
 import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ScreenAdapter;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
@@ -47,6 +53,9 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 public class RaceScreen extends ScreenAdapter {
     public interface Listener {
@@ -65,7 +74,7 @@ public class RaceScreen extends ScreenAdapter {
     private final Color mBackgroundColor;
 
     private final GameRenderer mGameRenderer;
-    private final AudioClipper mAudioClipper;
+    private final PlayerAudioClipper mAudioClipper;
 
     private Hud mHud;
     private HudContent mHudContent;
@@ -77,6 +86,10 @@ public class RaceScreen extends ScreenAdapter {
     private final PerformanceCounter mRendererPerformanceCounter;
     private final PerformanceCounter mOverallPerformanceCounter;
     private PauseOverlay mPauseOverlay = null;
+    private RaceRecorder mRaceRecorder = null;
+    private GhostRecorder mGhostRecorder = null;
+    private Ghost mGhost = null;
+    private FrameTimeRecorder mFrameTimeRecorder = null;
 
     private boolean mFirstRender = true;
     private boolean mConfigVisible = false;
@@ -99,12 +112,33 @@ public class RaceScreen extends ScreenAdapter {
         mHudStage = new Stage(mHudViewport, batch);
         mHudStage.setDebugAll(Debug.instance.showHudDebugLines);
 
-        mGameRenderer = new GameRenderer(mGameWorld, batch, mPerformanceCounters);
+        GameRenderer.MultiPlayerMode multiPlayerMode =
+                game.getConfig().splitScreen
+                        ? GameRenderer.MultiPlayerMode.SPLIT_SCREEN
+                        : GameRenderer.MultiPlayerMode.ZOOM_OUT;
+        mGameRenderer =
+                new GameRenderer(
+                        mGameWorld, game.getAssets(), batch, multiPlayerMode, mPerformanceCounters);
         setupHud(mGameWorld.getTrack());
 
-        mAudioClipper = createAudioClipper();
+        mAudioClipper = new PlayerAudioClipper(mGameWorld);
 
         setupMineDropper();
+        setupGhost();
+
+        if (Debug.instance.recordRaces) {
+            mRaceRecorder = new RaceRecorder(gameInfo, mGameWorld);
+        }
+        if (Debug.instance.logFrameTimes) {
+            String description =
+                    String.format(
+                            Locale.US,
+                            "Frame times, %s, %d player(s), %s",
+                            multiPlayerMode,
+                            mGameWorld.getPlayerRacers().size,
+                            gameInfo.getTrack().getId());
+            mFrameTimeRecorder = new FrameTimeRecorder(description);
+        }
     }
 
     private void startMusic() {
@@ -119,6 +153,25 @@ public class RaceScreen extends ScreenAdapter {
         }
     }
 
+    private void setupGhost() {
+        // Ghosts only make sense when racing alone
+        if (mGameWorld.getPlayerRacers().size != 1) {
+            return;
+        }
+        Racer racer = mGameWorld.getPlayerRacer(0);
+        Track track = mGameInfo.getTrack();
+        GhostRecording recording = GhostRecording.load(GhostRecorder.getGhostFile(track));
+        mGhostRecorder = new GhostRecorder(racer, track, recording);
+        if (!mGame.getConfig().showGhost) {
+            return;
+        }
+        // Always add the ghost, even if there is no recording yet, so that the list of game
+        // objects does not change if the first ghost is saved during the race
+        mGhost = new Ghost(mGame.getAssets(), racer, recording);
+        mGameWorld.addGameObject(mGhost);
+        mGhostRecorder.setListener(newRecording -> mGhost.setRecording(newRecording));
+    }
+
     private void setupHud(Track track) {
         mHud = new Hud(mGame.getAssets(), mHudStage);
         mHudContent = new HudContent(mGame.getAssets(), mGameWorld, mHud);
@@ -156,20 +209,6 @@ public class RaceScreen extends ScreenAdapter {
         }
     }
 
-    private AudioClipper createAudioClipper() {
-        return gameObject -> {
-            float maxDistance = GamePlay.instance.viewportWidth;
-            float distance2 = maxDistance * maxDistance;
-            for (Racer racer : mGameWorld.getPlayerRacers()) {
-                float dx = racer.getX() - gameObject.getX();
-                float dy = racer.getY() - gameObject.getY();
-                float d2 = dx * dx + dy * dy;
-                distance2 = Math.min(d2, distance2);
-            }
-            return 1f - (float) Math.sqrt(distance2) / maxDistance;
-        };
-    }
-
     @Override
     public void render(float delta) {
         if (mFirstRender) {
@@ -184,7 +223,13 @@ public class RaceScreen extends ScreenAdapter {
         mGameWorldPerformanceCounter.start();
         if (!paused) {
             GameWorld.State oldState = mGameWorld.getState();
+            if (mRaceRecorder != null) {
+                mRaceRecorder.beginFrame(delta);
+            }
             mGameWorld.act(delta);
+            if (mGhostRecorder != null) {
+                mGhostRecorder.act();
+            }
             GameWorld.State newState = mGameWorld.getState();
             if (oldState != newState) {
                 if (newState == GameWorld.State.FINISHED) {
@@ -198,11 +243,24 @@ public class RaceScreen extends ScreenAdapter {
         }
         mGameWorldPerformanceCounter.stop();
 
+        // Only record racing frames: the count down and the pause overlay do not render the same
+        // things
+        boolean recordFrame =
+                mFrameTimeRecorder != null
+                        && !paused
+                        && mGameWorld.getState() == GameWorld.State.RUNNING;
         mRendererPerformanceCounter.start();
+        if (recordFrame) {
+            mFrameTimeRecorder.beginRender();
+        }
         Gdx.gl.glClearColor(mBackgroundColor.r, mBackgroundColor.g, mBackgroundColor.b, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         mGameRenderer.render(delta);
+        if (recordFrame) {
+            mFrameTimeRecorder.endRender(delta);
+        }
 
+        mAudioClipper.update();
         for (GameObject gameObject : mGameWorld.getActiveGameObjects()) {
             gameObject.audioRender(mAudioClipper);
         }
@@ -254,10 +312,27 @@ public class RaceScreen extends ScreenAdapter {
     }
 
     private void onFinished() {
+        if (mRaceRecorder != null) {
+            saveRaceRecording();
+        }
+        if (mFrameTimeRecorder != null) {
+            mFrameTimeRecorder.log();
+            mFrameTimeRecorder = null;
+        }
         FinishedOverlay overlay = new FinishedOverlay(mGame, this, mGameWorld.getRacers());
         mHudStage.addActor(overlay);
     }
 
+    private void saveRaceRecording() {
+        RaceRecording recording = mRaceRecorder.finish(mGameWorld.getRacers());
+        mRaceRecorder = null;
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        String name = "races/" + mGameInfo.getTrack().getId() + "-" + timestamp + ".race";
+        FileHandle handle = FileUtils.getUserWritableFile(name);
+        recording.save(handle);
+        NLog.i("Race recorded in %s", handle.path());
+    }
+
     private void pauseRace() {
         if (mGameWorld.getState() == GameWorld.State.FINISHED) {
             return;
@@ -305,6 +380,7 @@ public class RaceScreen extends ScreenAdapter {
     @Override
     public void dispose() {
         super.dispose();
+        mGameRenderer.dispose();
         mGameWorld.dispose();
     }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.obstacles.StaticObstacles;
+import com.agateau.pixelwheels.utils.BodyRegionDrawer;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws the static obstacles and their shadows from a SpriteCache, built once when the race starts
+ */
+class StaticObstaclesRenderer implements Disposable {
+    // Same offset as BodyRegionDrawer.drawShadow() with a Z of -0.1, which is what dynamic
+    // obstacles use
+    private static final float SHADOW_OFFSET = 3 * Constants.UNIT_FOR_PIXEL;
+    private static final Color SHADOW_COLOR = new Color(0, 0, 0, BodyRegionDrawer.SHADOW_ALPHA);
+
+    private final SpriteCache mSpriteCache;
+    private final int mShadowCacheId;
+    private final int mObstacleCacheId;
+
+    StaticObstaclesRenderer(StaticObstacles staticObstacles) {
+        int count = staticObstacles.getItems().size;
+        mSpriteCache = new SpriteCache(count * 2, false);
+
+        mSpriteCache.beginCache();
+        mSpriteCache.setColor(SHADOW_COLOR);
+        for (StaticObstacles.Item item : staticObstacles.getItems()) {
+            addItem(item, SHADOW_OFFSET, -SHADOW_OFFSET);
+        }
+        mShadowCacheId = mSpriteCache.endCache();
+
+        mSpriteCache.beginCache();
+        mSpriteCache.setColor(Color.WHITE);
+        for (StaticObstacles.Item item : staticObstacles.getItems()) {
+            addItem(item, 0, 0);
+        }
+        mObstacleCacheId = mSpriteCache.endCache();
+    }
+
+    private void addItem(StaticObstacles.Item item, float offsetX, float offsetY) {
+        TextureRegion region = item.region;
+        float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
+        float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
+        mSpriteCache.add(
+                region,
+                item.x + offsetX - w / 2,
+                item.y + offsetY - h / 2, // pos
+                w / 2,
+                h / 2, // origin
+                w,
+                h, // size
+                1,
+                1, // scale
+                item.angle * MathUtils.radDeg);
+    }
+
+    /** Must be called outside of any Batch.begin() / end() pair */
+    void drawShadows(Matrix4 projectionMatrix) {
+        draw(projectionMatrix, mShadowCacheId);
+    }
+
+    /** Must be called outside of any Batch.begin() / end() pair */
+    void drawObstacles(Matrix4 projectionMatrix) {
+        draw(projectionMatrix, mObstacleCacheId);
+    }
+
+    private void draw(Matrix4 projectionMatrix, int cacheId) {
+        // Batch.end() disables blending, so enable it back
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        mSpriteCache.setProjectionMatrix(projectionMatrix);
+        mSpriteCache.begin();
+        mSpriteCache.draw(cacheId);
+        mSpriteCache.end();
+    }
+
+    @Override
+    public void dispose() {
+        mSpriteCache.dispose();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.agateau.pixelwheels.racer.LapPositionComponent;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.VehicleRenderer;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+
+/**
+ * Shows the best lap of a racer on the track, racing along the current lap of this racer
+ *
+ * <p>The ghost has no body: it does not collide with anything and its position only depends on the
+ * lap time of the racer. This is also why it has no state to save in snapshots.
+ */
+public class Ghost extends GameObjectAdapter implements Snapshot.Savable {
+    private static final Color COLOR = new Color(1, 1, 1, 0.4f);
+
+    private final Assets mAssets;
+    private final Racer mRacer;
+    private GhostVehicle mVehicle;
+    private VehicleRenderer mRenderer;
+    private boolean mVisible = false;
+
+    /** recording can be null, in which case the ghost stays hidden until setRecording() */
+    public Ghost(Assets assets, Racer racer, GhostRecording recording) {
+        mAssets = assets;
+        mRacer = racer;
+        setRecording(recording);
+    }
+
+    public void setRecording(GhostRecording recording) {
+        if (recording != null && mAssets.findVehicleDefById(recording.getVehicleId()) == null) {
+            NLog.e("Ghost vehicle %s does not exist", recording.getVehicleId());
+            recording = null;
+        }
+        if (recording == null) {
+            mVehicle = null;
+            mRenderer = null;
+            return;
+        }
+        mVehicle = new GhostVehicle(mAssets, recording);
+        mRenderer = new VehicleRenderer(mAssets, mVehicle);
+    }
+
+    @Override
+    public void act(float delta) {
+        LapPositionComponent lapPositionComponent = mRacer.getLapPositionComponent();
+        float time = lapPositionComponent.getLapTime();
+        mVisible =
+                mVehicle != null
+                        && lapPositionComponent.getLapCount() > 0
+                        && !lapPositionComponent.hasFinishedRace()
+                        && time <= mVehicle.getRecording().getLapTime();
+        if (!mVisible) {
+            return;
+        }
+        mVehicle.setTime(time);
+        mRenderer.updateTransforms();
+    }
+
+    @Override
+    public void draw(Batch batch, ZLevel zLevel) {
+        // No shadow: it would not look like a ghost anymore
+        if (!mVisible || zLevel == ZLevel.GROUND) {
+            return;
+        }
+        batch.setColor(COLOR);
+        mRenderer.draw(batch, zLevel);
+        batch.setColor(Color.WHITE);
+    }
+
+    @Override
+    public float getX() {
+        return mVehicle == null ? 0 : mVehicle.getX();
+    }
+
+    @Override
+    public float getY() {
+        return mVehicle == null ? 0 : mVehicle.getY();
+    }
+
+    @Override
+    public void saveState(Snapshot snapshot) {}
+
+    @Override
+    public void restoreState(Snapshot snapshot) {}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.LapPositionComponent;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.racer.VehicleRenderer;
+import com.agateau.utils.FileUtils;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Records the laps of a racer, and saves the best one as the ghost of the track
+ *
+ * <p>act() must be called once per frame, after GameWorld.act().
+ */
+public class GhostRecorder {
+    public interface Listener {
+        void onGhostSaved(GhostRecording recording);
+    }
+
+    private final Racer mRacer;
+    private final FileHandle mHandle;
+    private final float[] mTransforms;
+    private final float[] mWheelOffsets;
+    private final GhostRecording.Encoder mEncoder;
+    private Listener mListener;
+
+    private float mBestLapTime;
+    private int mLapCount = 0;
+    private float mLastLapTime = 0;
+    // True if the samples are for the whole current lap
+    private boolean mRecording = false;
+    private float mNextSampleTime = 0;
+
+    public static FileHandle getGhostFile(Track track) {
+        return FileUtils.getUserWritableFile("ghosts/" + track.getId() + ".ghost");
+    }
+
+    public GhostRecorder(Racer racer, Track track, GhostRecording bestRecording) {
+        mRacer = racer;
+        mHandle = getGhostFile(track);
+        mBestLapTime = bestRecording == null ? Float.MAX_VALUE : bestRecording.getLapTime();
+
+        Vehicle vehicle = racer.getVehicle();
+        int wheelCount = vehicle.getWheelCount();
+        mTransforms = new float[(1 + wheelCount) * VehicleRenderer.TRANSFORM_SIZE];
+        mEncoder = new GhostRecording.Encoder(wheelCount);
+
+        // Wheels do not move relative to the body, so their offsets are stored only once
+        vehicle.getTransforms(mTransforms);
+        float cos = MathUtils.cos(-mTransforms[2]);
+        float sin = MathUtils.sin(-mTransforms[2]);
+        mWheelOffsets = new float[wheelCount * 2];
+        for (int idx = 0; idx < wheelCount; ++idx) {
+            int offset = (idx + 1) * VehicleRenderer.TRANSFORM_SIZE;
+            float dx = mTransforms[offset] - mTransforms[0];
+            float dy = mTransforms[offset + 1] - mTransforms[1];
+            mWheelOffsets[idx * 2] = dx * cos - dy * sin;
+            mWheelOffsets[idx * 2 + 1] = dx * sin + dy * cos;
+        }
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    public void act() {
+        LapPositionComponent lapPositionComponent = mRacer.getLapPositionComponent();
+        if (lapPositionComponent.hasFinishedRace()) {
+            if (mRecording) {
+                // Completing the last lap does not change the lap count
+                onLapCompleted(lapPositionComponent.getLastLapTime());
+                mRecording = false;
+            }
+            return;
+        }
+        int lapCount = lapPositionComponent.getLapCount();
+        float lapTime = lapPositionComponent.getLapTime();
+        if (lapCount != mLapCount) {
+            if (mRecording && lapCount == mLapCount + 1) {
+                onLapCompleted(lapPositionComponent.getLastLapTime());
+            }
+            // Only record if we are starting a new lap: going backward over the finish line must
+            // not produce a ghost
+            mRecording = lapCount == mLapCount + 1;
+            mLapCount = lapCount;
+            startLap();
+        } else if (lapTime < mLastLapTime) {
+            // The race state has been restored from a snapshot
+            mRecording = false;
+        }
+        mLastLapTime = lapTime;
+
+        if (!mRecording) {
+            return;
+        }
+        Vehicle vehicle = mRacer.getVehicle();
+        if (vehicle.isFlying() || vehicle.isFalling()) {
+            // Not supported by ghosts
+            mRecording = false;
+            return;
+        }
+        while (lapTime >= mNextSampleTime) {
+            vehicle.getTransforms(mTransforms);
+            mEncoder.addSample(mTransforms, vehicle.getTurboTime() >= 0);
+            mNextSampleTime += GhostRecording.SAMPLE_INTERVAL;
+        }
+    }
+
+    private void startLap() {
+        mEncoder.clear();
+        mNextSampleTime = 0;
+    }
+
+    private void onLapCompleted(float lapTime) {
+        if (lapTime >= mBestLapTime || mEncoder.getSampleCount() < 2) {
+            return;
+        }
+        mBestLapTime = lapTime;
+        GhostRecording recording =
+                new GhostRecording(
+                        mRacer.getVehicle().getId(),
+                        lapTime,
+                        mWheelOffsets.clone(),
+                        mEncoder.getSampleCount(),
+                        mEncoder.toArray());
+        recording.save(mHandle);
+        NLog.i(
+                "Saved ghost for a %.3fs lap in %s (%d bytes)",
+                lapTime, mHandle.path(), recording.getDataSize());
+        if (mListener != null) {
+            mListener.onGhostSaved(recording);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.racer.VehicleRenderer;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The movements of a vehicle during one lap, played back by Ghost
+ *
+ * <p>The vehicle is sampled every SAMPLE_INTERVAL seconds. A sample is made of the position and
+ * angle of the vehicle body, the angle of each wheel relative to the body and a turbo flag. Values
+ * are quantized to integers and each sample is stored as the difference with the previous one,
+ * using a variable-length encoding: most values take a single byte. The positions of the wheels
+ * relative to the body do not change, so they are only stored once.
+ *
+ * <p>Samples are decoded when the recording is created, so that playback does not allocate.
+ */
+public class GhostRecording {
+    public static final float SAMPLE_INTERVAL = 1 / 20f;
+
+    private static final int MAGIC = 0x50574748; // "PWGH"
+    private static final int VERSION = 1;
+
+    private static final float POSITION_STEP = 0.01f;
+    private static final float ANGLE_STEP = MathUtils.PI2 / 4096;
+    private static final float WHEEL_ANGLE_STEP = MathUtils.degreesToRadians;
+    private static final int FLAG_TURBO = 1;
+
+    // Channels of a sample: x, y, angle, one per wheel, flags
+    private static final int BODY_CHANNEL_COUNT = 3;
+
+    private static int getChannelCount(int wheelCount) {
+        return BODY_CHANNEL_COUNT + wheelCount + 1;
+    }
+
+    /** Encodes samples. Does not allocate once its buffer is large enough */
+    static class Encoder {
+        private final ByteArray mBytes = new ByteArray(4096);
+        private final int mWheelCount;
+        private final int[] mLastValues;
+        private int mSampleCount = 0;
+
+        Encoder(int wheelCount) {
+            mWheelCount = wheelCount;
+            mLastValues = new int[getChannelCount(wheelCount)];
+        }
+
+        void clear() {
+            mBytes.clear();
+            mSampleCount = 0;
+            for (int idx = 0; idx < mLastValues.length; ++idx) {
+                mLastValues[idx] = 0;
+            }
+        }
+
+        int getSampleCount() {
+            return mSampleCount;
+        }
+
+        /** transforms must be in the format of VehicleRenderer.Source.getTransforms() */
+        void addSample(float[] transforms, boolean turbo) {
+            float bodyAngle = transforms[2];
+            addValue(0, transforms[0] / POSITION_STEP);
+            addValue(1, transforms[1] / POSITION_STEP);
+            addValue(2, bodyAngle / ANGLE_STEP);
+            for (int idx = 0; idx < mWheelCount; ++idx) {
+                float wheelAngle = transforms[(idx + 1) * VehicleRenderer.TRANSFORM_SIZE + 2];
+                addValue(BODY_CHANNEL_COUNT + idx, (wheelAngle - bodyAngle) / WHEEL_ANGLE_STEP);
+            }
+            addValue(BODY_CHANNEL_COUNT + mWheelCount, turbo ? FLAG_TURBO : 0);
+            ++mSampleCount;
+        }
+
+        private void addValue(int channel, float value) {
+            int intValue = Math.round(value);
+            int delta = intValue - mLastValues[channel];
+            mLastValues[channel] = intValue;
+            // Zigzag encoding, so that small negative values are small too
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7f) != 0) {
+                mBytes.add((byte) ((zigzag & 0x7f) | 0x80));
+                zigzag >>>= 7;
+            }
+            mBytes.add((byte) zigzag);
+        }
+
+        byte[] toArray() {
+            return mBytes.toArray();
+        }
+    }
+
+    private final String mVehicleId;
+    private final float mLapTime;
+    // (x, y) of each wheel relative to the body, when the body angle is 0
+    private final float[] mWheelOffsets;
+    private final int mWheelCount;
+    private final int mSampleCount;
+    private final byte[] mData;
+
+    private final float[] mBodyX;
+    private final float[] mBodyY;
+    private final float[] mBodyAngles;
+    // mWheelCount values per sample
+    private final float[] mWheelAngles;
+    private final boolean[] mTurbo;
+
+    GhostRecording(
+            String vehicleId, float lapTime, float[] wheelOffsets, int sampleCount, byte[] data) {
+        mVehicleId = vehicleId;
+        mLapTime = lapTime;
+        mWheelOffsets = wheelOffsets;
+        mWheelCount = wheelOffsets.length / 2;
+        mSampleCount = sampleCount;
+        mData = data;
+
+        mBodyX = new float[sampleCount];
+        mBodyY = new float[sampleCount];
+        mBodyAngles = new float[sampleCount];
+        mWheelAngles = new float[sampleCount * mWheelCount];
+        mTurbo = new boolean[sampleCount];
+        decode();
+    }
+
+    public String getVehicleId() {
+        return mVehicleId;
+    }
+
+    public float getLapTime() {
+        return mLapTime;
+    }
+
+    public int getWheelCount() {
+        return mWheelCount;
+    }
+
+    public int getSampleCount() {
+        return mSampleCount;
+    }
+
+    /** Size of the encoded samples, in bytes */
+    public int getDataSize() {
+        return mData.length;
+    }
+
+    /**
+     * Fills transforms with the state of the vehicle at time, in the format of
+     * VehicleRenderer.Source.getTransforms(). Interpolates between samples.
+     */
+    public void getTransforms(float time, float[] transforms) {
+        float position = MathUtils.clamp(time / SAMPLE_INTERVAL, 0, mSampleCount - 1);
+        int idx = (int) position;
+        int next = Math.min(idx + 1, mSampleCount - 1);
+        float k = position - idx;
+
+        float bodyX = MathUtils.lerp(mBodyX[idx], mBodyX[next], k);
+        float bodyY = MathUtils.lerp(mBodyY[idx], mBodyY[next], k);
+        float bodyAngle = MathUtils.lerp(mBodyAngles[idx], mBodyAngles[next], k);
+        transforms[0] = bodyX;
+        transforms[1] = bodyY;
+        transforms[2] = bodyAngle;
+
+        float cos = MathUtils.cos(bodyAngle);
+        float sin = MathUtils.sin(bodyAngle);
+        for (int wheel = 0; wheel < mWheelCount; ++wheel) {
+            float offsetX = mWheelOffsets[wheel * 2];
+            float offsetY = mWheelOffsets[wheel * 2 + 1];
+            float wheelAngle =
+                    MathUtils.lerp(
+                            mWheelAngles[idx * mWheelCount + wheel],
+                            mWheelAngles[next * mWheelCount + wheel],
+                            k);
+            int offset = (wheel + 1) * VehicleRenderer.TRANSFORM_SIZE;
+            transforms[offset] = bodyX + offsetX * cos - offsetY * sin;
+            transforms[offset + 1] = bodyY + offsetX * sin + offsetY * cos;
+            transforms[offset + 2] = bodyAngle + wheelAngle;
+        }
+    }
+
+    public boolean isTurboOn(float time) {
+        int idx = MathUtils.clamp((int) (time / SAMPLE_INTERVAL), 0, mSampleCount - 1);
+        return mTurbo[idx];
+    }
+
+    private void decode() {
+        int[] values = new int[getChannelCount(mWheelCount)];
+        int offset = 0;
+        for (int sample = 0; sample < mSampleCount; ++sample) {
+            for (int channel = 0; channel < values.length; ++channel) {
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (offset >= mData.length) {
+                        throw new GdxRuntimeException("Ghost data is truncated");
+                    }
+                    b = mData[offset++];
+                    zigzag |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                values[channel] += (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            mBodyX[sample] = values[0] * POSITION_STEP;
+            mBodyY[sample] = values[1] * POSITION_STEP;
+            mBodyAngles[sample] = values[2] * ANGLE_STEP;
+            for (int wheel = 0; wheel < mWheelCount; ++wheel) {
+                mWheelAngles[sample * mWheelCount + wheel] =
+                        values[BODY_CHANNEL_COUNT + wheel] * WHEEL_ANGLE_STEP;
+            }
+            mTurbo[sample] = (values[BODY_CHANNEL_COUNT + mWheelCount] & FLAG_TURBO) != 0;
+        }
+    }
+
+    public void save(FileHandle handle) {
+        try (DataOutputStream out =
+                new DataOutputStream(new GZIPOutputStream(handle.write(/* append= */ false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(mVehicleId);
+            out.writeFloat(mLapTime);
+            out.writeInt(mWheelCount);
+            for (float value : mWheelOffsets) {
+                out.writeFloat(value);
+            }
+            out.writeInt(mSampleCount);
+            out.writeInt(mData.length);
+            out.write(mData);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to save ghost to " + handle.path(), e);
+        }
+    }
+
+    /** Returns null if handle does not exist or cannot be read */
+    public static GhostRecording load(FileHandle handle) {
+        if (!handle.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(handle.read()))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                NLog.e("%s is not a ghost, or uses an unsupported version", handle.path());
+                return null;
+            }
+            String vehicleId = in.readUTF();
+            float lapTime = in.readFloat();
+            float[] wheelOffsets = new float[in.readInt() * 2];
+            for (int idx = 0; idx < wheelOffsets.length; ++idx) {
+                wheelOffsets[idx] = in.readFloat();
+            }
+            int sampleCount = in.readInt();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new GhostRecording(vehicleId, lapTime, wheelOffsets, sampleCount, data);
+        } catch (IOException | GdxRuntimeException e) {
+            NLog.e("Failed to load ghost from %s: %s", handle.path(), e);
+            return null;
+        }
+    }
+}
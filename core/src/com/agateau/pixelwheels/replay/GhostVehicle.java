@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.racer.VehicleRenderer;
+import com.agateau.pixelwheels.vehicledef.VehicleDef;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/** A vehicle whose movements come from a GhostRecording instead of the physics engine */
+class GhostVehicle implements VehicleRenderer.Source {
+    private final Assets mAssets;
+    private final GhostRecording mRecording;
+    private final Animation<TextureRegion> mBodyAnimation;
+    private float mTime = 0;
+    private float mX = 0;
+    private float mY = 0;
+
+    GhostVehicle(Assets assets, GhostRecording recording) {
+        mAssets = assets;
+        mRecording = recording;
+        VehicleDef vehicleDef = assets.findVehicleDefById(recording.getVehicleId());
+        mBodyAnimation = vehicleDef.getAnimation(assets);
+        mBodyAnimation.setPlayMode(Animation.PlayMode.LOOP);
+    }
+
+    GhostRecording getRecording() {
+        return mRecording;
+    }
+
+    void setTime(float time) {
+        mTime = time;
+    }
+
+    float getX() {
+        return mX;
+    }
+
+    float getY() {
+        return mY;
+    }
+
+    @Override
+    public int getWheelCount() {
+        return mRecording.getWheelCount();
+    }
+
+    @Override
+    public TextureRegion getWheelRegion(int wheelIdx) {
+        return mAssets.wheel;
+    }
+
+    @Override
+    public boolean isWheelInWater(int wheelIdx) {
+        return false;
+    }
+
+    @Override
+    public TextureRegion getRegion(float time) {
+        return mBodyAnimation.getKeyFrame(time);
+    }
+
+    @Override
+    public float getWidth() {
+        return Constants.UNIT_FOR_PIXEL * getRegion(0).getRegionWidth();
+    }
+
+    @Override
+    public float getZ() {
+        return 0;
+    }
+
+    @Override
+    public boolean isFlying() {
+        return false;
+    }
+
+    @Override
+    public boolean isFalling() {
+        return false;
+    }
+
+    @Override
+    public float getTurboTime() {
+        return mRecording.isTurboOn(mTime) ? mTime : -1;
+    }
+
+    @Override
+    public void getTransforms(float[] transforms) {
+        mRecording.getTransforms(mTime, transforms);
+        mX = transforms[0];
+        mY = transforms[1];
+    }
+}
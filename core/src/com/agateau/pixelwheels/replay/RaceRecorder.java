@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.bonus.BonusPool;
+import com.agateau.pixelwheels.gameinput.GameInput;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.racer.PlayerPilot;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Records a race as it runs, see RaceRecording
+ *
+ * <p>beginFrame() must be called before each call to GameWorld.act(). Recording does not allocate,
+ * unless the race lasts longer than the initial capacity of the recording.
+ */
+public class RaceRecorder {
+    private final RaceRecording mRecording = new RaceRecording();
+    private final Array<GameInfo.Entrant> mEntrants = new Array<>();
+    private final GameInput[] mLastInputs = new GameInput[Constants.MAX_PLAYERS];
+    private int mFrame = -1;
+
+    /** Must be called before the world acts for the first time */
+    @SuppressWarnings("rawtypes")
+    public RaceRecorder(GameInfo gameInfo, GameWorldImpl gameWorld) {
+        gameWorld.disablePhysicsQualityAdaptation();
+
+        mRecording.mTrackId = gameInfo.getTrack().getId();
+        mRecording.mRandomSeed = gameWorld.getRandomSeed();
+
+        // Keep our own copy: the entrants of the GameInfo are sorted at the end of the race
+        mEntrants.addAll(gameInfo.getEntrants());
+        for (GameInfo.Entrant entrant : mEntrants) {
+            int playerIndex = entrant.isPlayer() ? ((GameInfo.Player) entrant).getIndex() : -1;
+            mRecording.mEntrants.add(
+                    new RaceRecording.EntrantInfo(entrant.getVehicleId(), playerIndex));
+        }
+
+        for (BonusPool pool : gameWorld.getBonusPools()) {
+            mRecording.mBonusPoolCounts.add(pool.getCounts().clone());
+        }
+
+        for (Racer racer : gameWorld.getPlayerRacers()) {
+            ((PlayerPilot) racer.getPilot()).setRaceRecorder(this);
+        }
+    }
+
+    public void beginFrame(float delta) {
+        ++mFrame;
+        mRecording.mFrameDeltas.add(delta);
+    }
+
+    /** Called by PlayerPilot with the input it is going to use */
+    public void recordInput(int playerIndex, GameInput input) {
+        GameInput lastInput = mLastInputs[playerIndex];
+        if (lastInput == null) {
+            lastInput = new GameInput();
+            mLastInputs[playerIndex] = lastInput;
+        } else if (lastInput.accelerating == input.accelerating
+                && lastInput.braking == input.braking
+                && lastInput.triggeringBonus == input.triggeringBonus
+                && lastInput.direction == input.direction) {
+            return;
+        }
+        lastInput.accelerating = input.accelerating;
+        lastInput.braking = input.braking;
+        lastInput.triggeringBonus = input.triggeringBonus;
+        lastInput.direction = input.direction;
+        mRecording.addEvent(mFrame, playerIndex, input);
+    }
+
+    /**
+     * Stores the results of the race, racers must be in rank order. Returns the complete recording
+     */
+    public RaceRecording finish(Array<Racer> racers) {
+        for (Racer racer : racers) {
+            mRecording.mResultEntrants.add(mEntrants.indexOf(racer.getEntrant(), true));
+            mRecording.mResultTimes.add(racer.getLapPositionComponent().getTotalTime());
+        }
+        return mRecording;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.gameinput.GameInput;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Everything needed to run a race again: the entrants, the random seed, the duration of each frame
+ * and the inputs of the players. Also contains the results of the race, to check the replay ends
+ * the same way.
+ *
+ * <p>Player inputs are only stored when they change. Recordings are saved as gzipped binary files.
+ */
+public class RaceRecording {
+    private static final int MAGIC = 0x50575243; // "PWRC"
+    private static final int VERSION = 1;
+
+    // About 3 minutes at 60 FPS, to avoid growing arrays while recording
+    private static final int INITIAL_FRAME_CAPACITY = 60 * 60 * 3;
+    private static final int INITIAL_EVENT_CAPACITY = 2048;
+
+    private static final int FLAG_ACCELERATING = 1;
+    private static final int FLAG_BRAKING = 2;
+    private static final int FLAG_TRIGGERING_BONUS = 4;
+
+    /** An entrant of the race, playerIndex is -1 for AI entrants */
+    public static class EntrantInfo {
+        public final String vehicleId;
+        public final int playerIndex;
+
+        EntrantInfo(String vehicleId, int playerIndex) {
+            this.vehicleId = vehicleId;
+            this.playerIndex = playerIndex;
+        }
+    }
+
+    String mTrackId;
+    long mRandomSeed;
+    final Array<EntrantInfo> mEntrants = new Array<>();
+    final Array<float[]> mBonusPoolCounts = new Array<>();
+
+    final FloatArray mFrameDeltas = new FloatArray(INITIAL_FRAME_CAPACITY);
+
+    // Input events, one entry per event in each array
+    final IntArray mEventFrames = new IntArray(INITIAL_EVENT_CAPACITY);
+    final IntArray mEventPlayers = new IntArray(INITIAL_EVENT_CAPACITY);
+    final IntArray mEventFlags = new IntArray(INITIAL_EVENT_CAPACITY);
+    final FloatArray mEventDirections = new FloatArray(INITIAL_EVENT_CAPACITY);
+
+    // Results, in rank order
+    final IntArray mResultEntrants = new IntArray();
+    final FloatArray mResultTimes = new FloatArray();
+
+    RaceRecording() {}
+
+    public String getTrackId() {
+        return mTrackId;
+    }
+
+    public long getRandomSeed() {
+        return mRandomSeed;
+    }
+
+    public Array<EntrantInfo> getEntrants() {
+        return mEntrants;
+    }
+
+    public int getFrameCount() {
+        return mFrameDeltas.size;
+    }
+
+    public float getFrameDelta(int frame) {
+        return mFrameDeltas.get(frame);
+    }
+
+    /** Total duration of the recorded frames, in seconds */
+    public float getDuration() {
+        float duration = 0;
+        for (int idx = 0; idx < mFrameDeltas.size; ++idx) {
+            duration += mFrameDeltas.get(idx);
+        }
+        return duration;
+    }
+
+    void addEvent(int frame, int player, GameInput input) {
+        mEventFrames.add(frame);
+        mEventPlayers.add(player);
+        mEventFlags.add(flagsForInput(input));
+        mEventDirections.add(input.direction);
+    }
+
+    /** Copies the input of event into input */
+    void getEventInput(int event, GameInput input) {
+        int flags = mEventFlags.get(event);
+        input.accelerating = (flags & FLAG_ACCELERATING) != 0;
+        input.braking = (flags & FLAG_BRAKING) != 0;
+        input.triggeringBonus = (flags & FLAG_TRIGGERING_BONUS) != 0;
+        input.direction = mEventDirections.get(event);
+    }
+
+    private static int flagsForInput(GameInput input) {
+        int flags = 0;
+        if (input.accelerating) {
+            flags |= FLAG_ACCELERATING;
+        }
+        if (input.braking) {
+            flags |= FLAG_BRAKING;
+        }
+        if (input.triggeringBonus) {
+            flags |= FLAG_TRIGGERING_BONUS;
+        }
+        return flags;
+    }
+
+    public void save(FileHandle handle) {
+        try (DataOutputStream out =
+                new DataOutputStream(new GZIPOutputStream(handle.write(/* append= */ false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(mTrackId);
+            out.writeLong(mRandomSeed);
+
+            out.writeInt(mEntrants.size);
+            for (EntrantInfo entrant : mEntrants) {
+                out.writeUTF(entrant.vehicleId);
+                out.writeByte(entrant.playerIndex);
+            }
+
+            out.writeInt(mBonusPoolCounts.size);
+            for (float[] counts : mBonusPoolCounts) {
+                out.writeInt(counts.length);
+                for (float count : counts) {
+                    out.writeFloat(count);
+                }
+            }
+
+            out.writeInt(mFrameDeltas.size);
+            for (int idx = 0; idx < mFrameDeltas.size; ++idx) {
+                out.writeFloat(mFrameDeltas.get(idx));
+            }
+
+            out.writeInt(mEventFrames.size);
+            for (int idx = 0; idx < mEventFrames.size; ++idx) {
+                out.writeInt(mEventFrames.get(idx));
+                out.writeByte(mEventPlayers.get(idx));
+                out.writeByte(mEventFlags.get(idx));
+                out.writeFloat(mEventDirections.get(idx));
+            }
+
+            out.writeInt(mResultEntrants.size);
+            for (int idx = 0; idx < mResultEntrants.size; ++idx) {
+                out.writeInt(mResultEntrants.get(idx));
+                out.writeFloat(mResultTimes.get(idx));
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to save race recording to " + handle.path(), e);
+        }
+    }
+
+    public static RaceRecording load(FileHandle handle) {
+        RaceRecording recording = new RaceRecording();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(handle.read()))) {
+            if (in.readInt() != MAGIC) {
+                throw new GdxRuntimeException(handle.path() + " is not a race recording");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new GdxRuntimeException(
+                        handle.path() + ": unsupported recording version " + version);
+            }
+            recording.mTrackId = in.readUTF();
+            recording.mRandomSeed = in.readLong();
+
+            int entrantCount = in.readInt();
+            for (int idx = 0; idx < entrantCount; ++idx) {
+                String vehicleId = in.readUTF();
+                int playerIndex = in.readByte();
+                recording.mEntrants.add(new EntrantInfo(vehicleId, playerIndex));
+            }
+
+            int poolCount = in.readInt();
+            for (int idx = 0; idx < poolCount; ++idx) {
+                float[] counts = new float[in.readInt()];
+                for (int countIdx = 0; countIdx < counts.length; ++countIdx) {
+                    counts[countIdx] = in.readFloat();
+                }
+                recording.mBonusPoolCounts.add(counts);
+            }
+
+            int frameCount = in.readInt();
+            recording.mFrameDeltas.ensureCapacity(frameCount);
+            for (int idx = 0; idx < frameCount; ++idx) {
+                recording.mFrameDeltas.add(in.readFloat());
+            }
+
+            int eventCount = in.readInt();
+            for (int idx = 0; idx < eventCount; ++idx) {
+                recording.mEventFrames.add(in.readInt());
+                recording.mEventPlayers.add(in.readByte());
+                recording.mEventFlags.add(in.readByte());
+                recording.mEventDirections.add(in.readFloat());
+            }
+
+            int resultCount = in.readInt();
+            for (int idx = 0; idx < resultCount; ++idx) {
+                recording.mResultEntrants.add(in.readInt());
+                recording.mResultTimes.add(in.readFloat());
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to load race recording from " + handle.path(), e);
+        }
+        return recording;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.bonus.BonusPool;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.PlayerPilot;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.util.Arrays;
+
+/**
+ * Runs a recorded race again
+ *
+ * <p>Usage: create the world with the GameInfo returned by createGameInfo(), call attach(), then
+ * call world.act(nextFrame()) until hasNextFrame() returns false. checkResults() tells whether the
+ * race ended the same way as when it was recorded.
+ */
+public class RaceReplayer {
+    private final RaceRecording mRecording;
+    private final ReplayInputHandler[] mInputHandlers =
+            new ReplayInputHandler[Constants.MAX_PLAYERS];
+    private GameInfo mGameInfo;
+    private int mFrame = 0;
+    private int mNextEvent = 0;
+
+    private static class ReplayGameInfo extends GameInfo {
+        private final Track mTrack;
+
+        ReplayGameInfo(Track track) {
+            super(GameType.QUICK_RACE);
+            mTrack = track;
+        }
+
+        @Override
+        public Track getTrack() {
+            return mTrack;
+        }
+    }
+
+    public RaceReplayer(RaceRecording recording) {
+        mRecording = recording;
+    }
+
+    public GameInfo createGameInfo(Assets assets) {
+        Track track = assets.findTrackById(mRecording.getTrackId());
+        if (track == null) {
+            throw new GdxRuntimeException("Unknown track " + mRecording.getTrackId());
+        }
+        mGameInfo = new ReplayGameInfo(track);
+        for (RaceRecording.EntrantInfo info : mRecording.getEntrants()) {
+            GameInfo.Entrant entrant =
+                    info.playerIndex == -1
+                            ? new GameInfo.Entrant(info.vehicleId)
+                            : new GameInfo.Player(info.playerIndex, info.vehicleId);
+            mGameInfo.getEntrants().add(entrant);
+        }
+        return mGameInfo;
+    }
+
+    /** Must be called before the world acts for the first time */
+    @SuppressWarnings("rawtypes")
+    public void attach(GameWorldImpl gameWorld) {
+        Assert.check(mGameInfo != null, "createGameInfo() has not been called");
+        gameWorld.setRandomSeed(mRecording.getRandomSeed());
+        gameWorld.disablePhysicsQualityAdaptation();
+
+        Array<BonusPool> pools = gameWorld.getBonusPools();
+        boolean sameCounts = pools.size == mRecording.mBonusPoolCounts.size;
+        for (int idx = 0; sameCounts && idx < pools.size; ++idx) {
+            float[] counts = pools.get(idx).getCounts();
+            sameCounts = Arrays.equals(counts, mRecording.mBonusPoolCounts.get(idx));
+        }
+        if (!sameCounts) {
+            throw new GdxRuntimeException(
+                    "Bonus pool counts have changed since the race was recorded");
+        }
+
+        for (Racer racer : gameWorld.getPlayerRacers()) {
+            PlayerPilot pilot = (PlayerPilot) racer.getPilot();
+            ReplayInputHandler handler = new ReplayInputHandler();
+            mInputHandlers[pilot.getPlayerIndex()] = handler;
+            pilot.setInputHandler(handler);
+        }
+    }
+
+    public boolean hasNextFrame() {
+        return mFrame < mRecording.getFrameCount();
+    }
+
+    /** Applies the inputs recorded for the next frame and returns its duration */
+    public float nextFrame() {
+        while (mNextEvent < mRecording.mEventFrames.size
+                && mRecording.mEventFrames.get(mNextEvent) <= mFrame) {
+            int player = mRecording.mEventPlayers.get(mNextEvent);
+            mRecording.getEventInput(mNextEvent, mInputHandlers[player].mInput);
+            ++mNextEvent;
+        }
+        float delta = mRecording.getFrameDelta(mFrame);
+        ++mFrame;
+        return delta;
+    }
+
+    /**
+     * Compares the ranks and times of the racers with the recorded ones. Returns the differences,
+     * an empty array means the race ended the same way
+     */
+    public Array<String> checkResults(GameWorld gameWorld) {
+        Array<String> errors = new Array<>();
+        if (gameWorld.getState() != GameWorld.State.FINISHED) {
+            errors.add("Race is not finished after " + mFrame + " frames");
+            return errors;
+        }
+        Array<Racer> racers = gameWorld.getRacers();
+        Array<GameInfo.Entrant> entrants = mGameInfo.getEntrants();
+        if (racers.size != mRecording.mResultEntrants.size) {
+            int expectedSize = mRecording.mResultEntrants.size;
+            errors.add("Expected " + expectedSize + " racers, got " + racers.size);
+            return errors;
+        }
+        for (int rank = 0; rank < racers.size; ++rank) {
+            Racer racer = racers.get(rank);
+            int entrantIndex = entrants.indexOf(racer.getEntrant(), true);
+            int expectedIndex = mRecording.mResultEntrants.get(rank);
+            float time = racer.getLapPositionComponent().getTotalTime();
+            float expectedTime = mRecording.mResultTimes.get(rank);
+            if (entrantIndex != expectedIndex || time != expectedTime) {
+                errors.add(
+                        String.format(
+                                "Rank %d: expected entrant %d (%s) in %.3fs, got entrant %d (%s)"
+                                        + " in %.3fs",
+                                rank + 1,
+                                expectedIndex,
+                                entrants.get(expectedIndex).getVehicleId(),
+                                expectedTime,
+                                entrantIndex,
+                                racer.getEntrant().getVehicleId(),
+                                time));
+            }
+        }
+        return errors;
+    }
+}
@@ -155,6 +155,20 @@ public class ConfigScreen extends PwStageScreen {
                             });
             group.addItemWithLabel("Music:", musicSwitch);
 
+            final SwitchMenuItem ghostSwitch = new SwitchMenuItem(menu);
+            ghostSwitch.setChecked(gameConfig.showGhost);
+            ghostSwitch
+                    .getActor()
+                    .addListener(
+                            new ChangeListener() {
+                                @Override
+                                public void changed(ChangeEvent event, Actor actor) {
+                                    gameConfig.showGhost = ghostSwitch.isChecked();
+                                    gameConfig.flush();
+                                }
+                            });
+            group.addItemWithLabel("Best lap ghost:", ghostSwitch);
+
             if (PlatformUtils.isDesktop()) {
                 final SwitchMenuItem fullscreenSwitch = new SwitchMenuItem(menu);
                 fullscreenSwitch.setChecked(gameConfig.fullscreen);
@@ -170,6 +184,20 @@ public class ConfigScreen extends PwStageScreen {
                                     }
                                 });
                 group.addItemWithLabel("Fullscreen:", fullscreenSwitch);
+
+                final SwitchMenuItem splitScreenSwitch = new SwitchMenuItem(menu);
+                splitScreenSwitch.setChecked(gameConfig.splitScreen);
+                splitScreenSwitch
+                        .getActor()
+                        .addListener(
+                                new ChangeListener() {
+                                    @Override
+                                    public void changed(ChangeEvent event, Actor actor) {
+                                        gameConfig.splitScreen = splitScreenSwitch.isChecked();
+                                        gameConfig.flush();
+                                    }
+                                });
+                group.addItemWithLabel("Split screen:", splitScreenSwitch);
             }
         }
 
@@ -76,10 +76,11 @@ public class DebugScreen extends PwStageScreen {
 
         mCurrentGroup = tabMenuItem.addPage("Race");
         addRange("Viewport width", "viewportWidth", 20, 800, 10);
-        addRange("Racer count", "racerCount", 1, 6);
+        addRange("Racer count", "racerCount", 1, 64);
         addRange("Border restitution", "borderRestitution", 1, 50);
         addCheckBox("One lap only", "oneLapOnly");
         addCheckBox("Free camera", "freeCamera");
+        addCheckBox("Hitscan gun", "hitscanGun");
 
         mCurrentGroup = tabMenuItem.addPage("Speed");
         addTitle("Speed");
@@ -94,6 +95,11 @@ public class DebugScreen extends PwStageScreen {
         addRange("Steer: high speed", "highSpeedMaxSteer", 2, 50, 1);
         addRange("Vehicle density", "vehicleDensity", 1, 50);
         addRange("Restitution", "vehicleRestitution", 1, 50);
+        addCheckBox("Single-body AI vehicles", "singleBodyAIVehicles");
+        addTitle("Physics quality");
+        addCheckBox("Adaptive", "adaptivePhysicsQuality");
+        addRange("Budget (ms)", "physicsTimeBudget", 1f, 16f, 0.5f);
+        addRange("Min quality", "minPhysicsQuality", 0, 3);
 
         mCurrentIntrospector = mGame.getSoundSettingsIntrospector();
         mCurrentGroup = tabMenuItem.addPage("Sound");
@@ -112,6 +118,8 @@ public class DebugScreen extends PwStageScreen {
         addCheckBox("- Draw velocities", "drawVelocities");
         addCheckBox("- Draw tile corners", "drawTileCorners");
         addCheckBox("Hud debug lines", "showHudDebugLines");
+        addCheckBox("Record races", "recordRaces");
+        addCheckBox("Log frame times", "logFrameTimes");
 
         builder.getActor("backButton")
                 .addListener(
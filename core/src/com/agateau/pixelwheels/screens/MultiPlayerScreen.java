@@ -50,6 +50,7 @@ public class MultiPlayerScreen extends PwStageScreen {
     private final int mPlayerCount = Constants.MAX_PLAYERS; // Hardcoded for now
     private final Listener mListener;
     private final VehicleSelector[] mVehicleSelectors;
+    private final VehicleThumbnailCache mThumbnailCache;
     private final InputMapper[] mInputMappers;
 
     public MultiPlayerScreen(PwGame game, Listener listener) {
@@ -59,6 +60,7 @@ public class MultiPlayerScreen extends PwStageScreen {
 
         mVehicleSelectors = new VehicleSelector[mPlayerCount];
         mInputMappers = new InputMapper[mPlayerCount];
+        mThumbnailCache = new VehicleThumbnailCache(game.getAssets());
 
         for (int idx = 0; idx < mPlayerCount; ++idx) {
             GameInputHandler inputHandler = mGame.getConfig().getPlayerInputHandler(idx);
@@ -102,6 +104,12 @@ public class MultiPlayerScreen extends PwStageScreen {
         mListener.onBackPressed();
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        mThumbnailCache.dispose();
+    }
+
     private void createVehicleSelector(UiBuilder builder, Assets assets, int idx) {
         GameConfig gameConfig = mGame.getConfig();
         String vehicleId = gameConfig.vehicles[idx];
@@ -112,7 +120,7 @@ public class MultiPlayerScreen extends PwStageScreen {
 
         VehicleSelector selector = new VehicleSelector(menu);
         mVehicleSelectors[idx] = selector;
-        selector.init(assets, mGame.getRewardManager());
+        selector.init(assets, mGame.getRewardManager(), mThumbnailCache);
         selector.setCurrent(assets.findVehicleDefById(vehicleId));
         selector.addListener(
                 new MenuItemListener() {
@@ -18,14 +18,17 @@
  */
 package com.agateau.pixelwheels.screens;
 
+import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.ui.StageScreen;
 import com.agateau.ui.UiAssets;
 import com.agateau.ui.UiInputMapper;
 import com.agateau.ui.VirtualKey;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.utils.TiledDrawable;
 import com.badlogic.gdx.utils.Scaling;
+import com.badlogic.gdx.utils.StringBuilder;
 import com.badlogic.gdx.utils.viewport.ScalingViewport;
 
 /** A stage screen using the correct size for Pixel Wheels */
@@ -33,6 +36,11 @@ public abstract class PwStageScreen extends StageScreen {
     public static final int WIDTH = 960;
     public static final int HEIGHT = 540;
 
+    private static final int DEBUG_LABEL_MARGIN = 4;
+
+    private final StringBuilder mDebugSB = new StringBuilder();
+    private Label mDebugLabel = null;
+
     public PwStageScreen(UiAssets uiAssets) {
         super(new ScalingViewport(Scaling.fit, WIDTH, HEIGHT));
 
@@ -40,6 +48,28 @@ public abstract class PwStageScreen extends StageScreen {
         image.setDrawable(new TiledDrawable(uiAssets.background));
         image.setFillParent(true);
         getStage().addActor(image);
+
+        if (Debug.instance.showDebugHud) {
+            mDebugLabel = new Label("", uiAssets.skin, "tiny");
+            mDebugLabel.setPosition(DEBUG_LABEL_MARGIN, DEBUG_LABEL_MARGIN);
+            getStage().addActor(mDebugLabel);
+        }
+    }
+
+    @Override
+    public void show() {
+        super.show();
+        if (mDebugLabel != null) {
+            mDebugLabel.toFront();
+        }
+    }
+
+    @Override
+    public void render(float delta) {
+        if (mDebugLabel != null) {
+            updateDebugLabel();
+        }
+        super.render(delta);
     }
 
     @Override
@@ -52,4 +82,13 @@ public abstract class PwStageScreen extends StageScreen {
                 (float) (PwStageScreen.WIDTH) / Gdx.graphics.getWidth(),
                 (float) (PwStageScreen.HEIGHT) / Gdx.graphics.getHeight());
     }
+
+    private void updateDebugLabel() {
+        mDebugSB.setLength(0);
+        mDebugSB.append("FPS: ").append(Gdx.graphics.getFramesPerSecond());
+        mDebugSB.append("\nIdle FPS: ");
+        mDebugSB.append((int) getRenderScheduler().getIdleFramesPerSecond());
+        mDebugLabel.setText(mDebugSB);
+        mDebugLabel.pack();
+    }
 }
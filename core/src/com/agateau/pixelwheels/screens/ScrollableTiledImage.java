@@ -20,6 +20,7 @@ package com.agateau.pixelwheels.screens;
 
 import com.agateau.pixelwheels.utils.DrawUtils;
 import com.agateau.utils.AgcMathUtils;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
@@ -47,6 +48,8 @@ class ScrollableTiledImage extends Actor {
         super.act(delta);
         float tileHeight = mDrawable.getMinHeight();
         mOffset = AgcMathUtils.modulo(mOffset + delta * mPixelsPerSecond, tileHeight);
+        // Keep rendering even if the screen is idle
+        Gdx.graphics.requestRendering();
     }
 
     @Override
@@ -45,6 +45,7 @@ public class SelectVehicleScreen extends PwStageScreen {
 
     private final PwGame mGame;
     private final Listener mListener;
+    private final VehicleThumbnailCache mThumbnailCache;
     private VehicleSelector mVehicleSelector;
     private Label mVehicleNameLabel;
     private Label mUnlockHintLabel;
@@ -54,6 +55,7 @@ public class SelectVehicleScreen extends PwStageScreen {
         super(game.getAssets().ui);
         mGame = game;
         mListener = listener;
+        mThumbnailCache = new VehicleThumbnailCache(game.getAssets());
         setupUi();
         new PwRefreshHelper(mGame, getStage()) {
             @Override
@@ -103,7 +105,7 @@ public class SelectVehicleScreen extends PwStageScreen {
     private void createVehicleSelector(Menu menu) {
         Assets assets = mGame.getAssets();
         mVehicleSelector = new VehicleSelector(menu);
-        mVehicleSelector.init(assets, mGame.getRewardManager());
+        mVehicleSelector.init(assets, mGame.getRewardManager(), mThumbnailCache);
         String id = mGame.getConfig().vehicles[0];
         mVehicleSelector.setCurrent(assets.findVehicleDefById(id));
         menu.addItem(mVehicleSelector);
@@ -148,6 +150,12 @@ public class SelectVehicleScreen extends PwStageScreen {
         mListener.onBackPressed();
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        mThumbnailCache.dispose();
+    }
+
     private void next() {
         if (!mVehicleSelector.isCurrentItemEnabled()) {
             return;
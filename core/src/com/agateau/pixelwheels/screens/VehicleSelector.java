@@ -32,7 +32,12 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 public class VehicleSelector extends GridMenuItem<VehicleDef> {
     private Assets mAssets;
     private RewardManager mRewardManager;
+    private VehicleThumbnailCache mThumbnailCache;
 
+    /**
+     * Draws the current vehicle using a VehicleDrawer, and the other ones using their cached
+     * thumbnails
+     */
     private class Renderer extends TextureRegionItemRendererAdapter<VehicleDef> {
         private final VehicleDrawer mVehicleDrawer;
 
@@ -56,7 +61,10 @@ public class VehicleSelector extends GridMenuItem<VehicleDef> {
             TextureRegion region = getItemRegion(vehicleDef);
             updateRenderInfo(width, height, region);
 
-            if (isItemEnabled(vehicleDef)) {
+            if (!isItemEnabled(vehicleDef)) {
+                DrawUtils.drawCentered(
+                        batch, region, x + width / 2, y + height / 2, getScale(), getAngle());
+            } else if (vehicleDef == getCurrent()) {
                 mVehicleDrawer.vehicleDef = vehicleDef;
                 mVehicleDrawer.center.x = x + width / 2;
                 mVehicleDrawer.center.y = y + height / 2;
@@ -64,8 +72,10 @@ public class VehicleSelector extends GridMenuItem<VehicleDef> {
                 mVehicleDrawer.angle = getAngle();
                 mVehicleDrawer.draw(batch);
             } else {
+                // The thumbnail is already rotated
+                TextureRegion thumbnail = mThumbnailCache.getThumbnail(vehicleDef);
                 DrawUtils.drawCentered(
-                        batch, region, x + width / 2, y + height / 2, getScale(), getAngle());
+                        batch, thumbnail, x + width / 2, y + height / 2, getScale(), 0);
             }
         }
     }
@@ -74,9 +84,11 @@ public class VehicleSelector extends GridMenuItem<VehicleDef> {
         super(menu);
     }
 
-    public void init(Assets assets, RewardManager rewardManager) {
+    /** thumbnailCache is not owned by the selector: several selectors can share it */
+    void init(Assets assets, RewardManager rewardManager, VehicleThumbnailCache thumbnailCache) {
         mAssets = assets;
         mRewardManager = rewardManager;
+        mThumbnailCache = thumbnailCache;
         setItemSize(80, 80);
         Renderer renderer = new Renderer();
         renderer.setAngle(90);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.screens;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.utils.BodyRegionDrawer;
+import com.agateau.pixelwheels.vehicledef.AxleDef;
+import com.agateau.pixelwheels.vehicledef.VehicleDef;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ScreenUtils;
+
+/**
+ * Renders all vehicles once, as VehicleDrawer would draw them with an angle of 90, so that menus
+ * can draw a single region per vehicle.
+ *
+ * <p>The thumbnails are read back from the frame buffer into a pixmap-backed texture, so that they
+ * survive an OpenGL context loss.
+ *
+ * <p>The screen showing the vehicle selectors owns the cache and must dispose it.
+ */
+class VehicleThumbnailCache implements Disposable {
+    private static final float ANGLE = 90;
+    private static final int PADDING = 2;
+
+    private final Assets mAssets;
+    private final ObjectMap<VehicleDef, TextureRegion> mRegions = new ObjectMap<>();
+    private Pixmap mPixmap;
+    private Texture mTexture;
+
+    VehicleThumbnailCache(Assets assets) {
+        mAssets = assets;
+        render();
+    }
+
+    TextureRegion getThumbnail(VehicleDef vehicleDef) {
+        return mRegions.get(vehicleDef);
+    }
+
+    @Override
+    public void dispose() {
+        mTexture.dispose();
+        mPixmap.dispose();
+    }
+
+    private void render() {
+        int cellSize = computeCellSize();
+        int count = mAssets.vehicleDefs.size;
+        int columns = MathUtils.ceil((float) Math.sqrt(count));
+        int rows = MathUtils.ceil((float) count / columns);
+        int width = columns * cellSize;
+        int height = rows * cellSize;
+
+        FrameBuffer frameBuffer =
+                new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false /* hasDepth */);
+        SpriteBatch batch = new SpriteBatch();
+        batch.setProjectionMatrix(new Matrix4().setToOrtho2D(0, 0, width, height));
+        // Accumulate alpha instead of multiplying it, otherwise the shadow would get too light
+        batch.setBlendFunctionSeparate(
+                GL20.GL_SRC_ALPHA,
+                GL20.GL_ONE_MINUS_SRC_ALPHA,
+                GL20.GL_ONE,
+                GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        VehicleDrawer drawer = new VehicleDrawer(mAssets);
+        drawer.angle = ANGLE;
+
+        frameBuffer.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 0);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        batch.begin();
+        for (int idx = 0; idx < count; ++idx) {
+            drawer.vehicleDef = mAssets.vehicleDefs.get(idx);
+            drawer.center.set((idx % columns + 0.5f) * cellSize, (idx / columns + 0.5f) * cellSize);
+            drawer.draw(batch);
+        }
+        batch.end();
+        mPixmap = ScreenUtils.getFrameBufferPixmap(0, 0, width, height);
+        frameBuffer.end();
+        frameBuffer.dispose();
+        batch.dispose();
+
+        mTexture = new Texture(mPixmap);
+        for (int idx = 0; idx < count; ++idx) {
+            TextureRegion region =
+                    new TextureRegion(
+                            mTexture,
+                            idx % columns * cellSize,
+                            idx / columns * cellSize,
+                            cellSize,
+                            cellSize);
+            // Pixels read from the frame buffer are upside down
+            region.flip(false, true);
+            mRegions.put(mAssets.vehicleDefs.get(idx), region);
+        }
+    }
+
+    /** Returns the size of a square big enough to contain any vehicle, its wheels and shadow */
+    private int computeCellSize() {
+        float wheelSize = Math.max(mAssets.wheel.getRegionWidth(), mAssets.wheel.getRegionHeight());
+        float size = 0;
+        for (VehicleDef vehicleDef : mAssets.vehicleDefs) {
+            TextureRegion region = vehicleDef.getImage(mAssets);
+            size = Math.max(size, region.getRegionWidth());
+            size = Math.max(size, region.getRegionHeight());
+            for (AxleDef axle : vehicleDef.axles) {
+                size = Math.max(size, axle.width + wheelSize);
+            }
+        }
+        return MathUtils.ceil(size + 2 * BodyRegionDrawer.SHADOW_OFFSET_PX) + 2 * PADDING;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Keeps the bodies of short-lived objects such as bullets around instead of destroying them
+ *
+ * <p>free() parks a body far from the track, unable to collide with anything, and puts it in the
+ * free list of its kind. obtain() takes it back with the position, angle and velocity of a BodyDef.
+ * Bodies are parked instead of deactivated so that they keep their broadphase proxy: Box2D solves
+ * contacts in the order of the ids of their proxies, and the id it gives to a new proxy depends on
+ * the whole history of the world. Keeping proxies means restoring a snapshot gives each object the
+ * body, and so the proxy, it had when the snapshot was saved, see take().
+ *
+ * <p>All bodies of a kind must have been created from the same shape. The joints of a freed body
+ * are destroyed. Like World.destroyBody(), free() must not be called during a physics step.
+ */
+public class BodyRecycler {
+    /** Free bodies are never destroyed by default: restoring snapshots needs all of them */
+    public static final int DEFAULT_MAX_FREE_BODIES = Integer.MAX_VALUE;
+
+    // Parked bodies are lined up from there, each body at its own place
+    private static final float PARKING_X = 10000;
+    private static final float PARKING_Y = 10000;
+    private static final float PARKING_SPACING = 10;
+
+    private final World mWorld;
+    private final ObjectMap<Class<?>, Array<Body>> mFreeBodies = new ObjectMap<>();
+    private int mMaxFreeBodies = DEFAULT_MAX_FREE_BODIES;
+
+    // All the bodies created by obtain(), indexed by their id. Destroyed bodies are set to null
+    private final Array<Body> mBodies = new Array<>();
+    private final Array<Class<?>> mBodyKinds = new Array<>();
+    private final ObjectIntMap<Body> mBodyIds = new ObjectIntMap<>();
+
+    private int mCreatedCount = 0;
+    private int mReusedCount = 0;
+
+    public BodyRecycler(World world) {
+        mWorld = world;
+    }
+
+    /**
+     * Maximum number of free bodies kept for each kind. 0 disables recycling. Snapshots cannot be
+     * restored once a body has been destroyed
+     */
+    public void setMaxFreeBodies(int maxFreeBodies) {
+        mMaxFreeBodies = maxFreeBodies;
+    }
+
+    /**
+     * Returns a body with a single fixture made from shape and density. The body is set up from
+     * bodyDef, but the caller is responsible for its user data and collision info
+     */
+    public Body obtain(Class<?> kind, BodyDef bodyDef, Shape shape, float density) {
+        Array<Body> freeBodies = getFreeBodies(kind);
+        if (freeBodies.isEmpty()) {
+            ++mCreatedCount;
+            Body body = mWorld.createBody(bodyDef);
+            body.createFixture(shape, density);
+            mBodyIds.put(body, mBodies.size);
+            mBodies.add(body);
+            mBodyKinds.add(kind);
+            return body;
+        }
+        ++mReusedCount;
+        Body body = freeBodies.pop();
+        body.setType(bodyDef.type);
+        body.setBullet(bodyDef.bullet);
+        body.setTransform(bodyDef.position, bodyDef.angle);
+        body.setLinearVelocity(bodyDef.linearVelocity);
+        body.setAngularVelocity(bodyDef.angularVelocity);
+        Fixture fixture = body.getFixtureList().first();
+        if (fixture.getDensity() != density) {
+            fixture.setDensity(density);
+            body.resetMassData();
+        }
+        body.setAwake(true);
+        return body;
+    }
+
+    /** Gives body back, it must not be used anymore */
+    public void free(Class<?> kind, Body body) {
+        // Destroy the joints from the body: they may belong to bodies which are not recycled
+        while (body.getJointList().size > 0) {
+            mWorld.destroyJoint(body.getJointList().first().joint);
+        }
+        Array<Body> freeBodies = getFreeBodies(kind);
+        if (freeBodies.size >= mMaxFreeBodies) {
+            int id = mBodyIds.remove(body, -1);
+            mBodies.set(id, null);
+            mWorld.destroyBody(body);
+            return;
+        }
+        park(body);
+        freeBodies.add(body);
+    }
+
+    /** Identifies body in snapshots, see take() */
+    public int getId(Body body) {
+        return mBodyIds.get(body, -1);
+    }
+
+    /**
+     * Takes the free body identified by id out of its free list. Used to restore a snapshot: the
+     * caller is responsible for the state of the body, its user data and its collision info
+     */
+    public Body take(int id) {
+        Body body = mBodies.get(id);
+        boolean removed = getFreeBodies(mBodyKinds.get(id)).removeValue(body, true);
+        Assert.check(removed, "Body is not free");
+        return body;
+    }
+
+    /**
+     * Sorts the free lists so that obtain() returns their bodies in the order they have been
+     * created. Called after restoring a snapshot: whatever happened since the snapshot has been
+     * saved, the objects created after it get the same bodies again
+     */
+    public void sortFreeBodies() {
+        for (Array<Body> freeBodies : mFreeBodies.values()) {
+            // obtain() pops from the end
+            freeBodies.sort((body1, body2) -> getId(body2) - getId(body1));
+        }
+    }
+
+    public int getFreeCount(Class<?> kind) {
+        Array<Body> freeBodies = mFreeBodies.get(kind);
+        return freeBodies == null ? 0 : freeBodies.size;
+    }
+
+    /** Number of bodies obtain() had to create */
+    public int getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    /** Number of bodies obtain() took from a free list */
+    public int getReusedCount() {
+        return mReusedCount;
+    }
+
+    private Array<Body> getFreeBodies(Class<?> kind) {
+        Array<Body> freeBodies = mFreeBodies.get(kind);
+        if (freeBodies == null) {
+            freeBodies = new Array<>(false, 16);
+            mFreeBodies.put(kind, freeBodies);
+        }
+        return freeBodies;
+    }
+
+    private void park(Body body) {
+        // Box2D removes the contacts of the body during the next step. Like destroyBody(), reset
+        // the user data now, so that contact listeners ignore it
+        for (Fixture fixture : body.getFixtureList()) {
+            Filter filter = fixture.getFilterData();
+            filter.maskBits = 0;
+            fixture.setFilterData(filter);
+        }
+        body.setUserData(null);
+        body.setTransform(PARKING_X + getId(body) * PARKING_SPACING, PARKING_Y, 0);
+        body.setAwake(false);
+    }
+}
@@ -70,9 +70,16 @@ public class BodyRegionDrawer {
 
     public void draw(Body body, TextureRegion region) {
         Vector2 center = body.getPosition();
-        float angle = body.getAngle();
-        float x = center.x + mOffsetX * MathUtils.cos(angle) - mOffsetY * MathUtils.sin(angle);
-        float y = center.y + mOffsetX * MathUtils.sin(angle) + mOffsetY * MathUtils.cos(angle);
+        draw(center.x, center.y, body.getAngle(), region);
+    }
+
+    /**
+     * Draws region for a body whose center is at (bodyX, bodyY), rotated by angle radians. Useful
+     * when the caller already knows the body transform
+     */
+    public void draw(float bodyX, float bodyY, float angle, TextureRegion region) {
+        float x = bodyX + mOffsetX * MathUtils.cos(angle) - mOffsetY * MathUtils.sin(angle);
+        float y = bodyY + mOffsetX * MathUtils.sin(angle) + mOffsetY * MathUtils.cos(angle);
         float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
         float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
         mBatch.draw(
@@ -90,14 +97,19 @@ public class BodyRegionDrawer {
 
     public void drawShadow(Body body, TextureRegion region) {
         Vector2 center = body.getPosition();
-        float angle = body.getAngle() * MathUtils.radiansToDegrees;
+        drawShadow(center.x, center.y, body.getAngle(), region);
+    }
+
+    /** Same as draw(float, float, float, TextureRegion), but for the shadow */
+    public void drawShadow(float bodyX, float bodyY, float angleRad, TextureRegion region) {
+        float angle = angleRad * MathUtils.radiansToDegrees;
         float offset =
                 (SHADOW_OFFSET_PX
                                 + mZ * Z_MAX_SHADOW_OFFSET_PX
                                 + (mScale - 1) * SCALE_MAX_SHADOW_OFFSET_PX)
                         * Constants.UNIT_FOR_PIXEL;
-        float x = center.x + offset;
-        float y = center.y - offset;
+        float x = bodyX + offset;
+        float y = bodyY - offset;
         float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
         float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
         float old = mBatch.getPackedColor();
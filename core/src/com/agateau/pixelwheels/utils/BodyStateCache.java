@@ -0,0 +1,264 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Java-side copy of the state of a set of Box2D bodies
+ *
+ * <p>Each read of a Body state goes through JNI. Gameplay code reads the state of vehicle and wheel
+ * bodies many times per frame, so the state of registered bodies is copied once after the physics
+ * step, by update(), and then read from here.
+ *
+ * <p>Values are those of the last update() call, with two exceptions. Impulses applied through
+ * applyLinearImpulse() and applyAngularImpulse() are added to the cached velocities, computed in
+ * Java the way Box2D does it, so that the reads made later in the same frame see them. Bodies whose
+ * position or velocity is changed in any other way outside of a physics step, for example with
+ * Body.setTransform() or Body.setLinearVelocity(), must be refreshed with refresh().
+ *
+ * <p>What remains is a one-frame lag: code which changes a registered body without going through
+ * one of these methods is not seen by the reads made before the next update(). Forces do not change
+ * anything before the next step, and impulses applied by contact listeners happen during the step,
+ * so neither needs any handling. Mass and inertia are only read when the body is registered and by
+ * refreshMassData().
+ */
+public class BodyStateCache {
+    private static final int INITIAL_CAPACITY = 32;
+
+    // Number of JNI calls made by update() for each body
+    private static final int JNI_CALLS_PER_BODY = 5;
+
+    private Body[] mBodies = new Body[INITIAL_CAPACITY];
+    private float[] mX = new float[INITIAL_CAPACITY];
+    private float[] mY = new float[INITIAL_CAPACITY];
+    private float[] mAngle = new float[INITIAL_CAPACITY];
+    private float[] mVelocityX = new float[INITIAL_CAPACITY];
+    private float[] mVelocityY = new float[INITIAL_CAPACITY];
+    private float[] mAngularVelocity = new float[INITIAL_CAPACITY];
+    private float[] mCenterX = new float[INITIAL_CAPACITY];
+    private float[] mCenterY = new float[INITIAL_CAPACITY];
+    private float[] mMass = new float[INITIAL_CAPACITY];
+    private float[] mInertia = new float[INITIAL_CAPACITY];
+    private float[] mInvMass = new float[INITIAL_CAPACITY];
+    // Inverse of the inertia around the center of mass, which is what impulses use
+    private float[] mInvCenterInertia = new float[INITIAL_CAPACITY];
+    private int mSize = 0;
+    private final IntArray mFreeSlots = new IntArray();
+
+    private int mJniCallCount = 0;
+    private int mReadCount = 0;
+    // Only reads from the thread which calls update() are counted: AI pilots read the cache from
+    // AIPlanner worker threads too, and incrementing mReadCount from there would be a data race
+    private Thread mUpdateThread;
+
+    /** Starts tracking body, returns the slot to use to read its state */
+    public int register(Body body) {
+        int slot;
+        if (mFreeSlots.size > 0) {
+            slot = mFreeSlots.pop();
+        } else {
+            if (mSize == mBodies.length) {
+                grow();
+            }
+            slot = mSize++;
+        }
+        mBodies[slot] = body;
+        updateMassData(slot);
+        updateSlot(slot);
+        return slot;
+    }
+
+    /** Must be called when fixtures are added to or removed from the body of slot */
+    public void refreshMassData(int slot) {
+        updateMassData(slot);
+        updateSlot(slot);
+    }
+
+    /**
+     * Copies the state of the body of slot again. Must be called after changing the position or the
+     * velocity of the body outside of a physics step
+     */
+    public void refresh(int slot) {
+        updateSlot(slot);
+        mJniCallCount += JNI_CALLS_PER_BODY;
+    }
+
+    /**
+     * Same as Body.applyLinearImpulse(), but also updates the cached velocities of the body of
+     * slot. point is in world coordinates
+     */
+    public void applyLinearImpulse(int slot, Vector2 impulse, Vector2 point) {
+        mBodies[slot].applyLinearImpulse(impulse, point, true);
+        float invMass = mInvMass[slot];
+        mVelocityX[slot] += invMass * impulse.x;
+        mVelocityY[slot] += invMass * impulse.y;
+        float rx = point.x - mCenterX[slot];
+        float ry = point.y - mCenterY[slot];
+        mAngularVelocity[slot] += mInvCenterInertia[slot] * (rx * impulse.y - ry * impulse.x);
+    }
+
+    /** Same as Body.applyAngularImpulse(), but also updates the cached angular velocity */
+    public void applyAngularImpulse(int slot, float impulse) {
+        mBodies[slot].applyAngularImpulse(impulse, true);
+        mAngularVelocity[slot] += mInvCenterInertia[slot] * impulse;
+    }
+
+    public void unregister(int slot) {
+        mBodies[slot] = null;
+        mFreeSlots.add(slot);
+    }
+
+    /** Copies the state of all registered bodies. Must be called after each World.step() batch */
+    public void update() {
+        mUpdateThread = Thread.currentThread();
+        mJniCallCount = 0;
+        mReadCount = 0;
+        for (int slot = 0; slot < mSize; ++slot) {
+            if (mBodies[slot] != null) {
+                updateSlot(slot);
+                mJniCallCount += JNI_CALLS_PER_BODY;
+            }
+        }
+    }
+
+    /** Number of JNI calls made by the last update() and the refresh() calls since then */
+    public int getJniCallCount() {
+        return mJniCallCount;
+    }
+
+    /**
+     * Number of values read since the last update(). Without the cache each of these would have
+     * been a JNI call. Reads made by the AI planner worker threads are not counted.
+     */
+    public int getReadCount() {
+        return mReadCount;
+    }
+
+    public float getX(int slot) {
+        countRead();
+        return mX[slot];
+    }
+
+    public float getY(int slot) {
+        countRead();
+        return mY[slot];
+    }
+
+    /** Angle of the body, in radians */
+    public float getAngle(int slot) {
+        countRead();
+        return mAngle[slot];
+    }
+
+    public Vector2 getLinearVelocity(int slot, Vector2 out) {
+        countRead();
+        return out.set(mVelocityX[slot], mVelocityY[slot]);
+    }
+
+    public float getSpeed(int slot) {
+        countRead();
+        return Vector2.len(mVelocityX[slot], mVelocityY[slot]);
+    }
+
+    public float getAngularVelocity(int slot) {
+        countRead();
+        return mAngularVelocity[slot];
+    }
+
+    public Vector2 getWorldCenter(int slot, Vector2 out) {
+        countRead();
+        return out.set(mCenterX[slot], mCenterY[slot]);
+    }
+
+    public float getMass(int slot) {
+        countRead();
+        return mMass[slot];
+    }
+
+    public float getInertia(int slot) {
+        countRead();
+        return mInertia[slot];
+    }
+
+    private void countRead() {
+        if (Thread.currentThread() == mUpdateThread) {
+            ++mReadCount;
+        }
+    }
+
+    private void updateMassData(int slot) {
+        Body body = mBodies[slot];
+        float mass = body.getMass();
+        float inertia = body.getInertia();
+        mMass[slot] = mass;
+        mInertia[slot] = inertia;
+        // Box2D ignores impulses applied to static and kinematic bodies
+        boolean dynamic = body.getType() == BodyDef.BodyType.DynamicBody;
+        mInvMass[slot] = dynamic && mass > 0 ? 1 / mass : 0;
+        // getInertia() is relative to the body origin. The cached angular velocity can differ from
+        // the one of Box2D by a rounding error, which the next update() discards
+        float centerInertia = inertia - mass * body.getLocalCenter().len2();
+        mInvCenterInertia[slot] =
+                dynamic && !body.isFixedRotation() && centerInertia > 0 ? 1 / centerInertia : 0;
+    }
+
+    private void updateSlot(int slot) {
+        Body body = mBodies[slot];
+        Vector2 pos = body.getPosition();
+        mX[slot] = pos.x;
+        mY[slot] = pos.y;
+        mAngle[slot] = body.getAngle();
+        Vector2 velocity = body.getLinearVelocity();
+        mVelocityX[slot] = velocity.x;
+        mVelocityY[slot] = velocity.y;
+        mAngularVelocity[slot] = body.getAngularVelocity();
+        Vector2 center = body.getWorldCenter();
+        mCenterX[slot] = center.x;
+        mCenterY[slot] = center.y;
+    }
+
+    private void grow() {
+        int capacity = mBodies.length * 2;
+        Body[] bodies = new Body[capacity];
+        System.arraycopy(mBodies, 0, bodies, 0, mSize);
+        mBodies = bodies;
+        mX = grow(mX, capacity);
+        mY = grow(mY, capacity);
+        mAngle = grow(mAngle, capacity);
+        mVelocityX = grow(mVelocityX, capacity);
+        mVelocityY = grow(mVelocityY, capacity);
+        mAngularVelocity = grow(mAngularVelocity, capacity);
+        mCenterX = grow(mCenterX, capacity);
+        mCenterY = grow(mCenterY, capacity);
+        mMass = grow(mMass, capacity);
+        mInertia = grow(mInertia, capacity);
+        mInvMass = grow(mInvMass, capacity);
+        mInvCenterInertia = grow(mInvCenterInertia, capacity);
+    }
+
+    private float[] grow(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, mSize);
+        return newArray;
+    }
+}
@@ -18,15 +18,7 @@
  */
 package com.agateau.pixelwheels.utils;
 
-import com.agateau.pixelwheels.Constants;
-import com.agateau.pixelwheels.map.MapUtils;
-import com.badlogic.gdx.maps.MapObject;
-import com.badlogic.gdx.maps.objects.EllipseMapObject;
-import com.badlogic.gdx.maps.objects.PolygonMapObject;
-import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.math.Circle;
-import com.badlogic.gdx.math.Ellipse;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Shape2D;
@@ -47,6 +39,8 @@ public class Box2DUtils {
     private static final Vector2 FORWARD_VECTOR = new Vector2(1, 0);
     private static final Vector2 LATERAL_VECTOR = new Vector2(0, 1);
     private static final Vector2 sTmp = new Vector2();
+    // Box2D default value for Filter.categoryBits
+    private static final int DEFAULT_CATEGORY_BITS = 1;
 
     @SuppressWarnings("unused")
     public static Vector2 getForwardVelocity(Body body) {
@@ -61,11 +55,32 @@ public class Box2DUtils {
         return currentRightNormal.scl(v);
     }
 
+    /** Same as getLateralVelocity(Body), but reads the body state from cache */
+    public static Vector2 getLateralVelocity(BodyStateCache cache, int slot, Vector2 out) {
+        // This is LATERAL_VECTOR, rotated by the body angle. Do not use MathUtils.sin() and cos()
+        // here: they are not precise enough for physics
+        float angle = cache.getAngle(slot);
+        float normalX = (float) -Math.sin(angle);
+        float normalY = (float) Math.cos(angle);
+        cache.getLinearVelocity(slot, out);
+        float v = normalX * out.x + normalY * out.y;
+        return out.set(normalX * v, normalY * v);
+    }
+
     public static void applyDrag(Body body, float factor) {
         Vector2 dragForce = body.getLinearVelocity().scl(-factor);
         body.applyForce(dragForce, body.getWorldCenter(), true);
     }
 
+    /** Same as applyDrag(Body, float), but reads the body state from cache */
+    public static void applyDrag(Body body, BodyStateCache cache, int slot, float factor) {
+        Vector2 dragForce = cache.getLinearVelocity(slot, sTmp).scl(-factor);
+        float forceX = dragForce.x;
+        float forceY = dragForce.y;
+        Vector2 center = cache.getWorldCenter(slot, sTmp);
+        body.applyForce(forceX, forceY, center.x, center.y, true);
+    }
+
     public static void applyCircularDrag(Body body, float factor) {
         float velocity = -body.getAngularVelocity() * factor;
         body.applyTorque(velocity, true);
@@ -85,85 +100,34 @@ public class Box2DUtils {
         return body;
     }
 
+    /**
+     * Sets the collision category and mask of all the fixtures of body.
+     *
+     * <p>The category is also stored as the fixture user data, so that getCategoryBits() can return
+     * it without going through JNI.
+     */
     public static void setCollisionInfo(Body body, int categoryBits, int maskBits) {
         for (Fixture fixture : body.getFixtureList()) {
-            Filter filter = fixture.getFilterData();
-            filter.categoryBits = (short) categoryBits;
-            filter.maskBits = (short) maskBits;
-            fixture.setFilterData(filter);
+            setCollisionInfo(fixture, categoryBits, maskBits);
         }
     }
 
-    public static Body createStaticBodyForMapObject(World world, MapObject object) {
-        final float u = Constants.UNIT_FOR_PIXEL;
-        float rotation = MapUtils.getObjectRotation(object);
-
-        BodyDef bodyDef = new BodyDef();
-        bodyDef.type = BodyDef.BodyType.StaticBody;
-        bodyDef.angle = rotation * MathUtils.degreesToRadians;
-
-        if (object instanceof RectangleMapObject) {
-            Rectangle rect = ((RectangleMapObject) object).getRectangle();
-
-            /*
-             A          D
-              x--------x
-              |        |
-              x--------x
-             B          C
-            */
-            float[] vertices = new float[8];
-            // A
-            vertices[0] = 0;
-            vertices[1] = 0;
-            // B
-            vertices[2] = 0;
-            vertices[3] = -rect.getHeight();
-            // C
-            vertices[4] = rect.getWidth();
-            vertices[5] = -rect.getHeight();
-            // D
-            vertices[6] = rect.getWidth();
-            vertices[7] = 0;
-            scaleVertices(vertices, u);
-
-            bodyDef.position.set(u * rect.getX(), u * (rect.getY() + rect.getHeight()));
-            Body body = world.createBody(bodyDef);
-
-            PolygonShape shape = new PolygonShape();
-            shape.set(vertices);
-
-            body.createFixture(shape, 1);
-            return body;
-        } else if (object instanceof PolygonMapObject) {
-            Polygon polygon = ((PolygonMapObject) object).getPolygon();
-            float[] vertices = polygon.getVertices().clone();
-            scaleVertices(vertices, u);
-
-            bodyDef.position.set(polygon.getX() * u, polygon.getY() * u);
-            Body body = world.createBody(bodyDef);
-
-            PolygonShape shape = new PolygonShape();
-            shape.set(vertices);
-
-            body.createFixture(shape, 1);
-            return body;
-        } else if (object instanceof EllipseMapObject) {
-            Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
-            float radius = ellipse.width * u / 2;
-            float x = ellipse.x * u + radius;
-            float y = ellipse.y * u + radius;
-
-            bodyDef.position.set(x, y);
-            Body body = world.createBody(bodyDef);
-
-            CircleShape shape = new CircleShape();
-            shape.setRadius(radius);
+    public static void setCollisionInfo(Fixture fixture, int categoryBits, int maskBits) {
+        Filter filter = fixture.getFilterData();
+        filter.categoryBits = (short) categoryBits;
+        filter.maskBits = (short) maskBits;
+        fixture.setFilterData(filter);
+        // Integer.valueOf() caches small values, so this does not allocate
+        fixture.setUserData(categoryBits);
+    }
 
-            body.createFixture(shape, 1);
-            return body;
-        }
-        throw new RuntimeException("Unsupported MapObject type: " + object);
+    /**
+     * Returns the collision category of fixture, as defined by setCollisionInfo(). Fixtures which
+     * never went through setCollisionInfo() have Box2D default category.
+     */
+    public static int getCategoryBits(Fixture fixture) {
+        Object data = fixture.getUserData();
+        return data == null ? DEFAULT_CATEGORY_BITS : (Integer) data;
     }
 
     public static void setBodyRestitution(Body body, float restitution) {
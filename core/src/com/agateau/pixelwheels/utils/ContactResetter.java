@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ShortArray;
+
+/**
+ * Throws away the contacts of a Box2D world and creates them again, in an order which only depends
+ * on the bodies of the world. Used to restore snapshots
+ *
+ * <p>Contacts keep the impulses Box2D uses to warm start its solver, and Box2D creates them in an
+ * order which depends on what happened before. None of this can be saved, so restoring a snapshot
+ * resets the contacts, and so does saving one, so that a world continuing from a saved snapshot and
+ * a world continuing from the same snapshot, restored, run the same way.
+ *
+ * <p>This relies on bodies keeping their broadphase proxies, see BodyRecycler, and on their
+ * broadphase bounds being computed from their current position, see Snapshot.getBody(). Box2D calls
+ * the contact listener of the world while contacts are reset: the caller should remove it first.
+ */
+public class ContactResetter implements Disposable {
+    private final World mWorld;
+    private final Body mTriggerBody;
+    private final CircleShape mTriggerShape = new CircleShape();
+
+    private final Array<Body> mBodies = new Array<>();
+    private final Array<Fixture> mFixtures = new Array<>();
+    private final ShortArray mMaskBits = new ShortArray();
+
+    public ContactResetter(World world) {
+        mWorld = world;
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        mTriggerBody = mWorld.createBody(bodyDef);
+        mTriggerShape.setRadius(0.1f);
+    }
+
+    /** Must not be called during a physics step */
+    public void reset() {
+        // Make the fixtures of the moving bodies unable to collide: all the contacts involve at
+        // least one of them, so Box2D destroys all the contacts in the next step
+        mWorld.getBodies(mBodies);
+        for (Body body : mBodies) {
+            if (body.getType() == BodyDef.BodyType.StaticBody) {
+                continue;
+            }
+            for (Fixture fixture : body.getFixtureList()) {
+                Filter filter = fixture.getFilterData();
+                mFixtures.add(fixture);
+                mMaskBits.add(filter.maskBits);
+                filter.maskBits = 0;
+                fixture.setFilterData(filter);
+            }
+        }
+        // A zero-duration step only updates the contacts
+        mWorld.step(0, 0, 0);
+
+        // Setting the filters back marks the fixtures as moved, so that Box2D looks for their
+        // contacts again. It creates them sorted by proxy ids
+        for (int idx = 0; idx < mFixtures.size; ++idx) {
+            Fixture fixture = mFixtures.get(idx);
+            Filter filter = fixture.getFilterData();
+            filter.maskBits = mMaskBits.get(idx);
+            fixture.setFilterData(filter);
+        }
+        mFixtures.clear();
+        mMaskBits.clear();
+        mBodies.clear();
+
+        // Box2D looks for new contacts at the end of a step, or at the beginning of the next one
+        // if fixtures have been created since the last one. Create one so that the next step
+        // creates the contacts now, instead of after solving a step without them
+        mTriggerBody.destroyFixture(mTriggerBody.createFixture(mTriggerShape, 0));
+        mWorld.step(0, 0, 0);
+    }
+
+    @Override
+    public void dispose() {
+        mTriggerShape.dispose();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A pool which creates its objects with a factory instead of reflection, can be filled before it is
+ * used and keeps statistics
+ *
+ * <p>Once warmUp() has been called, each object the pool has to create is counted as a miss: it
+ * means the capacity given to warmUp() was too small.
+ */
+public class GamePool<T> extends Pool<T> {
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final String mName;
+    private final Factory<T> mFactory;
+
+    private boolean mWarmedUp = false;
+    private int mLiveCount = 0;
+    private int mPeakLiveCount = 0;
+    private int mMissCount = 0;
+
+    public GamePool(String name, Factory<T> factory) {
+        mName = name;
+        mFactory = factory;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Creates objects until capacity objects can be in use at the same time without creating new
+     * ones, then resets the statistics
+     */
+    public void warmUp(int capacity) {
+        int missingCount = capacity - mLiveCount - getFree();
+        if (missingCount > 0) {
+            fill(missingCount);
+        }
+        mWarmedUp = true;
+        mPeakLiveCount = mLiveCount;
+        mMissCount = 0;
+    }
+
+    @Override
+    protected T newObject() {
+        if (mWarmedUp) {
+            ++mMissCount;
+        }
+        return mFactory.create();
+    }
+
+    @Override
+    public T obtain() {
+        T object = super.obtain();
+        ++mLiveCount;
+        mPeakLiveCount = Math.max(mPeakLiveCount, mLiveCount);
+        return object;
+    }
+
+    @Override
+    public void free(T object) {
+        super.free(object);
+        --mLiveCount;
+    }
+
+    /** Number of objects obtained and not freed yet */
+    public int getLiveCount() {
+        return mLiveCount;
+    }
+
+    /** Highest live count since the last warmUp() */
+    public int getPeakLiveCount() {
+        return mPeakLiveCount;
+    }
+
+    /** Number of objects created since the last warmUp() */
+    public int getMissCount() {
+        return mMissCount;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A compact copy of the state of a set of objects, used to put them back in this state later
+ *
+ * <p>Objects write their state with the put*() methods and read it back, in the same order, with
+ * the get*() methods. Values are stored in two arrays which are kept from one save to the other, so
+ * saving does not allocate once the arrays are large enough.
+ *
+ * <p>References to other objects are saved as indices in the array given to setReferences(), which
+ * must contain the same objects, in the same order, when the snapshot is restored.
+ */
+public class Snapshot {
+    private static final int INITIAL_CAPACITY = 256;
+    // Where getBody() moves bodies before putting them in place, far from any track
+    private static final float AWAY_X = -10000;
+    private static final float AWAY_Y = -10000;
+
+    /** Implemented by objects which can save their state in a snapshot */
+    public interface Savable {
+        void saveState(Snapshot snapshot);
+
+        void restoreState(Snapshot snapshot);
+    }
+
+    private float[] mFloats = new float[INITIAL_CAPACITY];
+    private int[] mInts = new int[INITIAL_CAPACITY];
+    private int mFloatCount = 0;
+    private int mIntCount = 0;
+    private int mFloatIndex = 0;
+    private int mIntIndex = 0;
+    private Array<Object> mReferences = null;
+
+    /** Removes all values, call this before saving */
+    public void clear() {
+        mFloatCount = 0;
+        mIntCount = 0;
+        rewind();
+    }
+
+    /** Goes back to the first value, call this before restoring */
+    public void rewind() {
+        mFloatIndex = 0;
+        mIntIndex = 0;
+    }
+
+    /** Sets the objects putReference() and getReference() can refer to */
+    @SuppressWarnings("unchecked")
+    public void setReferences(Array<?> references) {
+        // Only read from, so it is safe to see it as an array of objects
+        mReferences = (Array<Object>) references;
+    }
+
+    public int getByteSize() {
+        return (mFloatCount + mIntCount) * 4;
+    }
+
+    public void putFloat(float value) {
+        if (mFloatCount == mFloats.length) {
+            float[] floats = new float[mFloats.length * 2];
+            System.arraycopy(mFloats, 0, floats, 0, mFloatCount);
+            mFloats = floats;
+        }
+        mFloats[mFloatCount++] = value;
+    }
+
+    public void putInt(int value) {
+        if (mIntCount == mInts.length) {
+            int[] ints = new int[mInts.length * 2];
+            System.arraycopy(mInts, 0, ints, 0, mIntCount);
+            mInts = ints;
+        }
+        mInts[mIntCount++] = value;
+    }
+
+    public void putBoolean(boolean value) {
+        putInt(value ? 1 : 0);
+    }
+
+    public void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    /** value can be null */
+    public void putEnum(Enum<?> value) {
+        putInt(value == null ? -1 : value.ordinal());
+    }
+
+    /** object must be null or one of the objects passed to setReferences() */
+    public void putReference(Object object) {
+        if (object == null) {
+            putInt(-1);
+            return;
+        }
+        int idx = mReferences.indexOf(object, true);
+        if (idx == -1) {
+            throw new IllegalArgumentException("Cannot save a reference to " + object);
+        }
+        putInt(idx);
+    }
+
+    /** Saves the position, angle, velocities and activity of body */
+    public void putBody(Body body) {
+        Vector2 position = body.getPosition();
+        putFloat(position.x);
+        putFloat(position.y);
+        putFloat(body.getAngle());
+        Vector2 velocity = body.getLinearVelocity();
+        putFloat(velocity.x);
+        putFloat(velocity.y);
+        putFloat(body.getAngularVelocity());
+        putBoolean(body.isAwake());
+        putBoolean(body.isActive());
+    }
+
+    public float getFloat() {
+        if (mFloatIndex >= mFloatCount) {
+            throw new IndexOutOfBoundsException("No more floats in the snapshot");
+        }
+        return mFloats[mFloatIndex++];
+    }
+
+    public int getInt() {
+        if (mIntIndex >= mIntCount) {
+            throw new IndexOutOfBoundsException("No more ints in the snapshot");
+        }
+        return mInts[mIntIndex++];
+    }
+
+    public boolean getBoolean() {
+        return getInt() != 0;
+    }
+
+    public long getLong() {
+        long high = getInt();
+        long low = getInt() & 0xffffffffL;
+        return (high << 32) | low;
+    }
+
+    /** values must be the result of T.values() */
+    public <T extends Enum<T>> T getEnum(T[] values) {
+        int ordinal = getInt();
+        return ordinal == -1 ? null : values[ordinal];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getReference() {
+        int idx = getInt();
+        return idx == -1 ? null : (T) mReferences.get(idx);
+    }
+
+    /**
+     * Restores the state of body saved by putBody()
+     *
+     * <p>The body also gets the state Box2D keeps for it but which cannot be saved in the same way
+     * whatever it was before: its broadphase bounds and its sleep timer. The contacts of the body
+     * are not restored, see ContactResetter.
+     */
+    public void getBody(Body body) {
+        float x = getFloat();
+        float y = getFloat();
+        float angle = getFloat();
+        float velocityX = getFloat();
+        float velocityY = getFloat();
+        float angularVelocity = getFloat();
+        boolean awake = getBoolean();
+        body.setActive(getBoolean());
+        // Box2D only updates the broadphase bounds of a body when it leaves them, so they depend
+        // on where the body was before. Moving it far away first makes them start from its
+        // restored position
+        body.setTransform(AWAY_X, AWAY_Y, angle);
+        body.setTransform(x, y, angle);
+        // Going through sleep resets the sleep timer of the body
+        body.setAwake(false);
+        if (awake) {
+            body.setAwake(true);
+            body.setLinearVelocity(velocityX, velocityY);
+            body.setAngularVelocity(angularVelocity);
+        }
+    }
+}
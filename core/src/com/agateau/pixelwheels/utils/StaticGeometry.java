@@ -0,0 +1,368 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.utils.FloatArray;
+import java.util.Arrays;
+
+/**
+ * A Java-side copy of the geometry of the bodies which never move (borders and static obstacles),
+ * stored in a bounding volume hierarchy to answer ray queries without going through Box2D
+ *
+ * <p>Borders and polygons are stored as segments, circles as circles. Once built, a StaticGeometry
+ * never changes: queries do not modify anything, so they can run from several threads at the same
+ * time, and they do not allocate.
+ */
+public class StaticGeometry {
+    /** Returned by rayCast() when the ray does not hit anything. Greater than any fraction */
+    public static final float NO_HIT = Float.POSITIVE_INFINITY;
+
+    private static final int MAX_LEAF_SIZE = 4;
+
+    // Primitives are stored as (x1, y1, x2, y2, radius). If radius is 0, this is a segment from
+    // (x1, y1) to (x2, y2), otherwise it is a circle centered on (x1, y1)
+    private static final int PRIMITIVE_SIZE = 5;
+
+    /** Collects the geometry to put in a StaticGeometry */
+    public static class Builder {
+        private final FloatArray mPrimitives = new FloatArray();
+        private final Vector2 mTmp1 = new Vector2();
+        private final Vector2 mTmp2 = new Vector2();
+
+        /** Adds all the fixtures of body, at the current position of body */
+        public Builder addBody(Body body) {
+            for (Fixture fixture : body.getFixtureList()) {
+                addShape(body, fixture.getShape());
+            }
+            return this;
+        }
+
+        public Builder addSegment(float x1, float y1, float x2, float y2) {
+            mPrimitives.addAll(x1, y1, x2, y2, 0);
+            return this;
+        }
+
+        public Builder addCircle(float x, float y, float radius) {
+            mPrimitives.addAll(x, y, x, y, radius);
+            return this;
+        }
+
+        public StaticGeometry build() {
+            return new StaticGeometry(mPrimitives.toArray());
+        }
+
+        private void addShape(Body body, Shape shape) {
+            switch (shape.getType()) {
+                case Circle:
+                    {
+                        CircleShape circle = (CircleShape) shape;
+                        Vector2 center = body.getWorldPoint(circle.getPosition());
+                        addCircle(center.x, center.y, circle.getRadius());
+                        break;
+                    }
+                case Edge:
+                    {
+                        EdgeShape edge = (EdgeShape) shape;
+                        edge.getVertex1(mTmp1);
+                        edge.getVertex2(mTmp2);
+                        addBodySegment(body, mTmp1, mTmp2);
+                        break;
+                    }
+                case Polygon:
+                    {
+                        PolygonShape polygon = (PolygonShape) shape;
+                        int count = polygon.getVertexCount();
+                        for (int idx = 0; idx < count; ++idx) {
+                            polygon.getVertex(idx, mTmp1);
+                            polygon.getVertex((idx + 1) % count, mTmp2);
+                            addBodySegment(body, mTmp1, mTmp2);
+                        }
+                        break;
+                    }
+                case Chain:
+                    {
+                        // Loops repeat their first vertex at the end, so there is no need to
+                        // close them here
+                        ChainShape chain = (ChainShape) shape;
+                        int count = chain.getVertexCount();
+                        for (int idx = 0; idx < count - 1; ++idx) {
+                            chain.getVertex(idx, mTmp1);
+                            chain.getVertex(idx + 1, mTmp2);
+                            addBodySegment(body, mTmp1, mTmp2);
+                        }
+                        break;
+                    }
+            }
+        }
+
+        private void addBodySegment(Body body, Vector2 localP1, Vector2 localP2) {
+            // getWorldPoint() returns the same vector each time, copy its values right away
+            Vector2 p = body.getWorldPoint(localP1);
+            float x1 = p.x;
+            float y1 = p.y;
+            p = body.getWorldPoint(localP2);
+            addSegment(x1, y1, p.x, p.y);
+        }
+    }
+
+    private final float[] mPrimitives;
+    private final int mPrimitiveCount;
+
+    // Nodes are stored as (minX, minY, maxX, maxY) in mNodeBounds. For a leaf, mNodeCounts is the
+    // number of primitives and mNodeStarts the index of the first one. For other nodes,
+    // mNodeCounts is 0 and the children are mNodeStarts and mNodeStarts + 1
+    private final float[] mNodeBounds;
+    private final int[] mNodeStarts;
+    private final int[] mNodeCounts;
+    private int mNodeCount = 0;
+
+    private StaticGeometry(float[] primitives) {
+        mPrimitiveCount = primitives.length / PRIMITIVE_SIZE;
+        int maxNodeCount = Math.max(1, mPrimitiveCount * 2);
+        mNodeBounds = new float[maxNodeCount * 4];
+        mNodeStarts = new int[maxNodeCount];
+        mNodeCounts = new int[maxNodeCount];
+
+        Integer[] order = new Integer[mPrimitiveCount];
+        for (int idx = 0; idx < mPrimitiveCount; ++idx) {
+            order[idx] = idx;
+        }
+        mNodeCount = 1;
+        buildNode(primitives, order, 0, 0, mPrimitiveCount);
+
+        // Store the primitives in tree order, so that the primitives of a leaf are contiguous
+        mPrimitives = new float[primitives.length];
+        for (int idx = 0; idx < mPrimitiveCount; ++idx) {
+            System.arraycopy(
+                    primitives,
+                    order[idx] * PRIMITIVE_SIZE,
+                    mPrimitives,
+                    idx * PRIMITIVE_SIZE,
+                    PRIMITIVE_SIZE);
+        }
+    }
+
+    public int getPrimitiveCount() {
+        return mPrimitiveCount;
+    }
+
+    public int getNodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * Casts a ray from (x1, y1) to (x2, y2). Returns the fraction of the ray at which the first
+     * primitive is hit, or NO_HIT.
+     *
+     * <p>Like Box2D, a ray starting inside a circle does not hit it. Contrary to Box2D, a ray
+     * starting inside a polygon hits its sides.
+     */
+    public float rayCast(float x1, float y1, float x2, float y2) {
+        if (mPrimitiveCount == 0) {
+            return NO_HIT;
+        }
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float fraction = rayCastNode(0, x1, y1, dx, dy, 1 / dx, 1 / dy, NO_HIT);
+        return fraction <= 1 ? fraction : NO_HIT;
+    }
+
+    public float rayCast(Vector2 point1, Vector2 point2) {
+        return rayCast(point1.x, point1.y, point2.x, point2.y);
+    }
+
+    private void buildNode(float[] primitives, Integer[] order, int node, int start, int end) {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        float minCenterX = Float.MAX_VALUE;
+        float minCenterY = Float.MAX_VALUE;
+        float maxCenterX = -Float.MAX_VALUE;
+        float maxCenterY = -Float.MAX_VALUE;
+        for (int idx = start; idx < end; ++idx) {
+            int offset = order[idx] * PRIMITIVE_SIZE;
+            float r = primitives[offset + 4];
+            float x1 = primitives[offset];
+            float y1 = primitives[offset + 1];
+            float x2 = primitives[offset + 2];
+            float y2 = primitives[offset + 3];
+            minX = Math.min(minX, Math.min(x1, x2) - r);
+            minY = Math.min(minY, Math.min(y1, y2) - r);
+            maxX = Math.max(maxX, Math.max(x1, x2) + r);
+            maxY = Math.max(maxY, Math.max(y1, y2) + r);
+            float centerX = (x1 + x2) / 2;
+            float centerY = (y1 + y2) / 2;
+            minCenterX = Math.min(minCenterX, centerX);
+            minCenterY = Math.min(minCenterY, centerY);
+            maxCenterX = Math.max(maxCenterX, centerX);
+            maxCenterY = Math.max(maxCenterY, centerY);
+        }
+        mNodeBounds[node * 4] = minX;
+        mNodeBounds[node * 4 + 1] = minY;
+        mNodeBounds[node * 4 + 2] = maxX;
+        mNodeBounds[node * 4 + 3] = maxY;
+
+        if (end - start <= MAX_LEAF_SIZE) {
+            mNodeStarts[node] = start;
+            mNodeCounts[node] = end - start;
+            return;
+        }
+
+        // Split at the median of the primitive centers, along the largest axis
+        final int axis = maxCenterX - minCenterX >= maxCenterY - minCenterY ? 0 : 1;
+        Arrays.sort(
+                order,
+                start,
+                end,
+                (i1, i2) -> {
+                    int offset1 = i1 * PRIMITIVE_SIZE + axis;
+                    int offset2 = i2 * PRIMITIVE_SIZE + axis;
+                    float center1 = primitives[offset1] + primitives[offset1 + 2];
+                    float center2 = primitives[offset2] + primitives[offset2 + 2];
+                    return Float.compare(center1, center2);
+                });
+        int middle = (start + end) / 2;
+        int left = mNodeCount;
+        mNodeCount += 2;
+        mNodeStarts[node] = left;
+        mNodeCounts[node] = 0;
+        buildNode(primitives, order, left, start, middle);
+        buildNode(primitives, order, left + 1, middle, end);
+    }
+
+    /** Returns the smallest fraction between the hits in node and fraction */
+    private float rayCastNode(
+            int node,
+            float x,
+            float y,
+            float dx,
+            float dy,
+            float invDx,
+            float invDy,
+            float fraction) {
+        int count = mNodeCounts[node];
+        if (count > 0) {
+            int start = mNodeStarts[node];
+            for (int idx = start; idx < start + count; ++idx) {
+                fraction = rayCastPrimitive(idx, x, y, dx, dy, fraction);
+            }
+            return fraction;
+        }
+        int left = mNodeStarts[node];
+        int right = left + 1;
+        float leftEntry = rayCastBounds(left, x, y, invDx, invDy, fraction);
+        float rightEntry = rayCastBounds(right, x, y, invDx, invDy, fraction);
+        // Visit the closest child first, the other one can often be skipped then
+        if (rightEntry < leftEntry) {
+            int tmpNode = left;
+            left = right;
+            right = tmpNode;
+            float tmpEntry = leftEntry;
+            leftEntry = rightEntry;
+            rightEntry = tmpEntry;
+        }
+        if (leftEntry < fraction) {
+            fraction = rayCastNode(left, x, y, dx, dy, invDx, invDy, fraction);
+        }
+        if (rightEntry < fraction) {
+            fraction = rayCastNode(right, x, y, dx, dy, invDx, invDy, fraction);
+        }
+        return fraction;
+    }
+
+    /**
+     * Returns the fraction at which the ray enters the bounds of node, or NO_HIT if it misses them
+     * or enters them after maxFraction
+     */
+    private float rayCastBounds(
+            int node, float x, float y, float invDx, float invDy, float maxFraction) {
+        float tMin = 0;
+        float tMax = Math.min(maxFraction, 1);
+        int offset = node * 4;
+        if (Float.isInfinite(invDx)) {
+            if (x < mNodeBounds[offset] || x > mNodeBounds[offset + 2]) {
+                return NO_HIT;
+            }
+        } else {
+            float t1 = (mNodeBounds[offset] - x) * invDx;
+            float t2 = (mNodeBounds[offset + 2] - x) * invDx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (Float.isInfinite(invDy)) {
+            if (y < mNodeBounds[offset + 1] || y > mNodeBounds[offset + 3]) {
+                return NO_HIT;
+            }
+        } else {
+            float t1 = (mNodeBounds[offset + 1] - y) * invDy;
+            float t2 = (mNodeBounds[offset + 3] - y) * invDy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return tMin <= tMax ? tMin : NO_HIT;
+    }
+
+    private float rayCastPrimitive(int idx, float x, float y, float dx, float dy, float fraction) {
+        int offset = idx * PRIMITIVE_SIZE;
+        float x1 = mPrimitives[offset];
+        float y1 = mPrimitives[offset + 1];
+        float radius = mPrimitives[offset + 4];
+        float fx = x1 - x;
+        float fy = y1 - y;
+        float t;
+        if (radius > 0) {
+            // (x, y) + t * (dx, dy) is at distance radius of (x1, y1)
+            float a = dx * dx + dy * dy;
+            float b = fx * dx + fy * dy;
+            float c = fx * fx + fy * fy - radius * radius;
+            if (c < 0) {
+                // Starting inside the circle
+                return fraction;
+            }
+            float discriminant = b * b - a * c;
+            if (discriminant < 0) {
+                return fraction;
+            }
+            t = (b - (float) Math.sqrt(discriminant)) / a;
+        } else {
+            float ex = mPrimitives[offset + 2] - x1;
+            float ey = mPrimitives[offset + 3] - y1;
+            float denominator = dx * ey - dy * ex;
+            if (denominator == 0) {
+                // Parallel
+                return fraction;
+            }
+            float s = (fx * dy - fy * dx) / denominator;
+            if (s < 0 || s > 1) {
+                return fraction;
+            }
+            t = (fx * ey - fy * ex) / denominator;
+        }
+        return t >= 0 && t < fraction ? t : fraction;
+    }
+}
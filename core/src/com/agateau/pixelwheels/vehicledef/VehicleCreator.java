@@ -22,6 +22,7 @@ import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.TextureRegionProvider;
 import com.agateau.pixelwheels.racer.Vehicle;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
@@ -29,24 +30,44 @@ import com.badlogic.gdx.math.Vector2;
 /** Create a Vehicle from VehicleIO data */
 public class VehicleCreator {
     private final GameWorld mGameWorld;
-    private final Assets mAssets;
+    private final TextureRegionProvider mTextureRegionProvider;
+    private final TextureRegion mWheelRegion;
 
     public VehicleCreator(Assets assets, GameWorld gameWorld) {
+        this(assets, assets.wheel, gameWorld);
+    }
+
+    public VehicleCreator(
+            TextureRegionProvider textureRegionProvider,
+            TextureRegion wheelRegion,
+            GameWorld gameWorld) {
         mGameWorld = gameWorld;
-        mAssets = assets;
+        mTextureRegionProvider = textureRegionProvider;
+        mWheelRegion = wheelRegion;
     }
 
     private final Vector2 sWheelPos = new Vector2();
 
-    public Vehicle create(VehicleDef vehicleDef, Vector2 position, float angle) {
+    public Vehicle create(
+            VehicleDef vehicleDef,
+            Vector2 position,
+            float angle,
+            Vehicle.PhysicsModel physicsModel) {
         final float U = Constants.UNIT_FOR_PIXEL;
         float maxDrivingForce = GamePlay.instance.maxDrivingForce * vehicleDef.speed;
 
-        TextureRegion mainRegion = vehicleDef.getImage(mAssets);
-        TextureRegion wheelRegion = mAssets.wheel;
+        TextureRegion mainRegion = vehicleDef.getImage(mTextureRegionProvider);
+        TextureRegion wheelRegion = mWheelRegion;
 
         Vehicle vehicle =
-                new Vehicle(mAssets, mGameWorld, position.x, position.y, vehicleDef, angle);
+                new Vehicle(
+                        mTextureRegionProvider,
+                        mGameWorld,
+                        position.x,
+                        position.y,
+                        vehicleDef,
+                        angle,
+                        physicsModel);
         vehicle.setName(vehicleDef.name);
         vehicle.setId(vehicleDef.id);
 
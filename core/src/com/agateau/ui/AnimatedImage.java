@@ -18,6 +18,7 @@ package com.agateau.ui;
  * License for the specific language governing permissions and limitations
  * under the License.
  */
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
@@ -42,6 +43,8 @@ public class AnimatedImage extends Image {
             return;
         }
         mTime += delta;
+        // Keep rendering even if the screen is idle
+        Gdx.graphics.requestRendering();
         TextureRegion region = mAnimation.getKeyFrame(mTime, /* looping */ true);
         mDrawable.setRegion(region);
     }
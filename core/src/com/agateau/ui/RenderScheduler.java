@@ -0,0 +1,212 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.ui;
+
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.controllers.Controller;
+import com.badlogic.gdx.controllers.ControllerAdapter;
+import com.badlogic.gdx.controllers.Controllers;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Turns continuous rendering off when a stage is idle, to avoid rendering the same frame over and
+ * over
+ *
+ * <p>The stage is idle when no input arrived and no action ran for IDLE_DELAY seconds. When the
+ * stage is idle, the backend only renders a new frame on input events, on calls to
+ * Gdx.graphics.requestRendering() or when a runnable has been posted (which is what {@link
+ * com.badlogic.gdx.utils.Timer} uses). Input events turn continuous rendering back on, other frames
+ * are rendered one at a time.
+ *
+ * <p>This means idle screens are only as idle as the runnables posted by the backend let them be:
+ * on desktop, gdx-controllers polls the controllers from a runnable which posts itself again every
+ * frame, so the desktop launcher has to slow it down for idle rendering to make any difference.
+ * getIdleFramesPerSecond() tells how many frames have actually been rendered while idle.
+ *
+ * <p>Actors which animate without using actions must call Gdx.graphics.requestRendering() from
+ * their act() method to get rendered while the stage is idle.
+ */
+public class RenderScheduler extends InputAdapter {
+    private static final float IDLE_DELAY = 1;
+
+    // The first frame after an idle period gets the whole idle duration as delta. Clamp it so that
+    // actions started by the event which ended the idle period are not skipped.
+    private static final float MAX_DELTA_AFTER_IDLE = 1 / 60f;
+
+    private final String mName;
+    private final Stage mStage;
+
+    private final ControllerAdapter mControllerListener =
+            new ControllerAdapter() {
+                @Override
+                public boolean buttonDown(Controller controller, int buttonIndex) {
+                    wakeUp();
+                    return false;
+                }
+
+                @Override
+                public boolean buttonUp(Controller controller, int buttonIndex) {
+                    wakeUp();
+                    return false;
+                }
+
+                @Override
+                public boolean axisMoved(Controller controller, int axisIndex, float value) {
+                    wakeUp();
+                    return false;
+                }
+            };
+
+    private float mIdleDelay = IDLE_DELAY;
+    private boolean mIdle = false;
+    private boolean mWasIdle = false;
+
+    // Metrics: how many frames have been rendered while idle
+    private long mIdleStartTime;
+    private long mIdleDuration;
+    private int mIdleFrameCount;
+
+    public RenderScheduler(String name, Stage stage) {
+        mName = name;
+        mStage = stage;
+    }
+
+    public void start() {
+        Controllers.addListener(mControllerListener);
+        mIdleDuration = 0;
+        mIdleFrameCount = 0;
+        wakeUp();
+    }
+
+    public void stop() {
+        Controllers.removeListener(mControllerListener);
+        wakeUp();
+        if (mIdleDuration > 0) {
+            NLog.i(
+                    "%s: %d frames rendered while idle, in %.1fs (%.1f FPS)",
+                    mName, mIdleFrameCount, mIdleDuration / 1e9f, getIdleFramesPerSecond());
+        }
+    }
+
+    /** Turn continuous rendering back on, if it was off */
+    public void wakeUp() {
+        mIdleDelay = IDLE_DELAY;
+        if (!mIdle) {
+            return;
+        }
+        mIdle = false;
+        mIdleDuration += TimeUtils.nanoTime() - mIdleStartTime;
+        Gdx.graphics.setContinuousRendering(true);
+    }
+
+    public float clampDelta(float delta) {
+        return mWasIdle ? Math.min(delta, MAX_DELTA_AFTER_IDLE) : delta;
+    }
+
+    /** Must be called after each call to Stage.act() */
+    public void update(float delta) {
+        mWasIdle = mIdle;
+        if (mIdle) {
+            ++mIdleFrameCount;
+        }
+        if (hasActions(mStage.getRoot())) {
+            wakeUp();
+            return;
+        }
+        if (mIdle) {
+            return;
+        }
+        mIdleDelay -= delta;
+        if (mIdleDelay < 0) {
+            mIdle = true;
+            mIdleStartTime = TimeUtils.nanoTime();
+            Gdx.graphics.setContinuousRendering(false);
+        }
+    }
+
+    /** Returns how many frames per second have been rendered while the stage was idle */
+    public float getIdleFramesPerSecond() {
+        long duration = mIdleDuration;
+        if (mIdle) {
+            duration += TimeUtils.nanoTime() - mIdleStartTime;
+        }
+        return duration > 0 ? mIdleFrameCount * 1e9f / duration : 0;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        wakeUp();
+        return false;
+    }
+
+    @Override
+    public boolean scrolled(int amount) {
+        wakeUp();
+        return false;
+    }
+
+    private static boolean hasActions(Actor actor) {
+        if (actor.getActions().size > 0) {
+            return true;
+        }
+        if (actor instanceof Group) {
+            for (Actor child : ((Group) actor).getChildren()) {
+                if (hasActions(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
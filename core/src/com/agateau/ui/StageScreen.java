@@ -19,6 +19,7 @@
 package com.agateau.ui;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.ScreenAdapter;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.scenes.scene2d.Stage;
@@ -28,27 +29,42 @@ import com.badlogic.gdx.utils.viewport.Viewport;
 public abstract class StageScreen extends ScreenAdapter {
     private final Stage mStage;
     private final Viewport mViewport;
+    private final RenderScheduler mRenderScheduler;
 
     public StageScreen(Viewport viewport) {
         mViewport = viewport;
         mStage = new Stage(mViewport);
+        mRenderScheduler = new RenderScheduler(getClass().getSimpleName(), mStage);
     }
 
     public Stage getStage() {
         return mStage;
     }
 
+    public RenderScheduler getRenderScheduler() {
+        return mRenderScheduler;
+    }
+
     @Override
     public void show() {
         super.show();
-        Gdx.input.setInputProcessor(mStage);
+        Gdx.input.setInputProcessor(new InputMultiplexer(mRenderScheduler, mStage));
+        mRenderScheduler.start();
+    }
+
+    @Override
+    public void hide() {
+        super.hide();
+        mRenderScheduler.stop();
     }
 
     @Override
     public void render(float delta) {
         Gdx.gl.glClearColor(0, 0, 0, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        delta = mRenderScheduler.clampDelta(delta);
         mStage.act(delta);
+        mRenderScheduler.update(delta);
         if (isBackKeyPressed()) {
             onBackPressed();
         }
@@ -59,6 +75,7 @@ public abstract class StageScreen extends ScreenAdapter {
     public void resize(int width, int height) {
         super.resize(width, height);
         mViewport.update(width, height, true);
+        mRenderScheduler.wakeUp();
     }
 
     /**
@@ -21,6 +21,7 @@ package com.agateau.ui.menu;
 import com.agateau.ui.InputMapper;
 import com.agateau.ui.UiInputMapper;
 import com.agateau.ui.VirtualKey;
+import com.badlogic.gdx.Gdx;
 
 /**
  * Monitor input events for the menu
@@ -83,7 +84,9 @@ public class MenuInputHandler {
                 mState = State.KEY_DOWN;
             }
         } else {
-            // Repeating
+            // Repeating. Holding a key does not produce input events, so make sure we get called
+            // again even if the screen is idle
+            Gdx.graphics.requestRendering();
             if (mInputMapper.isKeyPressed(mPressedVirtualKey)) {
                 if (mRepeatDelay > 0) {
                     mRepeatDelay -= delta;
@@ -67,5 +67,11 @@ public abstract class CircularArray<T> {
         return element;
     }
 
+    /** Removes all items. The instances are kept, they are reused by the next add() calls */
+    public void clear() {
+        mBegin = 0;
+        mEnd = 0;
+    }
+
     protected abstract T createInstance();
 }
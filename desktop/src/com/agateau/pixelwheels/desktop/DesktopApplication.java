@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.desktop;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Slows down controller polling when continuous rendering is off
+ *
+ * <p>On desktop, gdx-controllers polls the controllers from a runnable which posts itself again
+ * each time it runs. Lwjgl3Application renders a frame each time it runs a posted runnable, so this
+ * runnable alone keeps the game rendering at full speed even when continuous rendering is off.
+ *
+ * <p>When continuous rendering is off, this class delays the polling runnable by
+ * IDLE_POLL_INTERVAL_MS, so the game renders about 10 frames per second instead. A controller event
+ * wakes the render scheduler up, which turns continuous rendering and full speed polling back on.
+ */
+class DesktopApplication extends Lwjgl3Application {
+    private static final long IDLE_POLL_INTERVAL_MS = 100;
+    private static final String POLLING_RUNNABLE_CLASS_NAME = "JamepadControllerMonitor";
+
+    // Lwjgl3Application runs the main loop from its constructor, so the fields of this class must
+    // not have initializers: they would only run after the application exits
+    private Timer mTimer;
+
+    DesktopApplication(ApplicationListener listener, Lwjgl3ApplicationConfiguration config) {
+        super(listener, config);
+    }
+
+    @Override
+    public void postRunnable(Runnable runnable) {
+        if (!isIdlePolling(runnable)) {
+            super.postRunnable(runnable);
+            return;
+        }
+        if (mTimer == null) {
+            mTimer = new Timer("DesktopApplication", /* isDaemon= */ true);
+        }
+        mTimer.schedule(
+                new TimerTask() {
+                    @Override
+                    public void run() {
+                        DesktopApplication.super.postRunnable(runnable);
+                    }
+                },
+                IDLE_POLL_INTERVAL_MS);
+    }
+
+    private static boolean isIdlePolling(Runnable runnable) {
+        return Gdx.graphics != null
+                && !Gdx.graphics.isContinuousRendering()
+                && runnable.getClass().getSimpleName().equals(POLLING_RUNNABLE_CLASS_NAME);
+    }
+}
@@ -22,7 +22,6 @@ import com.agateau.pixelwheels.PwGame;
 import com.agateau.pixelwheels.screens.PwStageScreen;
 import com.agateau.utils.FileUtils;
 import com.badlogic.gdx.Files;
-import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 
 public class DesktopLauncher {
@@ -34,6 +33,6 @@ public class DesktopLauncher {
         config.setPreferencesConfig(".config/agateau.com", Files.FileType.External);
         config.useVsync(true);
         FileUtils.appName = "pixelwheels";
-        new Lwjgl3Application(new PwGame(), config);
+        new DesktopApplication(new PwGame(), config);
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.bonus.Mine;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.AIPilot;
+import com.agateau.pixelwheels.racer.AIPlanner;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Checks that planning the AI pilots on several threads does not change the way races run, and
+ * measures how much faster the plan phase gets
+ *
+ * <p>Usage: AIPlanBenchmark [THREAD_COUNT]
+ *
+ * <p>For each track, runs the same AI-only race with one thread and with THREAD_COUNT threads
+ * (default: as many as AIPlanner uses) and compares the state of the racers at every frame. Then
+ * times AIPlanner.plan() for 6, 16 and 32 pilots. The pilots come from several worlds of
+ * GamePlay.racerCount racers running on the same track, so that they are spread over the track like
+ * in a normal race. Returns 1 if a race does not run the same way.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class AIPlanBenchmark {
+    private static final long RANDOM_SEED = 12345;
+    private static final float FRAME_DELTA = 1 / 60f;
+    private static final int RACE_FRAME_COUNT = 60 * 60;
+    // Lets the racers spread over the track before timing the plan phase
+    private static final int WARM_UP_FRAME_COUNT = 60 * 10;
+    private static final int PLAN_COUNT = 2000;
+    private static final int[] PILOT_COUNTS = {6, 16, 32};
+
+    private HeadlessGame mGame;
+    private int mThreadCount = new AIPlanner().getThreadCount();
+
+    public static void main(String[] args) {
+        new CommandLineApplication("AIPlanBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new AIPlanBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        if (arguments.length > 0) {
+            mThreadCount = Integer.parseInt(arguments[0]);
+        }
+        if (mThreadCount < 2) {
+            NLog.e("Need at least 2 threads to compare with sequential planning");
+            return 1;
+        }
+        mGame = HeadlessGame.createGame();
+        boolean failed = false;
+        System.out.printf("%-20s %-10s", "Track", "Identical");
+        for (int pilotCount : PILOT_COUNTS) {
+            System.out.printf(" %18s", pilotCount + " pilots");
+        }
+        System.out.println();
+        for (Championship championship : mGame.getAssets().championships) {
+            for (Track track : championship.getTracks()) {
+                boolean identical = checkIdentical(track);
+                failed = failed || !identical;
+                System.out.printf("%-20s %-10s", track.getId(), identical ? "yes" : "NO");
+                for (int pilotCount : PILOT_COUNTS) {
+                    System.out.printf(" %18s", measureSpeedup(track, pilotCount));
+                }
+                System.out.println();
+            }
+        }
+        return failed ? 1 : 0;
+    }
+
+    private GameWorldImpl createWorld(Track track) {
+        GameInfo gameInfo =
+                new AIOnlyGameInfo(
+                        track, mGame.getAssets().vehicleDefs, GamePlay.instance.racerCount);
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, new PerformanceCounters());
+        world.setRandomSeed(RANDOM_SEED);
+        world.disablePhysicsQualityAdaptation();
+        return world;
+    }
+
+    private boolean checkIdentical(Track track) {
+        GameWorldImpl sequentialWorld = createWorld(track);
+        sequentialWorld.getAIPlanner().setThreadCount(1);
+        GameWorldImpl parallelWorld = createWorld(track);
+        parallelWorld.getAIPlanner().setThreadCount(mThreadCount);
+        boolean identical = true;
+        for (int frame = 0; frame < RACE_FRAME_COUNT && identical; ++frame) {
+            sequentialWorld.act(FRAME_DELTA);
+            parallelWorld.act(FRAME_DELTA);
+            identical = isSameState(sequentialWorld, parallelWorld);
+        }
+        sequentialWorld.dispose();
+        parallelWorld.dispose();
+        return identical;
+    }
+
+    private static boolean isSameState(GameWorldImpl world1, GameWorldImpl world2) {
+        Array<Racer> racers1 = world1.getRacers();
+        Array<Racer> racers2 = world2.getRacers();
+        for (int idx = 0; idx < racers1.size; ++idx) {
+            Racer racer1 = racers1.get(idx);
+            Racer racer2 = racers2.get(idx);
+            // Racers are sorted by rank, so this also checks the ranks
+            if (!racer1.getEntrant().getVehicleId().equals(racer2.getEntrant().getVehicleId())
+                    || racer1.getX() != racer2.getX()
+                    || racer1.getY() != racer2.getY()
+                    || racer1.getVehicle().getAngle() != racer2.getVehicle().getAngle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the time of a plan() call, with one thread and with mThreadCount threads */
+    private String measureSpeedup(Track track, int pilotCount) {
+        Array<GameWorldImpl> worlds = new Array<>();
+        AIPlanner planner = new AIPlanner();
+        while (planner.getPilotCount() < pilotCount) {
+            GameWorldImpl world = createWorld(track);
+            for (int frame = 0; frame < WARM_UP_FRAME_COUNT; ++frame) {
+                world.act(FRAME_DELTA);
+            }
+            worlds.add(world);
+            for (Racer racer : world.getRacers()) {
+                if (planner.getPilotCount() < pilotCount) {
+                    planner.addPilot((AIPilot) racer.getPilot());
+                }
+            }
+        }
+
+        double sequentialTime = 0;
+        double parallelTime = 0;
+        // Run everything twice, so that the second run happens once the JIT has done its job
+        for (int run = 0; run < 2; ++run) {
+            planner.setThreadCount(1);
+            sequentialTime = timePlan(planner);
+            planner.setThreadCount(mThreadCount);
+            parallelTime = timePlan(planner);
+        }
+        planner.dispose();
+        for (GameWorldImpl world : worlds) {
+            world.dispose();
+        }
+        return String.format(
+                "%.1f/%.1f us x%.1f",
+                sequentialTime * 1e6, parallelTime * 1e6, sequentialTime / parallelTime);
+    }
+
+    /** Returns the average duration of a plan() call, in seconds */
+    private static double timePlan(AIPlanner planner) {
+        // Pilots look for mines through the planner of their own world, not this one
+        Array<Mine> noMines = new Array<>();
+        long start = System.nanoTime();
+        for (int idx = 0; idx < PLAN_COUNT; ++idx) {
+            planner.plan(noMines);
+        }
+        return (System.nanoTime() - start) / 1e9 / PLAN_COUNT;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.bonus.Bullet;
+import com.agateau.pixelwheels.bonus.HitscanBullet;
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.utils.BodyRecycler;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Measures the cost of gun bullets: bodies created for each shot, bodies reused by BodyRecycler and
+ * hitscan bullets, which have no body
+ *
+ * <p>Usage: BulletStormBenchmark [TRACK_ID [RACER_COUNT]]
+ *
+ * <p>Runs an AI-only race on TRACK_ID (default: the first track) with RACER_COUNT racers (default:
+ * 12). Every racer shoots a bullet every few frames, in a slightly random direction. The race runs
+ * once for each kind of bullet, using the same random seed, and the average time of each part of a
+ * frame is printed for each run.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class BulletStormBenchmark {
+    private static final int DEFAULT_RACER_COUNT = 12;
+    private static final long RANDOM_SEED = 12345;
+    private static final float FRAME_DELTA = 1 / 60f;
+    // Skips the countdown
+    private static final int WARM_UP_FRAME_COUNT = 60 * 4;
+    private static final int FRAME_COUNT = 60 * 20;
+    private static final int SHOOT_INTERVAL = 4;
+    private static final float SPREAD_ANGLE = 10;
+
+    private enum Mode {
+        BODIES("bodies"),
+        RECYCLED_BODIES("recycled"),
+        HITSCAN("hitscan");
+
+        final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    private HeadlessGame mGame;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("BulletStormBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new BulletStormBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        mGame = HeadlessGame.createGame();
+        Track track;
+        if (arguments.length > 0) {
+            track = mGame.getAssets().findTrackById(arguments[0]);
+            if (track == null) {
+                NLog.e("Unknown track %s", arguments[0]);
+                return 1;
+            }
+        } else {
+            Championship championship = mGame.getAssets().championships.first();
+            track = championship.getTracks().first();
+        }
+        int racerCount = DEFAULT_RACER_COUNT;
+        if (arguments.length > 1) {
+            racerCount = Integer.parseInt(arguments[1]);
+        }
+
+        System.out.printf("Track: %s, %d racers%n", track.getId(), racerCount);
+        System.out.printf(
+                "%-10s %10s %10s %10s %10s %9s %9s%n",
+                "Bullets", "Frame", "Shoot", "Box2D", "G.O.", "Created", "Reused");
+        for (Mode mode : Mode.values()) {
+            benchmark(track, racerCount, mode);
+        }
+        return 0;
+    }
+
+    private void benchmark(Track track, int racerCount, Mode mode) {
+        AIOnlyGameInfo gameInfo =
+                new AIOnlyGameInfo(track, mGame.getAssets().vehicleDefs, racerCount);
+        PerformanceCounters counters = new PerformanceCounters();
+        PerformanceCounter frameCounter = counters.add("frame");
+        PerformanceCounter shootCounter = counters.add("- shoot");
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, counters);
+        world.setRandomSeed(RANDOM_SEED);
+        world.disablePhysicsQualityAdaptation();
+        world.getBodyRecycler()
+                .setMaxFreeBodies(mode == Mode.BODIES ? 0 : BodyRecycler.DEFAULT_MAX_FREE_BODIES);
+        RandomXS128 random = new RandomXS128(RANDOM_SEED);
+
+        for (int frame = 0; frame < WARM_UP_FRAME_COUNT; ++frame) {
+            world.act(FRAME_DELTA);
+        }
+        for (PerformanceCounter counter : counters.counters) {
+            counter.reset();
+        }
+        int createdCount = world.getBodyRecycler().getCreatedCount();
+        int reusedCount = world.getBodyRecycler().getReusedCount();
+        for (int frame = 0; frame < FRAME_COUNT; ++frame) {
+            frameCounter.start();
+            shootCounter.start();
+            if (frame % SHOOT_INTERVAL == 0) {
+                shoot(world, random, mode);
+            }
+            shootCounter.stop();
+            world.act(FRAME_DELTA);
+            frameCounter.stop();
+            counters.tick(FRAME_DELTA);
+        }
+
+        System.out.printf(
+                "%-10s %7.3f ms %7.3f ms %7.3f ms %7.3f ms %9d %9d%n",
+                mode.label,
+                getAverageMs(counters, "frame"),
+                getAverageMs(counters, "- shoot"),
+                getAverageMs(counters, "- box2d"),
+                getAverageMs(counters, "- g.o"),
+                world.getBodyRecycler().getCreatedCount() - createdCount,
+                world.getBodyRecycler().getReusedCount() - reusedCount);
+        world.dispose();
+    }
+
+    private void shoot(GameWorldImpl world, RandomXS128 random, Mode mode) {
+        for (Racer racer : world.getRacers()) {
+            Vehicle vehicle = racer.getVehicle();
+            float angle =
+                    vehicle.getAngle()
+                            + MathUtils.lerp(-SPREAD_ANGLE, SPREAD_ANGLE, random.nextFloat());
+            if (mode == Mode.HITSCAN) {
+                HitscanBullet bullet =
+                        HitscanBullet.shoot(
+                                mGame.getAssets(),
+                                world,
+                                mGame.getAudioManager(),
+                                racer,
+                                vehicle.getX(),
+                                vehicle.getY(),
+                                angle);
+                world.addGameObject(bullet);
+            } else {
+                Bullet bullet =
+                        Bullet.create(
+                                mGame.getAssets(),
+                                world,
+                                mGame.getAudioManager(),
+                                racer,
+                                vehicle.getX(),
+                                vehicle.getY(),
+                                angle);
+                world.addGameObject(bullet);
+            }
+        }
+    }
+
+    private static double getAverageMs(PerformanceCounters counters, String name) {
+        for (PerformanceCounter counter : counters.counters) {
+            if (counter.name.equals(name)) {
+                return counter.time.average * 1000;
+            }
+        }
+        return 0;
+    }
+}
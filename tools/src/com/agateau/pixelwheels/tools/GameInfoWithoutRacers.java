@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Track;
+
+/** Creates a world with a track but no racers, to work on the track itself */
+class GameInfoWithoutRacers extends GameInfo {
+    private final Track mTrack;
+
+    GameInfoWithoutRacers(Track track) {
+        super(GameType.QUICK_RACE);
+        mTrack = track;
+    }
+
+    @Override
+    public Track getTrack() {
+        return mTrack;
+    }
+}
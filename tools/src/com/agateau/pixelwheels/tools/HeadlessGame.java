@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GameConfig;
+import com.agateau.pixelwheels.PwGame;
+import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.pixelwheels.sound.DefaultAudioManager;
+import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.stats.GameStatsImpl;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.mock.audio.MockAudio;
+import com.badlogic.gdx.physics.box2d.Box2D;
+
+/** Provides the services GameWorldImpl needs, without showing anything */
+class HeadlessGame extends PwGame {
+    private final Assets mAssets = new Assets();
+    private final AudioManager mAudioManager = new DefaultAudioManager(mAssets);
+    private final GameConfig mGameConfig = new GameConfig();
+    private final GameStats mGameStats =
+            new GameStatsImpl(
+                    new GameStatsImpl.IO() {
+                        @Override
+                        public void load(GameStatsImpl gameStats) {}
+
+                        @Override
+                        public void save(GameStatsImpl gameStats) {}
+                    });
+
+    /** Must be called from CommandLineApplication.run() */
+    static HeadlessGame createGame() {
+        // Audio is disabled by CommandLineApplication, but Assets needs to load sounds
+        Gdx.audio = new MockAudio();
+        Box2D.init();
+        return new HeadlessGame();
+    }
+
+    private HeadlessGame() {}
+
+    @Override
+    public Assets getAssets() {
+        return mAssets;
+    }
+
+    @Override
+    public AudioManager getAudioManager() {
+        return mAudioManager;
+    }
+
+    @Override
+    public GameConfig getConfig() {
+        return mGameConfig;
+    }
+
+    @Override
+    public GameStats getGameStats() {
+        return mGameStats;
+    }
+}
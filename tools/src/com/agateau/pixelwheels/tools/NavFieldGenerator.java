@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.LapPosition;
+import com.agateau.pixelwheels.map.NavField;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.map.WaypointStore;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Bakes the nav fields AI pilots steer with, see NavField
+ *
+ * <p>Usage: NavFieldGenerator OUTPUT_DIR [TRACK_ID...]
+ *
+ * <p>Generates the fields of all tracks if no TRACK_ID is given. The heading of a cell points to
+ * the farthest of the next waypoints a vehicle can reach in a straight line from the cell center,
+ * like AIPilot does when it has no nav field. Must run from the android/assets directory, like the
+ * game.
+ */
+public class NavFieldGenerator {
+    private static final int CELLS_PER_TILE = 2;
+    private static final int BORDER_RAY_COUNT = 16;
+    // Same as AIPilot
+    private static final int MAX_FORWARD_WAYPOINTS = 2;
+    // Roughly half the width of a vehicle: the whole vehicle must be able to reach the waypoint
+    private static final float HALF_VEHICLE_WIDTH = 0.6f;
+
+    private final Vector2 mCenter = new Vector2();
+    private final Vector2 mFrom = new Vector2();
+    private final Vector2 mTo = new Vector2();
+    private final Vector2 mOffset = new Vector2();
+    private final Vector2 mWaypoint = new Vector2();
+    private final Vector2 mTarget = new Vector2();
+
+    public static void main(String[] args) {
+        new CommandLineApplication("NavFieldGenerator", args) {
+            @Override
+            int run(String[] arguments) {
+                return new NavFieldGenerator().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        if (arguments.length < 1) {
+            NLog.e("Usage: NavFieldGenerator OUTPUT_DIR [TRACK_ID...]");
+            return 1;
+        }
+        FileHandle outputDir = Gdx.files.absolute(arguments[0]);
+        Array<String> trackIds = new Array<>();
+        for (int idx = 1; idx < arguments.length; ++idx) {
+            trackIds.add(arguments[idx]);
+        }
+
+        HeadlessGame game = HeadlessGame.createGame();
+        for (Championship championship : game.getAssets().championships) {
+            for (Track track : championship.getTracks()) {
+                if (trackIds.isEmpty() || trackIds.contains(track.getId(), false)) {
+                    generate(game, track, outputDir.child(track.getId() + ".nav"));
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void generate(HeadlessGame game, Track track, FileHandle file) {
+        long start = System.nanoTime();
+        GameWorldImpl world =
+                new GameWorldImpl(
+                        game, new GameInfoWithoutRacers(track), new PerformanceCounters());
+        float cellSize = track.getTileWidth() / CELLS_PER_TILE;
+        int width = MathUtils.ceil(track.getMapWidth() / cellSize);
+        int height = MathUtils.ceil(track.getMapHeight() / cellSize);
+        NavField field = new NavField(width, height, cellSize);
+
+        int cellCount = 0;
+        for (int cy = 0; cy < height; ++cy) {
+            for (int cx = 0; cx < width; ++cx) {
+                mCenter.set((cx + 0.5f) * cellSize, (cy + 0.5f) * cellSize);
+                if (bakeCell(track, world.getStaticGeometry(), field, cx, cy)) {
+                    ++cellCount;
+                }
+            }
+        }
+        field.save(file);
+        world.dispose();
+        System.out.printf(
+                "%s: %d/%d cells in %.1fs, saved to %s%n",
+                track.getId(),
+                cellCount,
+                width * height,
+                (System.nanoTime() - start) / 1e9,
+                file.path());
+    }
+
+    /** Returns false if the cell has no data */
+    private boolean bakeCell(Track track, StaticGeometry geometry, NavField field, int cx, int cy) {
+        if (track.getMaterialAt(mCenter).isHole()) {
+            return false;
+        }
+        final float U = Constants.UNIT_FOR_PIXEL;
+        LapPosition lapPosition =
+                track.getLapPositionTable().get((int) (mCenter.x / U), (int) (mCenter.y / U));
+        if (lapPosition == null) {
+            return false;
+        }
+
+        WaypointStore store = track.getWaypointStore();
+        int index = store.getPreviousIndex(store.getWaypointIndex(lapPosition.getLapDistance()));
+        boolean found = false;
+        for (int i = -1; i < MAX_FORWARD_WAYPOINTS; ++i, index = store.getNextIndex(index)) {
+            mWaypoint.set(store.getWaypointX(index), store.getWaypointY(index));
+            if (canReach(geometry, mWaypoint)) {
+                mTarget.set(mWaypoint);
+                found = true;
+            }
+        }
+        if (!found) {
+            return false;
+        }
+        float heading = mTo.set(mTarget).sub(mCenter).angle();
+        field.setCell(cx, cy, heading, computeBorderDistance(geometry));
+        return true;
+    }
+
+    /** Checks the left and right sides of a vehicle at the cell center can reach waypoint */
+    private boolean canReach(StaticGeometry geometry, Vector2 waypoint) {
+        mOffset.set(waypoint).sub(mCenter).nor().rotate90(1).scl(HALF_VEHICLE_WIDTH);
+        mFrom.set(mCenter).add(mOffset);
+        mTo.set(waypoint).add(mOffset);
+        if (geometry.rayCast(mFrom, mTo) != StaticGeometry.NO_HIT) {
+            return false;
+        }
+        mFrom.set(mCenter).sub(mOffset);
+        mTo.set(waypoint).sub(mOffset);
+        return geometry.rayCast(mFrom, mTo) == StaticGeometry.NO_HIT;
+    }
+
+    private float computeBorderDistance(StaticGeometry geometry) {
+        float minFraction = 1;
+        for (int idx = 0; idx < BORDER_RAY_COUNT; ++idx) {
+            float angle = idx * MathUtils.PI2 / BORDER_RAY_COUNT;
+            mTo.set(MathUtils.cos(angle), MathUtils.sin(angle))
+                    .scl(NavField.MAX_BORDER_DISTANCE)
+                    .add(mCenter);
+            minFraction = Math.min(minFraction, geometry.rayCast(mCenter, mTo));
+        }
+        return minFraction * NavField.MAX_BORDER_DISTANCE;
+    }
+}
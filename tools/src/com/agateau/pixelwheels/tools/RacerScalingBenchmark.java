@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Measures how the time spent in GameWorld.act() grows with the number of racers
+ *
+ * <p>Usage: RacerScalingBenchmark [TRACK_ID [RACER_COUNT...]]
+ *
+ * <p>Runs AI-only races on TRACK_ID (default: the first track) with each RACER_COUNT (default: 6 to
+ * 100), using extra grid rows behind the start line when there are more racers than start tiles.
+ * Prints the average frame time and its parts for each count, and the time per racer relative to
+ * the first count: it stays close to 1 if the simulation scales linearly.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class RacerScalingBenchmark {
+    private static final int[] DEFAULT_RACER_COUNTS = {6, 12, 25, 50, 75, 100};
+    private static final long RANDOM_SEED = 12345;
+    private static final float FRAME_DELTA = 1 / 60f;
+    // Skips the countdown and the start, when racers are all packed together
+    private static final int WARM_UP_FRAME_COUNT = 60 * 8;
+    private static final int FRAME_COUNT = 60 * 20;
+
+    private HeadlessGame mGame;
+    private double mFirstTimePerRacer = 0;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("RacerScalingBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new RacerScalingBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        mGame = HeadlessGame.createGame();
+        Track track = null;
+        if (arguments.length > 0) {
+            track = mGame.getAssets().findTrackById(arguments[0]);
+            if (track == null) {
+                NLog.e("Unknown track %s", arguments[0]);
+                return 1;
+            }
+        } else {
+            Championship championship = mGame.getAssets().championships.first();
+            track = championship.getTracks().first();
+        }
+        int[] racerCounts = DEFAULT_RACER_COUNTS;
+        if (arguments.length > 1) {
+            racerCounts = new int[arguments.length - 1];
+            for (int idx = 1; idx < arguments.length; ++idx) {
+                racerCounts[idx - 1] = Integer.parseInt(arguments[idx]);
+            }
+        }
+
+        System.out.printf("Track: %s%n", track.getId());
+        System.out.printf(
+                "%7s %10s %10s %10s %10s %12s %9s%n",
+                "Racers", "Frame", "Box2D", "AI plan", "G.O.", "Per racer", "Scaling");
+        for (int racerCount : racerCounts) {
+            benchmark(track, racerCount);
+        }
+        return 0;
+    }
+
+    private void benchmark(Track track, int racerCount) {
+        track.init();
+        Array<Vector2> positions = track.findStartTilePositions();
+        track.addGridPositions(positions, racerCount);
+        if (positions.size < racerCount) {
+            System.out.printf(
+                    "%7d: only room for %d racers on this track%n", racerCount, positions.size);
+            return;
+        }
+
+        AIOnlyGameInfo gameInfo =
+                new AIOnlyGameInfo(track, mGame.getAssets().vehicleDefs, racerCount);
+        PerformanceCounters counters = new PerformanceCounters();
+        PerformanceCounter actCounter = counters.add("GameWorld.act");
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, counters);
+        world.setRandomSeed(RANDOM_SEED);
+        // The physics quality would otherwise go down as the number of racers goes up
+        world.disablePhysicsQualityAdaptation();
+
+        for (int frame = 0; frame < WARM_UP_FRAME_COUNT; ++frame) {
+            world.act(FRAME_DELTA);
+        }
+        for (PerformanceCounter counter : counters.counters) {
+            counter.reset();
+        }
+        for (int frame = 0; frame < FRAME_COUNT; ++frame) {
+            actCounter.start();
+            world.act(FRAME_DELTA);
+            actCounter.stop();
+            counters.tick(FRAME_DELTA);
+        }
+
+        double frameMs = getAverageMs(counters, "GameWorld.act");
+        double timePerRacer = frameMs / racerCount;
+        if (mFirstTimePerRacer == 0) {
+            mFirstTimePerRacer = timePerRacer;
+        }
+        System.out.printf(
+                "%7d %7.3f ms %7.3f ms %7.3f ms %7.3f ms %9.1f us %9.2f%n",
+                racerCount,
+                frameMs,
+                getAverageMs(counters, "- box2d"),
+                getAverageMs(counters, "- ai plan"),
+                getAverageMs(counters, "- g.o"),
+                timePerRacer * 1000,
+                timePerRacer / mFirstTimePerRacer);
+        world.dispose();
+    }
+
+    private static double getAverageMs(PerformanceCounters counters, String name) {
+        for (PerformanceCounter counter : counters.counters) {
+            if (counter.name.equals(name)) {
+                return counter.time.average * 1000;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.utils.StaticGeometry;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Compares the speed of ray queries against the static geometry of each track, done through Box2D
+ * and through StaticGeometry, from one thread and from all the available cores
+ *
+ * <p>Usage: RayCastBenchmark [RAY_COUNT]
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class RayCastBenchmark {
+    private static final int DEFAULT_RAY_COUNT = 100000;
+    // Roughly the length of the rays cast by AI pilots and weapons
+    private static final float RAY_LENGTH = 10;
+
+    /** Keeps the closest static body, like the wall checks of AIPilot used to do */
+    private static class StaticBodyCallback implements RayCastCallback {
+        float mFraction;
+
+        @Override
+        public float reportRayFixture(
+                Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+            if (fixture.getBody().getType() != BodyDef.BodyType.StaticBody) {
+                return -1;
+            }
+            mFraction = fraction;
+            return fraction;
+        }
+    }
+
+    private int mRayCount = DEFAULT_RAY_COUNT;
+    // (x1, y1, x2, y2) for each ray
+    private float[] mRays;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("RayCastBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new RayCastBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        if (arguments.length > 0) {
+            mRayCount = Integer.parseInt(arguments[0]);
+        }
+        mRays = new float[mRayCount * 4];
+        HeadlessGame game = HeadlessGame.createGame();
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        System.out.printf(
+                "%-20s %12s %12s %12s %10s%n",
+                "Track", "Box2D", "BVH", "BVH x" + threadCount, "Mismatches");
+        for (Championship championship : game.getAssets().championships) {
+            for (Track track : championship.getTracks()) {
+                benchmark(game, track, threadCount);
+            }
+        }
+        return 0;
+    }
+
+    private void benchmark(HeadlessGame game, Track track, int threadCount) {
+        GameWorldImpl world =
+                new GameWorldImpl(
+                        game, new GameInfoWithoutRacers(track), new PerformanceCounters());
+        createRays(track);
+
+        World box2DWorld = world.getBox2DWorld();
+        StaticGeometry geometry = world.getStaticGeometry();
+        float[] box2DFractions = new float[mRayCount];
+        float[] bvhFractions = new float[mRayCount];
+
+        // Run everything twice, so that the second run happens once the JIT has done its job
+        double box2DRate = 0;
+        double bvhRate = 0;
+        double parallelRate = 0;
+        for (int run = 0; run < 2; ++run) {
+            box2DRate = timeBox2DRays(box2DWorld, box2DFractions);
+            bvhRate = timeBvhRays(geometry, bvhFractions);
+            parallelRate = timeParallelBvhRays(geometry, threadCount);
+        }
+
+        int mismatchCount = 0;
+        for (int idx = 0; idx < mRayCount; ++idx) {
+            float box2D = box2DFractions[idx];
+            float bvh = bvhFractions[idx];
+            boolean same =
+                    box2D == bvh
+                            || (box2D != StaticGeometry.NO_HIT && Math.abs(box2D - bvh) < 0.001f);
+            if (!same) {
+                ++mismatchCount;
+            }
+        }
+        System.out.printf(
+                "%-20s %12s %12s %12s %10d%n",
+                track.getId(),
+                formatRate(box2DRate),
+                formatRate(bvhRate),
+                formatRate(parallelRate),
+                mismatchCount);
+        world.dispose();
+    }
+
+    private void createRays(Track track) {
+        RandomXS128 random = new RandomXS128(track.getId().hashCode());
+        float width = track.getMapWidth() * Constants.UNIT_FOR_PIXEL;
+        float height = track.getMapHeight() * Constants.UNIT_FOR_PIXEL;
+        for (int idx = 0; idx < mRayCount; ++idx) {
+            float x = random.nextFloat() * width;
+            float y = random.nextFloat() * height;
+            float angle = random.nextFloat() * MathUtils.PI2;
+            mRays[idx * 4] = x;
+            mRays[idx * 4 + 1] = y;
+            mRays[idx * 4 + 2] = x + MathUtils.cos(angle) * RAY_LENGTH;
+            mRays[idx * 4 + 3] = y + MathUtils.sin(angle) * RAY_LENGTH;
+        }
+    }
+
+    /** Returns the number of rays per second */
+    private double timeBox2DRays(World world, float[] fractions) {
+        StaticBodyCallback callback = new StaticBodyCallback();
+        Vector2 p1 = new Vector2();
+        Vector2 p2 = new Vector2();
+        long start = System.nanoTime();
+        for (int idx = 0; idx < mRayCount; ++idx) {
+            p1.set(mRays[idx * 4], mRays[idx * 4 + 1]);
+            p2.set(mRays[idx * 4 + 2], mRays[idx * 4 + 3]);
+            callback.mFraction = StaticGeometry.NO_HIT;
+            world.rayCast(callback, p1, p2);
+            fractions[idx] = callback.mFraction;
+        }
+        return getRate(mRayCount, start);
+    }
+
+    private double timeBvhRays(StaticGeometry geometry, float[] fractions) {
+        long start = System.nanoTime();
+        castBvhRays(geometry, fractions);
+        return getRate(mRayCount, start);
+    }
+
+    /** Each thread casts all the rays, so that the work per thread is the same as above */
+    private double timeParallelBvhRays(StaticGeometry geometry, int threadCount) {
+        Thread[] threads = new Thread[threadCount];
+        for (int idx = 0; idx < threadCount; ++idx) {
+            float[] fractions = new float[mRayCount];
+            threads[idx] = new Thread(() -> castBvhRays(geometry, fractions));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return getRate((long) mRayCount * threadCount, start);
+    }
+
+    private void castBvhRays(StaticGeometry geometry, float[] fractions) {
+        for (int idx = 0; idx < mRayCount; ++idx) {
+            int offset = idx * 4;
+            fractions[idx] =
+                    geometry.rayCast(
+                            mRays[offset], mRays[offset + 1], mRays[offset + 2], mRays[offset + 3]);
+        }
+    }
+
+    private static double getRate(long rayCount, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return rayCount / seconds;
+    }
+
+    private static String formatRate(double raysPerSecond) {
+        return String.format("%.2f M/s", raysPerSecond / 1e6);
+    }
+}
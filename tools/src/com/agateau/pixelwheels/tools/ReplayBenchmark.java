@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.replay.RaceRecording;
+import com.agateau.pixelwheels.replay.RaceReplayer;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Replays recorded races without rendering them, checks they end the same way and measures the time
+ * spent in each part of the simulation
+ *
+ * <p>Usage: ReplayBenchmark [--save-baseline] [--tolerance PERCENT] BASELINE RECORDING...
+ *
+ * <p>RECORDING can be a .race file or a directory containing .race files. Timings are compared with
+ * the ones stored in BASELINE, a properties file. With --save-baseline, the timings are stored in
+ * BASELINE instead. Returns 1 if no recordings are found, if BASELINE does not exist, if a replay
+ * does not match its recording or if a timing is more than PERCENT (default: 20) slower than its
+ * baseline.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class ReplayBenchmark {
+    private static final float DEFAULT_TOLERANCE = 20;
+
+    private final Properties mBaseline = new Properties();
+    private float mTolerance = DEFAULT_TOLERANCE;
+    private boolean mSaveBaseline = false;
+    private boolean mFailed = false;
+    private HeadlessGame mGame;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("ReplayBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new ReplayBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        int idx = 0;
+        for (; idx < arguments.length && arguments[idx].startsWith("--"); ++idx) {
+            if (arguments[idx].equals("--save-baseline")) {
+                mSaveBaseline = true;
+            } else if (arguments[idx].equals("--tolerance") && idx + 1 < arguments.length) {
+                ++idx;
+                mTolerance = Float.parseFloat(arguments[idx]);
+            } else {
+                NLog.e("Unknown option %s", arguments[idx]);
+                return 1;
+            }
+        }
+        if (arguments.length - idx < 2) {
+            NLog.e(
+                    "Usage: ReplayBenchmark [--save-baseline] [--tolerance PERCENT] BASELINE"
+                            + " RECORDING...");
+            return 1;
+        }
+        FileHandle baselineFile = Gdx.files.absolute(arguments[idx]);
+        Array<FileHandle> recordingFiles = new Array<>();
+        for (++idx; idx < arguments.length; ++idx) {
+            FileHandle handle = Gdx.files.absolute(arguments[idx]);
+            if (handle.isDirectory()) {
+                recordingFiles.addAll(handle.list(".race"));
+            } else if (handle.exists()) {
+                recordingFiles.add(handle);
+            }
+        }
+        if (recordingFiles.isEmpty()) {
+            // An empty directory must not make the check pass
+            NLog.e(
+                    "No recordings found. Enable the \"Record races\" debug option, play some"
+                            + " races and copy the .race files from the races/ user directory");
+            return 1;
+        }
+
+        if (!mSaveBaseline) {
+            if (!baselineFile.exists()) {
+                NLog.e("No baseline in %s, create it with --save-baseline", baselineFile.path());
+                return 1;
+            }
+            loadBaseline(baselineFile);
+        }
+
+        mGame = HeadlessGame.createGame();
+
+        for (FileHandle file : recordingFiles) {
+            replay(file);
+        }
+
+        if (mSaveBaseline) {
+            saveBaseline(baselineFile);
+        }
+        return mFailed ? 1 : 0;
+    }
+
+    private void replay(FileHandle file) {
+        RaceRecording recording = RaceRecording.load(file);
+        RaceReplayer replayer = new RaceReplayer(recording);
+        GameInfo gameInfo = replayer.createGameInfo(mGame.getAssets());
+
+        PerformanceCounters counters = new PerformanceCounters();
+        PerformanceCounter actCounter = counters.add("GameWorld.act");
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, counters);
+        replayer.attach(world);
+
+        while (replayer.hasNextFrame()) {
+            float delta = replayer.nextFrame();
+            actCounter.start();
+            world.act(delta);
+            actCounter.stop();
+            counters.tick(delta);
+        }
+
+        String name = file.nameWithoutExtension();
+        Array<String> errors = replayer.checkResults(world);
+        if (errors.isEmpty()) {
+            System.out.printf(
+                    "%s: OK (%d frames, %.1fs)%n",
+                    name, recording.getFrameCount(), recording.getDuration());
+        } else {
+            System.out.printf("%s: FAILED%n", name);
+            for (String error : errors) {
+                System.out.printf("  %s%n", error);
+            }
+            mFailed = true;
+        }
+
+        for (PerformanceCounter counter : counters.counters) {
+            checkTiming(name + "." + counter.name, counter.time.average * 1000);
+        }
+        world.dispose();
+    }
+
+    private void checkTiming(String key, float ms) {
+        if (mSaveBaseline) {
+            System.out.printf("  %-40s %8.3f ms%n", key, ms);
+            mBaseline.setProperty(key, String.valueOf(ms));
+            return;
+        }
+        String baselineValue = mBaseline.getProperty(key);
+        if (baselineValue == null) {
+            System.out.printf("  %-40s %8.3f ms (no baseline)%n", key, ms);
+            return;
+        }
+        float baselineMs = Float.parseFloat(baselineValue);
+        float change = baselineMs > 0 ? (ms - baselineMs) / baselineMs * 100 : 0;
+        boolean tooSlow = change > mTolerance;
+        System.out.printf(
+                "  %-40s %8.3f ms (baseline: %8.3f ms, %+.1f%%)%s%n",
+                key, ms, baselineMs, change, tooSlow ? " TOO SLOW" : "");
+        if (tooSlow) {
+            mFailed = true;
+        }
+    }
+
+    private void loadBaseline(FileHandle file) {
+        try (InputStream in = file.read()) {
+            mBaseline.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load " + file.path(), e);
+        }
+    }
+
+    private void saveBaseline(FileHandle file) {
+        try (OutputStream out = file.write(/* append= */ false)) {
+            mBaseline.store(out, "Generated by ReplayBenchmark --save-baseline");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save " + file.path(), e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.bonus.Bullet;
+import com.agateau.pixelwheels.bonus.HitscanBullet;
+import com.agateau.pixelwheels.bonus.Mine;
+import com.agateau.pixelwheels.bonus.Missile;
+import com.agateau.pixelwheels.gameobjet.AnimationObject;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.racescreen.Helicopter;
+import com.agateau.pixelwheels.utils.Snapshot;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Checks that restoring a snapshot of the world gives back a world which runs exactly the same way
+ *
+ * <p>Usage: SnapshotCheck
+ *
+ * <p>For each track, runs an AI-only race. Every CHECK_INTERVAL frames, saves a snapshot, runs
+ * STEP_COUNT frames and records the transform of each racer, then restores the snapshot, runs
+ * STEP_COUNT frames again and compares the transforms, which must be exactly the same. Snapshots
+ * are saved whatever the state of the race, including when mines, missiles, bullets, helicopters or
+ * explosions are around and when racers hold bonuses: the "With objects" column counts the checks
+ * which had some. Returns 1 if a check fails or if a snapshot cannot be saved.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class SnapshotCheck {
+    private static final long RANDOM_SEED = 12345;
+    private static final float FRAME_DELTA = 1 / 60f;
+    private static final int RACE_FRAME_COUNT = 60 * 90;
+    private static final int CHECK_INTERVAL = 60;
+    private static final int STEP_COUNT = 30;
+
+    private HeadlessGame mGame;
+    private final Snapshot mSnapshot = new Snapshot();
+    private final FloatArray mTransforms = new FloatArray();
+
+    public static void main(String[] args) {
+        new CommandLineApplication("SnapshotCheck", args) {
+            @Override
+            int run(String[] arguments) {
+                return new SnapshotCheck().run();
+            }
+        };
+    }
+
+    private int run() {
+        mGame = HeadlessGame.createGame();
+        boolean failed = false;
+        System.out.printf("%-20s %8s %14s %10s%n", "Track", "Checks", "With objects", "Failures");
+        for (Championship championship : mGame.getAssets().championships) {
+            for (Track track : championship.getTracks()) {
+                failed = checkTrack(track) || failed;
+            }
+        }
+        return failed ? 1 : 0;
+    }
+
+    /** Returns true if a check failed */
+    private boolean checkTrack(Track track) {
+        GameInfo gameInfo =
+                new AIOnlyGameInfo(
+                        track, mGame.getAssets().vehicleDefs, GamePlay.instance.racerCount);
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, new PerformanceCounters());
+        world.setRandomSeed(RANDOM_SEED);
+        world.disablePhysicsQualityAdaptation();
+
+        int checkCount = 0;
+        int withObjectsCount = 0;
+        int failureCount = 0;
+        for (int frame = 0; frame < RACE_FRAME_COUNT; frame += CHECK_INTERVAL) {
+            if (world.getState() == GameWorld.State.FINISHED) {
+                break;
+            }
+            if (!world.canSaveSnapshot()) {
+                System.out.printf(
+                        "%-20s cannot save a snapshot at frame %d%n", track.getId(), frame);
+                ++failureCount;
+                break;
+            }
+            ++checkCount;
+            if (hasShortLivedObjects(world)) {
+                ++withObjectsCount;
+            }
+            world.saveSnapshot(mSnapshot);
+            run(world, STEP_COUNT);
+            saveTransforms(world.getRacers());
+
+            world.restoreSnapshot(mSnapshot);
+            run(world, STEP_COUNT);
+            if (!hasSameTransforms(world.getRacers())) {
+                ++failureCount;
+            }
+            run(world, CHECK_INTERVAL - STEP_COUNT);
+        }
+        world.dispose();
+        System.out.printf(
+                "%-20s %8d %14d %10d%n", track.getId(), checkCount, withObjectsCount, failureCount);
+        return failureCount > 0;
+    }
+
+    private static void run(GameWorldImpl world, int frameCount) {
+        for (int idx = 0; idx < frameCount; ++idx) {
+            world.act(FRAME_DELTA);
+        }
+    }
+
+    private static boolean hasShortLivedObjects(GameWorldImpl world) {
+        for (Racer racer : world.getRacers()) {
+            if (racer.getBonus() != null) {
+                return true;
+            }
+        }
+        for (GameObject object : world.getActiveGameObjects()) {
+            if (object instanceof Mine
+                    || object instanceof Missile
+                    || object instanceof Bullet
+                    || object instanceof HitscanBullet
+                    || object instanceof AnimationObject
+                    || object instanceof Helicopter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void saveTransforms(Array<Racer> racers) {
+        mTransforms.clear();
+        for (Racer racer : racers) {
+            mTransforms.add(racer.getX());
+            mTransforms.add(racer.getY());
+            mTransforms.add(racer.getVehicle().getAngle());
+        }
+    }
+
+    private boolean hasSameTransforms(Array<Racer> racers) {
+        for (int idx = 0; idx < racers.size; ++idx) {
+            Racer racer = racers.get(idx);
+            // Racers are sorted by rank, so this also checks the ranks
+            if (racer.getX() != mTransforms.get(idx * 3)
+                    || racer.getY() != mTransforms.get(idx * 3 + 1)
+                    || racer.getVehicle().getAngle() != mTransforms.get(idx * 3 + 2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Compares the cost of the JOINTED_WHEELS and SINGLE_BODY vehicle physics models
+ *
+ * <p>Usage: VehiclePhysicsBenchmark [TRACK_ID]
+ *
+ * <p>Runs AI-only races on TRACK_ID (default: the first track) with 6, 12 and 24 racers, once with
+ * each model, and prints the number of bodies and the average time spent in the physics step and in
+ * the whole frame.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class VehiclePhysicsBenchmark {
+    private static final int[] RACER_COUNTS = {6, 12, 24};
+    private static final long RANDOM_SEED = 12345;
+    private static final float FRAME_DELTA = 1 / 60f;
+    // Skips the countdown and the start, when racers are all packed together
+    private static final int WARM_UP_FRAME_COUNT = 60 * 8;
+    private static final int FRAME_COUNT = 60 * 10;
+
+    private HeadlessGame mGame;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("VehiclePhysicsBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new VehiclePhysicsBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        mGame = HeadlessGame.createGame();
+        Track track;
+        if (arguments.length > 0) {
+            track = mGame.getAssets().findTrackById(arguments[0]);
+            if (track == null) {
+                NLog.e("Unknown track %s", arguments[0]);
+                return 1;
+            }
+        } else {
+            track = mGame.getAssets().championships.first().getTracks().first();
+        }
+
+        System.out.printf("Track: %s%n", track.getId());
+        System.out.printf(
+                "%7s %-14s %7s %10s %10s%n", "Racers", "Model", "Bodies", "Box2D", "Frame");
+        boolean singleBodyAIVehicles = GamePlay.instance.singleBodyAIVehicles;
+        for (int racerCount : RACER_COUNTS) {
+            GamePlay.instance.singleBodyAIVehicles = false;
+            benchmark(track, racerCount, "JOINTED_WHEELS");
+            GamePlay.instance.singleBodyAIVehicles = true;
+            benchmark(track, racerCount, "SINGLE_BODY");
+        }
+        GamePlay.instance.singleBodyAIVehicles = singleBodyAIVehicles;
+        return 0;
+    }
+
+    private void benchmark(Track track, int racerCount, String modelName) {
+        track.init();
+        Array<Vector2> positions = track.findStartTilePositions();
+        track.addGridPositions(positions, racerCount);
+        if (positions.size < racerCount) {
+            System.out.printf(
+                    "%7d: only room for %d racers on this track%n", racerCount, positions.size);
+            return;
+        }
+
+        AIOnlyGameInfo gameInfo =
+                new AIOnlyGameInfo(track, mGame.getAssets().vehicleDefs, racerCount);
+        PerformanceCounters counters = new PerformanceCounters();
+        PerformanceCounter actCounter = counters.add("GameWorld.act");
+        GameWorldImpl world = new GameWorldImpl(mGame, gameInfo, counters);
+        world.setRandomSeed(RANDOM_SEED);
+        world.disablePhysicsQualityAdaptation();
+
+        for (int frame = 0; frame < WARM_UP_FRAME_COUNT; ++frame) {
+            world.act(FRAME_DELTA);
+        }
+        for (PerformanceCounter counter : counters.counters) {
+            counter.reset();
+        }
+        for (int frame = 0; frame < FRAME_COUNT; ++frame) {
+            actCounter.start();
+            world.act(FRAME_DELTA);
+            actCounter.stop();
+            counters.tick(FRAME_DELTA);
+        }
+
+        System.out.printf(
+                "%7d %-14s %7d %7.3f ms %7.3f ms%n",
+                racerCount,
+                modelName,
+                world.getBox2DWorld().getBodyCount(),
+                getAverageMs(counters, "- box2d"),
+                getAverageMs(counters, "GameWorld.act"));
+        world.dispose();
+    }
+
+    private static double getAverageMs(PerformanceCounters counters, String name) {
+        for (PerformanceCounter counter : counters.counters) {
+            if (counter.name.equals(name)) {
+                return counter.time.average * 1000;
+            }
+        }
+        return 0;
+    }
+}
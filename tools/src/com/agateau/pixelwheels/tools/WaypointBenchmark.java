@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.map.WaypointStore;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+
+/**
+ * Compares the ways to find the waypoint index of a lap distance: the linear scan WaypointStore
+ * used to do, the binary search of WaypointStore.getWaypointIndex() and WaypointStore.Cursor
+ *
+ * <p>Usage: WaypointBenchmark [DENSITY]
+ *
+ * <p>Runs on the waypoints of each track, then on the same waypoints with DENSITY (default: 16)
+ * waypoints between each of them, to see how the lookups scale. Queries either follow a racer
+ * driving a lap per minute at 60 FPS, or jump to random lap distances.
+ *
+ * <p>Must run from the android/assets directory, like the game.
+ */
+public class WaypointBenchmark {
+    private static final int DEFAULT_DENSITY = 16;
+    private static final int QUERY_COUNT = 1000000;
+    private static final int FRAMES_PER_LAP = 60 * 60;
+
+    private int mDensity = DEFAULT_DENSITY;
+    private final float[] mFollowQueries = new float[QUERY_COUNT];
+    private final float[] mRandomQueries = new float[QUERY_COUNT];
+    private final int[] mExpected = new int[QUERY_COUNT];
+    // Keeps the JIT from dropping the lookups
+    private long mChecksum = 0;
+
+    public static void main(String[] args) {
+        new CommandLineApplication("WaypointBenchmark", args) {
+            @Override
+            int run(String[] arguments) {
+                return new WaypointBenchmark().run(arguments);
+            }
+        };
+    }
+
+    private int run(String[] arguments) {
+        if (arguments.length > 0) {
+            mDensity = Integer.parseInt(arguments[0]);
+        }
+        HeadlessGame game = HeadlessGame.createGame();
+        System.out.printf(
+                "%-20s %9s %-7s %12s %12s %12s %10s%n",
+                "Track", "Waypoints", "Queries", "Linear", "Binary", "Cursor", "Mismatches");
+        boolean failed = false;
+        for (Championship championship : game.getAssets().championships) {
+            for (Track track : championship.getTracks()) {
+                track.init();
+                float lapLength = track.getLapPositionTable().getSectionCount();
+                createQueries(track.getId().hashCode(), lapLength);
+                WaypointStore store = track.getWaypointStore();
+                failed |= benchmark(track.getId(), store);
+                failed |= benchmark(track.getId(), densify(store));
+                track.dispose();
+            }
+        }
+        System.out.printf("Checksum: %d%n", mChecksum);
+        return failed ? 1 : 0;
+    }
+
+    private void createQueries(long seed, float lapLength) {
+        RandomXS128 random = new RandomXS128(seed);
+        float step = lapLength / FRAMES_PER_LAP;
+        float distance = 0;
+        for (int idx = 0; idx < QUERY_COUNT; ++idx) {
+            mFollowQueries[idx] = distance;
+            distance = (distance + step) % lapLength;
+            mRandomQueries[idx] = random.nextFloat() * lapLength;
+        }
+    }
+
+    /** Returns true if a lookup returned a different index than the linear scan */
+    private boolean benchmark(String trackId, WaypointStore store) {
+        boolean failed = benchmark(trackId, store, "follow", mFollowQueries);
+        failed |= benchmark(trackId, store, "random", mRandomQueries);
+        return failed;
+    }
+
+    private boolean benchmark(
+            String trackId, WaypointStore store, String queryName, float[] queries) {
+        double linearTime = 0;
+        double binaryTime = 0;
+        double cursorTime = 0;
+        int mismatchCount = 0;
+        // Run everything twice, so that the second run happens once the JIT has done its job
+        for (int run = 0; run < 2; ++run) {
+            long start = System.nanoTime();
+            for (int idx = 0; idx < QUERY_COUNT; ++idx) {
+                mExpected[idx] = findIndexLinearly(store, queries[idx]);
+            }
+            linearTime = getNanosPerQuery(start);
+
+            start = System.nanoTime();
+            for (int idx = 0; idx < QUERY_COUNT; ++idx) {
+                mChecksum += store.getWaypointIndex(queries[idx]);
+            }
+            binaryTime = getNanosPerQuery(start);
+
+            WaypointStore.Cursor cursor = new WaypointStore.Cursor(store);
+            start = System.nanoTime();
+            for (int idx = 0; idx < QUERY_COUNT; ++idx) {
+                mChecksum += cursor.getWaypointIndex(queries[idx]);
+            }
+            cursorTime = getNanosPerQuery(start);
+
+            mismatchCount = 0;
+            cursor = new WaypointStore.Cursor(store);
+            for (int idx = 0; idx < QUERY_COUNT; ++idx) {
+                int expected = mExpected[idx];
+                if (store.getWaypointIndex(queries[idx]) != expected
+                        || cursor.getWaypointIndex(queries[idx]) != expected) {
+                    ++mismatchCount;
+                }
+            }
+        }
+        System.out.printf(
+                "%-20s %9d %-7s %9.1f ns %9.1f ns %9.1f ns %10d%n",
+                trackId,
+                store.getCount(),
+                queryName,
+                linearTime,
+                binaryTime,
+                cursorTime,
+                mismatchCount);
+        return mismatchCount > 0;
+    }
+
+    /** The way WaypointStore.getWaypointIndex() used to work */
+    private static int findIndexLinearly(WaypointStore store, float lapDistance) {
+        for (int idx = 0; idx < store.getCount(); ++idx) {
+            if (lapDistance < store.getLapDistance(idx)) {
+                return idx;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns a store with mDensity waypoints between each waypoint of store */
+    private WaypointStore densify(WaypointStore store) {
+        // Do not add waypoints between the last and the first waypoints: lap distances wrap there
+        int count = (store.getCount() - 1) * (mDensity + 1) + 1;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] lapDistances = new float[count];
+        int denseIdx = 0;
+        for (int idx = 0; idx < store.getCount(); ++idx) {
+            int stepCount = idx < store.getCount() - 1 ? mDensity + 1 : 1;
+            int next = store.getNextIndex(idx);
+            for (int step = 0; step < stepCount; ++step) {
+                float k = step / (float) (mDensity + 1);
+                x[denseIdx] = MathUtils.lerp(store.getWaypointX(idx), store.getWaypointX(next), k);
+                y[denseIdx] = MathUtils.lerp(store.getWaypointY(idx), store.getWaypointY(next), k);
+                lapDistances[denseIdx] =
+                        MathUtils.lerp(store.getLapDistance(idx), store.getLapDistance(next), k);
+                ++denseIdx;
+            }
+        }
+        WaypointStore denseStore = new WaypointStore();
+        denseStore.setWaypoints(x, y, lapDistances);
+        return denseStore;
+    }
+
+    private static double getNanosPerQuery(long startNanos) {
+        return (System.nanoTime() - startNanos) / (double) QUERY_COUNT;
+    }
+}